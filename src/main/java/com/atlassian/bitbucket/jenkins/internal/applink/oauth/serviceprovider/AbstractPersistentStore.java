@@ -4,6 +4,10 @@ import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.ex
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.google.common.annotations.VisibleForTesting;
 import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
 import hudson.BulkChange;
 import hudson.CopyOnWrite;
 import hudson.XmlFile;
@@ -14,21 +18,26 @@ import hudson.util.XStream2;
 import jenkins.model.Jenkins;
 import jenkins.util.io.OnMaster;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 public abstract class AbstractPersistentStore<T> implements Saveable, OnMaster {
 
     private static final Logger log = Logger.getLogger(AbstractPersistentStore.class.getName());
 
+    private static final int IMPORT_BATCH_SIZE = 1000;
     private static final int PRIORITY = 100;
 
     @VisibleForTesting
@@ -38,31 +47,141 @@ public abstract class AbstractPersistentStore<T> implements Saveable, OnMaster {
     protected volatile Map<String, T> entityMap;
 
     private final String configFileName;
+    private final transient Class<T> entityType;
+    private final transient OAuthMetrics.Timer saveTimer = new OAuthMetrics.Timer();
+    /**
+     * Set once {@link #entityMap} holds the loaded entities. It is written after {@link #entityMap}, so a reader that
+     * sees it set also sees the loaded map, and never the partially unmarshalled one.
+     */
+    private transient volatile boolean loaded;
 
-    protected AbstractPersistentStore(String configFileName, Converter entityConverter) {
+    protected AbstractPersistentStore(String configFileName, Class<T> entityType, Converter entityConverter) {
         this.configFileName = requireNonNull(configFileName, "configFileName");
+        this.entityType = requireNonNull(entityType, "entityType");
         xStream = new XStream2();
         xStream.registerConverter(entityConverter, PRIORITY);
     }
 
-    public synchronized void load() {
-        if (entityMap != null) {
-            return;
+    /**
+     * Writes every entity to the given writer, one at a time, as children of its current node.
+     *
+     * @param writer the writer, positioned at the node to write the entities in
+     */
+    public void exportTo(HierarchicalStreamWriter writer) {
+        load();
+        // The map is copy-on-write, so this writes the entities as they were when the export started
+        for (T entity : entityMap.values()) {
+            xStream.marshal(entity, writer);
         }
+    }
 
-        XmlFile configFile = getConfigFile();
-        if (configFile.exists() && configFile.getFile().length() > 0) {
+    /**
+     * Reads entities, one at a time, from the children of the reader's current node, as written by
+     * {@link #exportTo(HierarchicalStreamWriter)}, and adds them to the store, replacing any entity with the same key.
+     * An entity that cannot be read, or is not valid, is skipped. Entities are added in batches, so only one batch is
+     * held in memory at a time, and the store is saved once at the end. If reading fails part way through, the
+     * batches added before the failure are kept and saved.
+     *
+     * @param reader the reader, positioned at the node holding the entities
+     * @return the number of entities imported and skipped
+     */
+    public ImportResult importFrom(HierarchicalStreamReader reader) {
+        load();
+        ImportResult result = new ImportResult();
+        BulkChange bulkChange = new BulkChange(this);
+        try {
+            Map<String, T> batch = new HashMap<>();
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                T entity = readEntity(reader);
+                reader.moveUp();
+                if (entity == null) {
+                    result.skipped++;
+                    continue;
+                }
+                batch.put(getKey(entity), entity);
+                result.imported++;
+                if (batch.size() >= IMPORT_BATCH_SIZE) {
+                    putAll(batch);
+                    batch.clear();
+                }
+            }
+            putAll(batch);
+        } finally {
             try {
-                configFile.unmarshal(this);
+                bulkChange.commit();
             } catch (IOException e) {
-                log.log(SEVERE, "Failed to load items from disk", e);
-                throw new StoreException("Failed to load from disk", e);
+                log.log(SEVERE, "Failed to persist items to disk", e);
+                throw new StoreException("Failed to persist to disk", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return how often, and for how long, the entities have been written to the {@link #getConfigFile() config file}
+     */
+    public OAuthMetrics.Timer getSaveTimer() {
+        return saveTimer;
+    }
+
+    /**
+     * Loads the entities from disk on first use. Once loaded, this returns without taking a lock, so lookups on the
+     * hot path of every OAuth request do not contend with each other.
+     */
+    public void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (entityMap == null) {
+                XmlFile configFile = getConfigFile();
+                if (configFile.exists() && configFile.getFile().length() > 0) {
+                    try {
+                        configFile.unmarshal(this);
+                    } catch (IOException e) {
+                        entityMap = null;
+                        log.log(SEVERE, "Failed to load items from disk", e);
+                        throw new StoreException("Failed to load from disk", e);
+                    }
+                }
+                // storedMap will be unmarshalled as a HashMap if the config file exists, otherwise will be null.
+                // Either way, we convert it to the Jenkins-provided concurrent copy-on-write Map that will be copied
+                // on each save and written to disk, until the next Jenkins restart
+                entityMap = new CopyOnWriteMap.Hash<>(entityMap != null ? entityMap : emptyMap());
+                afterLoad();
             }
+            loaded = true;
         }
-        // storedMap will be unmarshalled as a HashMap if the config file exists, otherwise will be null. Either
-        // way, we convert it to the Jenkins-provided concurrent copy-on-write Map that will be copied on each save and
-        // written to disk, until the next Jenkins restart
-        entityMap = new CopyOnWriteMap.Hash<>(entityMap != null ? entityMap : emptyMap());
+    }
+
+    /**
+     * Returns the key the given entity is stored under.
+     *
+     * @param entity the entity
+     * @return the key of the entity
+     */
+    protected abstract String getKey(T entity);
+
+    /**
+     * Adds a batch of imported entities to the store, replacing any entities with the same keys. Stores that keep
+     * other state about their entities update it here.
+     *
+     * @param entities the entities, by key
+     */
+    protected void putAll(Map<String, T> entities) {
+        entityMap.putAll(entities);
+    }
+
+    /**
+     * Called, holding the store's monitor, once the entities have been read from disk and before they are made
+     * available to lookups. Stores that persist changes outside of the {@link #getConfigFile() config file} apply them
+     * to {@link #entityMap} here.
+     */
+    protected void afterLoad() {
     }
 
     @Override
@@ -71,14 +190,25 @@ public abstract class AbstractPersistentStore<T> implements Saveable, OnMaster {
             return;
         }
 
+        long start = System.nanoTime();
         try {
             getConfigFile().write(this);
         } catch (IOException e) {
             log.log(SEVERE, "Failed to persist items to disk", e);
             throw new StoreException("Failed to persist to disk", e);
+        } finally {
+            saveTimer.recordSince(start);
         }
     }
 
+    /**
+     * @return the number of entities in the store
+     */
+    public int size() {
+        load();
+        return entityMap.size();
+    }
+
     /**
      * The file where {@link ServiceProviderToken tokens} are saved
      */
@@ -102,4 +232,49 @@ public abstract class AbstractPersistentStore<T> implements Saveable, OnMaster {
         }
         return Secret.toString(Secret.decrypt(encryptedValue));
     }
+
+    /**
+     * Reads the entity at the reader's current node, leaving the reader at that node even if the entity cannot be read.
+     */
+    @CheckForNull
+    private T readEntity(HierarchicalStreamReader reader) {
+        String nodeName = reader.getNodeName();
+        if (!nodeName.equals(xStream.getMapper().serializedClass(entityType))) {
+            // Only ever unmarshal the type of entity this store holds
+            log.warning(() -> String.format("Skipping unexpected node '%s'", nodeName));
+            return null;
+        }
+        // The entity is copied out so that a malformed entity can be skipped without losing the reader's position
+        StringWriter xml = new StringWriter();
+        new HierarchicalStreamCopier().copy(reader, new CompactWriter(xml));
+        try {
+            T entity = entityType.cast(xStream.fromXML(xml.toString()));
+            if (isBlank(getKey(entity))) {
+                log.warning("Skipping entity without a key");
+                return null;
+            }
+            return entity;
+        } catch (RuntimeException e) {
+            log.log(WARNING, "Skipping entity that could not be read", e);
+            return null;
+        }
+    }
+
+    /**
+     * The number of entities {@link #importFrom(HierarchicalStreamReader) imported} into a store, and the number that
+     * were skipped.
+     */
+    public static final class ImportResult {
+
+        private int imported;
+        private int skipped;
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+    }
 }
@@ -0,0 +1,228 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider;
+
+import net.oauth.OAuthProblemException;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the outcomes of the OAuth service provider's endpoints and times the phases of authenticating an OAuth
+ * request, for the diagnostics page. Failures are counted by their OAuth problem, such as {@code token_rejected}, or
+ * by the type of the exception if it is not an {@link OAuthProblemException}.
+ * <p>
+ * Counters are only ever added to, so recording does not wait on other requests recording at the same time.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class OAuthMetrics {
+
+    /**
+     * The outcome counted for a request that succeeded.
+     */
+    public static final String SUCCESS = "success";
+
+    private final Map<Endpoint, ConcurrentMap<String, LongAdder>> outcomes = new EnumMap<>(Endpoint.class);
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+    public OAuthMetrics() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            outcomes.put(endpoint, new ConcurrentHashMap<>());
+        }
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, new Timer());
+        }
+    }
+
+    /**
+     * @return the number of requests with each outcome, by endpoint and then outcome
+     */
+    public List<Outcome> getOutcomes() {
+        List<Outcome> result = new ArrayList<>();
+        outcomes.forEach((endpoint, counts) -> {
+            List<Outcome> endpointOutcomes = new ArrayList<>();
+            counts.forEach((outcome, count) -> endpointOutcomes.add(new Outcome(endpoint, outcome, count.sum())));
+            endpointOutcomes.sort((o1, o2) -> o1.getOutcome().compareTo(o2.getOutcome()));
+            result.addAll(endpointOutcomes);
+        });
+        return Collections.unmodifiableList(result);
+    }
+
+    public Timer getTimer(Phase phase) {
+        return timers.get(phase);
+    }
+
+    /**
+     * @return the timer of each phase, in the order the phases run
+     */
+    public Map<Phase, Timer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * Counts a request to an endpoint with an outcome that is neither a success nor a failure, such as a user denying
+     * access to a consumer.
+     *
+     * @param endpoint the endpoint
+     * @param outcome  the outcome of the request
+     */
+    public void record(Endpoint endpoint, String outcome) {
+        outcomes.get(endpoint).computeIfAbsent(outcome, o -> new LongAdder()).increment();
+    }
+
+    public void recordFailure(Endpoint endpoint, Throwable failure) {
+        String outcome = failure instanceof OAuthProblemException ?
+                ((OAuthProblemException) failure).getProblem() :
+                failure.getClass().getSimpleName();
+        record(endpoint, outcome);
+    }
+
+    public void recordSuccess(Endpoint endpoint) {
+        record(endpoint, SUCCESS);
+    }
+
+    /**
+     * The parts of the service provider whose outcomes are counted.
+     */
+    public enum Endpoint {
+
+        /**
+         * Authenticating a request signed with an access token
+         */
+        AUTHENTICATION,
+        /**
+         * Issuing a request token
+         */
+        REQUEST_TOKEN,
+        /**
+         * A user authorizing or denying a request token
+         */
+        AUTHORIZATION,
+        /**
+         * Exchanging an authorized request token, or renewing an access token, for an access token
+         */
+        ACCESS_TOKEN
+    }
+
+    /**
+     * The timed phases of authenticating a request signed with an access token.
+     */
+    public enum Phase {
+
+        /**
+         * Looking up the access token in the token store
+         */
+        TOKEN_LOOKUP,
+        /**
+         * Verifying the signature, timestamp and nonce of the request
+         */
+        SIGNATURE_VALIDATION,
+        /**
+         * Resolving the user the access token was issued to
+         */
+        USER_RESOLUTION,
+        /**
+         * Authenticating the request as a whole, including the phases above
+         */
+        TOTAL
+    }
+
+    /**
+     * The number of requests to an endpoint with one outcome.
+     */
+    public static final class Outcome {
+
+        private final long count;
+        private final Endpoint endpoint;
+        private final String outcome;
+
+        Outcome(Endpoint endpoint, String outcome, long count) {
+            this.endpoint = endpoint;
+            this.outcome = outcome;
+            this.count = count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+
+        public boolean isSuccess() {
+            return SUCCESS.equals(outcome);
+        }
+    }
+
+    /**
+     * Records how many times an operation ran, and how long it took on average and at most.
+     */
+    @ThreadSafe
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LongAdder total = new LongAdder();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the longest the operation took, in milliseconds
+         */
+        public double getMaxMillis() {
+            return toMillis(max.get());
+        }
+
+        /**
+         * @return the average time the operation took, in milliseconds, or 0 if it has not run
+         */
+        public double getMeanMillis() {
+            // Read the total first, so a concurrent record at worst makes the mean slightly low
+            long totalNanos = total.sum();
+            long runs = count.sum();
+            return runs == 0 ? 0 : toMillis(totalNanos) / runs;
+        }
+
+        /**
+         * Records a run of the operation.
+         *
+         * @param durationNanos how long the operation took, in nanoseconds
+         */
+        public void record(long durationNanos) {
+            total.add(durationNanos);
+            count.increment();
+            max.accumulate(durationNanos);
+        }
+
+        /**
+         * Records a run of the operation that started at the given time.
+         *
+         * @param startNanos the {@link System#nanoTime()} when the operation started
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        private static double toMillis(long nanos) {
+            return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.AbstractPersistentStore.ImportResult;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.PersistentServiceProviderConsumerStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.StoreException;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.PersistentServiceProviderTokenStore;
+import com.thoughtworks.xstream.io.HierarchicalStreamDriver;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import hudson.util.XStream2;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+
+/**
+ * Exports the OAuth consumers and tokens to, and imports them from, a single XML document, one entry at a time. This
+ * moves the stores between controllers without copying their files, and restores even very large token stores without
+ * reading the whole document into memory.
+ * <p>
+ * Consumers are written before tokens, because a token can only be imported once its consumer exists. Token values and
+ * secrets stay encrypted with the controller's secret key, just as they are in the store files, so the importing
+ * controller must share that key.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+public class OAuthStoreTransfer {
+
+    static final String CONSUMERS = "consumers";
+    static final String ROOT = "bitbucket-oauth";
+    static final String TOKENS = "tokens";
+
+    private static final Logger log = Logger.getLogger(OAuthStoreTransfer.class.getName());
+
+    private final PersistentServiceProviderConsumerStore consumerStore;
+    private final PersistentServiceProviderTokenStore tokenStore;
+
+    @Inject
+    public OAuthStoreTransfer(PersistentServiceProviderConsumerStore consumerStore,
+                              PersistentServiceProviderTokenStore tokenStore) {
+        this.consumerStore = consumerStore;
+        this.tokenStore = tokenStore;
+    }
+
+    /**
+     * Writes every consumer and token to the given stream.
+     *
+     * @param out the stream to write to, which is left open
+     */
+    public void exportTo(OutputStream out) {
+        HierarchicalStreamWriter writer = getDriver().createWriter(out);
+        writer.startNode(ROOT);
+        writer.startNode(CONSUMERS);
+        consumerStore.exportTo(writer);
+        writer.endNode();
+        writer.startNode(TOKENS);
+        tokenStore.exportTo(writer);
+        writer.endNode();
+        writer.endNode();
+        writer.flush();
+    }
+
+    /**
+     * Adds the consumers and tokens read from the given stream, as written by {@link #exportTo(OutputStream)}, to the
+     * stores, replacing any with the same key. Each store is saved once.
+     *
+     * @param in the stream to read from
+     * @return the number of consumers and tokens imported and skipped
+     */
+    public Summary importFrom(InputStream in) {
+        HierarchicalStreamReader reader = getDriver().createReader(in);
+        if (!ROOT.equals(reader.getNodeName())) {
+            throw new StoreException("Not an export of the Bitbucket OAuth stores: " + reader.getNodeName());
+        }
+        Summary summary = new Summary();
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            switch (reader.getNodeName()) {
+                case CONSUMERS:
+                    summary.consumers = consumerStore.importFrom(reader);
+                    break;
+                case TOKENS:
+                    summary.tokens = tokenStore.importFrom(reader);
+                    break;
+                default:
+                    log.warning(() -> String.format("Skipping unexpected node '%s'", reader.getNodeName()));
+            }
+            reader.moveUp();
+        }
+        return summary;
+    }
+
+    private static HierarchicalStreamDriver getDriver() {
+        // The same secure, streaming driver Jenkins reads its own configuration files with
+        return XStream2.getDefaultDriver();
+    }
+
+    /**
+     * The number of consumers and tokens imported, and skipped.
+     */
+    public static final class Summary {
+
+        private ImportResult consumers = new ImportResult();
+        private ImportResult tokens = new ImportResult();
+
+        public ImportResult getConsumers() {
+            return consumers;
+        }
+
+        public ImportResult getTokens() {
+            return tokens;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d consumers (%d skipped) and %d tokens (%d skipped)",
+                    consumers.getImported(), consumers.getSkipped(), tokens.getImported(), tokens.getSkipped());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.OAuthConverter;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Phase;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthRequestUtils;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.Consumer;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
@@ -8,7 +10,11 @@ import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.ex
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.NoSuchUserException;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenStore;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import hudson.model.User;
+import net.oauth.OAuthAccessor;
 import net.oauth.OAuthException;
 import net.oauth.OAuthMessage;
 import net.oauth.OAuthProblemException;
@@ -18,6 +24,7 @@ import net.oauth.server.OAuthServlet;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -26,8 +33,11 @@ import java.net.URISyntaxException;
 import java.time.Clock;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint.AUTHENTICATION;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.OAuthProblemUtils.logOAuthRequest;
 import static java.lang.String.format;
 import static java.util.logging.Level.*;
@@ -41,12 +51,38 @@ import static org.apache.http.HttpHeaders.AUTHORIZATION;
 /**
  * Authenticates a request based on provided OAuth1 fields.
  * Tested by the
+ * <p>
+ * The accessor built for each access token and the user each token resolves to are cached, so an authenticated request
+ * from a known token only verifies the signature. Accessors are keyed by the token instance held in the
+ * {@link ServiceProviderTokenStore}: replacing or removing the token makes its accessor unreachable. Users are dropped
+ * when they are deleted, and otherwise re-resolved after {@link #USER_CACHE_DURATION}.
+ * <p>
+ * The outcome of authenticating each OAuth request, and the time spent in each {@link Phase phase}, is recorded in
+ * the {@link OAuthMetrics}.
  */
+@Singleton
 public class OAuth1Authenticator {
 
+    /**
+     * Time a resolved user is cached for, in ms.
+     */
+    public static final long USER_CACHE_DURATION = TimeUnit.MINUTES.toMillis(5);
+
     private static final Logger log = Logger.getLogger(OAuth1Authenticator.class.getName());
+    private static final long MAX_CACHED_ENTRIES = 10000;
+
+    // Weak keys compare tokens by identity, so an accessor is only ever reused for the exact token it was built from
+    private final Cache<ServiceProviderToken, OAuthAccessor> accessorCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_CACHED_ENTRIES)
+            .build();
+    private final Cache<String, User> userCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(USER_CACHE_DURATION, TimeUnit.MILLISECONDS)
+            .maximumSize(MAX_CACHED_ENTRIES)
+            .build();
     private final Clock clock;
     private final ServiceProviderConsumerStore consumerStore;
+    private final OAuthMetrics metrics;
     private final OAuthRequestUtils oAuthRequestUtils;
     private final SecurityModeChecker securityChecker;
     private final ServiceProviderTokenStore tokenStore;
@@ -58,13 +94,15 @@ public class OAuth1Authenticator {
                                OAuthValidator validator,
                                Clock clock,
                                SecurityModeChecker securityChecker,
-                               OAuthRequestUtils oAuthRequestUtils) {
+                               OAuthRequestUtils oAuthRequestUtils,
+                               OAuthMetrics metrics) {
         this.consumerStore = consumerStore;
         this.tokenStore = tokenStore;
         this.validator = validator;
         this.clock = clock;
         this.securityChecker = securityChecker;
         this.oAuthRequestUtils = oAuthRequestUtils;
+        this.metrics = metrics;
     }
 
     /**
@@ -95,6 +133,38 @@ public class OAuth1Authenticator {
             return null;
         }
 
+        long start = System.nanoTime();
+        try {
+            User user = authenticate(message, tokenStr);
+            metrics.recordSuccess(AUTHENTICATION);
+            return user;
+        } catch (AuthenticationFailedException e) {
+            metrics.recordFailure(AUTHENTICATION, e.getCause() == null ? e : e.getCause());
+            throw e;
+        } finally {
+            metrics.getTimer(Phase.TOTAL).recordSince(start);
+        }
+    }
+
+    /**
+     * Stops reusing the user with the given ID, because it has been deleted.
+     *
+     * @param userId the ID of the user
+     */
+    public void invalidateUser(String userId) {
+        userCache.asMap().entrySet().removeIf(entry -> userId.equals(entry.getKey()) ||
+                                                       userId.equals(entry.getValue().getId()));
+    }
+
+    User getUser(String userName) throws NoSuchUserException {
+        User user = User.getById(userName, false);
+        if (user == null) {
+            throw new NoSuchUserException(format("No such user %s in the system", userName));
+        }
+        return user;
+    }
+
+    private User authenticate(OAuthMessage message, String tokenStr) throws AuthenticationFailedException {
         // Get the user associated with this token
         String user;
         try {
@@ -102,21 +172,16 @@ public class OAuth1Authenticator {
         } catch (Exception ex) {
             throw new AuthenticationFailedException(null, tokenStr, message, ex);
         }
+        long start = System.nanoTime();
         try {
-            return getUser(user);
+            return getCachedUser(user);
         } catch (NoSuchUserException e) {
             throw new AuthenticationFailedException(user, tokenStr, message, e);
+        } finally {
+            metrics.getTimer(Phase.USER_RESOLUTION).recordSince(start);
         }
     }
 
-    User getUser(String userName) throws NoSuchUserException {
-        User user = User.getById(userName, false);
-        if (user == null) {
-            throw new NoSuchUserException(format("No such user %s in the system", userName));
-        }
-        return user;
-    }
-
     private static String getBaseUrl(HttpServletRequest request) {
         String scheme = request.getScheme() + "://";
         String serverName = request.getServerName();
@@ -125,6 +190,26 @@ public class OAuth1Authenticator {
         return scheme + serverName + serverPort + contextPath;
     }
 
+    private OAuthAccessor getAccessor(ServiceProviderToken token) {
+        try {
+            return accessorCache.get(token, () -> OAuthConverter.createOAuthAccessor(token));
+        } catch (ExecutionException executionException) {
+            throw new RuntimeException(executionException.getCause());
+        } catch (UncheckedExecutionException uncheckedExecutionException) {
+            // We unwrap the exception in case consumers have handling for specific exception cases
+            throw (RuntimeException) uncheckedExecutionException.getCause();
+        }
+    }
+
+    private User getCachedUser(String userName) throws NoSuchUserException {
+        User user = userCache.getIfPresent(userName);
+        if (user == null) {
+            user = getUser(userName);
+            userCache.put(userName, user);
+        }
+        return user;
+    }
+
     @Nullable
     private String getLogicalUri(HttpServletRequest request) {
         String uriPathBeforeForwarding = (String) request.getAttribute(FORWARD_REQUEST_URI);
@@ -189,7 +274,12 @@ public class OAuth1Authenticator {
             throws OAuthException, IOException, URISyntaxException {
         printMessageToDebug(message);
 
-        validator.validateMessage(message, OAuthConverter.createOAuthAccessor(token));
+        long start = System.nanoTime();
+        try {
+            validator.validateMessage(message, getAccessor(token));
+        } finally {
+            metrics.getTimer(Phase.SIGNATURE_VALIDATION).recordSince(start);
+        }
     }
 
     private Consumer validateConsumer(OAuthMessage message) throws IOException, OAuthException {
@@ -206,12 +296,15 @@ public class OAuth1Authenticator {
                                String tokenStr) throws OAuthException, IOException, URISyntaxException {
         Optional<ServiceProviderToken> mayBeToken;
         ServiceProviderToken token;
+        long start = System.nanoTime();
         try {
             // the oauth_token must exist and it has to be valid
             mayBeToken = tokenStore.get(tokenStr);
         } catch (InvalidTokenException e) {
             log.log(FINE, format("3-Legged-OAuth Consumer provided token [%s] rejected by ServiceProviderTokenStore", tokenStr), e);
             throw new OAuthProblemException(TOKEN_REJECTED);
+        } finally {
+            metrics.getTimer(Phase.TOKEN_LOOKUP).recordSince(start);
         }
 
         // various validations on the token
@@ -0,0 +1,63 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the nonces of accepted OAuth requests, so that a replayed request is rejected.
+ * <p>
+ * Nonces are grouped in buckets by the timestamp of their request. A request older than the timestamp window is
+ * refused before its nonce is looked at, so once a bucket's timestamps have all left the window, the whole bucket is
+ * dropped at once instead of nonce by nonce. Each bucket is a concurrent set, so requests recording nonces at the same
+ * time do not wait on a single lock.
+ */
+final class OAuthNonceStore {
+
+    private static final long BUCKET_WIDTH = TimeUnit.MINUTES.toMillis(1);
+
+    private final ConcurrentNavigableMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final long maxTimestampAge;
+
+    /**
+     * @param maxTimestampAge how far, in milliseconds, a request's timestamp may be from the current time
+     */
+    OAuthNonceStore(long maxTimestampAge) {
+        this.maxTimestampAge = maxTimestampAge;
+    }
+
+    /**
+     * Records the nonce of a request, unless it has been recorded before.
+     *
+     * @param timestamp the timestamp of the request, in milliseconds
+     * @param nonce     identifies the request: its nonce, consumer key and token
+     * @param now       the current time, in milliseconds
+     * @return {@code true} if the nonce was recorded, {@code false} if it had already been used
+     */
+    boolean add(long timestamp, String nonce, long now) {
+        dropExpiredBuckets(now);
+        // A bucket dropped by another thread in between only ever holds timestamps that are outside the window, which
+        // the timestamp check refuses before the nonce is looked at
+        return buckets.computeIfAbsent(timestamp / BUCKET_WIDTH, bucket -> ConcurrentHashMap.newKeySet()).add(nonce);
+    }
+
+    /**
+     * @return the number of nonces recorded
+     */
+    long size() {
+        return buckets.values().stream().mapToLong(Set::size).sum();
+    }
+
+    private void dropExpiredBuckets(long now) {
+        // A bucket expires once the latest timestamp it can hold is older than the window. One extra bucket is kept to
+        // allow for the timestamp check rounding the window to whole seconds
+        long firstLiveBucket = (now - maxTimestampAge) / BUCKET_WIDTH - 1;
+        Map.Entry<Long, Set<String>> first = buckets.firstEntry();
+        if (first != null && first.getKey() < firstLiveBucket) {
+            buckets.headMap(firstLiveBucket).clear();
+        }
+    }
+}
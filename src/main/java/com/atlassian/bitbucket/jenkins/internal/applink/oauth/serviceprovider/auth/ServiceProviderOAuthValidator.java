@@ -0,0 +1,100 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
+
+import net.oauth.OAuth;
+import net.oauth.OAuthMessage;
+import net.oauth.OAuthProblemException;
+import net.oauth.SimpleOAuthValidator;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.oauth.OAuth.OAUTH_NONCE;
+
+/**
+ * Validates OAuth messages as {@link SimpleOAuthValidator} does, but records used nonces in an {@link OAuthNonceStore}
+ * rather than a single synchronized set that is cleaned up on every request. Signature, version, single parameter and
+ * timestamp window checks are unchanged.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+public class ServiceProviderOAuthValidator extends SimpleOAuthValidator {
+
+    /**
+     * How far, in milliseconds, the timestamp of a request may be from the current time. The same as
+     * {@link SimpleOAuthValidator}'s default.
+     */
+    public static final long MAX_TIMESTAMP_AGE = TimeUnit.MINUTES.toMillis(5);
+
+    private final Clock clock;
+    private final OAuthNonceStore nonceStore = new OAuthNonceStore(MAX_TIMESTAMP_AGE);
+    private final LongAdder refusedTimestamps = new LongAdder();
+    private final LongAdder replayedNonces = new LongAdder();
+
+    @Inject
+    public ServiceProviderOAuthValidator(Clock clock) {
+        super(MAX_TIMESTAMP_AGE, Double.parseDouble(OAuth.VERSION_1_0));
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of nonces currently remembered to detect replayed requests
+     */
+    public long getNonceCount() {
+        return nonceStore.size();
+    }
+
+    /**
+     * @return the number of requests refused because their timestamp was outside the window
+     */
+    public long getRefusedTimestampCount() {
+        return refusedTimestamps.sum();
+    }
+
+    /**
+     * @return the number of requests refused because their nonce had already been used
+     */
+    public long getReplayedNonceCount() {
+        return replayedNonces.sum();
+    }
+
+    @Override
+    protected long currentTimeMsec() {
+        return clock.millis();
+    }
+
+    @Override
+    protected void validateTimestamp(OAuthMessage message, long timestamp,
+                                     long currentTimeMsec) throws IOException, OAuthProblemException {
+        try {
+            super.validateTimestamp(message, timestamp, currentTimeMsec);
+        } catch (OAuthProblemException e) {
+            refusedTimestamps.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    protected Date validateNonce(OAuthMessage message, long timestamp,
+                                 long currentTimeMsec) throws IOException, OAuthProblemException {
+        // Like SimpleOAuthValidator, the same nonce may be used by different consumers and tokens
+        String nonce = encode(message.getParameter(OAUTH_NONCE)) + '&' + encode(message.getConsumerKey()) + '&' +
+                       encode(message.getToken());
+        if (!nonceStore.add(TimeUnit.SECONDS.toMillis(timestamp), nonce, currentTimeMsec)) {
+            replayedNonces.increment();
+            throw new OAuthProblemException(OAuth.Problems.NONCE_USED);
+        }
+        // Expired nonces are dropped by the store, so there is never anything for releaseGarbage to do
+        return null;
+    }
+
+    private static String encode(String value) {
+        return OAuth.percentEncode(Objects.toString(value, ""));
+    }
+}
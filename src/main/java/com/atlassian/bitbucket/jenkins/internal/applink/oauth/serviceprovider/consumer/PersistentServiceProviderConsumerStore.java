@@ -49,7 +49,7 @@ public class PersistentServiceProviderConsumerStore extends AbstractPersistentSt
     private static final String CONSUMER_STORE_VALUE_NAME = "consumer-details";
 
     public PersistentServiceProviderConsumerStore() {
-        super("oauth-consumers.xml", new ConsumerConverter());
+        super("oauth-consumers.xml", Consumer.class, new ConsumerConverter());
     }
 
     @VisibleForTesting
@@ -104,6 +104,11 @@ public class PersistentServiceProviderConsumerStore extends AbstractPersistentSt
         save();
     }
 
+    @Override
+    protected String getKey(Consumer consumer) {
+        return consumer.getKey();
+    }
+
     private static final class ConsumerConverter implements Converter {
 
         private static final String CONSUMER_KEY = "key";
@@ -1,6 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.rest;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.OAuthConverter;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.InvalidTokenException;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenStore;
@@ -20,6 +21,7 @@ import java.io.OutputStream;
 import java.time.Clock;
 import java.util.logging.Logger;
 
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint.ACCESS_TOKEN;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.OAuthProblemUtils.logOAuthProblem;
 import static net.oauth.OAuth.*;
 import static net.oauth.OAuth.Problems.*;
@@ -39,16 +41,19 @@ public class AccessTokenRestEndpoint {
     private ServiceProviderTokenFactory tokenFactory;
     private ServiceProviderTokenStore tokenStore;
     private Clock clock;
+    private OAuthMetrics metrics;
 
     @Inject
     public AccessTokenRestEndpoint(OAuthValidator oAuthValidator,
                                    ServiceProviderTokenFactory tokenFactory,
                                    ServiceProviderTokenStore tokenStore,
-                                   Clock clock) {
+                                   Clock clock,
+                                   OAuthMetrics metrics) {
         this.oAuthValidator = oAuthValidator;
         this.tokenFactory = tokenFactory;
         this.tokenStore = tokenStore;
         this.clock = clock;
+        this.metrics = metrics;
     }
 
     public void handleAccessToken(HttpServletRequest request,
@@ -80,6 +85,7 @@ public class AccessTokenRestEndpoint {
             accessToken = tokenStore.put(tokenFactory.generateAccessToken(token));
             tokenStore.remove(token.getToken());
         } catch (Exception e) {
+            metrics.recordFailure(ACCESS_TOKEN, e);
             handleException(response, e, request.getRequestURL().toString(), true);
             return;
         }
@@ -93,6 +99,7 @@ public class AccessTokenRestEndpoint {
                 OAUTH_SESSION_HANDLE, accessToken.getSession().getHandle(),
                 OAUTH_AUTHORIZATION_EXPIRES_IN, Long.toString(accessToken.getSession().getTimeToLive() / 1000)
         ), out);
+        metrics.recordSuccess(ACCESS_TOKEN);
     }
 
     private void checkRequestToken(OAuthMessage requestMessage, ServiceProviderToken token) throws Exception {
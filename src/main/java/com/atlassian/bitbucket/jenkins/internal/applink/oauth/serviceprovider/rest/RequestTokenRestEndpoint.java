@@ -2,6 +2,7 @@ package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.r
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.OAuthConverter;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.Token;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.Consumer;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
@@ -27,6 +28,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint.REQUEST_TOKEN;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.OAuthProblemUtils.logOAuthProblem;
 import static java.util.Arrays.asList;
 import static net.oauth.OAuth.*;
@@ -46,6 +48,7 @@ public class RequestTokenRestEndpoint {
 
     private OAuthValidator oAuthValidator;
     private ServiceProviderConsumerStore consumerStore;
+    private OAuthMetrics metrics;
     private ServiceProviderTokenFactory tokenFactory;
     private ServiceProviderTokenStore tokenStore;
 
@@ -53,11 +56,13 @@ public class RequestTokenRestEndpoint {
     public RequestTokenRestEndpoint(OAuthValidator oAuthValidator,
                                     ServiceProviderConsumerStore consumerStore,
                                     ServiceProviderTokenFactory tokenFactory,
-                                    ServiceProviderTokenStore tokenStore) {
+                                    ServiceProviderTokenStore tokenStore,
+                                    OAuthMetrics metrics) {
         this.oAuthValidator = oAuthValidator;
         this.consumerStore = consumerStore;
         this.tokenFactory = tokenFactory;
         this.tokenStore = tokenStore;
+        this.metrics = metrics;
     }
 
     public void handleRequestToken(HttpServletRequest req,
@@ -94,7 +99,9 @@ public class RequestTokenRestEndpoint {
                     new Parameter(OAUTH_TOKEN_SECRET, token.getTokenSecret()),
                     new Parameter(OAUTH_CALLBACK_CONFIRMED, "true"));
             formEncode(parameters, out);
+            metrics.recordSuccess(REQUEST_TOKEN);
         } catch (Exception e) {
+            metrics.recordFailure(REQUEST_TOKEN, e);
             handleException(resp, e, req.getRequestURL().toString(), true);
         }
     }
@@ -1,6 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.AbstractPersistentStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.Consumer;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.StoreException;
@@ -12,33 +13,49 @@ import com.thoughtworks.xstream.converters.MarshallingContext;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import hudson.BulkChange;
 import hudson.model.Saveable;
 import hudson.util.XStream2;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.Authorization.AUTHORIZED;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.newAccessToken;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.newRequestToken;
-import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenUtils.isTokenExpired;
-import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenUtils.isTokenSessionExpired;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.OAUTH_TOKEN_JOURNAL_COMPACTION_THRESHOLD_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
 import static java.util.stream.Collectors.toList;
 
 /**
  * A {@link ServiceProviderTokenStore} implementation that persists the {@link ServiceProviderToken tokens} to an XML
  * file
  * <p>
+ * Adding or removing a single token appends the change to a {@link ServiceProviderTokenJournal journal} next to the
+ * XML file rather than rewriting every token. The journal is replayed when the store is loaded, and compacted into the
+ * XML file once it holds {@link #JOURNAL_COMPACTION_THRESHOLD} changes, or whenever many tokens change at once.
+ * <p>
+ * Tokens are indexed in memory by user, consumer and expiry time, so the operations on those only visit the matching
+ * tokens. A token is added or removed, indexed and journaled while holding the store's monitor, so the journal records
+ * changes to a token in the order they were made. Each batch of an import also holds the monitor, so it cannot
+ * interleave with those changes. Lookups do not take the monitor.
+ * <p>
  * Only one instance of this class must be created per Jenkins instance.
  *
  * @see Saveable
@@ -48,21 +65,38 @@ import static java.util.stream.Collectors.toList;
 public class PersistentServiceProviderTokenStore extends AbstractPersistentStore<ServiceProviderToken>
         implements ServiceProviderTokenStore {
 
+    /**
+     * Number of changes the journal may hold before they are compacted into the XML file. Defaults to 1000.
+     */
+    public static final long JOURNAL_COMPACTION_THRESHOLD =
+            parsePositiveLongFromSystemProperty(OAUTH_TOKEN_JOURNAL_COMPACTION_THRESHOLD_KEY, 1000);
+
     private static final Logger log = Logger.getLogger(PersistentServiceProviderTokenStore.class.getName());
 
+    private static final String JOURNAL_FILE_NAME = "oauth-tokens.journal";
+
     private static final String TOKEN_STORE_ENTRY_NAME = "oauth-token";
     private static final String TOKEN_STORE_KEY_NAME = "token-value";
     private static final String TOKEN_STORE_VALUE_NAME = "token-details";
 
+    private final transient ServiceProviderTokenIndex consumerIndex = new ServiceProviderTokenIndex(token ->
+            ofNullable(token.getConsumer()).map(Consumer::getKey).orElse(null));
+    private final transient ServiceProviderTokenExpiryIndex expiryIndex = new ServiceProviderTokenExpiryIndex();
+    private final transient OAuthMetrics.Timer journalTimer = new OAuthMetrics.Timer();
+    private final transient ServiceProviderTokenIndex userIndex =
+            new ServiceProviderTokenIndex(ServiceProviderToken::getUser);
+    private transient ServiceProviderTokenJournal journal;
+
     @Inject
     public PersistentServiceProviderTokenStore(ServiceProviderConsumerStore consumerStore) {
-        super("oauth-tokens.xml", new ServiceProviderTokenConverter(consumerStore));
+        super("oauth-tokens.xml", ServiceProviderToken.class, new ServiceProviderTokenConverter(consumerStore));
     }
 
     @VisibleForTesting
     PersistentServiceProviderTokenStore(ServiceProviderConsumerStore ServiceProviderConsumerStore, Map<String, ServiceProviderToken> tokenMap) {
         this(ServiceProviderConsumerStore);
         this.entityMap = tokenMap;
+        rebuildIndexes();
     }
 
     @Override
@@ -76,33 +110,61 @@ public class PersistentServiceProviderTokenStore extends AbstractPersistentStore
     public Iterable<ServiceProviderToken> getAccessTokensForUser(String username) {
         requireNonNull(username, "username");
         load();
-        return entityMap.values().stream().filter(token -> Objects.equals(username, token.getUser())).collect(toList());
+        return userIndex.get(username).stream()
+                .map(entityMap::get)
+                .filter(token -> token != null && Objects.equals(username, token.getUser()))
+                .collect(toList());
     }
 
     @Override
-    public ServiceProviderToken put(ServiceProviderToken token) {
+    public synchronized ServiceProviderToken put(ServiceProviderToken token) {
         requireNonNull(token, "token");
         load();
-        entityMap.put(token.getToken(), token);
-        save();
+        ServiceProviderToken previous = entityMap.put(token.getToken(), token);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(token);
+        saveChange(token.getToken(), token);
         return token;
     }
 
     @Override
-    public void remove(String token) {
+    public synchronized void remove(String token) {
         requireNonNull(token, "token");
         load();
-        if (entityMap.remove(token) != null) {
-            save();
+        ServiceProviderToken removed = entityMap.remove(token);
+        if (removed != null) {
+            unindex(removed);
+            saveChange(token, null);
         }
     }
 
     @Override
-    public void removeExpiredTokens() {
+    public int removeExpired() {
+        return removeExpired(true, true);
+    }
+
+    @Override
+    public int removeExpiredTokens() {
+        return removeExpired(true, false);
+    }
+
+    @Override
+    public int removeExpiredSessions() {
+        return removeExpired(false, true);
+    }
+
+    @Override
+    public synchronized void removeByConsumer(String consumerKey) {
+        requireNonNull(consumerKey, "consumerKey");
         load();
         boolean needToSave = false;
-        for (ServiceProviderToken token : entityMap.values()) {
-            if (isTokenExpired(token) && entityMap.remove(token.getToken()) != null) {
+        for (String tokenValue : consumerIndex.get(consumerKey)) {
+            ServiceProviderToken token = entityMap.get(tokenValue);
+            if (token != null && token.getConsumer() != null &&
+                Objects.equals(consumerKey, token.getConsumer().getKey()) && entityMap.remove(tokenValue, token)) {
+                unindex(token);
                 needToSave = true;
             }
         }
@@ -111,35 +173,168 @@ public class PersistentServiceProviderTokenStore extends AbstractPersistentStore
         }
     }
 
-    @Override
-    public void removeExpiredSessions() {
+    /**
+     * @return the number of changes journaled since the last {@link #save()}
+     */
+    public synchronized int getJournalSize() {
         load();
-        boolean needToSave = false;
-        for (ServiceProviderToken token : entityMap.values()) {
-            if (isTokenSessionExpired(token) && entityMap.remove(token.getToken()) != null) {
-                needToSave = true;
+        return getJournal().size();
+    }
+
+    /**
+     * @return how often, and for how long, single token changes have been appended to the journal
+     */
+    public OAuthMetrics.Timer getJournalTimer() {
+        return journalTimer;
+    }
+
+    /**
+     * Writes every token to the XML file and discards the journal, whose changes the XML file now includes.
+     */
+    @Override
+    public synchronized void save() {
+        if (BulkChange.contains(this)) {
+            return;
+        }
+        super.save();
+        try {
+            getJournal().clear();
+        } catch (IOException e) {
+            // Replaying the journal over the new XML file is harmless, it only repeats changes the file already has
+            log.log(WARNING, "Failed to discard the OAuth token journal", e);
+        }
+    }
+
+    @Override
+    protected String getKey(ServiceProviderToken token) {
+        return token.getToken();
+    }
+
+    @Override
+    protected synchronized void putAll(Map<String, ServiceProviderToken> tokens) {
+        tokens.forEach((tokenValue, token) -> {
+            ServiceProviderToken previous = entityMap.get(tokenValue);
+            if (previous != null) {
+                unindex(previous);
             }
+        });
+        super.putAll(tokens);
+        tokens.values().forEach(this::index);
+    }
+
+    @Override
+    protected void afterLoad() {
+        getJournal().replay(entityMap);
+        rebuildIndexes();
+    }
+
+    /**
+     * The file where changes made since the last {@link #save()} are journaled
+     */
+    @VisibleForTesting
+    protected File getJournalFile() {
+        return new File(getConfigFile().getFile().getParentFile(), JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Indexes every token in {@link #entityMap}, discarding what was indexed before
+     */
+    @VisibleForTesting
+    void rebuildIndexes() {
+        consumerIndex.clear();
+        expiryIndex.clear();
+        userIndex.clear();
+        entityMap.values().forEach(this::index);
+    }
+
+    /**
+     * Persists the addition or removal of a single token, by appending it to the journal or, once the journal is due
+     * for compaction, by saving every token.
+     *
+     * @param tokenValue the value of the token that changed
+     * @param token      the token that was added, or {@code null} if it was removed
+     */
+    @VisibleForTesting
+    protected synchronized void saveChange(String tokenValue, @Nullable ServiceProviderToken token) {
+        if (BulkChange.contains(this)) {
+            return;
         }
-        if (needToSave) {
+        ServiceProviderTokenJournal journal = getJournal();
+        if (journal.size() >= JOURNAL_COMPACTION_THRESHOLD) {
             save();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (token == null) {
+                journal.appendRemove(tokenValue);
+            } else {
+                journal.appendPut(token);
+            }
+        } catch (IOException e) {
+            log.log(SEVERE, "Failed to persist token change to disk", e);
+            throw new StoreException("Failed to persist to disk", e);
+        } finally {
+            journalTimer.recordSince(start);
         }
     }
 
-    @Override
-    public void removeByConsumer(String consumerKey) {
-        requireNonNull(consumerKey, "consumerKey");
+    private synchronized int removeExpired(boolean tokens, boolean sessions) {
         load();
-        boolean needToSave = false;
-        for (ServiceProviderToken token : entityMap.values()) {
-            Consumer consumer = token.getConsumer();
-            if (consumer != null && Objects.equals(consumerKey, consumer.getKey()) &&
-                entityMap.remove(token.getToken()) != null) {
-                needToSave = true;
-            }
+        long now = currentTimeMillis();
+        int removed = 0;
+        if (tokens) {
+            removed += removeDue(expiryIndex.pollExpiredTokens(now), ServiceProviderTokenUtils::isTokenExpired);
         }
-        if (needToSave) {
+        if (sessions) {
+            removed += removeDue(expiryIndex.pollExpiredSessions(now),
+                    ServiceProviderTokenUtils::isTokenSessionExpired);
+        }
+        // One save for the whole batch, which also compacts the journal
+        if (removed > 0) {
             save();
         }
+        return removed;
+    }
+
+    /**
+     * Removes the tokens the expiry index reported as due, unless they have been replaced by a token that is not. The
+     * index no longer holds the due tokens, so those that are kept are indexed again by their current expiry.
+     */
+    private int removeDue(Collection<String> due, Predicate<ServiceProviderToken> expired) {
+        int removed = 0;
+        for (String tokenValue : due) {
+            ServiceProviderToken token = entityMap.get(tokenValue);
+            if (token == null) {
+                continue;
+            }
+            if (expired.test(token) && entityMap.remove(tokenValue, token)) {
+                unindex(token);
+                removed++;
+            } else {
+                expiryIndex.add(token);
+            }
+        }
+        return removed;
+    }
+
+    private void index(ServiceProviderToken token) {
+        consumerIndex.add(token);
+        expiryIndex.add(token);
+        userIndex.add(token);
+    }
+
+    private void unindex(ServiceProviderToken token) {
+        consumerIndex.remove(token);
+        expiryIndex.remove(token);
+        userIndex.remove(token);
+    }
+
+    private synchronized ServiceProviderTokenJournal getJournal() {
+        if (journal == null) {
+            journal = new ServiceProviderTokenJournal(getJournalFile(), xStream);
+        }
+        return journal;
     }
 
     private static final class ServiceProviderTokenConverter implements Converter {
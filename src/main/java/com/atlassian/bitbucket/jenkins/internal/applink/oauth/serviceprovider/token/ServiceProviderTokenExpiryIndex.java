@@ -0,0 +1,124 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Orders the tokens of a {@link PersistentServiceProviderTokenStore} by the time they expire, so that removing expired
+ * tokens and sessions only visits the ones that are due rather than every token in the store.
+ * <p>
+ * A token with a session is indexed by the expiry of its session only: as documented on
+ * {@link ServiceProviderTokenStore#removeExpiredTokens()}, it can still be renewed after the token itself expires.
+ * A token without a session is indexed by the expiry of the token.
+ */
+final class ServiceProviderTokenExpiryIndex {
+
+    private final NavigableSet<Expiry> sessionExpiries = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Expiry> tokenExpiries = new ConcurrentSkipListSet<>();
+
+    void add(ServiceProviderToken token) {
+        if (token.hasSession()) {
+            sessionExpiries.add(sessionExpiry(token));
+        } else {
+            tokenExpiries.add(tokenExpiry(token));
+        }
+    }
+
+    void clear() {
+        sessionExpiries.clear();
+        tokenExpiries.clear();
+    }
+
+    /**
+     * Removes and returns the values of the tokens whose session expired before the given time.
+     *
+     * @param now the current time, in milliseconds
+     * @return the values of the tokens whose session has expired
+     */
+    List<String> pollExpiredSessions(long now) {
+        return poll(sessionExpiries, now);
+    }
+
+    /**
+     * Removes and returns the values of the tokens without a session that expired before the given time.
+     *
+     * @param now the current time, in milliseconds
+     * @return the values of the expired tokens
+     */
+    List<String> pollExpiredTokens(long now) {
+        return poll(tokenExpiries, now);
+    }
+
+    void remove(ServiceProviderToken token) {
+        if (token.hasSession()) {
+            sessionExpiries.remove(sessionExpiry(token));
+        } else {
+            tokenExpiries.remove(tokenExpiry(token));
+        }
+    }
+
+    private static List<String> poll(NavigableSet<Expiry> expiries, long now) {
+        List<String> expired = new ArrayList<>();
+        Iterator<Expiry> iterator = expiries.iterator();
+        while (iterator.hasNext()) {
+            Expiry expiry = iterator.next();
+            if (expiry.time >= now) {
+                // Not due yet, and neither is anything after it
+                break;
+            }
+            iterator.remove();
+            expired.add(expiry.token);
+        }
+        return expired;
+    }
+
+    private static Expiry sessionExpiry(ServiceProviderToken token) {
+        ServiceProviderToken.Session session = token.getSession();
+        return new Expiry(session.getLastRenewalTime() + session.getTimeToLive(), token.getToken());
+    }
+
+    private static Expiry tokenExpiry(ServiceProviderToken token) {
+        return new Expiry(token.getCreationTime() + token.getTimeToLive(), token.getToken());
+    }
+
+    private static final class Expiry implements Comparable<Expiry> {
+
+        private static final Comparator<Expiry> ORDER =
+                Comparator.<Expiry>comparingLong(expiry -> expiry.time).thenComparing(expiry -> expiry.token);
+
+        private final long time;
+        private final String token;
+
+        private Expiry(long time, String token) {
+            this.time = time;
+            this.token = token;
+        }
+
+        @Override
+        public int compareTo(Expiry o) {
+            return ORDER.compare(this, o);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Expiry expiry = (Expiry) o;
+            return time == expiry.time && Objects.equals(token, expiry.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(time, token);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Groups the tokens of a {@link PersistentServiceProviderTokenStore} by an attribute, such as the user who authorized
+ * them or the key of their consumer, so that operations on the tokens of one user or consumer only visit those tokens
+ * rather than every token in the store. Tokens without the attribute are not indexed.
+ */
+final class ServiceProviderTokenIndex {
+
+    private final Function<ServiceProviderToken, String> attribute;
+    private final ConcurrentMap<String, Set<String>> tokensByAttribute = new ConcurrentHashMap<>();
+
+    ServiceProviderTokenIndex(Function<ServiceProviderToken, String> attribute) {
+        this.attribute = attribute;
+    }
+
+    void add(ServiceProviderToken token) {
+        String key = attribute.apply(token);
+        if (key != null) {
+            tokensByAttribute.compute(key, (k, tokens) -> {
+                Set<String> updated = tokens == null ? ConcurrentHashMap.newKeySet() : tokens;
+                updated.add(token.getToken());
+                return updated;
+            });
+        }
+    }
+
+    void clear() {
+        tokensByAttribute.clear();
+    }
+
+    /**
+     * Returns the values of the tokens with the given attribute value.
+     *
+     * @param key the attribute value
+     * @return the values of the matching tokens
+     */
+    List<String> get(@CheckForNull String key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        Set<String> tokens = tokensByAttribute.get(key);
+        return tokens == null ? Collections.emptyList() : new ArrayList<>(tokens);
+    }
+
+    void remove(ServiceProviderToken token) {
+        String key = attribute.apply(token);
+        if (key != null) {
+            tokensByAttribute.computeIfPresent(key, (k, tokens) -> {
+                tokens.remove(token.getToken());
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+}
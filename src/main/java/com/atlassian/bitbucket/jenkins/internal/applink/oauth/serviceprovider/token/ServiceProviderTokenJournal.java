@@ -0,0 +1,147 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+import hudson.util.Secret;
+
+import javax.annotation.CheckForNull;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Append-only log of the changes made to a {@link PersistentServiceProviderTokenStore} since its snapshot file was
+ * last written. Each change is a single line, so issuing or revoking a token costs one small append instead of
+ * rewriting every token in the store. Replaying the journal over the snapshot on startup restores the changes made
+ * before a restart or crash; a record that was only partially written is skipped.
+ * <p>
+ * Token values and secrets are encrypted in the journal just as they are in the snapshot. Not thread-safe; the store
+ * synchronizes access.
+ */
+final class ServiceProviderTokenJournal {
+
+    private static final Logger log = Logger.getLogger(ServiceProviderTokenJournal.class.getName());
+
+    private static final String PUT = "P";
+    private static final String REMOVE = "R";
+
+    private final File file;
+    private final XStream xStream;
+    private int size;
+
+    ServiceProviderTokenJournal(File file, XStream xStream) {
+        this.file = file;
+        this.xStream = xStream;
+    }
+
+    /**
+     * Records that a token was added or replaced.
+     *
+     * @param token the token
+     * @throws IOException if the record could not be written
+     */
+    void appendPut(ServiceProviderToken token) throws IOException {
+        StringWriter xml = new StringWriter();
+        xStream.marshal(token, new CompactWriter(xml));
+        append(PUT, xml.toString());
+    }
+
+    /**
+     * Records that a token was removed.
+     *
+     * @param token the token value
+     * @throws IOException if the record could not be written
+     */
+    void appendRemove(String token) throws IOException {
+        append(REMOVE, Secret.fromString(token).getEncryptedValue());
+    }
+
+    /**
+     * Discards every record, once the changes they describe have been written to the snapshot.
+     *
+     * @throws IOException if the journal could not be deleted
+     */
+    void clear() throws IOException {
+        Files.deleteIfExists(file.toPath());
+        size = 0;
+    }
+
+    /**
+     * Applies the recorded changes, in order, to the tokens loaded from the snapshot.
+     *
+     * @param tokens the tokens loaded from the snapshot
+     */
+    void replay(Map<String, ServiceProviderToken> tokens) {
+        size = 0;
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                size++;
+                replay(line, tokens);
+            }
+        } catch (IOException e) {
+            log.log(WARNING, "Failed to read the OAuth token journal, changes since the last save may be lost", e);
+        }
+    }
+
+    /**
+     * @return the number of records in the journal
+     */
+    int size() {
+        return size;
+    }
+
+    private void append(String type, String value) throws IOException {
+        String record = type + " " + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) +
+                        "\n";
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(record.getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+        size++;
+    }
+
+    @CheckForNull
+    private static String decode(String value) {
+        try {
+            return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void replay(String line, Map<String, ServiceProviderToken> tokens) {
+        int separator = line.indexOf(' ');
+        String value = separator < 0 ? null : decode(line.substring(separator + 1));
+        if (value == null) {
+            log.warning("Skipping incomplete OAuth token journal record");
+            return;
+        }
+        try {
+            switch (line.substring(0, separator)) {
+                case PUT:
+                    ServiceProviderToken token = (ServiceProviderToken) xStream.fromXML(value);
+                    tokens.put(token.getToken(), token);
+                    break;
+                case REMOVE:
+                    Secret secret = Secret.decrypt(value);
+                    if (secret != null) {
+                        tokens.remove(secret.getPlainText());
+                    }
+                    break;
+                default:
+                    log.warning("Skipping unknown OAuth token journal record");
+            }
+        } catch (RuntimeException e) {
+            log.log(WARNING, "Skipping unreadable OAuth token journal record", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import javax.inject.Inject;
+import java.util.logging.Logger;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.OAUTH_TOKEN_REAPER_INTERVAL_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+
+/**
+ * Periodically removes expired OAuth tokens and sessions from the {@link ServiceProviderTokenStore}, so that request
+ * tokens that were never exchanged and sessions that were never renewed do not accumulate for as long as Jenkins runs.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class ServiceProviderTokenReaper extends AsyncPeriodicWork {
+
+    /**
+     * Time between runs. Defaults to 1 hour in ms, and cannot be less than 1 minute.
+     */
+    public static final long REAPER_INTERVAL = parsePositiveLongFromSystemProperty(OAUTH_TOKEN_REAPER_INTERVAL_KEY,
+            HOUR);
+
+    private static final Logger log = Logger.getLogger(ServiceProviderTokenReaper.class.getName());
+
+    @Inject
+    private ServiceProviderTokenStore tokenStore;
+
+    public ServiceProviderTokenReaper() {
+        super("Bitbucket OAuth token reaper");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return Math.max(REAPER_INTERVAL, MIN);
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        int removed = tokenStore.removeExpired();
+        listener.getLogger().println("Removed " + removed + " expired OAuth tokens and sessions");
+        log.fine(() -> "Removed " + removed + " expired OAuth tokens and sessions");
+    }
+}
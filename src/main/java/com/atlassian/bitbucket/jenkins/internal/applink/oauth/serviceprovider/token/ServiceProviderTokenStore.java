@@ -65,18 +65,30 @@ public interface ServiceProviderTokenStore {
      * remove an expired token until the session has expired and the token cannot be renewed.  To remove expired
      * sessions and the tokens associated with them, use {@link #removeExpiredSessions} instead.
      *
+     * @return the number of {@code ServiceProviderToken}s removed
      * @throws StoreException thrown if there is a problem removing the expired {@code ServiceProviderToken}s
      * @since 1.5.0
      */
-    void removeExpiredTokens();
+    int removeExpiredTokens();
 
     /**
      * Remove all sessions and {@code ServiceProviderToken}s from the store whose {@code session} has expired.
      *
+     * @return the number of {@code ServiceProviderToken}s removed
      * @throws StoreException thrown if there is a problem removing the {@code ServiceProviderToken}s
      * @since 1.5.0
      */
-    void removeExpiredSessions();
+    int removeExpiredSessions();
+
+    /**
+     * Remove all expired {@code ServiceProviderToken}s and sessions, as {@link #removeExpiredTokens} and
+     * {@link #removeExpiredSessions} would, persisting the removals once rather than once per method.
+     *
+     * @return the number of {@code ServiceProviderToken}s removed
+     * @throws StoreException thrown if there is a problem removing the {@code ServiceProviderToken}s
+     * @since 6.1.0
+     */
+    int removeExpired();
 
     /**
      * Remove all the {@code ServiceProviderToken}s created by the consumer.
@@ -0,0 +1,267 @@
+package com.atlassian.bitbucket.jenkins.internal.catalog;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketSearchClient;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.BaseUrlUtils.isOnServer;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * A local catalog of the projects and repositories on each Bitbucket Server instance, so the project and repository
+ * fields of the SCM configuration forms can be filled in and auto-completed without searching Bitbucket on every
+ * keystroke.
+ * <p>
+ * Each server is catalogued separately for each set of credentials used with it, as different credentials can see
+ * different projects and repositories. A catalog is loaded in the background the first time it is asked for, and until
+ * then every lookup returns nothing, so callers search Bitbucket as before. The {@link BitbucketCatalogSynchronizer}
+ * loads the catalogs again periodically, dropping those that have not been used for a day, and repositories renamed
+ * since are updated from the webhooks received for them. Projects and repositories created since the last load are
+ * not in the catalog, so callers that find nothing should search Bitbucket.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class BitbucketCatalog {
+
+    /**
+     * How long a catalog is kept without being used, 1 day in ms
+     */
+    static final long IDLE_TIMEOUT = 24 * 60 * 60 * 1000L;
+
+    private static final Logger LOGGER = Logger.getLogger(BitbucketCatalog.class.getName());
+    private static final int MAX_THREADS = 2;
+
+    private final BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
+    private final Executor executor;
+    private final ConcurrentMap<String, Scope> scopes = new ConcurrentHashMap<>();
+
+    @Inject
+    public BitbucketCatalog(BitbucketClientFactoryProvider bitbucketClientFactoryProvider) {
+        this(bitbucketClientFactoryProvider, Executors.newFixedThreadPool(MAX_THREADS,
+                new NamingThreadFactory(new DaemonThreadFactory(), "BitbucketCatalog")));
+    }
+
+    BitbucketCatalog(BitbucketClientFactoryProvider bitbucketClientFactoryProvider, Executor executor) {
+        this.bitbucketClientFactoryProvider =
+                requireNonNull(bitbucketClientFactoryProvider, "bitbucketClientFactoryProvider");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Finds the projects with a name, or a word in their name, starting with the query, ignoring case.
+     *
+     * @param server      the server to search
+     * @param credentials the credentials searching
+     * @param query       the start of the project name
+     * @return the first 25 matching projects by name, or nothing if the catalog has not been loaded yet
+     */
+    public Optional<List<BitbucketProject>> findProjects(BitbucketServerConfiguration server,
+                                                         BitbucketCredentials credentials, String query) {
+        return lookup(server, credentials, index -> index.findProjects(query));
+    }
+
+    /**
+     * Finds the repositories of a project with a name, or a word in their name, starting with the query, ignoring
+     * case.
+     *
+     * @param server           the server to search
+     * @param credentials      the credentials searching
+     * @param projectNameOrKey the name or key of the project
+     * @param query            the start of the repository name
+     * @return the first 25 matching repositories by name, or nothing if the catalog has not been loaded yet or does
+     *         not have the project
+     */
+    public Optional<List<BitbucketRepository>> findRepositories(BitbucketServerConfiguration server,
+                                                                BitbucketCredentials credentials,
+                                                                String projectNameOrKey, String query) {
+        return lookup(server, credentials, index -> index.findRepositories(projectNameOrKey, query).orElse(null));
+    }
+
+    /**
+     * Looks up a repository by the name or key of its project, and its name or slug, ignoring case.
+     *
+     * @param server               the server to search
+     * @param credentials          the credentials searching
+     * @param projectNameOrKey     the name or key of the project
+     * @param repositoryNameOrSlug the name or slug of the repository
+     * @return the repository, or nothing if the catalog has not been loaded yet or does not have the repository
+     */
+    public Optional<BitbucketRepository> getRepository(BitbucketServerConfiguration server,
+                                                       BitbucketCredentials credentials, String projectNameOrKey,
+                                                       String repositoryNameOrSlug) {
+        return lookup(server, credentials, index -> index.getRepository(projectNameOrKey, repositoryNameOrSlug)
+                .orElse(null));
+    }
+
+    /**
+     * Updates a repository received in a webhook in every catalog of its server that has it. The server is told apart
+     * by the repository's self link, so a repository without one is updated in the catalogs of every server.
+     *
+     * @param repository the repository
+     */
+    public void update(BitbucketRepository repository) {
+        String selfLink = repository.getSelfLink();
+        scopes.values().forEach(scope -> {
+            if (!isBlank(selfLink) && !isOnServer(selfLink, scope.baseUrl)) {
+                // The same project and repository may exist on another server
+                return;
+            }
+            CatalogIndex index = scope.index;
+            if (index != null) {
+                CatalogIndex updated = index.update(repository);
+                if (updated != index) {
+                    // Cleared if the project was renamed, so the catalog is loaded again when it is next used
+                    scope.index = updated;
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of catalogs kept
+     */
+    int size() {
+        return scopes.size();
+    }
+
+    void forgetAll() {
+        scopes.clear();
+    }
+
+    /**
+     * Loads every catalog used within the {@link #IDLE_TIMEOUT} again, and drops the others.
+     */
+    void synchronize() {
+        long now = System.currentTimeMillis();
+        scopes.forEach((key, scope) -> {
+            if (now - scope.lastUsed >= IDLE_TIMEOUT) {
+                scopes.remove(key, scope);
+            } else {
+                load(key, scope);
+            }
+        });
+    }
+
+    private static String getKey(BitbucketServerConfiguration server, BitbucketCredentials credentials) {
+        // The credentials are only told apart by a digest, so the key does not hold the secret
+        return String.join("/", server.getId(), server.getBaseUrl(), sha256Hex(credentials.toHeaderValue()));
+    }
+
+    private void load(String key, Scope scope) {
+        if (!scope.loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            BitbucketSearchClient searchClient = bitbucketClientFactoryProvider
+                    .getClient(scope.baseUrl, scope.credentials)
+                    .getSearchClient("");
+            List<BitbucketProject> projects = searchClient.streamProjects().collect(Collectors.toList());
+            List<BitbucketRepository> repositories = searchClient.streamRepositories().collect(Collectors.toList());
+            scope.index = new CatalogIndex(projects, repositories);
+            LOGGER.fine(() -> format("Catalogued %d projects and %d repositories of %s", projects.size(),
+                    repositories.size(), scope.baseUrl));
+        } catch (AuthorizationException e) {
+            // The credentials no longer work, so they will be catalogued again if they are fixed and used again
+            scopes.remove(key, scope);
+            LOGGER.fine(() -> format("Dropped a catalog of %s as its credentials were not authorized: %s",
+                    scope.baseUrl, e.getMessage()));
+        } catch (BitbucketClientException e) {
+            LOGGER.log(Level.FINE, "Failed to catalog the projects and repositories of " + scope.baseUrl, e);
+        } finally {
+            scope.loading.set(false);
+        }
+    }
+
+    private <T> Optional<T> lookup(BitbucketServerConfiguration server, BitbucketCredentials credentials,
+                                   Function<CatalogIndex, T> lookup) {
+        String key = getKey(server, credentials);
+        Scope scope = scopes.computeIfAbsent(key, k -> new Scope(server.getBaseUrl(), credentials));
+        scope.lastUsed = System.currentTimeMillis();
+        CatalogIndex index = scope.index;
+        if (index == null) {
+            requestLoad(key, scope);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(lookup.apply(index));
+    }
+
+    private void requestLoad(String key, Scope scope) {
+        if (scope.loading.get()) {
+            return;
+        }
+        try {
+            executor.execute(() -> load(key, scope));
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Failed to start cataloguing " + scope.baseUrl, e);
+        }
+    }
+
+    /**
+     * The catalog of one server for one set of credentials
+     */
+    private static final class Scope {
+
+        private final String baseUrl;
+        private final BitbucketCredentials credentials;
+        private final AtomicBoolean loading = new AtomicBoolean();
+        @CheckForNull
+        private volatile CatalogIndex index;
+        private volatile long lastUsed;
+
+        private Scope(String baseUrl, BitbucketCredentials credentials) {
+            this.baseUrl = baseUrl;
+            this.credentials = credentials;
+        }
+    }
+
+    /**
+     * Drops every catalog when the server configuration is saved, as servers may have been removed or moved.
+     */
+    @Extension
+    public static class ConfigurationListener extends SaveableListener {
+
+        @Inject
+        private BitbucketCatalog catalog;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof BitbucketPluginConfiguration) {
+                catalog.forgetAll();
+            }
+        }
+    }
+}
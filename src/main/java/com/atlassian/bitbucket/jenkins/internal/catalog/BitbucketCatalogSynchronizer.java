@@ -0,0 +1,38 @@
+package com.atlassian.bitbucket.jenkins.internal.catalog;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import javax.inject.Inject;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.CATALOG_SYNC_PERIOD_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+
+/**
+ * Periodically loads the {@link BitbucketCatalog} catalogs again, every {@code bitbucket.catalog.sync.period}.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class BitbucketCatalogSynchronizer extends AsyncPeriodicWork {
+
+    private static final long SYNC_PERIOD = parsePositiveLongFromSystemProperty(CATALOG_SYNC_PERIOD_KEY, 15 * MIN);
+
+    @Inject
+    private BitbucketCatalog catalog;
+
+    public BitbucketCatalogSynchronizer() {
+        super("Bitbucket project and repository catalog synchronization");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return SYNC_PERIOD;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        catalog.synchronize();
+    }
+}
@@ -0,0 +1,181 @@
+package com.atlassian.bitbucket.jenkins.internal.catalog;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.apache.commons.lang3.StringUtils.stripToEmpty;
+
+/**
+ * An immutable snapshot of the projects and repositories visible to one set of credentials on one server, indexed so
+ * that they can be found by the start of their name, or of any word in their name, and looked up by name or key.
+ * Lookups ignore case.
+ */
+@Immutable
+final class CatalogIndex {
+
+    /**
+     * The most results returned by a search, matching the first page of a search made on the server
+     */
+    static final int MAX_RESULTS = 25;
+
+    private static final Comparator<BitbucketProject> PROJECT_ORDER =
+            Comparator.comparing(BitbucketProject::getName, String.CASE_INSENSITIVE_ORDER);
+    private static final Comparator<BitbucketRepository> REPOSITORY_ORDER =
+            Comparator.comparing(BitbucketRepository::getName, String.CASE_INSENSITIVE_ORDER);
+
+    private final Map<String, BitbucketProject> projectsByKey = new HashMap<>();
+    private final Map<String, BitbucketProject> projectsByName = new HashMap<>();
+    private final NavigableMap<String, List<BitbucketProject>> projectsByWord = new TreeMap<>();
+    private final List<BitbucketRepository> repositories;
+    /**
+     * The repositories of each project, by lower case project key
+     */
+    private final Map<String, ProjectRepositories> repositoriesByProject = new HashMap<>();
+
+    CatalogIndex(Collection<BitbucketProject> projects, Collection<BitbucketRepository> repositories) {
+        for (BitbucketProject project : projects) {
+            projectsByKey.put(normalize(project.getKey()), project);
+            projectsByName.put(normalize(project.getName()), project);
+            addWords(projectsByWord, project.getName(), project);
+        }
+        this.repositories = new ArrayList<>(repositories);
+        for (BitbucketRepository repository : repositories) {
+            if (repository.getProject() != null) {
+                repositoriesByProject.computeIfAbsent(normalize(repository.getProject().getKey()),
+                        key -> new ProjectRepositories()).add(repository);
+            }
+        }
+    }
+
+    /**
+     * Finds the projects with a name, or a word in their name, starting with the query.
+     */
+    List<BitbucketProject> findProjects(String query) {
+        return find(projectsByWord, query, PROJECT_ORDER);
+    }
+
+    /**
+     * Finds the repositories of a project with a name, or a word in their name, starting with the query.
+     */
+    Optional<List<BitbucketRepository>> findRepositories(String projectNameOrKey, String query) {
+        return getProject(projectNameOrKey)
+                .map(project -> repositoriesByProject.get(normalize(project.getKey())))
+                .map(projectRepositories -> find(projectRepositories.byWord, query, REPOSITORY_ORDER));
+    }
+
+    Optional<BitbucketProject> getProject(String projectNameOrKey) {
+        String normalized = normalize(projectNameOrKey);
+        BitbucketProject project = projectsByName.get(normalized);
+        return Optional.ofNullable(project != null ? project : projectsByKey.get(normalized));
+    }
+
+    Optional<BitbucketRepository> getRepository(String projectNameOrKey, String repositoryNameOrSlug) {
+        return getProject(projectNameOrKey)
+                .map(project -> repositoriesByProject.get(normalize(project.getKey())))
+                .map(projectRepositories -> projectRepositories.get(repositoryNameOrSlug));
+    }
+
+    int getProjectCount() {
+        return projectsByKey.size();
+    }
+
+    int getRepositoryCount() {
+        return repositories.size();
+    }
+
+    /**
+     * Returns an index with the repository replaced by the given one, if its name has changed. The whole catalog has to
+     * be loaded again if its project has been renamed, as the project is shared by all of the project's repositories.
+     *
+     * @return the new index, this index if the repository is not in it or has not changed, or {@code null} if the
+     *         repository's project has been renamed
+     */
+    @CheckForNull
+    CatalogIndex update(BitbucketRepository repository) {
+        if (repository.getProject() == null) {
+            return this;
+        }
+        ProjectRepositories projectRepositories = repositoriesByProject.get(normalize(repository.getProject().getKey()));
+        BitbucketRepository existing = projectRepositories == null ? null :
+                projectRepositories.bySlug.get(normalize(repository.getSlug()));
+        if (existing == null) {
+            return this;
+        }
+        if (!existing.getProject().getName().equals(repository.getProject().getName())) {
+            return null;
+        }
+        if (existing.getName().equals(repository.getName())) {
+            return this;
+        }
+        List<BitbucketRepository> updated = new ArrayList<>(repositories);
+        updated.replaceAll(candidate -> candidate == existing ? repository : candidate);
+        return new CatalogIndex(projectsByKey.values(), updated);
+    }
+
+    private static <T> void addWords(NavigableMap<String, List<T>> index, String name, T value) {
+        String normalized = normalize(name);
+        Set<String> words = new LinkedHashSet<>();
+        words.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (isSeparator(normalized.charAt(i - 1)) && !isSeparator(normalized.charAt(i))) {
+                words.add(normalized.substring(i));
+            }
+        }
+        words.forEach(word -> index.computeIfAbsent(word, key -> new ArrayList<>(1)).add(value));
+    }
+
+    private static <T> List<T> find(NavigableMap<String, List<T>> index, String query, Comparator<T> order) {
+        String prefix = normalize(query);
+        Set<T> found = new LinkedHashSet<>();
+        // Every word starting with the prefix sorts between the prefix and the prefix followed by the last character
+        for (List<T> values : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            found.addAll(values);
+        }
+        List<T> results = new ArrayList<>(found);
+        results.sort(order);
+        return results.size() > MAX_RESULTS ? new ArrayList<>(results.subList(0, MAX_RESULTS)) : results;
+    }
+
+    private static boolean isSeparator(char c) {
+        return !Character.isLetterOrDigit(c);
+    }
+
+    private static String normalize(@CheckForNull String value) {
+        return stripToEmpty(value).toLowerCase(Locale.ROOT);
+    }
+
+    private static final class ProjectRepositories {
+
+        private final Map<String, BitbucketRepository> byName = new HashMap<>();
+        private final Map<String, BitbucketRepository> bySlug = new HashMap<>();
+        private final NavigableMap<String, List<BitbucketRepository>> byWord = new TreeMap<>();
+
+        private void add(BitbucketRepository repository) {
+            byName.put(normalize(repository.getName()), repository);
+            bySlug.put(normalize(repository.getSlug()), repository);
+            addWords(byWord, repository.getName(), repository);
+        }
+
+        @CheckForNull
+        private BitbucketRepository get(String repositoryNameOrSlug) {
+            String normalized = normalize(repositoryNameOrSlug);
+            BitbucketRepository repository = byName.get(normalized);
+            return repository != null ? repository : bySlug.get(normalized);
+        }
+    }
+}
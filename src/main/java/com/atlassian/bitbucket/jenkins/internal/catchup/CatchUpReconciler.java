@@ -0,0 +1,167 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.RateLimitedException;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
+import com.cloudbees.plugins.credentials.Credentials;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+import javax.annotation.CheckForNull;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.CATCH_UP_BATCH_SIZE_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.CATCH_UP_HORIZON_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static java.lang.String.format;
+
+/**
+ * Periodically posts the updates kept in the {@link FailedPostStore} again. Each run posts at most
+ * {@code bitbucket.catch.up.batch.size} updates to each server, oldest failure first, and stops posting to a server as
+ * soon as it is still unavailable. A server that refused a request because too many requests were made is left alone
+ * until it asked to be retried. An update is skipped if a newer update for the same key was posted or recorded after
+ * the batch was read. Updates that first failed longer than {@code bitbucket.catch.up.horizon} ago, or that the
+ * server rejects, are given up on.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class CatchUpReconciler extends AsyncPeriodicWork {
+
+    private static final int BATCH_SIZE = (int) Math.min(Integer.MAX_VALUE,
+            parsePositiveLongFromSystemProperty(CATCH_UP_BATCH_SIZE_KEY, 50));
+    private static final long HORIZON = parsePositiveLongFromSystemProperty(CATCH_UP_HORIZON_KEY, DAY);
+    private static final Logger LOGGER = Logger.getLogger(CatchUpReconciler.class.getName());
+
+    private final int batchSize;
+    private final long horizon;
+    /**
+     * The time until which each rate limited server should not be posted to
+     */
+    private final Map<String, Long> rateLimitedUntil = new ConcurrentHashMap<>();
+
+    @Inject
+    private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
+    @Inject
+    private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
+    @Inject
+    private BitbucketPluginConfiguration pluginConfiguration;
+    @Inject
+    private FailedPostStore store;
+
+    public CatchUpReconciler() {
+        super("Bitbucket failed post catch-up");
+        batchSize = BATCH_SIZE;
+        horizon = HORIZON;
+    }
+
+    CatchUpReconciler(BitbucketClientFactoryProvider bitbucketClientFactoryProvider,
+                      JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials,
+                      BitbucketPluginConfiguration pluginConfiguration, FailedPostStore store, int batchSize,
+                      long horizon) {
+        super("Bitbucket failed post catch-up");
+        this.bitbucketClientFactoryProvider = bitbucketClientFactoryProvider;
+        this.jenkinsToBitbucketCredentials = jenkinsToBitbucketCredentials;
+        this.pluginConfiguration = pluginConfiguration;
+        this.store = store;
+        this.batchSize = batchSize;
+        this.horizon = horizon;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Map<String, List<FailedPost>> postsByServer = new LinkedHashMap<>();
+        store.getPending().forEach(post ->
+                postsByServer.computeIfAbsent(post.getServerId(), serverId -> new ArrayList<>()).add(post));
+        postsByServer.forEach(this::catchUp);
+    }
+
+    @CheckForNull
+    Run<?, ?> getRun(String runId) {
+        return Run.fromExternalizableId(runId);
+    }
+
+    private void catchUp(String serverId, List<FailedPost> posts) {
+        long now = System.currentTimeMillis();
+        Long until = rateLimitedUntil.get(serverId);
+        if (until != null) {
+            if (until > now) {
+                return;
+            }
+            rateLimitedUntil.remove(serverId);
+        }
+        Optional<BitbucketServerConfiguration> serverOptional = pluginConfiguration.getServerById(serverId);
+        if (!serverOptional.isPresent()) {
+            posts.forEach(post -> store.abandon(post, "the server is no longer configured"));
+            return;
+        }
+        BitbucketServerConfiguration server = serverOptional.get();
+        int attempted = 0;
+        for (FailedPost post : posts) {
+            if (now - post.getFailedAt() >= horizon) {
+                store.abandon(post, "it failed too long ago");
+                continue;
+            }
+            if (attempted == batchSize) {
+                return;
+            }
+            Run<?, ?> run = getRun(post.getRunId());
+            if (run == null) {
+                // The credentials used to post the update are looked up from the run's job
+                store.abandon(post, format("the run '%s' no longer exists", post.getRunId()));
+                continue;
+            }
+            if (!store.isCurrent(post)) {
+                // A newer update for the same key was posted or recorded since the batch was read, and posting this
+                // one would overwrite it
+                continue;
+            }
+            attempted++;
+            try {
+                post.post(getClient(server, run));
+                store.delivered(post);
+            } catch (RateLimitedException e) {
+                store.retried(post, e.getMessage());
+                rateLimitedUntil.put(serverId, now + e.getRetryIn());
+                LOGGER.info(() -> format("Bitbucket Server '%s' is rate limiting requests; posting failed updates " +
+                                         "again in %d ms", server.getServerName(), e.getRetryIn()));
+                return;
+            } catch (BitbucketClientException e) {
+                if (FailedPostStore.isRetryable(e)) {
+                    // Still unavailable, so the rest of the batch would fail too
+                    store.retried(post, e.getMessage());
+                    return;
+                }
+                store.abandon(post, e.getMessage());
+            } catch (RuntimeException e) {
+                store.abandon(post, e.getMessage());
+            }
+        }
+    }
+
+    private BitbucketClientFactory getClient(BitbucketServerConfiguration server, Run<?, ?> run) {
+        Credentials globalAdminCredentials = server.getGlobalCredentialsProvider(run.getParent())
+                .getGlobalAdminCredentials()
+                .orElse(null);
+        return bitbucketClientFactoryProvider.getClient(server.getBaseUrl(),
+                jenkinsToBitbucketCredentials.toBitbucketCredentials(globalAdminCredentials));
+    }
+}
@@ -0,0 +1,49 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A build status that could not be posted.
+ *
+ * @since 6.1.0
+ */
+public final class FailedBuildStatusPost extends FailedPost {
+
+    private final String buildKey;
+    private final BitbucketBuildStatus.Builder buildStatusBuilder;
+    private final String state;
+
+    FailedBuildStatusPost(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                          BitbucketBuildStatus.Builder buildStatusBuilder, String runId, String error) {
+        super(serverId, repository, revisionSha, runId, error);
+        this.buildStatusBuilder = requireNonNull(buildStatusBuilder, "buildStatusBuilder");
+        BitbucketBuildStatus buildStatus = buildStatusBuilder.build();
+        buildKey = buildStatus.getKey();
+        state = buildStatus.getState();
+    }
+
+    static String getKey(String serverId, BitbucketSCMRepository repository, String revisionSha, String buildKey) {
+        return String.join("/", serverId, repository.getProjectKey(), repository.getRepositorySlug(), revisionSha,
+                "status", buildKey);
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.bitbucket_catchup_build_status(state, buildKey);
+    }
+
+    @Override
+    public String getKey() {
+        return getKey(getServerId(), getRepository(), getRevisionSha(), buildKey);
+    }
+
+    @Override
+    void post(BitbucketClientFactory clientFactory) {
+        getRepositoryClient(clientFactory).getBuildStatusClient(getRevisionSha())
+                .post(buildStatusBuilder, buildStatus -> { });
+    }
+}
@@ -0,0 +1,45 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A deployment notification that could not be posted.
+ *
+ * @since 6.1.0
+ */
+public final class FailedDeploymentPost extends FailedPost {
+
+    private final BitbucketDeployment deployment;
+
+    FailedDeploymentPost(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                         BitbucketDeployment deployment, String runId, String error) {
+        super(serverId, repository, revisionSha, runId, error);
+        this.deployment = requireNonNull(deployment, "deployment");
+    }
+
+    static String getKey(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                         String environmentKey) {
+        return String.join("/", serverId, repository.getProjectKey(), repository.getRepositorySlug(), revisionSha,
+                "deployment", environmentKey);
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.bitbucket_catchup_deployment(deployment.getState(),
+                deployment.getEnvironment().getName());
+    }
+
+    @Override
+    public String getKey() {
+        return getKey(getServerId(), getRepository(), getRevisionSha(), deployment.getEnvironment().getKey());
+    }
+
+    @Override
+    void post(BitbucketClientFactory clientFactory) {
+        getRepositoryClient(clientFactory).getDeploymentClient(getRevisionSha()).post(deployment);
+    }
+}
@@ -0,0 +1,117 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.Util;
+
+import javax.annotation.CheckForNull;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An update that could not be posted to Bitbucket Server because the server was unavailable, waiting in the
+ * {@link FailedPostStore} to be posted again by the {@link CatchUpReconciler}.
+ *
+ * @since 6.1.0
+ */
+public abstract class FailedPost {
+
+    private final long failedAt;
+    private final String id;
+    private final BitbucketSCMRepository repository;
+    private final String revisionSha;
+    private final String runId;
+    private final String serverId;
+    private int attempts;
+    private String lastError;
+
+    FailedPost(String serverId, BitbucketSCMRepository repository, String revisionSha, String runId,
+               String error) {
+        this.serverId = requireNonNull(serverId, "serverId");
+        this.repository = requireNonNull(repository, "repository");
+        this.revisionSha = requireNonNull(revisionSha, "revisionSha");
+        this.runId = requireNonNull(runId, "runId");
+        id = UUID.randomUUID().toString();
+        failedAt = System.currentTimeMillis();
+        attempts = 1;
+        lastError = error;
+    }
+
+    /**
+     * @return how long ago the update first failed to be posted
+     */
+    @SuppressWarnings("unused") // Stapler
+    public String getAge() {
+        return Util.getTimeSpanString(System.currentTimeMillis() - failedAt);
+    }
+
+    /**
+     * @return the number of times posting the update has failed
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return a description of the update, for the {@link PendingUpdatesLink progress view}
+     */
+    public abstract String getDescription();
+
+    public long getFailedAt() {
+        return failedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the key of the commit and build key or environment the update is for. Only the newest update for a key
+     * is kept.
+     */
+    public abstract String getKey();
+
+    @CheckForNull
+    public String getLastError() {
+        return lastError;
+    }
+
+    public BitbucketSCMRepository getRepository() {
+        return repository;
+    }
+
+    public String getRevisionSha() {
+        return revisionSha;
+    }
+
+    /**
+     * @return the id of the run that made the update, whose job the credentials to post it are looked up from
+     */
+    public String getRunId() {
+        return runId;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Posts the update.
+     *
+     * @param clientFactory the client factory for the update's server
+     * @throws com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException if posting fails
+     */
+    abstract void post(BitbucketClientFactory clientFactory);
+
+    BitbucketRepositoryClient getRepositoryClient(BitbucketClientFactory clientFactory) {
+        return clientFactory.getProjectClient(repository.getProjectKey())
+                .getRepositoryClient(repository.getRepositorySlug());
+    }
+
+    void retried(String error) {
+        attempts++;
+        lastError = error;
+    }
+}
@@ -0,0 +1,263 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ConnectionFailureException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.RateLimitedException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ServerErrorException;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps the build statuses and deployment notifications that could not be posted because Bitbucket Server was
+ * unavailable, so the {@link CatchUpReconciler} can post them once it is available again. Only the newest update for
+ * each commit and build key, or commit and environment, is kept, and it is discarded once a newer update for the same
+ * key has been posted.
+ * <p>
+ * The updates are kept in order of when they last failed, oldest first, and are written to a file whenever they
+ * change, so they survive a restart.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class FailedPostStore {
+
+    static final String STORE_FILE_NAME = "bitbucket-failed-posts.xml";
+    static final XStream2 XSTREAM = new XStream2();
+
+    private static final Logger LOGGER = Logger.getLogger(FailedPostStore.class.getName());
+
+    static {
+        XSTREAM.alias("failed-build-status", FailedBuildStatusPost.class);
+        XSTREAM.alias("failed-deployment", FailedDeploymentPost.class);
+    }
+
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    @GuardedBy("this")
+    private Map<String, FailedPost> pending;
+
+    /**
+     * Whether posting an update failed in a way that posting it again later may fix: the server could not be
+     * reached, had an internal error, or refused the request because too many requests were made.
+     *
+     * @param e the error posting the update
+     * @return {@code true} if the update should be posted again later
+     */
+    public static boolean isRetryable(BitbucketClientException e) {
+        return e instanceof ConnectionFailureException || e instanceof ServerErrorException ||
+               e instanceof RateLimitedException;
+    }
+
+    /**
+     * @return the number of updates given up on since Jenkins was started
+     */
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    /**
+     * @return the number of updates posted by the {@link CatchUpReconciler} since Jenkins was started
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return the updates waiting to be posted, oldest failure first
+     */
+    public synchronized List<FailedPost> getPending() {
+        load();
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Records a build status that could not be posted, replacing any older status for the same commit and build key.
+     *
+     * @param serverId           the id of the server the status was posted to
+     * @param repository         the repository the status was posted to
+     * @param revisionSha        the commit the status was posted for
+     * @param buildStatusBuilder the builder of the status
+     * @param run                the run the status is for
+     * @param e                  the error posting the status
+     */
+    public void recordBuildStatus(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                                  BitbucketBuildStatus.Builder buildStatusBuilder, Run<?, ?> run,
+                                  BitbucketClientException e) {
+        record(new FailedBuildStatusPost(serverId, repository, revisionSha, buildStatusBuilder,
+                run.getExternalizableId(), e.getMessage()));
+    }
+
+    /**
+     * Records a deployment notification that could not be posted, replacing any older notification for the same
+     * commit and environment.
+     *
+     * @param repository  the repository the notification was posted to
+     * @param revisionSha the commit the notification was posted for
+     * @param deployment  the deployment
+     * @param run         the run that caused the deployment
+     * @param e           the error posting the notification
+     */
+    public void recordDeployment(BitbucketSCMRepository repository, String revisionSha, BitbucketDeployment deployment,
+                                 Run<?, ?> run, BitbucketClientException e) {
+        record(new FailedDeploymentPost(String.valueOf(repository.getServerId()), repository, revisionSha, deployment,
+                run.getExternalizableId(), e.getMessage()));
+    }
+
+    /**
+     * Discards the pending build status for a commit and build key, as a newer status has been posted.
+     *
+     * @param serverId    the id of the server the status was posted to
+     * @param repository  the repository the status was posted to
+     * @param revisionSha the commit the status was posted for
+     * @param buildKey    the build key of the status
+     */
+    public void resolveBuildStatus(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                                   String buildKey) {
+        remove(FailedBuildStatusPost.getKey(serverId, repository, revisionSha, buildKey));
+    }
+
+    /**
+     * Discards the pending deployment notification for a commit and environment, as a newer notification has been
+     * posted.
+     *
+     * @param repository     the repository the notification was posted to
+     * @param revisionSha    the commit the notification was posted for
+     * @param environmentKey the key of the environment deployed to
+     */
+    public void resolveDeployment(BitbucketSCMRepository repository, String revisionSha, String environmentKey) {
+        remove(FailedDeploymentPost.getKey(String.valueOf(repository.getServerId()), repository, revisionSha,
+                environmentKey));
+    }
+
+    /**
+     * @return the number of updates waiting to be posted
+     */
+    public synchronized int size() {
+        load();
+        return pending.size();
+    }
+
+    /**
+     * Gives up on posting an update.
+     */
+    void abandon(FailedPost post, String reason) {
+        if (removeIfCurrent(post)) {
+            abandoned.increment();
+            LOGGER.warning(() -> format("Giving up on posting %s on commit '%s' to Bitbucket Server '%s': %s",
+                    post.getDescription(), post.getRevisionSha(), post.getServerId(), reason));
+        }
+    }
+
+    /**
+     * Removes an update that the {@link CatchUpReconciler} has posted.
+     */
+    void delivered(FailedPost post) {
+        if (removeIfCurrent(post)) {
+            delivered.increment();
+        }
+    }
+
+    XmlFile getStoreFile() {
+        return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), STORE_FILE_NAME));
+    }
+
+    /**
+     * Whether an update is still waiting to be posted, and has not been replaced by a newer update for the same key.
+     */
+    synchronized boolean isCurrent(FailedPost post) {
+        load();
+        return pending.get(post.getKey()) == post;
+    }
+
+    /**
+     * Records that posting an update failed again, moving it to the back of the queue.
+     */
+    synchronized void retried(FailedPost post, String error) {
+        load();
+        if (pending.get(post.getKey()) == post) {
+            post.retried(error);
+            pending.remove(post.getKey());
+            pending.put(post.getKey(), post);
+            save();
+        }
+    }
+
+    @GuardedBy("this")
+    private void load() {
+        if (pending != null) {
+            return;
+        }
+        pending = new LinkedHashMap<>();
+        XmlFile storeFile = getStoreFile();
+        if (storeFile.exists()) {
+            try {
+                @SuppressWarnings("unchecked")
+                List<FailedPost> stored = (List<FailedPost>) storeFile.read();
+                if (stored != null) {
+                    stored.forEach(post -> pending.put(post.getKey(), post));
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the updates that could not be posted to Bitbucket " +
+                                          "Server; they will not be posted again", e);
+            }
+        }
+    }
+
+    private synchronized void record(FailedPost post) {
+        load();
+        // Removed first, so the newest update goes to the back of the queue
+        pending.remove(post.getKey());
+        pending.put(post.getKey(), post);
+        save();
+    }
+
+    private synchronized void remove(String key) {
+        load();
+        if (pending.remove(key) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Removes an update, unless a newer update for the same key has replaced it.
+     */
+    private synchronized boolean removeIfCurrent(FailedPost post) {
+        load();
+        if (pending.remove(post.getKey(), post)) {
+            save();
+            return true;
+        }
+        return false;
+    }
+
+    @GuardedBy("this")
+    private void save() {
+        try {
+            getStoreFile().write(new ArrayList<>(pending.values()));
+        } catch (IOException e) {
+            // The updates are still posted; they are only lost if Jenkins stops before then
+            LOGGER.log(Level.WARNING, "Failed to write the updates that could not be posted to Bitbucket Server", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+
+import javax.annotation.CheckForNull;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Shows the updates waiting in the {@link FailedPostStore} to be posted to Bitbucket Server again, and how many the
+ * {@link CatchUpReconciler} has posted or given up on.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class PendingUpdatesLink extends ManagementLink {
+
+    public static final String RELATIVE_PATH = "bitbucket-pending-updates";
+
+    @Inject
+    private FailedPostStore store;
+
+    @SuppressWarnings("unused") // Stapler
+    public long getAbandonedCount() {
+        return store.getAbandonedCount();
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public long getDeliveredCount() {
+        return store.getDeliveredCount();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.bitbucket_catchup_admin_menu_description();
+    }
+
+    @CheckForNull
+    @Override
+    public String getDisplayName() {
+        return Messages.bitbucket_catchup_admin_menu();
+    }
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return "symbol-reload";
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public List<FailedPost> getPending() {
+        return store.getPending();
+    }
+
+    @NonNull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.SYSTEM_READ;
+    }
+
+    @CheckForNull
+    @Override
+    public String getUrlName() {
+        return RELATIVE_PATH;
+    }
+}
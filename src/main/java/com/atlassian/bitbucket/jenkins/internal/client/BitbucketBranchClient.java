@@ -3,6 +3,7 @@ package com.atlassian.bitbucket.jenkins.internal.client;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
 import com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants;
 
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
@@ -24,4 +25,19 @@ public interface BitbucketBranchClient {
      * @return Stream of bitbucket branches
      */
     Stream<BitbucketDefaultBranch> getRemoteBranches();
+
+    /**
+     * Gets the branches of the given repository that have been modified since a previous scan, most recently-modified
+     * first.
+     * <p>
+     * Paging stops once a page contains a branch whose latest commit matches the one recorded for it in
+     * {@code latestCommits}; branches further down the list have not been modified since the previous scan. There is
+     * no cap on the number of pages, so passing an empty map will retrieve every branch of the repository.
+     *
+     * @param latestCommits the latest commit of each branch seen in the previous scan, keyed by branch id
+     * @see SystemPropertiesConstants#REMOTE_BRANCHES_RETRIEVAL_PAGE_SIZE
+     * @return Stream of bitbucket branches modified since the previous scan
+     * @since 6.1.0
+     */
+    Stream<BitbucketDefaultBranch> getRemoteBranchesModifiedSince(Map<String, String> latestCommits);
 }
@@ -10,7 +10,9 @@ import okhttp3.HttpUrl;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.REMOTE_BRANCHES_RETRIEVAL_MAX_PAGES;
@@ -39,25 +41,41 @@ public class BitbucketBranchClientImpl implements BitbucketBranchClient {
 
     @Override
     public Stream<BitbucketDefaultBranch> getRemoteBranches() {
-        HttpUrl.Builder urlBuilder = bitbucketRequestExecutor.getCoreRestPath().newBuilder()
+        HttpUrl url = branchesUrl();
+        return BitbucketPageStreamUtil.toStream(getFirstPage(url), new NextPageFetcherImpl(url,
+                        bitbucketRequestExecutor, MAX_PAGES, taskListener))
+                .map(BitbucketPage::getValues)
+                .flatMap(Collection::stream);
+    }
+
+    @Override
+    public Stream<BitbucketDefaultBranch> getRemoteBranchesModifiedSince(Map<String, String> latestCommits) {
+        HttpUrl url = branchesUrl();
+        Predicate<BitbucketDefaultBranch> isUnmodified =
+                branch -> branch.getLatestCommit() != null &&
+                          branch.getLatestCommit().equals(latestCommits.get(branch.getId()));
+        return BitbucketPageStreamUtil.toStream(getFirstPage(url), new NextPageFetcherImpl(url,
+                        bitbucketRequestExecutor, Integer.MAX_VALUE, isUnmodified, taskListener))
+                .map(BitbucketPage::getValues)
+                .flatMap(Collection::stream);
+    }
+
+    private HttpUrl branchesUrl() {
+        return bitbucketRequestExecutor.getCoreRestPath().newBuilder()
                 .addPathSegment("projects")
                 .addPathSegment(projectKey)
                 .addPathSegment("repos")
                 .addPathSegment(repositorySlug)
                 .addPathSegment("branches")
                 .addQueryParameter("limit", String.valueOf(PAGE_SIZE))
-                .addQueryParameter("orderBy", "modification"); // the most recently-modified branches first
+                .addQueryParameter("orderBy", "modification") // the most recently-modified branches first
+                .build();
+    }
 
-        HttpUrl url = urlBuilder.build();
-        BitbucketPage<BitbucketDefaultBranch> firstPage =
-                bitbucketRequestExecutor.makeGetRequest(url,
-                        new TypeReference<BitbucketPage<BitbucketDefaultBranch>>() {
+    private BitbucketPage<BitbucketDefaultBranch> getFirstPage(HttpUrl url) {
+        return bitbucketRequestExecutor.makeGetRequest(url,
+                new TypeReference<BitbucketPage<BitbucketDefaultBranch>>() {
                 }).getBody();
-
-        return BitbucketPageStreamUtil.toStream(firstPage, new NextPageFetcherImpl(url, bitbucketRequestExecutor,
-                        MAX_PAGES, taskListener))
-                .map(BitbucketPage::getValues)
-                .flatMap(Collection::stream);
     }
 
     static class NextPageFetcherImpl implements NextPageFetcher<BitbucketDefaultBranch> {
@@ -65,6 +83,7 @@ public class BitbucketBranchClientImpl implements BitbucketBranchClient {
         private final BitbucketRequestExecutor bitbucketRequestExecutor;
         private final AtomicInteger currentPage = new AtomicInteger();
         private final int maxPages;
+        private final Predicate<BitbucketDefaultBranch> stopAfter;
         private final TaskListener taskListener;
         private final HttpUrl url;
 
@@ -72,9 +91,21 @@ public class BitbucketBranchClientImpl implements BitbucketBranchClient {
                             BitbucketRequestExecutor bitbucketRequestExecutor,
                             int maxPages,
                             TaskListener taskListener) {
+            this(url, bitbucketRequestExecutor, maxPages, branch -> false, taskListener);
+        }
+
+        /**
+         * @param stopAfter no further pages are fetched once a page contains a branch matching this predicate
+         */
+        NextPageFetcherImpl(HttpUrl url,
+                            BitbucketRequestExecutor bitbucketRequestExecutor,
+                            int maxPages,
+                            Predicate<BitbucketDefaultBranch> stopAfter,
+                            TaskListener taskListener) {
             this.url = url;
             this.bitbucketRequestExecutor = bitbucketRequestExecutor;
             this.maxPages = maxPages;
+            this.stopAfter = stopAfter;
             this.taskListener = taskListener;
         }
 
@@ -87,10 +118,13 @@ public class BitbucketBranchClientImpl implements BitbucketBranchClient {
             if (currentPage.incrementAndGet() >= maxPages) {
                 // We've reached the maximum number of pages, so we return an "empty last page" to stop the iterator.
                 taskListener.getLogger().println("Max number of pages for branch retrieval reached.");
-                BitbucketPage<BitbucketDefaultBranch> lastPage = new BitbucketPage<>();
-                lastPage.setValues(Collections.emptyList());
-                lastPage.setLastPage(true);
-                return lastPage;
+                return emptyLastPage();
+            }
+
+            if (previous.getValues().stream().anyMatch(stopAfter)) {
+                // Branches are ordered by modification, so everything beyond this page is unchanged as well
+                taskListener.getLogger().println("Reached branches unchanged since the last scan.");
+                return emptyLastPage();
             }
 
             return bitbucketRequestExecutor.makeGetRequest(
@@ -99,6 +133,13 @@ public class BitbucketBranchClientImpl implements BitbucketBranchClient {
                     }).getBody();
         }
 
+        private static BitbucketPage<BitbucketDefaultBranch> emptyLastPage() {
+            BitbucketPage<BitbucketDefaultBranch> lastPage = new BitbucketPage<>();
+            lastPage.setValues(Collections.emptyList());
+            lastPage.setLastPage(true);
+            return lastPage;
+        }
+
         private HttpUrl nextPageUrl(BitbucketPage<BitbucketDefaultBranch> previous) {
             return url.newBuilder().addQueryParameter("start", valueOf(previous.getNextPageStart())).build();
         }
@@ -69,6 +69,18 @@ public interface BitbucketRepositoryClient {
      */
     BitbucketBuildStatusClient getBuildStatusClient(String revisionSha);
 
+    /**
+     * Return a client that can post the current status of a build to Bitbucket, using CI capabilities that have
+     * already been looked up. This avoids looking the capabilities up again when posting many build statuses to the
+     * same server.
+     *
+     * @param revisionSha    the revision for the build status
+     * @param ciCapabilities the CI capabilities of the Bitbucket instance
+     * @return a client that can post a build status
+     * @since 6.1.0
+     */
+    BitbucketBuildStatusClient getBuildStatusClient(String revisionSha, BitbucketCICapabilities ciCapabilities);
+
     /**
      * Return a client that can post deployment information to Bitbucket.
      *
@@ -110,6 +122,18 @@ public interface BitbucketRepositoryClient {
      */
     Stream<BitbucketPullRequest> getPullRequests();
 
+    /**
+     * Gets the pull requests of the repository, in any state, that have been updated since the given time. Pull
+     * requests are returned most recently-updated first, and paging stops once a page contains a pull request last
+     * updated before {@code updatedSince}. Closing a pull request updates it, so pull requests closed since the given
+     * time are included.
+     *
+     * @param updatedSince the time, in milliseconds since the epoch, of the newest update seen by a previous scan
+     * @return a stream of the pull requests updated since the given time
+     * @since 6.1.0
+     */
+    Stream<BitbucketPullRequest> getPullRequestsUpdatedSince(long updatedSince);
+
     /**
      * Returns the default branch of a repository.
      *
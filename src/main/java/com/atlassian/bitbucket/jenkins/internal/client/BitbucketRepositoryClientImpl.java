@@ -11,6 +11,8 @@ import okhttp3.HttpUrl;
 import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import static java.lang.String.valueOf;
@@ -53,7 +55,12 @@ public class BitbucketRepositoryClientImpl implements BitbucketRepositoryClient
 
     @Override
     public BitbucketBuildStatusClient getBuildStatusClient(String revisionSha) {
-        BitbucketCICapabilities ciCapabilities = capabilitiesClient.getCICapabilities();
+        return getBuildStatusClient(revisionSha, capabilitiesClient.getCICapabilities());
+    }
+
+    @Override
+    public BitbucketBuildStatusClient getBuildStatusClient(String revisionSha,
+                                                           BitbucketCICapabilities ciCapabilities) {
         if (ciCapabilities.supportsRichBuildStatus()) {
             return new ModernBitbucketBuildStatusClientImpl(bitbucketRequestExecutor, projectKey, repositorySlug,
                     revisionSha, ciCapabilities.supportsCancelledBuildStates());
@@ -96,6 +103,22 @@ public class BitbucketRepositoryClientImpl implements BitbucketRepositoryClient
         return getPullRequestsWithState("ALL");
     }
 
+    @Override
+    public Stream<BitbucketPullRequest> getPullRequestsUpdatedSince(long updatedSince) {
+        HttpUrl url = getRepositoryUrl()
+                .addPathSegment("pull-requests")
+                .addQueryParameter("withAttributes", "false")
+                .addQueryParameter("withProperties", "false")
+                .addQueryParameter("state", "ALL")
+                .addQueryParameter("order", "NEWEST") // the most recently-updated pull requests first
+                .build();
+        BitbucketPage<BitbucketPullRequest> firstPage =
+                bitbucketRequestExecutor.makeGetRequest(url, new TypeReference<BitbucketPage<BitbucketPullRequest>>() {}).getBody();
+        return BitbucketPageStreamUtil.toStream(firstPage, new NextPageFetcherImpl(url, bitbucketRequestExecutor,
+                        pullRequest -> pullRequest.getUpdatedDate() < updatedSince))
+                .map(BitbucketPage::getValues).flatMap(Collection::stream);
+    }
+
     @Override
     public BitbucketRepository getRepository() {
         return bitbucketRequestExecutor.makeGetRequest(getRepositoryUrl().build(), BitbucketRepository.class).getBody();
@@ -149,12 +172,23 @@ public class BitbucketRepositoryClientImpl implements BitbucketRepositoryClient
     static class NextPageFetcherImpl implements NextPageFetcher<BitbucketPullRequest> {
 
         private final BitbucketRequestExecutor bitbucketRequestExecutor;
+        private final Predicate<BitbucketPullRequest> stopAfter;
         private final HttpUrl url;
 
         NextPageFetcherImpl(HttpUrl url,
                             BitbucketRequestExecutor bitbucketRequestExecutor) {
+            this(url, bitbucketRequestExecutor, pullRequest -> false);
+        }
+
+        /**
+         * @param stopAfter no further pages are fetched once a page contains a pull request matching this predicate
+         */
+        NextPageFetcherImpl(HttpUrl url,
+                            BitbucketRequestExecutor bitbucketRequestExecutor,
+                            Predicate<BitbucketPullRequest> stopAfter) {
             this.url = url;
             this.bitbucketRequestExecutor = bitbucketRequestExecutor;
+            this.stopAfter = stopAfter;
         }
 
         @Override
@@ -162,6 +196,12 @@ public class BitbucketRepositoryClientImpl implements BitbucketRepositoryClient
             if (previous.isLastPage()) {
                 throw new IllegalArgumentException("Last page does not have next page");
             }
+            if (previous.getValues().stream().anyMatch(stopAfter)) {
+                BitbucketPage<BitbucketPullRequest> lastPage = new BitbucketPage<>();
+                lastPage.setValues(Collections.emptyList());
+                lastPage.setLastPage(true);
+                return lastPage;
+            }
             return bitbucketRequestExecutor.makeGetRequest(
                     nextPageUrl(previous),
                     new TypeReference<BitbucketPage<BitbucketPullRequest>>() {}).getBody();
@@ -130,7 +130,7 @@ public class BitbucketRequestExecutor {
     public <T, R> BitbucketResponse<R> makePostRequest(HttpUrl url, T requestPayload, Class<R> returnType,
                                                        RequestConfiguration... additionalConfig) {
         ObjectReader<R> reader = in -> objectMapper.readValue(in, returnType);
-        return httpRequestExecutor.executePost(url, marshall(requestPayload), response ->
+        return httpRequestExecutor.executePost(url, marshallToBytes(requestPayload), response ->
                         new BitbucketResponse<>(response.headers().toMultimap(), unmarshall(reader, response.body())),
                 addCredentials(additionalConfig));
     }
@@ -143,7 +143,8 @@ public class BitbucketRequestExecutor {
      * @param <T>            Type of Request payload
      */
     public <T> void makePostRequest(HttpUrl url, T requestPayload, RequestConfiguration... additionalConfig) {
-        httpRequestExecutor.executePost(url, marshall(requestPayload), EMPTY_RESPONSE, addCredentials(additionalConfig));
+        httpRequestExecutor.executePost(url, marshallToBytes(requestPayload), EMPTY_RESPONSE,
+                addCredentials(additionalConfig));
     }
 
     /**
@@ -209,6 +210,17 @@ public class BitbucketRequestExecutor {
         }
     }
 
+    private <T> byte[] marshallToBytes(T requestPayload) {
+        requireNonNull(requestPayload);
+        try {
+            // Serialized straight to UTF-8, rather than to a String that is then encoded again for the request body
+            return objectMapper.writeValueAsBytes(requestPayload);
+        } catch (JsonProcessingException e) {
+            log.info("Programming error while marshalling webhook model." + e.getMessage());
+            throw new BitbucketClientException(e);
+        }
+    }
+
     private <T> T unmarshall(ObjectReader<T> reader, ResponseBody body) {
         requireNonNull(body);
         try {
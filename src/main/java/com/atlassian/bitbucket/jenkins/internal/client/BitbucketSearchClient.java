@@ -4,6 +4,8 @@ import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPage;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
 
+import java.util.stream.Stream;
+
 public interface BitbucketSearchClient {
 
     /**
@@ -32,4 +34,23 @@ public interface BitbucketSearchClient {
      * @return a page of repositories matching the filter
      */
     BitbucketPage<BitbucketRepository> findRepositories(String repositoryName);
+
+    /**
+     * Returns every Bitbucket Server project whose name contains the provided value, as {@link #findProjects()} does,
+     * fetching further pages as the stream is consumed. A client created without a project name streams every
+     * (accessible) project.
+     *
+     * @return the projects matching the query
+     * @since 6.1.0
+     */
+    Stream<BitbucketProject> streamProjects();
+
+    /**
+     * Returns every Bitbucket Server repository within the provided project, fetching further pages as the stream is
+     * consumed. A client created without a project name streams every (accessible) repository.
+     *
+     * @return the repositories of the project
+     * @since 6.1.0
+     */
+    Stream<BitbucketRepository> streamRepositories();
 }
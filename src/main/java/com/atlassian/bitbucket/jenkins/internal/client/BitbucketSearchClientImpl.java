@@ -1,5 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.client;
 
+import com.atlassian.bitbucket.jenkins.internal.client.paging.BitbucketPageStreamUtil;
+import com.atlassian.bitbucket.jenkins.internal.client.paging.NextPageFetcher;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPage;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
@@ -7,13 +9,21 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import okhttp3.HttpUrl;
 
 import javax.annotation.CheckForNull;
+import java.util.Collection;
+import java.util.stream.Stream;
 
+import static java.lang.String.valueOf;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.stripToEmpty;
 
 public class BitbucketSearchClientImpl implements BitbucketSearchClient {
 
+    /**
+     * The number of results asked for in each page when streaming; the server caps it at its own limit
+     */
+    private static final String STREAM_PAGE_LIMIT = "1000";
+
     private final BitbucketRequestExecutor bitbucketRequestExecutor;
     private final String projectName;
 
@@ -47,4 +57,59 @@ public class BitbucketSearchClientImpl implements BitbucketSearchClient {
         return bitbucketRequestExecutor.makeGetRequest(url, new TypeReference<BitbucketPage<BitbucketRepository>>() {})
                 .getBody();
     }
+
+    @Override
+    public Stream<BitbucketProject> streamProjects() {
+        HttpUrl.Builder urlBuilder = bitbucketRequestExecutor.getCoreRestPath().newBuilder()
+                .addPathSegment("projects")
+                .addQueryParameter("limit", STREAM_PAGE_LIMIT);
+        if (!isBlank(projectName)) {
+            urlBuilder.addQueryParameter("name", projectName);
+        }
+        return stream(urlBuilder.build(), new TypeReference<BitbucketPage<BitbucketProject>>() {});
+    }
+
+    @Override
+    public Stream<BitbucketRepository> streamRepositories() {
+        HttpUrl.Builder urlBuilder = bitbucketRequestExecutor.getCoreRestPath().newBuilder()
+                .addPathSegment("repos")
+                .addQueryParameter("limit", STREAM_PAGE_LIMIT);
+        if (!isBlank(projectName)) {
+            urlBuilder.addQueryParameter("projectname", projectName);
+        }
+        return stream(urlBuilder.build(), new TypeReference<BitbucketPage<BitbucketRepository>>() {});
+    }
+
+    private <T> Stream<T> stream(HttpUrl url, TypeReference<BitbucketPage<T>> pageType) {
+        BitbucketPage<T> firstPage = bitbucketRequestExecutor.makeGetRequest(url, pageType).getBody();
+        return BitbucketPageStreamUtil.toStream(firstPage, new NextPageFetcherImpl<>(url, pageType,
+                        bitbucketRequestExecutor))
+                .map(BitbucketPage::getValues)
+                .flatMap(Collection::stream);
+    }
+
+    static class NextPageFetcherImpl<T> implements NextPageFetcher<T> {
+
+        private final BitbucketRequestExecutor bitbucketRequestExecutor;
+        private final TypeReference<BitbucketPage<T>> pageType;
+        private final HttpUrl url;
+
+        NextPageFetcherImpl(HttpUrl url, TypeReference<BitbucketPage<T>> pageType,
+                            BitbucketRequestExecutor bitbucketRequestExecutor) {
+            this.url = url;
+            this.pageType = pageType;
+            this.bitbucketRequestExecutor = bitbucketRequestExecutor;
+        }
+
+        @Override
+        public BitbucketPage<T> next(BitbucketPage<T> previous) {
+            if (previous.isLastPage()) {
+                throw new IllegalArgumentException("Last page does not have next page");
+            }
+            HttpUrl nextPageUrl = url.newBuilder()
+                    .addQueryParameter("start", valueOf(previous.getNextPageStart()))
+                    .build();
+            return bitbucketRequestExecutor.makeGetRequest(nextPageUrl, pageType).getBody();
+        }
+    }
 }
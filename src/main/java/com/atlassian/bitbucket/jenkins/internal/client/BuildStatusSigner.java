@@ -0,0 +1,88 @@
+package com.atlassian.bitbucket.jenkins.internal.client;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.provider.InstanceKeyPairProvider;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Signs build statuses with the instance's private key, so Bitbucket Server can tell they were posted by this Jenkins.
+ * <p>
+ * The key and the signing algorithm are looked up the first time a status is signed, as the instance identity does not
+ * change while Jenkins is running, and each thread keeps a {@link Signature} initialized with the key, which is
+ * ready to be used again once it has signed a status.
+ *
+ * @since 6.1.0
+ */
+@ThreadSafe
+public class BuildStatusSigner {
+
+    private static final String SIGNING_ALGORITHM = "SHA256";
+
+    private final InstanceKeyPairProvider instanceKeyPairProvider;
+    private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+    private volatile String algorithm;
+    private volatile RSAPrivateKey key;
+
+    public BuildStatusSigner(InstanceKeyPairProvider instanceKeyPairProvider) {
+        this.instanceKeyPairProvider = requireNonNull(instanceKeyPairProvider, "instanceKeyPairProvider");
+    }
+
+    /**
+     * @return the name of the algorithm statuses are signed with, such as {@code SHA256withRSA}
+     */
+    public String getAlgorithm() {
+        loadKey();
+        return algorithm;
+    }
+
+    /**
+     * Signs the key, ref, state and URL of a build status.
+     *
+     * @param buildStatus the status to sign
+     * @return the signature, Base64 encoded
+     * @throws GeneralSecurityException if the status could not be signed
+     */
+    public String sign(BitbucketBuildStatus buildStatus) throws GeneralSecurityException {
+        Signature signature = signatures.get();
+        if (signature == null) {
+            loadKey();
+            signature = Signature.getInstance(algorithm);
+            signature.initSign(key);
+            signatures.set(signature);
+        }
+        try {
+            signature.update(buildStatus.getKey().getBytes(UTF_8));
+            if (buildStatus.getRef() != null) {
+                signature.update(buildStatus.getRef().getBytes(UTF_8));
+            }
+            signature.update(buildStatus.getState().getBytes(UTF_8));
+            signature.update(buildStatus.getUrl().getBytes(UTF_8));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // The signature may have been left part way through an update, so it is not used again
+            signatures.remove();
+            throw e;
+        }
+    }
+
+    private void loadKey() {
+        if (key != null) {
+            return;
+        }
+        synchronized (this) {
+            if (key == null) {
+                RSAPrivateKey privateKey = instanceKeyPairProvider.getPrivate();
+                algorithm = SIGNING_ALGORITHM + "with" + privateKey.getAlgorithm();
+                key = privateKey;
+            }
+        }
+    }
+}
@@ -84,6 +84,28 @@ public interface HttpRequestExecutor {
     <T> T executePost(HttpUrl url, String requestBodyAsJson, ResponseConsumer<T> consumer,
                       RequestConfiguration... additionalConfig);
 
+    /**
+     * Executes a POST with a given URL and request payload already serialized to UTF-8 encoded JSON, with any custom
+     * headers.
+     *
+     * @param url               The URL to hit on bitbucket server end
+     * @param additionalConfig  additional configuration, such as credentials, that will be used in making calls
+     * @param requestBodyAsJson the request payload to send, as UTF-8 encoded JSON
+     * @param consumer          on successful execution, {@link Response} will be passed to consumer
+     * @param <T>               result that consumer wish to return
+     * @return result computed by consumer
+     * @throws AuthorizationException     if the credentials did not allow access to the given url
+     * @throws ConnectionFailureException if the server did not respond
+     * @throws NotFoundException          if the requested url does not exist
+     * @throws BadRequestException        if the request was malformed and thus rejected by the server
+     * @throws ServerErrorException       if the server failed to process the request
+     * @throws BitbucketClientException   for all errors not already captured
+     *
+     * @since 6.1.0
+     */
+    <T> T executePost(HttpUrl url, byte[] requestBodyAsJson, ResponseConsumer<T> consumer,
+                      RequestConfiguration... additionalConfig);
+
     /**
      * Executes a PUT with a given URL and request payload.
      *
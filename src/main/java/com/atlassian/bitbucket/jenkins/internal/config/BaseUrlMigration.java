@@ -0,0 +1,370 @@
+package com.atlassian.bitbucket.jenkins.internal.config;
+
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.Initializer;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.XStream2;
+import jenkins.branch.BranchSource;
+import jenkins.branch.MultiBranchProject;
+import jenkins.model.Jenkins;
+import jenkins.scm.api.SCMSource;
+import org.jenkinsci.plugins.workflow.cps.CpsScmFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static hudson.init.InitMilestone.JOB_LOADED;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Updates the jobs and multibranch projects using a Bitbucket Server instance whose base URL has changed, so their
+ * clone URLs are worked out again, in the background rather than in the request saving the configuration.
+ * <p>
+ * The affected items are found with the {@link BitbucketJobIndex} and updated in batches of {@value #BATCH_SIZE},
+ * several at a time. The items still to be updated are written to a file after each batch, so a migration interrupted
+ * by a restart carries on once the jobs have been loaded again. The progress of the last migration, and the items that
+ * could not be updated, are shown by the {@link BaseUrlMigrationLink}.
+ *
+ * @since 6.1.0
+ */
+@Extension
+@Singleton
+@ThreadSafe
+public class BaseUrlMigration {
+
+    static final int BATCH_SIZE = 20;
+    static final String STATE_FILE_NAME = "bitbucket-base-url-migration.xml";
+    static final XStream2 XSTREAM = new XStream2();
+
+    private static final Logger LOGGER = Logger.getLogger(BaseUrlMigration.class.getName());
+    private static final int MAX_THREADS = 4;
+
+    static {
+        XSTREAM.alias("base-url-migration", State.class);
+        XSTREAM.alias("failure", Failure.class);
+    }
+
+    private final ExecutorService executor;
+    private final BitbucketJobIndex jobIndex;
+    @GuardedBy("this")
+    private boolean running;
+    @GuardedBy("this")
+    private State state;
+
+    public BaseUrlMigration() {
+        // @Extension annotated classes must have a public no-argument constructor.
+        // However, we don't want this constructor to be explicitly called.
+        throw new IllegalStateException("BaseUrlMigration no-arg constructor should not be called explicitly");
+    }
+
+    @Inject
+    public BaseUrlMigration(BitbucketJobIndex jobIndex) {
+        this(jobIndex, Executors.newFixedThreadPool(MAX_THREADS,
+                new NamingThreadFactory(new DaemonThreadFactory(), "BaseUrlMigration")));
+    }
+
+    BaseUrlMigration(BitbucketJobIndex jobIndex, ExecutorService executor) {
+        this.jobIndex = requireNonNull(jobIndex, "jobIndex");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * @return the items that could not be updated by the last migration
+     */
+    public synchronized List<Failure> getFailures() {
+        load();
+        return new ArrayList<>(state.failures);
+    }
+
+    /**
+     * @return the number of items updated by the last migration
+     */
+    public synchronized int getMigratedCount() {
+        load();
+        return state.migrated;
+    }
+
+    /**
+     * @return the number of items the last migration still has to update
+     */
+    public synchronized int getRemainingCount() {
+        load();
+        return state.remaining.size();
+    }
+
+    /**
+     * @return the number of items the last migration has to update in all
+     */
+    public synchronized int getTotalCount() {
+        load();
+        return state.total;
+    }
+
+    /**
+     * @return {@code true} if a migration is updating items
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts updating the items using the given servers, whose base URLs have changed. If a migration is already
+     * running, the items are added to it.
+     *
+     * @param serverIds the ids of the servers
+     */
+    public void start(Collection<String> serverIds) {
+        if (serverIds.isEmpty()) {
+            return;
+        }
+        Set<String> itemNames = jobIndex.getItemNames(serverIds);
+        synchronized (this) {
+            load();
+            if (!running) {
+                state = new State();
+            }
+            state.serverIds.addAll(serverIds);
+            for (String itemName : itemNames) {
+                if (state.remaining.add(itemName)) {
+                    state.total++;
+                }
+            }
+            save();
+            LOGGER.info(() -> format("Updating %d jobs using the Bitbucket Server instances %s, whose base URLs have " +
+                                     "changed", itemNames.size(), serverIds));
+            startRunning();
+        }
+    }
+
+    @Initializer(after = JOB_LOADED)
+    public synchronized void onJobsLoaded() {
+        // The items are looked up by name, so a migration left unfinished can only carry on once the jobs are loaded
+        load();
+        if (!state.remaining.isEmpty()) {
+            LOGGER.info(() -> format("Carrying on updating %d jobs using the Bitbucket Server instances %s, whose " +
+                                     "base URLs have changed", state.remaining.size(), state.serverIds));
+            startRunning();
+        }
+    }
+
+    /**
+     * Waits for the migration to finish, for testing.
+     */
+    void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (running) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                wait(remaining);
+            }
+        }
+    }
+
+    @CheckForNull
+    Item getItem(String fullName) {
+        return Jenkins.get().getItemByFullName(fullName);
+    }
+
+    XmlFile getStateFile() {
+        return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), STATE_FILE_NAME));
+    }
+
+    /**
+     * Rebuilds the SCM, or SCM sources, of an item using one of the servers, so its clone URLs are worked out again.
+     */
+    void migrate(Item item, Set<String> serverIds) throws IOException {
+        if (item instanceof AbstractProject && ((AbstractProject<?, ?>) item).getScm() instanceof BitbucketSCM) {
+            AbstractProject<?, ?> project = (AbstractProject<?, ?>) item;
+            BitbucketSCM bitbucketSCM = (BitbucketSCM) project.getScm();
+            if (serverIds.contains(bitbucketSCM.getServerId())) {
+                project.setScm(new BitbucketSCM(bitbucketSCM));
+            }
+        } else if (item instanceof WorkflowJob &&
+                   ((WorkflowJob) item).getDefinition() instanceof CpsScmFlowDefinition &&
+                   ((CpsScmFlowDefinition) ((WorkflowJob) item).getDefinition()).getScm() instanceof BitbucketSCM) {
+            WorkflowJob workflowJob = (WorkflowJob) item;
+            CpsScmFlowDefinition definition = (CpsScmFlowDefinition) workflowJob.getDefinition();
+            BitbucketSCM bitbucketSCM = (BitbucketSCM) definition.getScm();
+            if (serverIds.contains(bitbucketSCM.getServerId())) {
+                workflowJob.setDefinition(new CpsScmFlowDefinition(new BitbucketSCM(bitbucketSCM),
+                        definition.getScriptPath()));
+                // Unlike setting the SCM of other jobs, setting the definition does not save the job
+                workflowJob.save();
+            }
+        } else if (item instanceof MultiBranchProject) {
+            MultiBranchProject<?, ?> project = (MultiBranchProject<?, ?>) item;
+            List<BranchSource> sources = project.getSources().stream()
+                    .map(branchSource -> migrateSource(branchSource, serverIds))
+                    .collect(Collectors.toList());
+            project.setSourcesList(sources);
+        }
+    }
+
+    /**
+     * Rebuilds a branch source if it uses one of the servers, keeping its branch property and build strategies.
+     */
+    private static BranchSource migrateSource(BranchSource branchSource, Set<String> serverIds) {
+        SCMSource source = branchSource.getSource();
+        if (!(source instanceof BitbucketSCMSource) ||
+            !serverIds.contains(((BitbucketSCMSource) source).getServerId())) {
+            return branchSource;
+        }
+        BranchSource migrated = new BranchSource(new BitbucketSCMSource((BitbucketSCMSource) source));
+        migrated.setStrategy(branchSource.getStrategy());
+        migrated.setBuildStrategies(branchSource.getBuildStrategies());
+        return migrated;
+    }
+
+    private void migrateBatches() {
+        while (true) {
+            List<String> batch;
+            Set<String> serverIds;
+            synchronized (this) {
+                batch = state.remaining.stream().limit(BATCH_SIZE).collect(Collectors.toList());
+                serverIds = new LinkedHashSet<>(state.serverIds);
+                if (batch.isEmpty()) {
+                    running = false;
+                    notifyAll();
+                    LOGGER.info(() -> format("Updated %d jobs using the Bitbucket Server instances %s; %d could not " +
+                                             "be updated", state.migrated, state.serverIds, state.failures.size()));
+                    return;
+                }
+            }
+            List<CompletableFuture<Failure>> results = batch.stream()
+                    .map(itemName -> CompletableFuture.supplyAsync(() -> migrate(itemName, serverIds), executor))
+                    .collect(Collectors.toList());
+            synchronized (this) {
+                for (CompletableFuture<Failure> result : results) {
+                    Failure failure = result.join();
+                    if (failure == null) {
+                        state.migrated++;
+                    } else {
+                        state.failures.add(failure);
+                    }
+                }
+                state.remaining.removeAll(batch);
+                save();
+            }
+        }
+    }
+
+    @CheckForNull
+    private Failure migrate(String itemName, Set<String> serverIds) {
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+            Item item = getItem(itemName);
+            if (item != null) {
+                migrate(item, serverIds);
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, format("Error updating configuration for %s.", itemName), e);
+            return new Failure(itemName, e.getMessage());
+        }
+    }
+
+    @GuardedBy("this")
+    private void load() {
+        if (state != null) {
+            return;
+        }
+        state = new State();
+        XmlFile stateFile = getStateFile();
+        if (stateFile.exists()) {
+            try {
+                State stored = (State) stateFile.read();
+                if (stored != null) {
+                    state = stored;
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the jobs left to update after a Bitbucket Server base URL " +
+                                          "changed; they will not be updated", e);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void save() {
+        try {
+            getStateFile().write(state);
+        } catch (IOException e) {
+            // The jobs are still updated; the rest are only left alone if Jenkins stops before then
+            LOGGER.log(Level.WARNING, "Failed to write the jobs left to update after a Bitbucket Server base URL " +
+                                      "changed", e);
+        }
+    }
+
+    @GuardedBy("this")
+    private void startRunning() {
+        if (!running) {
+            running = true;
+            // Batches are taken from a thread of their own, so the batch's items can be updated on the pool
+            new NamingThreadFactory(new DaemonThreadFactory(), "BaseUrlMigration batches")
+                    .newThread(this::migrateBatches)
+                    .start();
+        }
+    }
+
+    /**
+     * An item that could not be updated.
+     */
+    public static final class Failure {
+
+        private final String itemName;
+        private final String message;
+
+        Failure(String itemName, @CheckForNull String message) {
+            this.itemName = requireNonNull(itemName, "itemName");
+            this.message = String.valueOf(message);
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * The progress of the last migration, written to the state file.
+     */
+    static final class State {
+
+        private final List<Failure> failures = new ArrayList<>();
+        private final Set<String> remaining = new LinkedHashSet<>();
+        private final Set<String> serverIds = new LinkedHashSet<>();
+        private int migrated;
+        private int total;
+    }
+}
@@ -0,0 +1,85 @@
+package com.atlassian.bitbucket.jenkins.internal.config;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+
+import javax.annotation.CheckForNull;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Shows the progress of the last {@link BaseUrlMigration}, and the jobs it could not update.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class BaseUrlMigrationLink extends ManagementLink {
+
+    public static final String RELATIVE_PATH = "bitbucket-base-url-migration";
+
+    @Inject
+    private BaseUrlMigration migration;
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.bitbucket_migration_admin_menu_description();
+    }
+
+    @CheckForNull
+    @Override
+    public String getDisplayName() {
+        return Messages.bitbucket_migration_admin_menu();
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public List<BaseUrlMigration.Failure> getFailures() {
+        return migration.getFailures();
+    }
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return "symbol-reload";
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getMigratedCount() {
+        return migration.getMigratedCount();
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getRemainingCount() {
+        return migration.getRemainingCount();
+    }
+
+    @NonNull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.SYSTEM_READ;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getTotalCount() {
+        return migration.getTotalCount();
+    }
+
+    @CheckForNull
+    @Override
+    public String getUrlName() {
+        return RELATIVE_PATH;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public boolean isRunning() {
+        return migration.isRunning();
+    }
+}
@@ -0,0 +1,188 @@
+package com.atlassian.bitbucket.jenkins.internal.config;
+
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.branch.MultiBranchProject;
+import jenkins.model.Jenkins;
+import jenkins.scm.api.SCMSource;
+import org.jenkinsci.plugins.workflow.cps.CpsScmFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Knows which jobs and multibranch projects use each Bitbucket Server instance, so the jobs affected by a change to an
+ * instance can be found without walking every item in Jenkins.
+ * <p>
+ * The items are indexed the first time they are needed, and each item is indexed again when it is created or saved,
+ * and forgotten when it is deleted or moved.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class BitbucketJobIndex {
+
+    /**
+     * The ids of the servers used by each item, by the full name of the item
+     */
+    private final Map<String, Set<String>> serverIdsByItem = new ConcurrentHashMap<>();
+    @GuardedBy("this")
+    private boolean loaded;
+
+    /**
+     * Returns the ids of the Bitbucket Server instances an item's SCM or SCM sources use.
+     *
+     * @param item the item
+     * @return the ids of the servers, empty if the item does not use Bitbucket Server
+     */
+    static Set<String> getServerIds(Item item) {
+        Set<String> serverIds = new HashSet<>();
+        if (item instanceof AbstractProject && ((AbstractProject<?, ?>) item).getScm() instanceof BitbucketSCM) {
+            addServerId(serverIds, ((BitbucketSCM) ((AbstractProject<?, ?>) item).getScm()).getServerId());
+        } else if (item instanceof WorkflowJob &&
+                   ((WorkflowJob) item).getDefinition() instanceof CpsScmFlowDefinition &&
+                   ((CpsScmFlowDefinition) ((WorkflowJob) item).getDefinition()).getScm() instanceof BitbucketSCM) {
+            CpsScmFlowDefinition definition = (CpsScmFlowDefinition) ((WorkflowJob) item).getDefinition();
+            addServerId(serverIds, ((BitbucketSCM) definition.getScm()).getServerId());
+        } else if (item instanceof MultiBranchProject) {
+            for (SCMSource source : ((MultiBranchProject<?, ?>) item).getSCMSources()) {
+                if (source instanceof BitbucketSCMSource) {
+                    addServerId(serverIds, ((BitbucketSCMSource) source).getServerId());
+                }
+            }
+        }
+        return serverIds;
+    }
+
+    /**
+     * Returns the full names of the items using any of the given servers.
+     *
+     * @param serverIds the ids of the servers
+     * @return the full names of the items, in order
+     */
+    public Set<String> getItemNames(Collection<String> serverIds) {
+        load();
+        Set<String> itemNames = new TreeSet<>();
+        serverIdsByItem.forEach((itemName, itemServerIds) -> {
+            if (!Collections.disjoint(itemServerIds, serverIds)) {
+                itemNames.add(itemName);
+            }
+        });
+        return itemNames;
+    }
+
+    /**
+     * Forgets an item, along with the items within it.
+     */
+    synchronized void forgetTree(String fullName) {
+        String prefix = fullName + '/';
+        serverIdsByItem.keySet().removeIf(name -> name.equals(fullName) || name.startsWith(prefix));
+    }
+
+    /**
+     * Indexes an item again, unless the items have not been indexed yet.
+     */
+    synchronized void update(Item item) {
+        if (!loaded) {
+            return;
+        }
+        Set<String> serverIds = getServerIds(item);
+        if (serverIds.isEmpty()) {
+            serverIdsByItem.remove(item.getFullName());
+        } else {
+            serverIdsByItem.put(item.getFullName(), serverIds);
+        }
+    }
+
+    private static void addServerId(Set<String> serverIds, @CheckForNull String serverId) {
+        if (serverId != null) {
+            serverIds.add(serverId);
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+            for (Item item : Jenkins.get().getAllItems(Item.class)) {
+                Set<String> serverIds = getServerIds(item);
+                if (!serverIds.isEmpty()) {
+                    serverIdsByItem.put(item.getFullName(), serverIds);
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Indexes items again when they are saved.
+     */
+    @Extension
+    public static class IndexSaveableListener extends SaveableListener {
+
+        @Inject
+        private BitbucketJobIndex index;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof Item) {
+                index.update((Item) o);
+            }
+        }
+    }
+
+    /**
+     * Indexes items when they are created, and forgets them when they are deleted or moved.
+     */
+    @Extension
+    public static class IndexItemListener extends ItemListener {
+
+        @Inject
+        private BitbucketJobIndex index;
+
+        @Override
+        public void onCreated(Item item) {
+            index.update(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            index.forgetTree(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            index.forgetTree(oldFullName);
+            if (item instanceof ItemGroup) {
+                // The items within a moved folder are moved with it
+                for (Item child : ((ItemGroup<?>) item).getAllItems(Item.class)) {
+                    index.update(child);
+                }
+            }
+            index.update(item);
+        }
+    }
+}
@@ -1,31 +1,30 @@
 package com.atlassian.bitbucket.jenkins.internal.config;
 
-import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
-import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
 import hudson.Extension;
-import hudson.model.AbstractProject;
-import hudson.security.ACL;
-import hudson.security.ACLContext;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
 import hudson.util.FormValidation;
 import hudson.util.FormValidation.Kind;
-import jenkins.branch.MultiBranchProject;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
-import jenkins.model.ParameterizedJobMixIn;
-import jenkins.scm.api.SCMSource;
 import net.sf.json.JSONObject;
-import org.jenkinsci.plugins.workflow.cps.CpsScmFlowDefinition;
-import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.kohsuke.stapler.StaplerRequest;
 
 import javax.annotation.CheckForNull;
-import java.io.IOException;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.SERVER_VALIDATION_CACHE_DURATION_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.empty;
 import static java.util.stream.Collectors.toSet;
@@ -36,15 +35,36 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
         "unused") // Stapler calls many of the methods via reflection (such as the setServerList)
 public class BitbucketPluginConfiguration extends GlobalConfiguration {
 
-    private static final Logger LOGGER = Logger.getLogger(BitbucketPluginConfiguration.class.getName());
+    private static final long VALIDATION_CACHE_DURATION =
+            parsePositiveLongFromSystemProperty(SERVER_VALIDATION_CACHE_DURATION_KEY, 5 * 60 * 1000L);
 
     private List<BitbucketServerConfiguration> serverList = new ArrayList<>();
+    /**
+     * The servers indexed by id, along with their validation, or {@code null} until they are next needed after the
+     * configuration or the system credentials have changed. Each validation is also repeated once it is older than
+     * {@code bitbucket.server.validation.cache.duration}, as the admin credentials may be kept in a store that is not
+     * saved when they change.
+     */
+    @GuardedBy("this")
+    private transient volatile ServerSnapshot snapshot;
 
     public BitbucketPluginConfiguration() {
         getConfigFile().getXStream().alias("atl-bbs-configuration", BitbucketServerConfiguration.class);
         load();
     }
 
+    @Override
+    public synchronized void load() {
+        super.load();
+        invalidate();
+    }
+
+    @Override
+    public synchronized void save() {
+        super.save();
+        invalidate();
+    }
+
     @Override
     public boolean configure(StaplerRequest req, JSONObject json) {
         if (json.isEmpty()) {
@@ -70,7 +90,23 @@ public class BitbucketPluginConfiguration extends GlobalConfiguration {
         if (isBlank(serverId)) {
             return empty();
         }
-        return serverList.stream().filter(server -> server.getId().equals(serverId)).findFirst();
+        return Optional.ofNullable(getSnapshot().serversById.get(serverId));
+    }
+
+    /**
+     * Returns the server with the provided id if it passes validation, without validating it again.
+     *
+     * @param serverId the id of the server
+     * @return the server, or nothing if there is no such server or its configuration is invalid
+     * @since 6.1.0
+     */
+    public Optional<BitbucketServerConfiguration> getValidServerById(@CheckForNull String serverId) {
+        if (isBlank(serverId)) {
+            return empty();
+        }
+        ServerSnapshot currentSnapshot = getSnapshot();
+        BitbucketServerConfiguration server = currentSnapshot.serversById.get(serverId);
+        return server != null && isValid(currentSnapshot, server) ? Optional.of(server) : empty();
     }
 
     /**
@@ -85,6 +121,7 @@ public class BitbucketPluginConfiguration extends GlobalConfiguration {
 
     public void setServerList(List<BitbucketServerConfiguration> serverList) {
         this.serverList = requireNonNull(serverList);
+        invalidate();
     }
 
     /**
@@ -115,69 +152,120 @@ public class BitbucketPluginConfiguration extends GlobalConfiguration {
      * @return true if any server returns an error during validation; false otherwise
      */
     public boolean hasAnyInvalidConfiguration() {
-        return serverList.stream().anyMatch(server -> server.validate().kind == Kind.ERROR);
+        ServerSnapshot currentSnapshot = getSnapshot();
+        return currentSnapshot.servers.stream().anyMatch(server -> !isValid(currentSnapshot, server));
+    }
+
+    /**
+     * Forgets the servers and their validation, so they are indexed and validated again when next needed.
+     */
+    synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private ServerSnapshot getSnapshot() {
+        ServerSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
+        // Built while holding the lock, so a change made meanwhile cannot be overwritten with the servers from before it
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = new ServerSnapshot(serverList);
+            }
+            return snapshot;
+        }
     }
 
     private Stream<BitbucketServerConfiguration> getValidServerStream() {
-        return serverList.stream()
-                .filter(server -> server.validate().kind != Kind.ERROR);
+        ServerSnapshot currentSnapshot = getSnapshot();
+        return currentSnapshot.servers.stream().filter(server -> isValid(currentSnapshot, server));
     }
-    
+
+    private boolean isValid(ServerSnapshot currentSnapshot, BitbucketServerConfiguration server) {
+        return currentSnapshot.isValid(server, currentTimeMillis());
+    }
+
     private void updateJobs(Map<String, String> oldBaseUrls) {
         Set<String> changedServerIds = serverList.stream()
                 .filter(serverConfig -> !serverConfig.getBaseUrl().equalsIgnoreCase(oldBaseUrls.get(serverConfig.getId())))
                 .map(BitbucketServerConfiguration::getId)
                 .collect(toSet());
         if (!changedServerIds.isEmpty()) {
-            try (ACLContext ctx = ACL.as(ACL.SYSTEM)) {
-                Jenkins.get().getAllItems(ParameterizedJobMixIn.ParameterizedJob.class)
-                        .forEach(job -> {
-                            if (job instanceof AbstractProject && ((AbstractProject) job).getScm() instanceof BitbucketSCM) {
-                                AbstractProject<?, ?> project = (AbstractProject<?, ?>) job;
-                                BitbucketSCM bitbucketSCM = (BitbucketSCM) project.getScm();
-                                if (changedServerIds.contains(bitbucketSCM.getServerId())) {
-                                    try {
-                                        // This server has had its base URL updated so we need to recalculate the clone URL
-                                        project.setScm(new BitbucketSCM(bitbucketSCM));
-                                    } catch (IOException e) {
-                                        LOGGER.log(Level.SEVERE, String.format("Error updating configuration for Job %s.",
-                                                project.getName()), e);
-                                    }
-                                }
-                            } else if (job instanceof WorkflowJob &&
-                                       ((WorkflowJob) job).getDefinition() instanceof CpsScmFlowDefinition &&
-                                       ((CpsScmFlowDefinition) ((WorkflowJob) job).getDefinition()).getScm() instanceof BitbucketSCM) {
-                                WorkflowJob workflowJob = (WorkflowJob) job;
-                                CpsScmFlowDefinition definition = (CpsScmFlowDefinition) workflowJob.getDefinition();
-                                BitbucketSCM bitbucketSCM = (BitbucketSCM) definition.getScm();
-                                if (changedServerIds.contains(bitbucketSCM.getServerId())) {
-                                    // This server has had its base URL updated so we need to recalculate the clone URL
-                                    workflowJob.setDefinition(new CpsScmFlowDefinition(new BitbucketSCM(bitbucketSCM), definition.getScriptPath()));
-                                }
-                            }
-                        });
-                Jenkins.get().getAllItems(MultiBranchProject.class)
-                        .forEach(project -> processMultiBranchProject(project, changedServerIds));
+            // The jobs are updated in the background, as there may be too many to update within this request
+            requireNonNull(Jenkins.get().getInjector(), "injector").getInstance(BaseUrlMigration.class)
+                    .start(changedServerIds);
+        }
+    }
+
+    /**
+     * The configured servers by id, and which of them pass validation. Validation looks up the admin credentials, so
+     * each server is validated at most once per {@code bitbucket.server.validation.cache.duration} rather than whenever
+     * it is used.
+     */
+    @ThreadSafe
+    private static final class ServerSnapshot {
+
+        private final List<BitbucketServerConfiguration> servers;
+        private final Map<String, BitbucketServerConfiguration> serversById = new HashMap<>();
+        private final ConcurrentMap<BitbucketServerConfiguration, Validation> validity = new ConcurrentHashMap<>();
+
+        private ServerSnapshot(List<BitbucketServerConfiguration> serverList) {
+            servers = Collections.unmodifiableList(new ArrayList<>(serverList));
+            for (BitbucketServerConfiguration server : servers) {
+                // The first server with an id is used, as when the list was searched
+                serversById.putIfAbsent(server.getId(), server);
+            }
+        }
+
+        private boolean isValid(BitbucketServerConfiguration server, long now) {
+            Validation validation = validity.get(server);
+            if (validation == null || validation.isExpired(now)) {
+                validation = validity.compute(server, (s, current) -> current == null || current.isExpired(now) ?
+                        new Validation(s.validate().kind != Kind.ERROR, now) : current);
             }
+            return validation.valid;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void processMultiBranchProject(MultiBranchProject project, Set<String> changedServerIds) {
-        List<SCMSource> sources = (List<SCMSource>) project.getSources().stream().map(scm -> {
-            if (scm instanceof BitbucketSCMSource) {
-                BitbucketSCMSource src = (BitbucketSCMSource) scm;
-                if (changedServerIds.contains(src.getServerId())) {
-                    return new BitbucketSCMSource(src);
-                }
+    /**
+     * Whether a server passed validation, and when it was validated
+     */
+    @Immutable
+    private static final class Validation {
+
+        private final boolean valid;
+        private final long validatedAt;
+
+        private Validation(boolean valid, long validatedAt) {
+            this.valid = valid;
+            this.validatedAt = validatedAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - validatedAt >= VALIDATION_CACHE_DURATION;
+        }
+    }
+
+    /**
+     * Validates the servers again when the system credentials are saved, as their admin credentials may have been
+     * added, removed or changed.
+     */
+    @Extension
+    public static class CredentialsListener extends SaveableListener {
+
+        @Inject
+        private BitbucketPluginConfiguration pluginConfiguration;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                pluginConfiguration.invalidate();
             }
-            return scm;
-        }).collect(Collectors.toList());
-        try {
-            project.setSourcesList(sources);
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, String.format("Error updating configuration for MultiBranchProject %s.",
-                    project.getName()), e);
         }
     }
 }
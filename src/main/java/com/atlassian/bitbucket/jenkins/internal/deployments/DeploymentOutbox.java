@@ -0,0 +1,254 @@
+package com.atlassian.bitbucket.jenkins.internal.deployments;
+
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.Initializer;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.LogTaskListener;
+import hudson.util.NamingThreadFactory;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static hudson.init.InitMilestone.JOB_LOADED;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends deployment notifications to Bitbucket Server in the background, so that the pipeline step reporting them
+ * never waits on Bitbucket. Notifications for the same commit and environment are sent one at a time, in the order
+ * they were added, so a deployment is always reported as in progress before it is reported as finished.
+ * <p>
+ * Notifications are kept in an outbox file until they have been sent. Notifications left in the outbox when Jenkins
+ * stopped are sent once the jobs have been loaded again, before any new notifications for the same environment.
+ *
+ * @since 6.1.0
+ */
+@Extension
+@Singleton
+@ThreadSafe
+public class DeploymentOutbox {
+
+    static final String OUTBOX_FILE_NAME = "bitbucket-deployment-outbox.xml";
+    static final XStream2 XSTREAM = new XStream2();
+
+    private static final Logger LOGGER = Logger.getLogger(DeploymentOutbox.class.getName());
+    private static final int MAX_THREADS = 4;
+
+    static {
+        XSTREAM.alias("pending-deployment", PendingDeployment.class);
+    }
+
+    private final DeploymentPoster deploymentPoster;
+    private final Executor executor;
+    /**
+     * The last notification scheduled for each commit and environment, which the next notification for it waits on.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> lastScheduled = new ConcurrentHashMap<>();
+    @GuardedBy("this")
+    private List<PendingDeployment> pending;
+
+    public DeploymentOutbox() {
+        // @Extension annotated classes must have a public no-argument constructor.
+        // However, we don't want this constructor to be explicitly called.
+        throw new IllegalStateException("DeploymentOutbox no-arg constructor should not be called explicitly");
+    }
+
+    @Inject
+    public DeploymentOutbox(DeploymentPoster deploymentPoster) {
+        this(deploymentPoster, Executors.newFixedThreadPool(MAX_THREADS,
+                new NamingThreadFactory(new DaemonThreadFactory(), "DeploymentOutbox")));
+    }
+
+    DeploymentOutbox(DeploymentPoster deploymentPoster, Executor executor) {
+        this.deploymentPoster = requireNonNull(deploymentPoster, "deploymentPoster");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Adds a deployment notification to the outbox, to be sent once the notifications added before it for the same
+     * commit and environment have been sent. This only writes the outbox file; it does not contact Bitbucket.
+     *
+     * @param repository  the repository that was deployed
+     * @param revisionSha the commit that was deployed
+     * @param deployment  the deployment information
+     * @param run         the run that caused the deployment
+     */
+    public void add(BitbucketSCMRepository repository, String revisionSha, BitbucketDeployment deployment,
+                    Run<?, ?> run) {
+        PendingDeployment pendingDeployment = new PendingDeployment(repository, revisionSha, deployment,
+                run.getExternalizableId());
+        synchronized (this) {
+            load();
+            pending.add(pendingDeployment);
+            save();
+            // Scheduled while holding the lock, so notifications are queued in the order they were added
+            schedule(pendingDeployment);
+        }
+    }
+
+    /**
+     * @return the number of notifications that have not been sent yet
+     */
+    public synchronized int getPendingCount() {
+        load();
+        return pending.size();
+    }
+
+    /**
+     * Reads the outbox file and schedules the notifications left in it, if that has not been done yet.
+     */
+    public synchronized void load() {
+        if (pending != null) {
+            return;
+        }
+        pending = new ArrayList<>();
+        XmlFile outboxFile = getOutboxFile();
+        if (outboxFile.exists()) {
+            try {
+                @SuppressWarnings("unchecked")
+                List<PendingDeployment> stored = (List<PendingDeployment>) outboxFile.read();
+                if (stored != null) {
+                    pending.addAll(stored);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the deployment notification outbox; the notifications " +
+                                          "left in it will not be sent", e);
+            }
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.info(() -> format("Sending %d deployment notifications left in the outbox", pending.size()));
+        }
+        // Scheduled from a copy, as a notification that is sent straight away removes itself from the outbox
+        new ArrayList<>(pending).forEach(this::schedule);
+    }
+
+    @Initializer(after = JOB_LOADED)
+    public void onJobsLoaded() {
+        // Runs are looked up by id, so the notifications left in the outbox can only be sent once the jobs are loaded
+        load();
+    }
+
+    @CheckForNull
+    Run<?, ?> getRun(String runId) {
+        return Run.fromExternalizableId(runId);
+    }
+
+    XmlFile getOutboxFile() {
+        return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), OUTBOX_FILE_NAME));
+    }
+
+    private void deliver(PendingDeployment deployment) {
+        try {
+            Run<?, ?> run = getRun(deployment.getRunId());
+            if (run == null) {
+                // The credentials used to post the notification are looked up from the run's job
+                LOGGER.warning(() -> format("Discarding notification of '%s' deployment on commit '%s': the run " +
+                                            "'%s' no longer exists", deployment.getDeployment().getState(),
+                        deployment.getRevisionSha(), deployment.getRunId()));
+            } else {
+                // The run's console may already be closed by the time the notification is sent
+                deploymentPoster.postDeployment(deployment.getRepository(), deployment.getRevisionSha(),
+                        deployment.getDeployment(), run, new LogTaskListener(LOGGER, Level.INFO));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to send deployment notification to Bitbucket Server", e);
+        } finally {
+            remove(deployment);
+        }
+    }
+
+    private synchronized void remove(PendingDeployment deployment) {
+        if (pending.removeIf(p -> p.getId().equals(deployment.getId()))) {
+            save();
+        }
+    }
+
+    @GuardedBy("this")
+    private void save() {
+        try {
+            getOutboxFile().write(new ArrayList<>(pending));
+        } catch (IOException e) {
+            // The notification is still sent; it is only lost if Jenkins stops before then
+            LOGGER.log(Level.WARNING, "Failed to write the deployment notification outbox", e);
+        }
+    }
+
+    private void schedule(PendingDeployment deployment) {
+        String key = deployment.getOrderingKey();
+        CompletableFuture<Void> scheduled = lastScheduled.compute(key, (k, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenRunAsync(() -> deliver(deployment), executor));
+        // Stop tracking the key once its last notification has been sent, unless another has been scheduled since
+        scheduled.whenComplete((result, error) -> lastScheduled.remove(key, scheduled));
+    }
+
+    /**
+     * A deployment notification waiting in the outbox.
+     */
+    static final class PendingDeployment {
+
+        private final BitbucketDeployment deployment;
+        private final String id;
+        private final BitbucketSCMRepository repository;
+        private final String revisionSha;
+        private final String runId;
+
+        PendingDeployment(BitbucketSCMRepository repository, String revisionSha, BitbucketDeployment deployment,
+                          String runId) {
+            this.id = UUID.randomUUID().toString();
+            this.repository = requireNonNull(repository, "repository");
+            this.revisionSha = requireNonNull(revisionSha, "revisionSha");
+            this.deployment = requireNonNull(deployment, "deployment");
+            this.runId = requireNonNull(runId, "runId");
+        }
+
+        BitbucketDeployment getDeployment() {
+            return deployment;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        /**
+         * @return the key of the commit and environment the notification is for, which notifications are ordered by
+         */
+        String getOrderingKey() {
+            return String.join("/", String.valueOf(repository.getServerId()), repository.getProjectKey(),
+                    repository.getRepositorySlug(), revisionSha, deployment.getEnvironment().getKey());
+        }
+
+        BitbucketSCMRepository getRepository() {
+            return repository;
+        }
+
+        String getRevisionSha() {
+            return revisionSha;
+        }
+
+        String getRunId() {
+            return runId;
+        }
+    }
+}
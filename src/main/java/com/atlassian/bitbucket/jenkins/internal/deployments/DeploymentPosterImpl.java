@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.deployments;
 
+import com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
@@ -44,6 +45,7 @@ public class DeploymentPosterImpl extends SCMListener implements DeploymentPoste
 
     private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     private BitbucketDeploymentFactory bitbucketDeploymentFactory;
+    private FailedPostStore failedPostStore;
     private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
     private BitbucketPluginConfiguration pluginConfiguration;
     private BitbucketSCMRepositoryHelper scmRunHelper;
@@ -59,12 +61,14 @@ public class DeploymentPosterImpl extends SCMListener implements DeploymentPoste
                                 BitbucketDeploymentFactory bitbucketDeploymentFactory,
                                 JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials,
                                 BitbucketPluginConfiguration pluginConfiguration,
-                                BitbucketSCMRepositoryHelper scmRunHelper) {
+                                BitbucketSCMRepositoryHelper scmRunHelper,
+                                FailedPostStore failedPostStore) {
         this.bitbucketClientFactoryProvider = bitbucketClientFactoryProvider;
         this.bitbucketDeploymentFactory = bitbucketDeploymentFactory;
         this.jenkinsToBitbucketCredentials = jenkinsToBitbucketCredentials;
         this.pluginConfiguration = pluginConfiguration;
         this.scmRunHelper = scmRunHelper;
+        this.failedPostStore = failedPostStore;
     }
 
     @Override
@@ -119,24 +123,27 @@ public class DeploymentPosterImpl extends SCMListener implements DeploymentPoste
         BitbucketCredentials credentials = jenkinsToBitbucketCredentials.toBitbucketCredentials(globalAdminCredentials);
         BitbucketClientFactory clientFactory =
                 bitbucketClientFactoryProvider.getClient(server.getBaseUrl(), credentials);
-        BitbucketDeploymentCapabilities deploymentCapabilities =
-                clientFactory.getCapabilityClient().getDeploymentCapabilities();
-        if (!deploymentCapabilities.isDeploymentsSupported()) {
-            // Bitbucket doesn't have deployments
-            taskListener.error(format("Could not send deployment notification to '%s': The Bitbucket version does not " +
-                    "support deployments", server.getServerName()));
-            return;
-        }
-
-        taskListener.getLogger().println(format("Sending notification of '%s' deployment to '%s' on commit '%s'",
-                deployment.getState().name(), server.getServerName(), revisionSha));
         try {
+            // Looked up within the try, as it fails the same way the post would if Bitbucket is unavailable
+            BitbucketDeploymentCapabilities deploymentCapabilities =
+                    clientFactory.getCapabilityClient().getDeploymentCapabilities();
+            if (!deploymentCapabilities.isDeploymentsSupported()) {
+                // Bitbucket doesn't have deployments
+                taskListener.error(format("Could not send deployment notification to '%s': The Bitbucket version " +
+                        "does not support deployments", server.getServerName()));
+                return;
+            }
+
+            taskListener.getLogger().println(format("Sending notification of '%s' deployment to '%s' on commit '%s'",
+                    deployment.getState().name(), server.getServerName(), revisionSha));
             clientFactory.getProjectClient(repository.getProjectKey())
                     .getRepositoryClient(repository.getRepositorySlug())
                     .getDeploymentClient(revisionSha)
                     .post(deployment);
             taskListener.getLogger().println(format("Sent notification of '%s' deployment to '%s' on commit '%s'",
                     deployment.getState().name(), server.getServerName(), revisionSha));
+            // Any older notification that failed to send must not be sent over this one
+            failedPostStore.resolveDeployment(repository, revisionSha, deployment.getEnvironment().getKey());
         } catch (AuthorizationException e) {
             taskListener.error(format("The personal access token for the Bitbucket Server instance '%s' is invalid or " +
                     "insufficient to post deployment information: %s", server.getServerName(), e.getMessage()));
@@ -147,6 +154,11 @@ public class DeploymentPosterImpl extends SCMListener implements DeploymentPoste
             taskListener.error(errorMsg);
             // This is typically not an error that the user running the job is able to fix, so
             LOGGER.log(Level.FINE, "Stacktrace from deployment post failure", e);
+            if (FailedPostStore.isRetryable(e)) {
+                failedPostStore.recordDeployment(repository, revisionSha, deployment, run, e);
+                taskListener.getLogger().println("The deployment notification will be sent again once Bitbucket " +
+                                                 "Server is available");
+            }
         }
     }
 
@@ -85,7 +85,10 @@ public class DeploymentStepExecutionCallback extends BodyExecutionCallback {
             BitbucketSCMRepository bitbucketSCMRepo = revisionAction.getBitbucketSCMRepo();
             String revisionSha = revisionAction.getRevisionSha1();
 
-            getStepDescriptor().getDeploymentPoster().postDeployment(bitbucketSCMRepo, revisionSha, deployment, run, listener);
+            // Sent in the background, so that a slow Bitbucket does not hold up the pipeline
+            getStepDescriptor().getDeploymentOutbox().add(bitbucketSCMRepo, revisionSha, deployment, run);
+            listener.getLogger().println(format("Queued notification of '%s' deployment to Bitbucket Server on " +
+                                                "commit '%s'", state.name(), revisionSha));
         } catch (Exception e) {
             listener.error(getErrorMessage(e.getMessage()));
         }
@@ -119,6 +119,8 @@ public class DeploymentStepImpl extends Step implements DeploymentStep {
         @Inject
         private BitbucketDeploymentFactory bitbucketDeploymentFactory;
         @Inject
+        private DeploymentOutbox deploymentOutbox;
+        @Inject
         private DeploymentPoster deploymentPoster;
         @Inject
         private DeploymentStepDescriptorHelper descriptorHelper;
@@ -156,6 +158,10 @@ public class DeploymentStepImpl extends Step implements DeploymentStep {
             return bitbucketDeploymentFactory;
         }
 
+        public DeploymentOutbox getDeploymentOutbox() {
+            return deploymentOutbox;
+        }
+
         public DeploymentPoster getDeploymentPoster() {
             return deploymentPoster;
         }
@@ -73,6 +73,14 @@ public class HttpRequestExecutorImpl implements HttpRequestExecutor {
         return executeRequest(requestBuilder, consumer, additionalConfig);
     }
 
+    @Override
+    public <T> T executePost(HttpUrl url, byte[] requestBodyAsJson, ResponseConsumer<T> consumer,
+                             RequestConfiguration... additionalConfig) {
+        Request.Builder requestBuilder =
+                new Request.Builder().post(RequestBody.create(JSON, requestBodyAsJson)).url(url);
+        return executeRequest(requestBuilder, consumer, additionalConfig);
+    }
+
     @Override
     public InputStream executeStreamingGet(HttpUrl url, ResponseConsumer<InputStream> consumer,
                                      RequestConfiguration... additionalConfig) {
@@ -0,0 +1,29 @@
+package com.atlassian.bitbucket.jenkins.internal.jenkins.auth;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.OAuth1Authenticator;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.User;
+import hudson.model.listeners.SaveableListener;
+
+import javax.inject.Inject;
+
+/**
+ * Stops the {@link OAuth1Authenticator} from authenticating OAuth requests as a user that has been deleted.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class DeletedUserListener extends SaveableListener {
+
+    @Inject
+    private OAuth1Authenticator authenticator;
+
+    @Override
+    public void onDeleted(Saveable o, XmlFile file) {
+        if (o instanceof User) {
+            authenticator.invalidateUser(((User) o).getId());
+        }
+    }
+}
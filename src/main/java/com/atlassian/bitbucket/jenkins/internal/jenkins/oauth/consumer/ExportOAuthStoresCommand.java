@@ -0,0 +1,38 @@
+package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.consumer;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthStoreTransfer;
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes every OAuth consumer and token to standard output, for {@link ImportOAuthStoresCommand importing} into another
+ * controller.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class ExportOAuthStoresCommand extends CLICommand {
+
+    @Override
+    public String getName() {
+        return "export-bitbucket-oauth";
+    }
+
+    @Override
+    public String getShortDescription() {
+        return Messages.bitbucket_oauth_cli_export_description();
+    }
+
+    @Override
+    protected int run() {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+        // Commands are instantiated per invocation without injection, so the transfer is looked up instead
+        requireNonNull(jenkins.getInjector(), "injector").getInstance(OAuthStoreTransfer.class).exportTo(stdout);
+        stdout.flush();
+        return 0;
+    }
+}
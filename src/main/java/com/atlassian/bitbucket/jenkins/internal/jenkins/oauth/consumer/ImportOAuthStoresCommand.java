@@ -0,0 +1,39 @@
+package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.consumer;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthStoreTransfer;
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Adds the OAuth consumers and tokens read from standard input, as written by {@link ExportOAuthStoresCommand}.
+ * Consumers and tokens with the same key as existing ones replace them.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class ImportOAuthStoresCommand extends CLICommand {
+
+    @Override
+    public String getName() {
+        return "import-bitbucket-oauth";
+    }
+
+    @Override
+    public String getShortDescription() {
+        return Messages.bitbucket_oauth_cli_import_description();
+    }
+
+    @Override
+    protected int run() {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+        // Commands are instantiated per invocation without injection, so the transfer is looked up instead
+        OAuthStoreTransfer transfer =
+                requireNonNull(jenkins.getInjector(), "injector").getInstance(OAuthStoreTransfer.class);
+        stdout.println(transfer.importFrom(stdin));
+        return 0;
+    }
+}
@@ -0,0 +1,204 @@
+package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.consumer;
+
+import com.atlassian.bitbucket.jenkins.internal.annotations.NotUpgradeSensitive;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Phase;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Timer;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.ServiceProviderOAuthValidator;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.PersistentServiceProviderConsumerStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.PersistentServiceProviderTokenStore;
+import hudson.model.Action;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows how the OAuth service provider is performing: the outcomes of its endpoints, how long authenticating a request
+ * takes in each phase, and the size and save times of the consumer and token stores.
+ *
+ * @since 6.1.0
+ */
+@NotUpgradeSensitive
+public class OAuthDiagnosticsAction implements Action {
+
+    private final PersistentServiceProviderConsumerStore consumerStore;
+    private final OAuthMetrics metrics;
+    private final PersistentServiceProviderTokenStore tokenStore;
+    private final ServiceProviderOAuthValidator validator;
+
+    public OAuthDiagnosticsAction(OAuthMetrics metrics,
+                                  PersistentServiceProviderConsumerStore consumerStore,
+                                  PersistentServiceProviderTokenStore tokenStore,
+                                  ServiceProviderOAuthValidator validator) {
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.consumerStore = requireNonNull(consumerStore, "consumerStore");
+        this.tokenStore = requireNonNull(tokenStore, "tokenStore");
+        this.validator = requireNonNull(validator, "validator");
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getConsumerCount() {
+        return consumerStore.size();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.bitbucket_oauth_diagnostics_title();
+    }
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getJournalSize() {
+        return tokenStore.getJournalSize();
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public long getNonceCount() {
+        return validator.getNonceCount();
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public List<OutcomeRow> getOutcomes() {
+        List<OutcomeRow> rows = new ArrayList<>();
+        metrics.getOutcomes().forEach(outcome -> rows.add(new OutcomeRow(getEndpointName(outcome.getEndpoint()),
+                outcome.getOutcome(), outcome.getCount())));
+        return rows;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public long getRefusedTimestampCount() {
+        return validator.getRefusedTimestampCount();
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public long getReplayedNonceCount() {
+        return validator.getReplayedNonceCount();
+    }
+
+    /**
+     * @return the timers of each phase of authenticating a request, followed by those of the stores
+     */
+    @SuppressWarnings("unused") // Stapler
+    public List<TimerRow> getTimers() {
+        List<TimerRow> rows = new ArrayList<>();
+        metrics.getTimers().forEach((phase, timer) -> rows.add(new TimerRow(getPhaseName(phase), timer)));
+        rows.add(new TimerRow(Messages.bitbucket_oauth_diagnostics_timer_token_save(), tokenStore.getSaveTimer()));
+        rows.add(new TimerRow(Messages.bitbucket_oauth_diagnostics_timer_token_journal(),
+                tokenStore.getJournalTimer()));
+        rows.add(new TimerRow(Messages.bitbucket_oauth_diagnostics_timer_consumer_save(),
+                consumerStore.getSaveTimer()));
+        return rows;
+    }
+
+    @SuppressWarnings("unused") // Stapler
+    public int getTokenCount() {
+        return tokenStore.size();
+    }
+
+    @Override
+    public String getUrlName() {
+        return "diagnostics";
+    }
+
+    private static String getEndpointName(Endpoint endpoint) {
+        switch (endpoint) {
+            case AUTHENTICATION:
+                return Messages.bitbucket_oauth_diagnostics_endpoint_authentication();
+            case REQUEST_TOKEN:
+                return Messages.bitbucket_oauth_diagnostics_endpoint_request_token();
+            case AUTHORIZATION:
+                return Messages.bitbucket_oauth_diagnostics_endpoint_authorization();
+            case ACCESS_TOKEN:
+                return Messages.bitbucket_oauth_diagnostics_endpoint_access_token();
+            default:
+                return endpoint.name();
+        }
+    }
+
+    private static String getPhaseName(Phase phase) {
+        switch (phase) {
+            case TOKEN_LOOKUP:
+                return Messages.bitbucket_oauth_diagnostics_timer_token_lookup();
+            case SIGNATURE_VALIDATION:
+                return Messages.bitbucket_oauth_diagnostics_timer_signature_validation();
+            case USER_RESOLUTION:
+                return Messages.bitbucket_oauth_diagnostics_timer_user_resolution();
+            case TOTAL:
+                return Messages.bitbucket_oauth_diagnostics_timer_total();
+            default:
+                return phase.name();
+        }
+    }
+
+    /**
+     * The number of requests to an endpoint with one outcome, as shown on the page.
+     */
+    public static final class OutcomeRow {
+
+        private final long count;
+        private final String endpoint;
+        private final String outcome;
+
+        OutcomeRow(String endpoint, String outcome, long count) {
+            this.endpoint = endpoint;
+            this.outcome = outcome;
+            this.count = count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+    }
+
+    /**
+     * A timed operation, as shown on the page.
+     */
+    public static final class TimerRow {
+
+        private final String name;
+        private final Timer timer;
+
+        TimerRow(String name, Timer timer) {
+            this.name = name;
+            this.timer = timer;
+        }
+
+        public long getCount() {
+            return timer.getCount();
+        }
+
+        public String getMax() {
+            return format(timer.getMaxMillis());
+        }
+
+        public String getMean() {
+            return format(timer.getMeanMillis());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private static String format(double millis) {
+            return String.format(Locale.ROOT, "%.3f", millis);
+        }
+    }
+}
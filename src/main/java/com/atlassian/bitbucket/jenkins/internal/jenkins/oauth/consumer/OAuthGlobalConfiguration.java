@@ -1,6 +1,11 @@
 package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.consumer;
 
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthStoreTransfer;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.ServiceProviderOAuthValidator;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.PersistentServiceProviderConsumerStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.PersistentServiceProviderTokenStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenStore;
 import com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.servlet.AuthorizeConfirmationConfig.AuthorizeConfirmationConfigDescriptor;
 import com.atlassian.bitbucket.jenkins.internal.provider.JenkinsProvider;
@@ -12,10 +17,15 @@ import hudson.model.Descriptor;
 import hudson.model.Descriptor.FormException;
 import hudson.model.ManagementLink;
 import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import javax.annotation.CheckForNull;
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.Collection;
 
 import static java.util.stream.Collectors.toList;
@@ -34,6 +44,16 @@ public class OAuthGlobalConfiguration extends ManagementLink implements Describa
     private JenkinsProvider jenkinsProvider;
     @Inject
     private AuthorizeConfirmationConfigDescriptor authorizeConfirmationConfigDescriptor;
+    @Inject
+    private OAuthMetrics metrics;
+    @Inject
+    private PersistentServiceProviderConsumerStore persistentConsumerStore;
+    @Inject
+    private PersistentServiceProviderTokenStore persistentTokenStore;
+    @Inject
+    private OAuthStoreTransfer storeTransfer;
+    @Inject
+    private ServiceProviderOAuthValidator validator;
 
     public Collection<OAuthConsumerEntry> getConsumers() {
         jenkinsProvider.get().checkPermission(Jenkins.SYSTEM_READ);
@@ -63,6 +83,46 @@ public class OAuthGlobalConfiguration extends ManagementLink implements Describa
         return new OAuthConsumerUpdateAction(key, consumerStore, serviceProviderTokenStore);
     }
 
+    /**
+     * Creates an action showing how the OAuth service provider is performing
+     *
+     * @return a diagnostics action
+     */
+    @SuppressWarnings("unused") // Stapler
+    public OAuthDiagnosticsAction getDiagnostics() {
+        jenkinsProvider.get().checkPermission(Jenkins.SYSTEM_READ);
+        return new OAuthDiagnosticsAction(metrics, persistentConsumerStore, persistentTokenStore, validator);
+    }
+
+    /**
+     * Streams every consumer and token, for {@link #doImport(StaplerRequest) importing} into another controller
+     *
+     * @param rsp the response to write the consumers and tokens to
+     * @throws IOException if the response could not be written
+     */
+    @SuppressWarnings("unused") // Stapler
+    public void doExport(StaplerResponse rsp) throws IOException {
+        jenkinsProvider.get().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/xml;charset=UTF-8");
+        rsp.setHeader("Content-Disposition", "attachment; filename=bitbucket-oauth.xml");
+        storeTransfer.exportTo(rsp.getOutputStream());
+    }
+
+    /**
+     * Adds the consumers and tokens in the body of the request, as {@link #doExport(StaplerResponse) exported} from
+     * another controller
+     *
+     * @param req the request, whose body holds the exported consumers and tokens
+     * @return a summary of what was imported
+     * @throws IOException if the request could not be read
+     */
+    @RequirePOST
+    @SuppressWarnings("unused") // Stapler
+    public HttpResponse doImport(StaplerRequest req) throws IOException {
+        jenkinsProvider.get().checkPermission(Jenkins.ADMINISTER);
+        return HttpResponses.plainText(storeTransfer.importFrom(req.getInputStream()).toString());
+    }
+
     @SuppressWarnings("unused") // Stapler
     public Action getAuthorize(StaplerRequest req) throws FormException {
         return authorizeConfirmationConfigDescriptor.createInstance(req);
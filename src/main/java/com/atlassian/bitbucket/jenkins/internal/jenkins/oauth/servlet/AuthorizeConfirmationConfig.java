@@ -1,6 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.servlet;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.Randomizer;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.SecurityModeChecker;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.InvalidTokenException;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
@@ -33,6 +34,7 @@ import java.time.Clock;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint.AUTHORIZATION;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.Authorization;
 import static hudson.security.SecurityMode.UNSECURED;
 import static javax.servlet.http.HttpServletResponse.SC_UNAUTHORIZED;
@@ -104,6 +106,7 @@ public class AuthorizeConfirmationConfig extends AbstractDescribableImpl<Authori
         try {
             token = getTokenForAuthorization(tokenStr);
         } catch (OAuthProblemException e) {
+            getDescriptor().metrics.recordFailure(AUTHORIZATION, e);
             OAuthProblemUtils.logOAuthProblem(OAuthServlet.getMessage(request, null), e, LOGGER);
             return HttpResponses.error(e);
         }
@@ -115,6 +118,11 @@ public class AuthorizeConfirmationConfig extends AbstractDescribableImpl<Authori
             newToken = token.deny(userPrincipal.getName());
         }
         getDescriptor().tokenStore.put(newToken);
+        if (allow) {
+            getDescriptor().metrics.recordSuccess(AUTHORIZATION);
+        } else {
+            getDescriptor().metrics.record(AUTHORIZATION, DENIED_STATUS);
+        }
         String callBackUrl =
                 addParameters(callback,
                         OAUTH_TOKEN, newToken.getToken(),
@@ -220,6 +228,8 @@ public class AuthorizeConfirmationConfig extends AbstractDescribableImpl<Authori
         @Inject
         private Clock clock;
         @Inject
+        private OAuthMetrics metrics;
+        @Inject
         private Randomizer randomizer;
         @Inject
         private ServiceProviderTokenStore tokenStore;
@@ -230,12 +240,14 @@ public class AuthorizeConfirmationConfig extends AbstractDescribableImpl<Authori
                                               ServiceProviderTokenStore tokenStore,
                                               Randomizer randomizer,
                                               SecurityModeChecker securityChecker,
-                                              Clock clock) {
+                                              Clock clock,
+                                              OAuthMetrics metrics) {
             this.jenkinsAuthWrapper = jenkinsAuthWrapper;
             this.tokenStore = tokenStore;
             this.randomizer = randomizer;
             this.securityChecker = securityChecker;
             this.clock = clock;
+            this.metrics = metrics;
         }
 
         public AuthorizeConfirmationConfigDescriptor() {
@@ -0,0 +1,132 @@
+package com.atlassian.bitbucket.jenkins.internal.link;
+
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * Holds the {@link BitbucketExternalLink}s created for each job and multibranch project, so that the link action
+ * factories, which are called whenever the actions of an item are listed, only work out an item's links once.
+ * <p>
+ * The links of an item are forgotten when the item is saved, deleted or completes a run, since its SCMs may have
+ * changed, and the links of the branches of a multibranch project are forgotten along with the project's. All links
+ * are forgotten when the Bitbucket Server configuration is saved. Items are held weakly, so the links of an item
+ * that is no longer loaded are dropped.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class BitbucketExternalLinkCache {
+
+    private final Cache<Item, Collection<Action>> links = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Returns the links of an item, creating them if they are not cached.
+     *
+     * @param item         the job or multibranch project
+     * @param linkSupplier creates the links of the item
+     * @return the links of the item
+     */
+    public Collection<Action> getLinks(Item item, Supplier<Collection<? extends Action>> linkSupplier) {
+        return links.asMap().computeIfAbsent(item, key -> {
+            Collection<? extends Action> created = linkSupplier.get();
+            return created.isEmpty() ? Collections.emptyList() :
+                    Collections.unmodifiableList(new ArrayList<>(created));
+        });
+    }
+
+    void forget(Item item) {
+        links.invalidate(item);
+        if (item instanceof WorkflowMultiBranchProject) {
+            links.invalidateAll(((WorkflowMultiBranchProject) item).getItems());
+        }
+    }
+
+    void forgetAll() {
+        links.invalidateAll();
+    }
+
+    /**
+     * @return the number of items whose links are cached
+     */
+    long size() {
+        return links.size();
+    }
+
+    /**
+     * Forgets the links of an item when it is saved, and all links when the server configuration is saved.
+     */
+    @Extension
+    public static class ConfigurationListener extends SaveableListener {
+
+        @Inject
+        private BitbucketExternalLinkCache linkCache;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof BitbucketPluginConfiguration) {
+                linkCache.forgetAll();
+            } else if (o instanceof Item) {
+                linkCache.forget((Item) o);
+            }
+        }
+    }
+
+    /**
+     * Forgets the links of items that are deleted or moved.
+     */
+    @Extension
+    public static class LinkItemListener extends ItemListener {
+
+        @Inject
+        private BitbucketExternalLinkCache linkCache;
+
+        @Override
+        public void onDeleted(Item item) {
+            linkCache.forget(item);
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            linkCache.forget(item);
+        }
+    }
+
+    /**
+     * Forgets the links of a job when a run completes, as pipeline jobs take their SCMs from their last run.
+     */
+    @Extension
+    public static class LinkRunListener extends RunListener<Run<?, ?>> {
+
+        @Inject
+        private BitbucketExternalLinkCache linkCache;
+
+        @Override
+        public void onCompleted(Run<?, ?> run, TaskListener listener) {
+            linkCache.forget(run.getParent());
+        }
+    }
+}
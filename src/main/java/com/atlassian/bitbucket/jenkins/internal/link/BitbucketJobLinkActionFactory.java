@@ -30,20 +30,43 @@ public class BitbucketJobLinkActionFactory extends TransientActionFactory<Job> {
     @Inject
     private SCMHeadByItemProvider headProvider;
     @Inject
+    private BitbucketExternalLinkCache linkCache;
+    @Inject
     private SCMSourceByItemProvider sourceProvider;
 
     public BitbucketJobLinkActionFactory() { }
 
     public BitbucketJobLinkActionFactory(BitbucketExternalLinkUtils externalLinkUtils,
                                          DefaultSCMHeadByItemProvider headProvider,
-                                         DefaultSCMSourceByItemProvider sourceProvider) {
+                                         DefaultSCMSourceByItemProvider sourceProvider,
+                                         BitbucketExternalLinkCache linkCache) {
         this.externalLinkUtils = externalLinkUtils;
         this.headProvider = headProvider;
         this.sourceProvider = sourceProvider;
+        this.linkCache = linkCache;
     }
 
     @Override
     public Collection<? extends Action> createFor(Job target) {
+        return linkCache.getLinks(target, () -> createLinks(target));
+    }
+
+    @Override
+    public Class<Job> type() {
+        return Job.class;
+    }
+
+    @VisibleForTesting
+    ItemGroup getWorkflowParent(WorkflowJob job) {
+        return job.getParent();
+    }
+
+    @VisibleForTesting
+    Collection<? extends SCM> getWorkflowSCMs(WorkflowJob job) {
+        return job.getSCMs();
+    }
+
+    private Collection<? extends Action> createLinks(Job target) {
         // Freestyle Job
         if (target instanceof FreeStyleProject) {
             FreeStyleProject freeStyleProject = (FreeStyleProject) target;
@@ -105,21 +128,6 @@ public class BitbucketJobLinkActionFactory extends TransientActionFactory<Job> {
         return Collections.emptySet();
     }
 
-    @Override
-    public Class<Job> type() {
-        return Job.class;
-    }
-
-    @VisibleForTesting
-    ItemGroup getWorkflowParent(WorkflowJob job) {
-        return job.getParent();
-    }
-
-    @VisibleForTesting
-    Collection<? extends SCM> getWorkflowSCMs(WorkflowJob job) {
-        return job.getSCMs();
-    }
-
     private Optional<BitbucketSCMRepository> getScmStep(WorkflowJob workflowJob) {
         return getWorkflowSCMs(workflowJob)
                 .stream()
@@ -18,15 +18,28 @@ public class BitbucketMultibranchLinkActionFactory extends TransientActionFactor
 
     @Inject
     private BitbucketExternalLinkUtils externalLinkUtils;
+    @Inject
+    private BitbucketExternalLinkCache linkCache;
 
     public BitbucketMultibranchLinkActionFactory() { }
 
-    public BitbucketMultibranchLinkActionFactory(BitbucketExternalLinkUtils externalLinkUtils) {
+    public BitbucketMultibranchLinkActionFactory(BitbucketExternalLinkUtils externalLinkUtils,
+                                                 BitbucketExternalLinkCache linkCache) {
         this.externalLinkUtils = externalLinkUtils;
+        this.linkCache = linkCache;
     }
 
     @Override
     public Collection<? extends Action> createFor(WorkflowMultiBranchProject workflowMultiBranchProject) {
+        return linkCache.getLinks(workflowMultiBranchProject, () -> createLinks(workflowMultiBranchProject));
+    }
+
+    @Override
+    public Class<WorkflowMultiBranchProject> type() {
+        return WorkflowMultiBranchProject.class;
+    }
+
+    private Collection<? extends Action> createLinks(WorkflowMultiBranchProject workflowMultiBranchProject) {
         Optional<BitbucketSCMRepository> maybeSource = workflowMultiBranchProject.getSCMSources()
                 .stream().filter(source -> source instanceof BitbucketSCMSource)
                 .map(source -> ((BitbucketSCMSource) source).getBitbucketSCMRepository())
@@ -36,9 +49,4 @@ public class BitbucketMultibranchLinkActionFactory extends TransientActionFactor
                 .map(Arrays::asList)
                 .orElse(Collections.emptyList());
     }
-
-    @Override
-    public Class<WorkflowMultiBranchProject> type() {
-        return WorkflowMultiBranchProject.class;
-    }
 }
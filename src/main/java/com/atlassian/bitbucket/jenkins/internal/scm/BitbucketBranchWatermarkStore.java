@@ -0,0 +1,185 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketBranchClient;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRefChange;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRefChangeType;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRefType;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hudson.model.TaskListener;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.REMOTE_BRANCHES_RETRIEVAL_FULL_SCAN_INTERVAL;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.REMOTE_BRANCHES_RETRIEVAL_INCREMENTAL;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Remembers the branches seen by the last scan of each repository so that the next scan only has to page through
+ * the branches modified since then. Bitbucket orders branches by modification, so the first branch whose latest
+ * commit matches the previous scan marks the point beyond which nothing has changed.
+ * <p>
+ * The branch API treats any head not reported by a full scan as deleted, so unchanged branches are reported from the
+ * snapshot rather than being left out. Branches created, updated or deleted in Bitbucket are recorded in the snapshot
+ * when the refs changed webhook is received, as a branch created from an older commit sorts below the point where an
+ * incremental scan stops. A full scan is performed every {@link #FULL_SCAN_INTERVAL} to pick up anything the webhooks
+ * missed.
+ *
+ * @see com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants#REMOTE_BRANCHES_RETRIEVAL_INCREMENTAL
+ * @since 6.1.0
+ */
+@ThreadSafe
+@Singleton
+public class BitbucketBranchWatermarkStore {
+
+    /**
+     * Time between full scans of a repository. Defaults to 24 hours in ms.
+     */
+    public static final long FULL_SCAN_INTERVAL =
+            parsePositiveLongFromSystemProperty(REMOTE_BRANCHES_RETRIEVAL_FULL_SCAN_INTERVAL, 86400000);
+    private static final long MAX_REPOSITORIES = 1000;
+
+    private final Clock clock;
+    private final Cache<BitbucketRepositoryKey, Snapshot> snapshots = CacheBuilder.newBuilder()
+            .maximumSize(MAX_REPOSITORIES)
+            .build();
+
+    @Inject
+    public BitbucketBranchWatermarkStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return {@code true} if branch discovery should go through this store rather than fetching a capped number of
+     * branches on every scan
+     */
+    public boolean isEnabled() {
+        return Boolean.getBoolean(REMOTE_BRANCHES_RETRIEVAL_INCREMENTAL);
+    }
+
+    /**
+     * Returns every branch of the repository, most recently-modified first, fetching only those modified since the
+     * previous scan unless a full scan is due.
+     *
+     * @param baseUrl        the base URL of the Bitbucket Server instance
+     * @param projectKey     the project key of the repository
+     * @param repositorySlug the slug of the repository
+     * @param branchClient   the client for the repository
+     * @param listener       the listener of the scan
+     * @return all branches of the repository
+     */
+    public Stream<BitbucketDefaultBranch> getBranches(String baseUrl, String projectKey, String repositorySlug,
+                                                      BitbucketBranchClient branchClient, TaskListener listener) {
+        BitbucketRepositoryKey key = new BitbucketRepositoryKey(baseUrl, projectKey, repositorySlug);
+        long now = clock.millis();
+        Snapshot previous = snapshots.getIfPresent(key);
+        Map<String, BitbucketDefaultBranch> branches = new LinkedHashMap<>();
+        Snapshot next;
+        if (previous == null || now - previous.fullScanTime >= FULL_SCAN_INTERVAL) {
+            listener.getLogger().println("Performing a full scan of branches.");
+            branchClient.getRemoteBranchesModifiedSince(Collections.emptyMap())
+                    .forEach(branch -> branches.put(branch.getId(), branch));
+            next = new Snapshot(branches, now);
+        } else {
+            branchClient.getRemoteBranchesModifiedSince(previous.getLatestCommits())
+                    .forEach(branch -> branches.put(branch.getId(), branch));
+            listener.getLogger().println(format("Found %d branches modified since the last scan.", branches.size()));
+            previous.branches.values().forEach(branch -> branches.putIfAbsent(branch.getId(), branch));
+            next = new Snapshot(branches, previous.fullScanTime);
+        }
+        snapshots.put(key, next);
+        return next.branches.values().stream();
+    }
+
+    /**
+     * Drops deleted branches from the snapshot of the repository, so they are not reported by the next scan.
+     *
+     * @param repository the repository the branches were deleted from
+     * @param branchIds  the ids of the deleted branches
+     */
+    public void removeBranches(BitbucketRepository repository, Collection<String> branchIds) {
+        if (branchIds.isEmpty()) {
+            return;
+        }
+        snapshots.asMap().replaceAll((key, snapshot) -> {
+            if (!key.matches(repository)) {
+                return snapshot;
+            }
+            Map<String, BitbucketDefaultBranch> remaining = new LinkedHashMap<>(snapshot.branches);
+            remaining.keySet().removeAll(branchIds);
+            return new Snapshot(remaining, snapshot.fullScanTime);
+        });
+    }
+
+    /**
+     * Records branches created or updated in Bitbucket in the snapshot of the repository, so they are reported by the
+     * next scan even if an incremental scan would stop before reaching them.
+     *
+     * @param repository the repository the branches were changed in
+     * @param changes    the ref changes received in the webhook
+     */
+    public void updateBranches(BitbucketRepository repository, Collection<BitbucketRefChange> changes) {
+        List<BitbucketRefChange> branchChanges = new ArrayList<>();
+        for (BitbucketRefChange change : changes) {
+            if (change.getType() != BitbucketRefChangeType.DELETE &&
+                change.getRef().getType() == BitbucketRefType.BRANCH) {
+                branchChanges.add(change);
+            }
+        }
+        if (branchChanges.isEmpty()) {
+            return;
+        }
+        snapshots.asMap().replaceAll((key, snapshot) -> {
+            if (!key.matches(repository)) {
+                return snapshot;
+            }
+            // The changed branches are the most recently modified, so they go first
+            Map<String, BitbucketDefaultBranch> updated = new LinkedHashMap<>();
+            for (BitbucketRefChange change : branchChanges) {
+                BitbucketDefaultBranch previous = snapshot.branches.get(change.getRefId());
+                updated.put(change.getRefId(), new BitbucketDefaultBranch(change.getRefId(),
+                        change.getRef().getDisplayId(), BitbucketRefType.BRANCH, change.getToHash(),
+                        change.getToHash(), previous != null && previous.isDefault()));
+            }
+            snapshot.branches.forEach(updated::putIfAbsent);
+            return new Snapshot(updated, snapshot.fullScanTime);
+        });
+    }
+
+    @VisibleForTesting
+    @CheckForNull
+    Map<String, BitbucketDefaultBranch> getSnapshot(String baseUrl, String projectKey, String repositorySlug) {
+        Snapshot snapshot = snapshots.getIfPresent(new BitbucketRepositoryKey(baseUrl, projectKey, repositorySlug));
+        return snapshot == null ? null : snapshot.branches;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, BitbucketDefaultBranch> branches;
+        private final long fullScanTime;
+
+        private Snapshot(Map<String, BitbucketDefaultBranch> branches, long fullScanTime) {
+            this.branches = unmodifiableMap(branches);
+            this.fullScanTime = fullScanTime;
+        }
+
+        private Map<String, String> getLatestCommits() {
+            Map<String, String> latestCommits = new HashMap<>();
+            branches.values().stream()
+                    .filter(branch -> branch.getLatestCommit() != null)
+                    .forEach(branch -> latestCommits.put(branch.getId(), branch.getLatestCommit()));
+            return latestCommits;
+        }
+    }
+}
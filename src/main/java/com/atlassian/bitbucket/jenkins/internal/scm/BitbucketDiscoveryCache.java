@@ -0,0 +1,178 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPullRequest;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketTag;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.DISCOVERY_CACHE_DURATION_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+/**
+ * Short-lived cache of the branch, tag and pull request listings fetched while scanning a repository, shared by every
+ * {@link BitbucketSCMSource} for that repository. Several multibranch projects or organization folders pointing at the
+ * same repository, typically with different traits or Jenkinsfile paths, then make one set of requests between them
+ * instead of one each. Concurrent scans of the same repository share a single in-flight listing.
+ * <p>
+ * Listings are keyed by server, project, repository and credentials, so a listing is only ever shared between scans
+ * that would have been allowed to make the same requests. They expire after {@link #DISCOVERY_CACHE_DURATION} and
+ * are dropped as soon as a webhook is received for the repository.
+ *
+ * @since 6.1.0
+ */
+@ThreadSafe
+@Singleton
+public class BitbucketDiscoveryCache {
+
+    /**
+     * Time a listing is shared for. Defaults to 30 seconds in ms; 0 disables the cache.
+     */
+    public static final long DISCOVERY_CACHE_DURATION =
+            parsePositiveLongFromSystemProperty(DISCOVERY_CACHE_DURATION_KEY, 30000);
+    private static final long MAX_ENTRIES = 1000;
+
+    private final Cache<ListingKey, List<?>> listings = CacheBuilder.newBuilder()
+            .expireAfterWrite(DISCOVERY_CACHE_DURATION, TimeUnit.MILLISECONDS)
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    /**
+     * Returns the branches of the repository, fetching them with the given listing unless a scan with the same
+     * credentials fetched them recently.
+     *
+     * @param baseUrl        the base URL of the Bitbucket Server instance
+     * @param projectKey     the project key of the repository
+     * @param repositorySlug the slug of the repository
+     * @param credentials    the credentials the listing is made with
+     * @param listing        fetches the branches from Bitbucket
+     * @return the branches of the repository
+     */
+    public Stream<BitbucketDefaultBranch> getBranches(String baseUrl, String projectKey, String repositorySlug,
+                                                      BitbucketCredentials credentials,
+                                                      Supplier<Stream<BitbucketDefaultBranch>> listing) {
+        return get(new ListingKey(baseUrl, projectKey, repositorySlug, credentials, ListingType.BRANCHES), listing);
+    }
+
+    /**
+     * Returns the open pull requests of the repository, fetching them with the given listing unless a scan with the
+     * same credentials fetched them recently.
+     *
+     * @param baseUrl        the base URL of the Bitbucket Server instance
+     * @param projectKey     the project key of the repository
+     * @param repositorySlug the slug of the repository
+     * @param credentials    the credentials the listing is made with
+     * @param listing        fetches the open pull requests from Bitbucket
+     * @return the open pull requests of the repository
+     */
+    public Stream<BitbucketPullRequest> getOpenPullRequests(String baseUrl, String projectKey, String repositorySlug,
+                                                            BitbucketCredentials credentials,
+                                                            Supplier<Stream<BitbucketPullRequest>> listing) {
+        return get(new ListingKey(baseUrl, projectKey, repositorySlug, credentials, ListingType.PULL_REQUESTS),
+                listing);
+    }
+
+    /**
+     * Returns the tags of the repository, fetching them with the given listing unless a scan with the same
+     * credentials fetched them recently.
+     *
+     * @param baseUrl        the base URL of the Bitbucket Server instance
+     * @param projectKey     the project key of the repository
+     * @param repositorySlug the slug of the repository
+     * @param credentials    the credentials the listing is made with
+     * @param listing        fetches the tags from Bitbucket
+     * @return the tags of the repository
+     */
+    public Stream<BitbucketTag> getTags(String baseUrl, String projectKey, String repositorySlug,
+                                        BitbucketCredentials credentials, Supplier<Stream<BitbucketTag>> listing) {
+        return get(new ListingKey(baseUrl, projectKey, repositorySlug, credentials, ListingType.TAGS), listing);
+    }
+
+    /**
+     * Drops every listing of the repository, so the next scan sees the change a webhook reported.
+     *
+     * @param repository the repository received in the webhook
+     */
+    public void invalidate(BitbucketRepository repository) {
+        listings.asMap().keySet().removeIf(key -> key.repository.matches(repository));
+    }
+
+    @VisibleForTesting
+    long size() {
+        return listings.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Stream<T> get(ListingKey key, Supplier<Stream<T>> listing) {
+        if (DISCOVERY_CACHE_DURATION == 0) {
+            return listing.get();
+        }
+        try {
+            return ((List<T>) listings.get(key, () -> listing.get().collect(Collectors.toList()))).stream();
+        } catch (ExecutionException executionException) {
+            throw new RuntimeException(executionException.getCause());
+        } catch (UncheckedExecutionException uncheckedExecutionException) {
+            // We unwrap the exception in case consumers have handling for specific exception cases
+            throw (RuntimeException) uncheckedExecutionException.getCause();
+        }
+    }
+
+    private enum ListingType {
+        BRANCHES,
+        PULL_REQUESTS,
+        TAGS
+    }
+
+    private static final class ListingKey {
+
+        private final String credentialScope;
+        private final BitbucketRepositoryKey repository;
+        private final ListingType type;
+
+        private ListingKey(String baseUrl, String projectKey, String repositorySlug,
+                           BitbucketCredentials credentials, ListingType type) {
+            repository = new BitbucketRepositoryKey(baseUrl, projectKey, repositorySlug);
+            // Keep a digest rather than the authorization header itself
+            credentialScope = Hashing.sha256()
+                    .hashString(defaultString(credentials.toHeaderValue()), StandardCharsets.UTF_8)
+                    .toString();
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ListingKey that = (ListingKey) o;
+            return Objects.equals(repository, that.repository) &&
+                   Objects.equals(credentialScope, that.credentialScope) &&
+                   type == that.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(repository, credentialScope, type);
+        }
+    }
+}
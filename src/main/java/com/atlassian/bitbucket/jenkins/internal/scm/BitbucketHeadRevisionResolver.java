@@ -0,0 +1,182 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.NotFoundException;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketCommit;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPullRequest;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketTag;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.scm.api.SCMHead;
+import jenkins.scm.api.SCMRevision;
+
+import javax.annotation.CheckForNull;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the current revision of many heads of a repository at once. Branches and tags are looked up in a single
+ * listing of the repository's refs, and the heads that need a request of their own (pull requests, and refs the
+ * listing did not return) are resolved in parallel.
+ *
+ * @since 6.1.0
+ */
+class BitbucketHeadRevisionResolver {
+
+    private static final int MAX_THREADS = 4;
+    private static final ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS,
+            new NamingThreadFactory(new DaemonThreadFactory(), "BitbucketHeadRevisionResolver"));
+
+    private final String projectKey;
+    private final String repositorySlug;
+    private final BitbucketScmHelper scmHelper;
+
+    BitbucketHeadRevisionResolver(BitbucketScmHelper scmHelper, String projectKey, String repositorySlug) {
+        this.scmHelper = scmHelper;
+        this.projectKey = projectKey;
+        this.repositorySlug = repositorySlug;
+    }
+
+    /**
+     * Resolves the current revision of a single head.
+     *
+     * @param head     the head to resolve
+     * @param listener the listener to report errors to
+     * @return the current revision, or {@code null} if the head no longer exists or is not supported
+     */
+    @CheckForNull
+    SCMRevision resolve(SCMHead head, TaskListener listener) {
+        try {
+            if (head instanceof BitbucketPullRequestSCMHead) {
+                BitbucketPullRequest pullRequest = getRepositoryClient()
+                        .getPullRequest(((BitbucketPullRequestSCMHead) head).getPullRequest().getPullRequestId());
+                return new BitbucketPullRequestSCMRevision(new BitbucketPullRequestSCMHead(pullRequest));
+            }
+
+            if (head instanceof BitbucketBranchSCMHead) {
+                BitbucketCommit commit = getCommit((BitbucketBranchSCMHead) head);
+                BitbucketBranchSCMHead latestHead = new BitbucketBranchSCMHead(head.getName(), commit);
+                return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
+            }
+
+            if (head instanceof BitbucketTagSCMHead) {
+                // This was previously a GitTagSCMHead and needs to be property retrieved
+                // Perform a fetch of the tag from the remote.
+                // Create a new BitbucketSCMRevision from the fetched tag.
+                BitbucketCommit commit = getCommit((BitbucketTagSCMHead) head);
+                BitbucketTagSCMHead latestHead = new BitbucketTagSCMHead(
+                        new BitbucketTag(commit.getId(), head.getName(), commit.getId()));
+                return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
+            }
+        } catch (NotFoundException e) {
+            // this exception can be thrown if the head no longer exists (e.g. multi-branch pipeline created without
+            // webhook configured, pull request build is run, pull request is deleted, then build is re-run)
+            listener.error(e.getMessage());
+            return null;
+        }
+
+        listener.error("Error resolving revision, unsupported SCMHead type " + head.getClass());
+        return null;
+    }
+
+    /**
+     * Resolves the current revision of each of the given heads. Heads that no longer exist are left out of the
+     * result.
+     *
+     * @param heads    the heads to resolve
+     * @param listener the listener to report errors to
+     * @return the current revision of each head that still exists
+     * @throws InterruptedException if interrupted while waiting for the parallel requests
+     */
+    Map<SCMHead, SCMRevision> resolve(Collection<? extends SCMHead> heads,
+                                      TaskListener listener) throws InterruptedException {
+        Map<SCMHead, SCMRevision> revisions = new HashMap<>();
+        Map<String, BitbucketBranchSCMHead> branches = new HashMap<>();
+        Map<String, BitbucketTagSCMHead> tags = new HashMap<>();
+        List<SCMHead> individual = new ArrayList<>();
+        for (SCMHead head : heads) {
+            if (head instanceof BitbucketBranchSCMHead) {
+                branches.put(head.getName(), (BitbucketBranchSCMHead) head);
+            } else if (head instanceof BitbucketTagSCMHead) {
+                tags.put(head.getName(), (BitbucketTagSCMHead) head);
+            } else {
+                individual.add(head);
+            }
+        }
+
+        // A listing is only worth it when it replaces more than one request
+        if (branches.size() > 1) {
+            resolveFromListing(branches, getRepositoryClient().getBranchClient(listener).getRemoteBranches(),
+                    BitbucketDefaultBranch::getDisplayId,
+                    branch -> {
+                        BitbucketBranchSCMHead latestHead = new BitbucketBranchSCMHead(branch);
+                        return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
+                    },
+                    revisions);
+        }
+        if (tags.size() > 1) {
+            resolveFromListing(tags, scmHelper.getTagClient(projectKey, repositorySlug, listener).getRemoteTags(),
+                    BitbucketTag::getDisplayId,
+                    tag -> {
+                        BitbucketTagSCMHead latestHead = new BitbucketTagSCMHead(tag);
+                        return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
+                    },
+                    revisions);
+        }
+        // Anything the listings did not return (deleted, or beyond the page limit) is looked up on its own
+        individual.addAll(branches.values());
+        individual.addAll(tags.values());
+
+        Map<SCMHead, Future<SCMRevision>> pending = new LinkedHashMap<>();
+        for (SCMHead head : individual) {
+            Callable<SCMRevision> lookup = () -> resolve(head, listener);
+            pending.put(head, executor.submit(lookup));
+        }
+        try {
+            for (Map.Entry<SCMHead, Future<SCMRevision>> entry : pending.entrySet()) {
+                try {
+                    SCMRevision revision = entry.getValue().get();
+                    if (revision != null) {
+                        revisions.put(entry.getKey(), revision);
+                    }
+                } catch (ExecutionException e) {
+                    listener.error("Error resolving revision for head " + entry.getKey() + ": " +
+                                   e.getCause().getMessage());
+                }
+            }
+        } finally {
+            pending.values().forEach(future -> future.cancel(true));
+        }
+        return revisions;
+    }
+
+    private BitbucketCommit getCommit(BitbucketSCMHead head) {
+        return scmHelper.getCommitClient(projectKey, repositorySlug).getCommit(head.getFullRef());
+    }
+
+    private BitbucketRepositoryClient getRepositoryClient() {
+        return scmHelper.getRepositoryClient(projectKey, repositorySlug);
+    }
+
+    private static <T, H extends SCMHead> void resolveFromListing(Map<String, H> wanted, Stream<T> refs,
+                                                                  Function<T, String> toName,
+                                                                  Function<T, SCMRevision> toRevision,
+                                                                  Map<SCMHead, SCMRevision> revisions) {
+        Iterator<T> iterator = refs.iterator();
+        while (!wanted.isEmpty() && iterator.hasNext()) {
+            T ref = iterator.next();
+            H head = wanted.remove(toName.apply(ref));
+            if (head != null) {
+                revisions.put(head, toRevision.apply(ref));
+            }
+        }
+    }
+}
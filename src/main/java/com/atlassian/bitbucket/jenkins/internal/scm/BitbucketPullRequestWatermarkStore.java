@@ -0,0 +1,163 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPullRequest;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPullRequestState;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hudson.model.TaskListener;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.PULL_REQUESTS_RETRIEVAL_FULL_SCAN_INTERVAL;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.PULL_REQUESTS_RETRIEVAL_INCREMENTAL;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Remembers the open pull requests seen by the last scan of each repository, along with the newest update seen, so
+ * that the next scan only has to page through the pull requests updated since then.
+ * <p>
+ * Incremental scans list pull requests in every state, most recently-updated first. Pull requests that were merged,
+ * declined or deleted in the meantime are updated when they are closed, so they show up at the top of that listing and
+ * are dropped from the snapshot without having to list every open pull request. Open pull requests that have not been
+ * updated are reported from the snapshot, as the branch API treats any head not reported by a full scan as deleted.
+ * A full scan is performed every {@link #FULL_SCAN_INTERVAL} to pick up anything that was missed.
+ *
+ * @see com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants#PULL_REQUESTS_RETRIEVAL_INCREMENTAL
+ * @since 6.1.0
+ */
+@ThreadSafe
+@Singleton
+public class BitbucketPullRequestWatermarkStore {
+
+    /**
+     * Time between full scans of a repository. Defaults to 24 hours in ms.
+     */
+    public static final long FULL_SCAN_INTERVAL =
+            parsePositiveLongFromSystemProperty(PULL_REQUESTS_RETRIEVAL_FULL_SCAN_INTERVAL, 86400000);
+    private static final long MAX_REPOSITORIES = 1000;
+
+    private final Clock clock;
+    private final Cache<BitbucketRepositoryKey, Snapshot> snapshots = CacheBuilder.newBuilder()
+            .maximumSize(MAX_REPOSITORIES)
+            .build();
+
+    @Inject
+    public BitbucketPullRequestWatermarkStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return {@code true} if pull request discovery should go through this store rather than listing every open
+     * pull request on every scan
+     */
+    public boolean isEnabled() {
+        return Boolean.getBoolean(PULL_REQUESTS_RETRIEVAL_INCREMENTAL);
+    }
+
+    /**
+     * Returns every open pull request of the repository, fetching only those updated since the previous scan unless a
+     * full scan is due.
+     *
+     * @param baseUrl          the base URL of the Bitbucket Server instance
+     * @param projectKey       the project key of the repository
+     * @param repositorySlug   the slug of the repository
+     * @param repositoryClient the client for the repository
+     * @param listener         the listener of the scan
+     * @return all open pull requests of the repository
+     */
+    public Stream<BitbucketPullRequest> getOpenPullRequests(String baseUrl, String projectKey, String repositorySlug,
+                                                            BitbucketRepositoryClient repositoryClient,
+                                                            TaskListener listener) {
+        BitbucketRepositoryKey key = new BitbucketRepositoryKey(baseUrl, projectKey, repositorySlug);
+        long now = clock.millis();
+        Snapshot previous = snapshots.getIfPresent(key);
+        Map<Long, BitbucketPullRequest> pullRequests = new LinkedHashMap<>();
+        Snapshot next;
+        if (previous == null || now - previous.fullScanTime >= FULL_SCAN_INTERVAL) {
+            listener.getLogger().println("Performing a full scan of pull requests.");
+            repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN)
+                    .forEach(pullRequest -> pullRequests.put(pullRequest.getId(), pullRequest));
+            long lastUpdated = pullRequests.values().stream()
+                    .mapToLong(BitbucketPullRequest::getUpdatedDate)
+                    .max()
+                    .orElse(0);
+            next = new Snapshot(pullRequests, lastUpdated, now);
+        } else {
+            Set<Long> closed = new HashSet<>();
+            long lastUpdated = previous.lastUpdated;
+            Iterator<BitbucketPullRequest> updated =
+                    repositoryClient.getPullRequestsUpdatedSince(previous.lastUpdated).iterator();
+            while (updated.hasNext()) {
+                BitbucketPullRequest pullRequest = updated.next();
+                if (pullRequest.getUpdatedDate() < previous.lastUpdated) {
+                    // The rest of the page was already seen by the previous scan
+                    break;
+                }
+                lastUpdated = max(lastUpdated, pullRequest.getUpdatedDate());
+                if (pullRequest.getState() == BitbucketPullRequestState.OPEN) {
+                    pullRequests.put(pullRequest.getId(), pullRequest);
+                } else {
+                    closed.add(pullRequest.getId());
+                }
+            }
+            listener.getLogger().println(format("Found %d pull requests updated and %d closed since the last scan.",
+                    pullRequests.size(), closed.size()));
+            previous.pullRequests.values().stream()
+                    .filter(pullRequest -> !closed.contains(pullRequest.getId()))
+                    .forEach(pullRequest -> pullRequests.putIfAbsent(pullRequest.getId(), pullRequest));
+            next = new Snapshot(pullRequests, lastUpdated, previous.fullScanTime);
+        }
+        snapshots.put(key, next);
+        return next.pullRequests.values().stream();
+    }
+
+    /**
+     * Drops a closed pull request from the snapshot of the repository, so it is not reported by the next scan.
+     * Deleted pull requests in particular never show up in an incremental scan.
+     *
+     * @param repository    the repository the pull request targets
+     * @param pullRequestId the id of the closed pull request
+     */
+    public void removePullRequest(BitbucketRepository repository, long pullRequestId) {
+        snapshots.asMap().replaceAll((key, snapshot) -> {
+            if (!key.matches(repository) || !snapshot.pullRequests.containsKey(pullRequestId)) {
+                return snapshot;
+            }
+            Map<Long, BitbucketPullRequest> remaining = new LinkedHashMap<>(snapshot.pullRequests);
+            remaining.remove(pullRequestId);
+            return new Snapshot(remaining, snapshot.lastUpdated, snapshot.fullScanTime);
+        });
+    }
+
+    @VisibleForTesting
+    @CheckForNull
+    Map<Long, BitbucketPullRequest> getSnapshot(String baseUrl, String projectKey, String repositorySlug) {
+        Snapshot snapshot = snapshots.getIfPresent(new BitbucketRepositoryKey(baseUrl, projectKey, repositorySlug));
+        return snapshot == null ? null : snapshot.pullRequests;
+    }
+
+    private static final class Snapshot {
+
+        private final long fullScanTime;
+        private final long lastUpdated;
+        private final Map<Long, BitbucketPullRequest> pullRequests;
+
+        private Snapshot(Map<Long, BitbucketPullRequest> pullRequests, long lastUpdated, long fullScanTime) {
+            this.pullRequests = unmodifiableMap(pullRequests);
+            this.lastUpdated = lastUpdated;
+            this.fullScanTime = fullScanTime;
+        }
+    }
+}
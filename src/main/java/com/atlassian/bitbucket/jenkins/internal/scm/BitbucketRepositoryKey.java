@@ -0,0 +1,59 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.BaseUrlUtils.isOnServer;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.stripToEmpty;
+
+/**
+ * Identifies a repository on a Bitbucket Server instance, for state kept between scans of that repository.
+ */
+final class BitbucketRepositoryKey {
+
+    private final String baseUrl;
+    private final String projectKey;
+    private final String repositorySlug;
+
+    BitbucketRepositoryKey(String baseUrl, String projectKey, String repositorySlug) {
+        this.baseUrl = stripToEmpty(baseUrl);
+        this.projectKey = stripToEmpty(projectKey).toUpperCase(Locale.ROOT);
+        this.repositorySlug = stripToEmpty(repositorySlug).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BitbucketRepositoryKey that = (BitbucketRepositoryKey) o;
+        return Objects.equals(baseUrl, that.baseUrl) &&
+               Objects.equals(projectKey, that.projectKey) &&
+               Objects.equals(repositorySlug, that.repositorySlug);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baseUrl, projectKey, repositorySlug);
+    }
+
+    /**
+     * Matches a repository received in a webhook. The self link is used to tell servers apart when it is present.
+     *
+     * @param repository the repository received in the webhook
+     * @return {@code true} if the repository is the one identified by this key
+     */
+    boolean matches(BitbucketRepository repository) {
+        String selfLink = repository.getSelfLink();
+        return repository.getProject() != null &&
+               projectKey.equalsIgnoreCase(repository.getProject().getKey()) &&
+               repositorySlug.equalsIgnoreCase(repository.getSlug()) &&
+               (isBlank(selfLink) || isOnServer(selfLink, baseUrl));
+    }
+}
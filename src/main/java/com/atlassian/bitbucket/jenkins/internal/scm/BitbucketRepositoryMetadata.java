@@ -0,0 +1,88 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketMirroredRepository;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketNamedLink;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+
+import javax.annotation.CheckForNull;
+import java.util.Optional;
+
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The resolved details of a repository (and optionally one of its mirrors) that SCM instances need in order to
+ * initialize: the project key, slug, clone URLs and self link.
+ *
+ * @since 6.1.0
+ */
+public final class BitbucketRepositoryMetadata {
+
+    private final BitbucketMirroredRepository mirroringDetails;
+    private final BitbucketRepository repository;
+
+    private BitbucketRepositoryMetadata(BitbucketRepository repository,
+                                        @CheckForNull BitbucketMirroredRepository mirroringDetails) {
+        this.repository = requireNonNull(repository, "repository");
+        this.mirroringDetails = mirroringDetails;
+    }
+
+    public static BitbucketRepositoryMetadata of(BitbucketRepository repository) {
+        return new BitbucketRepositoryMetadata(repository, null);
+    }
+
+    public static BitbucketRepositoryMetadata of(EnrichedBitbucketMirroredRepository mirroredRepository) {
+        return new BitbucketRepositoryMetadata(mirroredRepository.getRepository(),
+                mirroredRepository.getMirroringDetails());
+    }
+
+    /**
+     * Returns the clone URL for the given protocol. If a mirror is configured its clone URL is preferred, falling
+     * back to the upstream repository if the mirroring details are missing the clone URL for some reason.
+     *
+     * @param cloneProtocol the protocol to clone with
+     * @return the clone URL, or {@code ""} if there is none for the protocol
+     */
+    public String getCloneUrl(CloneProtocol cloneProtocol) {
+        Optional<BitbucketNamedLink> mirrorLink = mirroringDetails == null ?
+                Optional.empty() : mirroringDetails.getCloneUrl(cloneProtocol);
+        return mirrorLink
+                .map(BitbucketNamedLink::getHref)
+                .orElseGet(() -> repository.getCloneUrl(cloneProtocol)
+                        .map(BitbucketNamedLink::getHref)
+                        .orElse(""));
+    }
+
+    public String getMirrorName() {
+        return mirroringDetails == null ? "" : mirroringDetails.getMirrorName();
+    }
+
+    /**
+     * @return the upstream repository
+     */
+    public BitbucketRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * @return the self link of the upstream repository, without the trailing {@code /browse}
+     */
+    public String getSelfLink() {
+        String selfLink = repository.getSelfLink();
+        return selfLink.substring(0, max(selfLink.lastIndexOf("/browse"), 0));
+    }
+
+    public boolean isMirror() {
+        return mirroringDetails != null;
+    }
+
+    /**
+     * {@link BitbucketScmHelper#getRepository} returns a placeholder repository with an id of {@code -1} when the
+     * lookup fails. Such results must not be shared with other SCM instances.
+     *
+     * @return {@code true} if the repository was found on the server
+     */
+    public boolean isResolved() {
+        return repository.getId() != -1;
+    }
+}
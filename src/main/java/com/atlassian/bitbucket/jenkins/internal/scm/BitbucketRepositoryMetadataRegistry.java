@@ -0,0 +1,169 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.BaseUrlUtils.isOnServer;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.REPOSITORY_METADATA_CACHE_DURATION_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.stripToEmpty;
+
+/**
+ * Plugin-wide registry of resolved repository metadata, shared by every {@link BitbucketSCM} and
+ * {@link BitbucketSCMSource}. Without it each SCM instance looks up its repository (and mirror) on every restart or
+ * save, which adds up quickly in organization folders with hundreds of jobs on the same repositories.
+ * <p>
+ * Entries are keyed by server, project, repository and mirror. They expire after
+ * {@link #REPOSITORY_METADATA_CACHE_DURATION} and are refreshed or evicted when a webhook is received for the
+ * repository. Lookups that fail to resolve the repository are never cached.
+ *
+ * @since 6.1.0
+ */
+@ThreadSafe
+@Singleton
+public class BitbucketRepositoryMetadataRegistry {
+
+    /**
+     * Time an entry stays in the registry before it is looked up again. Defaults to 1 hour in ms.
+     */
+    public static final long REPOSITORY_METADATA_CACHE_DURATION =
+            parsePositiveLongFromSystemProperty(REPOSITORY_METADATA_CACHE_DURATION_KEY, 3600000);
+    private static final Logger LOGGER = Logger.getLogger(BitbucketRepositoryMetadataRegistry.class.getName());
+    private static final long MAX_ENTRIES = 10000;
+
+    private final Cache<RepositoryKey, BitbucketRepositoryMetadata> registry = CacheBuilder.newBuilder()
+            .expireAfterWrite(REPOSITORY_METADATA_CACHE_DURATION, TimeUnit.MILLISECONDS)
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    /**
+     * Returns the metadata for the repository, loading it with the given loader if it is not already known.
+     * Concurrent callers for the same key share a single load.
+     *
+     * @param baseUrl        the base URL of the Bitbucket Server instance
+     * @param projectName    the project name or key as configured in the job
+     * @param repositoryName the repository name or slug as configured in the job
+     * @param mirrorName     the mirror name, or blank if the upstream repository is used
+     * @param loader         resolves the metadata from Bitbucket
+     * @return the resolved metadata
+     */
+    public BitbucketRepositoryMetadata resolve(String baseUrl, String projectName, String repositoryName,
+                                               @CheckForNull String mirrorName,
+                                               Callable<BitbucketRepositoryMetadata> loader) {
+        RepositoryKey key = new RepositoryKey(baseUrl, projectName, repositoryName, mirrorName);
+        BitbucketRepositoryMetadata metadata;
+        try {
+            metadata = registry.get(key, loader);
+        } catch (ExecutionException executionException) {
+            throw new RuntimeException(executionException.getCause());
+        } catch (UncheckedExecutionException uncheckedExecutionException) {
+            // We unwrap the exception in case consumers have handling for specific exception cases
+            throw (RuntimeException) uncheckedExecutionException.getCause();
+        }
+        if (!metadata.isResolved()) {
+            registry.invalidate(key);
+        }
+        return metadata;
+    }
+
+    /**
+     * Updates the entries for the repository with the details received in a webhook. Entries for mirrors of the
+     * repository are evicted, as the webhook does not carry the mirror clone URLs.
+     *
+     * @param repository the repository received in the webhook
+     */
+    public void refresh(BitbucketRepository repository) {
+        if (repository.getCloneUrls().isEmpty()) {
+            evict(repository);
+            return;
+        }
+        registry.asMap().entrySet().removeIf(entry ->
+                entry.getValue().isMirror() && matches(entry.getKey(), entry.getValue(), repository));
+        registry.asMap().replaceAll((key, metadata) ->
+                matches(key, metadata, repository) ? BitbucketRepositoryMetadata.of(repository) : metadata);
+        LOGGER.fine(format("Refreshed repository metadata for %s/%s", repository.getProject().getKey(),
+                repository.getSlug()));
+    }
+
+    /**
+     * Evicts every entry for the repository, including those of its mirrors.
+     *
+     * @param repository the repository to evict
+     */
+    public void evict(BitbucketRepository repository) {
+        registry.asMap().entrySet().removeIf(entry -> matches(entry.getKey(), entry.getValue(), repository));
+    }
+
+    public void evictAll() {
+        registry.invalidateAll();
+    }
+
+    @VisibleForTesting
+    long size() {
+        return registry.size();
+    }
+
+    /**
+     * Matches an entry against a repository received in a webhook. The self link is used to tell servers apart when
+     * it is present, as the same project and repository may exist on several servers.
+     */
+    private static boolean matches(RepositoryKey key, BitbucketRepositoryMetadata metadata,
+                                   BitbucketRepository repository) {
+        BitbucketRepository cached = metadata.getRepository();
+        String selfLink = repository.getSelfLink();
+        return cached.getProject() != null && repository.getProject() != null &&
+               cached.getProject().getKey().equalsIgnoreCase(repository.getProject().getKey()) &&
+               cached.getSlug().equalsIgnoreCase(repository.getSlug()) &&
+               (isBlank(selfLink) || isOnServer(selfLink, key.baseUrl));
+    }
+
+    private static final class RepositoryKey {
+
+        private final String baseUrl;
+        private final String mirrorName;
+        private final String projectName;
+        private final String repositoryName;
+
+        private RepositoryKey(String baseUrl, String projectName, String repositoryName,
+                              @CheckForNull String mirrorName) {
+            this.baseUrl = stripToEmpty(baseUrl);
+            this.projectName = stripToEmpty(projectName);
+            this.repositoryName = stripToEmpty(repositoryName);
+            this.mirrorName = stripToEmpty(mirrorName);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RepositoryKey that = (RepositoryKey) o;
+            return Objects.equals(baseUrl, that.baseUrl) &&
+                   Objects.equals(projectName, that.projectName) &&
+                   Objects.equals(repositoryName, that.repositoryName) &&
+                   Objects.equals(mirrorName, that.mirrorName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseUrl, projectName, repositoryName, mirrorName);
+        }
+    }
+}
@@ -6,7 +6,6 @@ import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfigurat
 import com.atlassian.bitbucket.jenkins.internal.credentials.CredentialUtils;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentialsModule;
-import com.atlassian.bitbucket.jenkins.internal.model.BitbucketNamedLink;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
 import com.cloudbees.plugins.credentials.Credentials;
 import com.google.inject.Guice;
@@ -42,7 +41,6 @@ import java.util.Optional;
 import java.util.*;
 import java.util.logging.Logger;
 
-import static java.lang.Math.max;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -304,47 +302,15 @@ public class BitbucketSCM extends SCM {
             return;
         }
         BitbucketServerConfiguration serverConfiguration = mayBeServerConf.get();
-        String selfLink, cloneUrl;
-        
-        Optional<Credentials> maybeCredentials = CredentialUtils.getCredentials(getCredentialsId(), context);
-        BitbucketScmHelper scmHelper =
-                descriptor.getBitbucketScmHelper(serverConfiguration.getBaseUrl(), maybeCredentials.orElse(null));
-        
-        if (getBitbucketSCMRepository().isMirrorConfigured()) {
-            EnrichedBitbucketMirroredRepository fetchedRepository =
-                    descriptor.createMirrorHandler(scmHelper)
-                            .fetchRepository(
-                                    new MirrorFetchRequest(
-                                            serverConfiguration.getBaseUrl(),
-                                            context,
-                                            getCredentialsId(),
-                                            getProjectName(),
-                                            getRepositoryName(),
-                                            getMirrorName()));
-            BitbucketRepository underlyingRepo = fetchedRepository.getRepository();
-            repositories.set(0, new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
-                    underlyingRepo.getProject().getName(), underlyingRepo.getProject().getKey(), underlyingRepo.getName(),
-                    underlyingRepo.getSlug(), getServerId(), fetchedRepository.getMirroringDetails().getMirrorName()));
-            // Get the clone URL from the mirror
-            cloneUrl = fetchedRepository.getMirroringDetails().getCloneUrl(getBitbucketSCMRepository().getCloneProtocol())
-                    .map(BitbucketNamedLink::getHref)
-                    // If the mirroring details are missing the clone URL for some reason, try to fall back to the upstream
-                    .orElseGet(() -> underlyingRepo.getCloneUrl(getBitbucketSCMRepository().getCloneProtocol())
-                            .map(BitbucketNamedLink::getHref)
-                            .orElse(""));
-            selfLink = fetchedRepository.getRepository().getSelfLink();
-        } else {
-            BitbucketRepository fetchedRepository = scmHelper.getRepository(getProjectName(), getRepositoryName());
-            repositories.set(0, new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
-                    fetchedRepository.getProject().getName(), fetchedRepository.getProject().getKey(),
-                    fetchedRepository.getName(), fetchedRepository.getSlug(), getServerId(), ""));
-            cloneUrl = fetchedRepository.getCloneUrl(getBitbucketSCMRepository().getCloneProtocol())
-                    .map(BitbucketNamedLink::getHref).orElse("");
-            selfLink = fetchedRepository.getSelfLink();
-        }
-
-        // Self link contains `/browse` which we must trim off.
-        selfLink = selfLink.substring(0, max(selfLink.lastIndexOf("/browse"), 0));
+        BitbucketRepositoryMetadata metadata = descriptor.getRepositoryMetadataRegistry().resolve(
+                serverConfiguration.getBaseUrl(), getProjectName(), getRepositoryName(), getMirrorName(),
+                () -> fetchRepositoryMetadata(descriptor, serverConfiguration, context));
+        BitbucketRepository fetchedRepository = metadata.getRepository();
+        repositories.set(0, new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
+                fetchedRepository.getProject().getName(), fetchedRepository.getProject().getKey(),
+                fetchedRepository.getName(), fetchedRepository.getSlug(), getServerId(), metadata.getMirrorName()));
+        String cloneUrl = metadata.getCloneUrl(getBitbucketSCMRepository().getCloneProtocol());
+        String selfLink = metadata.getSelfLink();
         if (isBlank(cloneUrl)) {
             LOGGER.info("No clone url found for repository: " + getRepositoryName());
         }
@@ -355,6 +321,26 @@ public class BitbucketSCM extends SCM {
         gitSCM = new GitSCM(singletonList(remoteConfig), branches, new BitbucketServer(selfLink), gitTool, extensions);
     }
 
+    private BitbucketRepositoryMetadata fetchRepositoryMetadata(DescriptorImpl descriptor,
+                                                                BitbucketServerConfiguration serverConfiguration,
+                                                                @Nullable Item context) {
+        Optional<Credentials> maybeCredentials = CredentialUtils.getCredentials(getCredentialsId(), context);
+        BitbucketScmHelper scmHelper =
+                descriptor.getBitbucketScmHelper(serverConfiguration.getBaseUrl(), maybeCredentials.orElse(null));
+        if (getBitbucketSCMRepository().isMirrorConfigured()) {
+            return BitbucketRepositoryMetadata.of(descriptor.createMirrorHandler(scmHelper)
+                    .fetchRepository(
+                            new MirrorFetchRequest(
+                                    serverConfiguration.getBaseUrl(),
+                                    context,
+                                    getCredentialsId(),
+                                    getProjectName(),
+                                    getRepositoryName(),
+                                    getMirrorName())));
+        }
+        return BitbucketRepositoryMetadata.of(scmHelper.getRepository(getProjectName(), getRepositoryName()));
+    }
+
     @Symbol("BbS")
     @Extension
     @SuppressWarnings({"unused"})
@@ -370,6 +356,8 @@ public class BitbucketSCM extends SCM {
         private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
         @Inject
         private BitbucketPluginConfiguration bitbucketPluginConfiguration;
+        @Inject
+        private BitbucketRepositoryMetadataRegistry repositoryMetadataRegistry;
         private transient JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
 
         public DescriptorImpl() {
@@ -520,6 +508,10 @@ public class BitbucketSCM extends SCM {
             return gitScmDescriptor.getGitTools();
         }
 
+        public BitbucketRepositoryMetadataRegistry getRepositoryMetadataRegistry() {
+            return repositoryMetadataRegistry;
+        }
+
         @Override
         public boolean getShowGitToolOptions() {
             return gitScmDescriptor.showGitToolOptions();
@@ -3,7 +3,6 @@ package com.atlassian.bitbucket.jenkins.internal.scm;
 import com.atlassian.bitbucket.jenkins.internal.annotations.UpgradeHandled;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
-import com.atlassian.bitbucket.jenkins.internal.client.exception.NotFoundException;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.credentials.CredentialUtils;
@@ -21,6 +20,8 @@ import com.atlassian.bitbucket.jenkins.internal.trigger.register.WebhookRegistra
 import com.cloudbees.hudson.plugins.folder.computed.ComputedFolder;
 import com.cloudbees.plugins.credentials.Credentials;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import hudson.Extension;
 import hudson.model.AutoCompletionCandidates;
 import hudson.model.Action;
@@ -59,17 +60,24 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import static java.lang.Math.max;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.REVISION_CACHE_DURATION_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class BitbucketSCMSource extends SCMSource {
 
+    /**
+     * How long resolved head revisions are reused for. Defaults to 10 seconds in ms.
+     */
+    public static final long REVISION_CACHE_DURATION =
+            parsePositiveLongFromSystemProperty(REVISION_CACHE_DURATION_KEY, 10000);
     private static final Logger LOGGER = Logger.getLogger(BitbucketSCMSource.class.getName());
     private static final String REFSPEC_DEFAULT = "+refs/heads/*:refs/remotes/@{remote}/*";
     @UpgradeHandled(handledBy = "Uses the same remote variable as REFSPEC_DEFAULT", removeAnnotationInVersion = "4.1")
@@ -80,6 +88,7 @@ public class BitbucketSCMSource extends SCMSource {
     private transient CustomGitSCMSource gitSCMSource;
     private transient AtomicBoolean initialized;
     private BitbucketSCMRepository repository;
+    private transient volatile Cache<SCMHead, SCMRevision> revisionCache;
     private String selfLink;
     private List<SCMSourceTrait> traits;
     private volatile boolean webhookRegistered;
@@ -296,6 +305,12 @@ public class BitbucketSCMSource extends SCMSource {
                 return;
             }
 
+            // Revisions resolved before an event or a full scan may be stale by now
+            if (event == null) {
+                getRevisionCache().invalidateAll();
+            } else {
+                getRevisionCache().invalidateAll(event.heads(this).keySet());
+            }
             doRetrieve(criteria, observer, event, listener);
         }
     }
@@ -303,40 +318,62 @@ public class BitbucketSCMSource extends SCMSource {
     @Override
     protected SCMRevision retrieve(SCMHead head, TaskListener listener)
             throws IOException, InterruptedException {
-        try {
-            if (head instanceof BitbucketPullRequestSCMHead) {
-                return fetchBitbucketPullRequest((BitbucketPullRequestSCMHead) head).map(fetchedPullRequest -> {
-                    BitbucketPullRequestSCMHead latestHead = new BitbucketPullRequestSCMHead(fetchedPullRequest);
-                    return new BitbucketPullRequestSCMRevision(latestHead);
-                }).orElse(null);
-            }
-
-            if (head instanceof BitbucketBranchSCMHead) {
-                return fetchBitbucketCommit((BitbucketBranchSCMHead) head).map(fetchedCommit -> {
-                    BitbucketBranchSCMHead latestHead = new BitbucketBranchSCMHead(head.getName(), fetchedCommit);
-                    return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
-                }).orElse(null);
-            }
-
-            if (head instanceof BitbucketTagSCMHead) {
-                // This was previously a GitTagSCMHead and needs to be property retrieved
-                // Perform a fetch of the tag from the remote.
-                // Create a new BitbucketSCMRevision from the fetched tag.
-                return fetchBitbucketCommit((BitbucketTagSCMHead) head).map(fetchedCommit -> {
-                    BitbucketTagSCMHead latestHead = new BitbucketTagSCMHead(
-                            new BitbucketTag(fetchedCommit.getId(), head.getName(), fetchedCommit.getId()));
-                    return new BitbucketSCMRevision(latestHead, latestHead.getLatestCommit());
-                }).orElse(null);
-            }
-        } catch (NotFoundException e) {
-            // this exception can be thrown if the head no longer exists (e.g. multi-branch pipeline created without
-            // webhook configured, pull request build is run, pull request is deleted, then build is re-run)
-            listener.error(e.getMessage());
+        if (!isSupported(head)) {
+            listener.error("Error resolving revision, unsupported SCMHead type " + head.getClass());
             return null;
         }
+        SCMRevision cached = getRevisionCache().getIfPresent(head);
+        if (cached != null) {
+            return cached;
+        }
+        SCMRevision revision = getRevisionResolver()
+                .map(resolver -> resolver.resolve(head, listener))
+                .orElse(null);
+        if (revision != null) {
+            getRevisionCache().put(head, revision);
+        }
+        return revision;
+    }
 
-        listener.error("Error resolving revision, unsupported SCMHead type " + head.getClass());
-        return null;
+    /**
+     * Resolves the current revision of each of the given heads in one pass, rather than one request per head as
+     * {@link #fetch(SCMHead, TaskListener)} does. Branches and tags are looked up in a single listing of the
+     * repository's refs, and pull requests are fetched in parallel. Retrieving with an observer that only includes
+     * some heads goes through this method. Results are cached for
+     * {@link #REVISION_CACHE_DURATION}, so subsequent calls to {@link #fetch(SCMHead, TaskListener)} for the same
+     * heads do not make further requests.
+     *
+     * @param heads    the heads to resolve
+     * @param listener the listener to report errors to
+     * @return the current revision of each head that still exists; heads that no longer exist or are not supported
+     * are left out
+     * @throws InterruptedException if interrupted while waiting for Bitbucket
+     * @since 6.1.0
+     */
+    public Map<SCMHead, SCMRevision> retrieveRevisions(Collection<? extends SCMHead> heads,
+                                                        TaskListener listener) throws InterruptedException {
+        Map<SCMHead, SCMRevision> revisions = new HashMap<>();
+        List<SCMHead> uncached = new ArrayList<>();
+        for (SCMHead head : heads) {
+            SCMRevision cached = getRevisionCache().getIfPresent(head);
+            if (cached != null) {
+                revisions.put(head, cached);
+            } else if (isSupported(head)) {
+                uncached.add(head);
+            } else {
+                listener.error("Error resolving revision, unsupported SCMHead type " + head.getClass());
+            }
+        }
+        if (uncached.isEmpty()) {
+            return revisions;
+        }
+        Optional<BitbucketHeadRevisionResolver> resolver = getRevisionResolver();
+        if (resolver.isPresent()) {
+            Map<SCMHead, SCMRevision> resolved = resolver.get().resolve(uncached, listener);
+            getRevisionCache().putAll(resolved);
+            revisions.putAll(resolved);
+        }
+        return revisions;
     }
 
     @Override
@@ -405,8 +442,23 @@ public class BitbucketSCMSource extends SCMSource {
     private void doRetrieve(@CheckForNull SCMSourceCriteria criteria,
                             SCMHeadObserver observer,
                             @CheckForNull SCMHeadEvent<?> event,
-                            TaskListener listener) throws IOException {
-        Collection<SCMHead> eventHeads = event == null ? Collections.emptySet() : event.heads(this).keySet();
+                            TaskListener listener) throws IOException, InterruptedException {
+        Collection<SCMHead> eventHeads;
+        Set<SCMHead> includes = observer.getIncludes();
+        if (event != null) {
+            eventHeads = event.heads(this).keySet();
+        } else if (includes != null && !includes.isEmpty()) {
+            // Only the observed heads are wanted, so their revisions are resolved together rather than listing every
+            // head of the repository, and are then discovered as if an event had named them
+            eventHeads = retrieveRevisions(includes, listener).values().stream()
+                    .map(SCMRevision::getHead)
+                    .collect(Collectors.toList());
+            if (eventHeads.isEmpty()) {
+                return;
+            }
+        } else {
+            eventHeads = Collections.emptySet();
+        }
 
         BitbucketSCMSourceContext context =
                 new BitbucketSCMSourceContext(criteria, observer, getCredentials().orElse(null), eventHeads,
@@ -453,11 +505,28 @@ public class BitbucketSCMSource extends SCMSource {
         }
         BitbucketServerConfiguration serverConfiguration = mayBeServerConf.get();
 
+        BitbucketRepositoryMetadata metadata = descriptor.getRepositoryMetadataRegistry().resolve(
+                serverConfiguration.getBaseUrl(), getProjectName(), getRepositoryName(), getMirrorName(),
+                () -> fetchRepositoryMetadata(descriptor, serverConfiguration));
+        BitbucketRepository fetchedRepository = metadata.getRepository();
+        repository = new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
+                fetchedRepository.getProject().getName(), fetchedRepository.getProject().getKey(),
+                fetchedRepository.getName(), fetchedRepository.getSlug(), getServerId(), metadata.getMirrorName());
+        cloneUrl = metadata.getCloneUrl(repository.getCloneProtocol());
+        selfLink = metadata.getSelfLink();
+        if (isBlank(cloneUrl)) {
+            LOGGER.info("No clone url found for repository: " + repository.getRepositoryName());
+            return false;
+        }
+        return true;
+    }
+
+    private BitbucketRepositoryMetadata fetchRepositoryMetadata(DescriptorImpl descriptor,
+                                                                BitbucketServerConfiguration serverConfiguration) {
         BitbucketScmHelper scmHelper = descriptor.getBitbucketScmHelper(serverConfiguration.getBaseUrl(),
                 getCredentials().orElse(null));
-
         if (repository.isMirrorConfigured()) {
-            EnrichedBitbucketMirroredRepository fetchedRepository = descriptor.createMirrorHandler(scmHelper)
+            return BitbucketRepositoryMetadata.of(descriptor.createMirrorHandler(scmHelper)
                     .fetchRepository(
                             new MirrorFetchRequest(
                                     serverConfiguration.getBaseUrl(),
@@ -465,48 +534,36 @@ public class BitbucketSCMSource extends SCMSource {
                                     getCredentialsId(),
                                     getProjectName(),
                                     getRepositoryName(),
-                                    getMirrorName()));
-            BitbucketRepository underlyingRepo = fetchedRepository.getRepository();
-            repository = new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
-                    underlyingRepo.getProject().getName(), underlyingRepo.getProject().getKey(), underlyingRepo.getName(),
-                    underlyingRepo.getSlug(), getServerId(), fetchedRepository.getMirroringDetails().getMirrorName());
-
-            // Get the clone URL from the mirror
-            cloneUrl =
-                    fetchedRepository.getMirroringDetails().getCloneUrl(getBitbucketSCMRepository().getCloneProtocol())
-                            .map(BitbucketNamedLink::getHref)
-                            // If the mirroring details are missing the clone URL for some reason, try to fall back to the upstream
-                            .orElseGet(() -> underlyingRepo.getCloneUrl(getBitbucketSCMRepository().getCloneProtocol())
-                                    .map(BitbucketNamedLink::getHref)
-                                    .orElse(""));
-
-            selfLink = underlyingRepo.getSelfLink();
-        } else {
-            BitbucketRepository fetchedRepository = scmHelper.getRepository(getProjectName(), getRepositoryName());
-            repository = new BitbucketSCMRepository(getCredentialsId(), getSshCredentialsId(),
-                    fetchedRepository.getProject().getName(), fetchedRepository.getProject().getKey(),
-                    fetchedRepository.getName(), fetchedRepository.getSlug(), getServerId(), "");
-            cloneUrl =
-                    fetchedRepository.getCloneUrl(repository.getCloneProtocol()).map(BitbucketNamedLink::getHref).orElse("");
-            selfLink = fetchedRepository.getSelfLink();
-        }
-        // Self link contains `/browse` which we must trim off.
-        selfLink = selfLink.substring(0, max(selfLink.lastIndexOf("/browse"), 0));
-        if (isBlank(cloneUrl)) {
-            LOGGER.info("No clone url found for repository: " + repository.getRepositoryName());
-            return false;
+                                    getMirrorName())));
         }
-        return true;
+        return BitbucketRepositoryMetadata.of(scmHelper.getRepository(getProjectName(), getRepositoryName()));
     }
 
-    private Optional<BitbucketCommit> fetchBitbucketCommit(BitbucketSCMHead head) {
-        return getScmHelper().map(scmHelper -> scmHelper.getCommitClient(getProjectKey(), getRepositorySlug())
-                .getCommit(head.getFullRef()));
+    private Cache<SCMHead, SCMRevision> getRevisionCache() {
+        Cache<SCMHead, SCMRevision> cache = revisionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = revisionCache;
+                if (cache == null) {
+                    cache = CacheBuilder.newBuilder()
+                            .expireAfterWrite(REVISION_CACHE_DURATION, TimeUnit.MILLISECONDS)
+                            .build();
+                    revisionCache = cache;
+                }
+            }
+        }
+        return cache;
     }
 
-    private Optional<BitbucketPullRequest> fetchBitbucketPullRequest(BitbucketPullRequestSCMHead head) {
-        return getScmHelper().map(scmHelper -> scmHelper.getRepositoryClient(getProjectKey(), getRepositorySlug())
-                .getPullRequest(head.getPullRequest().getPullRequestId()));
+    private Optional<BitbucketHeadRevisionResolver> getRevisionResolver() {
+        return getScmHelper().map(scmHelper ->
+                new BitbucketHeadRevisionResolver(scmHelper, getProjectKey(), getRepositorySlug()));
+    }
+
+    private static boolean isSupported(SCMHead head) {
+        return head instanceof BitbucketPullRequestSCMHead ||
+               head instanceof BitbucketBranchSCMHead ||
+               head instanceof BitbucketTagSCMHead;
     }
 
     private Optional<BitbucketScmHelper> getScmHelper() {
@@ -535,6 +592,8 @@ public class BitbucketSCMSource extends SCMSource {
         private BitbucketScmFormValidationDelegate formValidation;
         @Inject
         private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
+        @Inject
+        private BitbucketRepositoryMetadataRegistry repositoryMetadataRegistry;
 
         @Inject
         private RetryingWebhookHandler retryingWebhookHandler;
@@ -688,6 +747,10 @@ public class BitbucketSCMSource extends SCMSource {
             return Collections.emptyList();
         }
 
+        public BitbucketRepositoryMetadataRegistry getRepositoryMetadataRegistry() {
+            return repositoryMetadataRegistry;
+        }
+
         public RetryingWebhookHandler getRetryingWebhookHandler() {
             return retryingWebhookHandler;
         }
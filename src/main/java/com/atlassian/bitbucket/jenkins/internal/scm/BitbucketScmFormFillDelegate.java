@@ -1,10 +1,12 @@
 package com.atlassian.bitbucket.jenkins.internal.scm;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketSearchHelper;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.CredentialUtils;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
@@ -37,8 +39,6 @@ import java.util.Optional;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import static com.atlassian.bitbucket.jenkins.internal.client.BitbucketSearchHelper.findProjects;
-import static com.atlassian.bitbucket.jenkins.internal.client.BitbucketSearchHelper.findRepositories;
 import static hudson.util.HttpResponses.okJSON;
 import static java.net.HttpURLConnection.*;
 import static java.util.Collections.emptyList;
@@ -53,6 +53,7 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
 
     private static final Logger LOGGER = Logger.getLogger(BitbucketScmFormFillDelegate.class.getName());
 
+    private final BitbucketCatalog bitbucketCatalog;
     private final BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     private final BitbucketPluginConfiguration bitbucketPluginConfiguration;
     private final JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
@@ -62,7 +63,9 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
     public BitbucketScmFormFillDelegate(BitbucketClientFactoryProvider bitbucketClientFactoryProvider,
                                         BitbucketPluginConfiguration bitbucketPluginConfiguration,
                                         JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials,
-                                        JenkinsProvider jenkinsProvider) {
+                                        JenkinsProvider jenkinsProvider,
+                                        BitbucketCatalog bitbucketCatalog) {
+        this.bitbucketCatalog = requireNonNull(bitbucketCatalog, "bitbucketCatalog");
         this.bitbucketClientFactoryProvider =
                 requireNonNull(bitbucketClientFactoryProvider, "bitbucketClientFactoryProvider");
         this.bitbucketPluginConfiguration =
@@ -124,8 +127,7 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
                         BitbucketCredentials credentials =
                                 jenkinsToBitbucketCredentials.toBitbucketCredentials(
                                         providedCredentials.orElse(null));
-                        Collection<BitbucketProject> projects = findProjects(projectName,
-                                bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials));
+                        Collection<BitbucketProject> projects = findProjects(serverConf, credentials, projectName);
                         return okJSON(JSONArray.fromObject(projects));
                     } catch (AuthorizationException e) {
                         return errorWithoutStack(HTTP_UNAUTHORIZED,
@@ -164,8 +166,8 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
                             jenkinsToBitbucketCredentials.toBitbucketCredentials(
                                     providedCredentials.orElse(null));
                     try {
-                        Collection<BitbucketRepository> repositories = findRepositories(repositoryName, projectName,
-                                bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials))
+                        Collection<BitbucketRepository> repositories =
+                                findRepositories(serverConf, credentials, projectName, repositoryName)
                                 .stream()
                                 .filter(repository -> repository.getProject().getName().equals(projectName))
                                 .collect(Collectors.toList());
@@ -260,8 +262,7 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
             try {
                 BitbucketCredentials credentials =
                         jenkinsToBitbucketCredentials.toBitbucketCredentials(providedCredentials.orElse(null));
-                Collection<BitbucketProject> projects = findProjects(value,
-                        bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials));
+                Collection<BitbucketProject> projects = findProjects(serverConf, credentials, value);
                 projects.forEach(project -> candidates.add(project.getName()));
             } catch (BitbucketClientException e) {
                 LOGGER.fine("Auto-complete failed: " + e.getMessage());
@@ -297,8 +298,8 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
             try {
                 BitbucketCredentials credentials =
                         jenkinsToBitbucketCredentials.toBitbucketCredentials(providedCredentials.orElse(null));
-                Collection<BitbucketRepository> repositories = findRepositories(value, projectName,
-                        bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials))
+                Collection<BitbucketRepository> repositories =
+                        findRepositories(serverConf, credentials, projectName, value)
                         .stream()
                         .filter(repository -> repository.getProject().getName().equals(projectName))
                         .collect(Collectors.toList());
@@ -311,6 +312,37 @@ public class BitbucketScmFormFillDelegate implements BitbucketScmFormFill {
         return candidates;
     }
 
+    /**
+     * Finds the projects in the catalog, searching Bitbucket if it has not been loaded yet or finds none, as the
+     * projects may have been created since it was loaded.
+     */
+    private Collection<BitbucketProject> findProjects(BitbucketServerConfiguration serverConf,
+                                                      BitbucketCredentials credentials, String projectName) {
+        Optional<List<BitbucketProject>> catalogued = bitbucketCatalog.findProjects(serverConf, credentials, projectName)
+                .filter(projects -> !projects.isEmpty());
+        if (catalogued.isPresent()) {
+            return catalogued.get();
+        }
+        return BitbucketSearchHelper.findProjects(projectName,
+                bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials));
+    }
+
+    /**
+     * Finds the repositories in the catalog, searching Bitbucket if it has not been loaded yet or finds none.
+     */
+    private Collection<BitbucketRepository> findRepositories(BitbucketServerConfiguration serverConf,
+                                                             BitbucketCredentials credentials, String projectName,
+                                                             String repositoryName) {
+        Optional<List<BitbucketRepository>> catalogued =
+                bitbucketCatalog.findRepositories(serverConf, credentials, projectName, repositoryName)
+                        .filter(repositories -> !repositories.isEmpty());
+        if (catalogued.isPresent()) {
+            return catalogued.get();
+        }
+        return BitbucketSearchHelper.findRepositories(repositoryName, projectName,
+                bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(), credentials));
+    }
+
     private void checkPermissions(@Nullable Item context) {
         if (context != null) {
             context.checkPermission(Item.EXTENDED_READ);
@@ -1,11 +1,13 @@
 package com.atlassian.bitbucket.jenkins.internal.scm;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.NotFoundException;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.CredentialUtils;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
@@ -34,6 +36,7 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 @Singleton
 public class BitbucketScmFormValidationDelegate implements BitbucketScmFormValidation {
 
+    private final BitbucketCatalog bitbucketCatalog;
     private final BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     private final BitbucketPluginConfiguration bitbucketPluginConfiguration;
     private final JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
@@ -43,7 +46,9 @@ public class BitbucketScmFormValidationDelegate implements BitbucketScmFormValid
     public BitbucketScmFormValidationDelegate(BitbucketClientFactoryProvider bitbucketClientFactoryProvider,
                                               BitbucketPluginConfiguration bitbucketPluginConfiguration,
                                               JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials,
-                                              JenkinsProvider jenkinsProvider) {
+                                              JenkinsProvider jenkinsProvider,
+                                              BitbucketCatalog bitbucketCatalog) {
+        this.bitbucketCatalog = requireNonNull(bitbucketCatalog, "bitbucketCatalog");
         this.bitbucketClientFactoryProvider =
                 requireNonNull(bitbucketClientFactoryProvider, "bitbucketClientFactoryProvider");
         this.bitbucketPluginConfiguration =
@@ -138,13 +143,14 @@ public class BitbucketScmFormValidationDelegate implements BitbucketScmFormValid
         return bitbucketPluginConfiguration.getServerById(serverId)
                 .map(serverConf -> {
                     try {
-                        BitbucketClientFactory clientFactory = bitbucketClientFactoryProvider
-                                .getClient(
-                                        serverConf.getBaseUrl(),
-                                        jenkinsToBitbucketCredentials.toBitbucketCredentials(
-                                                providedCredentials.get()));
-                        BitbucketRepository repository =
-                                getRepositoryByNameOrSlug(projectName, repositoryName, clientFactory);
+                        BitbucketCredentials credentials =
+                                jenkinsToBitbucketCredentials.toBitbucketCredentials(providedCredentials.get());
+                        // Only repositories in the catalog are resolved locally, any other is looked up in Bitbucket
+                        BitbucketRepository repository = bitbucketCatalog
+                                .getRepository(serverConf, credentials, projectName, repositoryName)
+                                .orElseGet(() -> getRepositoryByNameOrSlug(projectName, repositoryName,
+                                        bitbucketClientFactoryProvider.getClient(serverConf.getBaseUrl(),
+                                                credentials)));
                         return FormValidation.ok("Using '" + repository.getName() + "' at " +
                                                  (isBlank(repository.getSelfLink()) ? serverConf.getBaseUrl() :
                                                          repository.getSelfLink()));
@@ -12,7 +12,6 @@ import hudson.model.Item;
 import hudson.plugins.git.BranchSpec;
 import hudson.scm.SCM;
 import hudson.scm.SCMDescriptor;
-import hudson.util.FormValidation.Kind;
 import jenkins.scm.api.*;
 
 import javax.annotation.CheckForNull;
@@ -72,8 +71,8 @@ public class BitbucketSCMFileSystem extends SCMFileSystem {
 
             BitbucketSCM bitbucketSCM = (BitbucketSCM) scm;
             Optional<BitbucketServerConfiguration> maybeServerConfiguration =
-                    pluginConfiguration.getServerById(bitbucketSCM.getServerId());
-            if (!maybeServerConfiguration.isPresent() || maybeServerConfiguration.get().validate().kind == Kind.ERROR) {
+                    pluginConfiguration.getValidServerById(bitbucketSCM.getServerId());
+            if (!maybeServerConfiguration.isPresent()) {
                 LOGGER.finer("ERROR: Bitbucket Server configuration for job " + item.getName() +
                              " is invalid- cannot build file system");
                 return null;
@@ -104,8 +103,8 @@ public class BitbucketSCMFileSystem extends SCMFileSystem {
                 ownerName = source.getOwner().getName();
             }
             Optional<BitbucketServerConfiguration> maybeServerConfiguration =
-                    pluginConfiguration.getServerById(bitbucketSCMSource.getServerId());
-            if (!maybeServerConfiguration.isPresent() || maybeServerConfiguration.get().validate().kind == Kind.ERROR) {
+                    pluginConfiguration.getValidServerById(bitbucketSCMSource.getServerId());
+            if (!maybeServerConfiguration.isPresent()) {
                 LOGGER.warning("ERROR: Bitbucket Server configuration for job " + ownerName +
                              " is invalid- cannot continue lightweight checkout");
                 return null;
@@ -5,6 +5,7 @@ import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.scm.*;
 import hudson.Extension;
@@ -43,16 +44,16 @@ public class BitbucketBranchDiscoveryTrait extends SCMSourceTrait {
 
             DescriptorImpl
                     descriptor = (DescriptorImpl) getDescriptor();
-            Optional<BitbucketClientFactory> clientFactory =
-                    descriptor.getClientFactory(bitbucketContext);
+            Optional<String> baseUrl = descriptor.getBaseUrl(bitbucketContext);
 
-            if (!clientFactory.isPresent()) {
+            if (!baseUrl.isPresent()) {
                 log.log(Level.WARNING, "Server configuration missing, cannot resolve client for Branch discovery");
                 return;
             }
 
             BitbucketSCMRepository repository = bitbucketContext.getRepository();
-            BitbucketBranchClient bitbucketBranchClient = clientFactory.get()
+            BitbucketCredentials credentials = descriptor.getBitbucketCredentials(bitbucketContext);
+            BitbucketBranchClient bitbucketBranchClient = descriptor.getClientFactory(baseUrl.get(), credentials)
                     .getProjectClient(repository.getProjectKey())
                     .getRepositoryClient(repository.getRepositorySlug())
                     .getBranchClient(bitbucketContext.getTaskListener());
@@ -62,7 +63,15 @@ public class BitbucketBranchDiscoveryTrait extends SCMSourceTrait {
                         @Override
                         public Stream<? extends SCMHead> discoverHeads() {
                             if (bitbucketContext.getEventHeads().isEmpty()) {
-                                return bitbucketBranchClient.getRemoteBranches().map(BitbucketBranchSCMHead::new);
+                                BitbucketBranchWatermarkStore watermarkStore = descriptor.getBranchWatermarkStore();
+                                return descriptor.getDiscoveryCache().getBranches(baseUrl.get(),
+                                        repository.getProjectKey(), repository.getRepositorySlug(), credentials,
+                                        () -> watermarkStore.isEnabled() ?
+                                                watermarkStore.getBranches(baseUrl.get(), repository.getProjectKey(),
+                                                        repository.getRepositorySlug(), bitbucketBranchClient,
+                                                        bitbucketContext.getTaskListener()) :
+                                                bitbucketBranchClient.getRemoteBranches())
+                                        .map(BitbucketBranchSCMHead::new);
                             }
 
                             return bitbucketContext.getEventHeads().stream()
@@ -94,6 +103,10 @@ public class BitbucketBranchDiscoveryTrait extends SCMSourceTrait {
         @Inject
         private BitbucketPluginConfiguration bitbucketPluginConfiguration;
         @Inject
+        private BitbucketBranchWatermarkStore branchWatermarkStore;
+        @Inject
+        private BitbucketDiscoveryCache discoveryCache;
+        @Inject
         private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
 
         @Override
@@ -101,11 +114,30 @@ public class BitbucketBranchDiscoveryTrait extends SCMSourceTrait {
             return GitSCMBuilder.class;
         }
 
-        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+        public Optional<String> getBaseUrl(BitbucketSCMSourceContext bitbucketContext) {
             return bitbucketPluginConfiguration.getServerById(bitbucketContext.getRepository().getServerId())
-                    .map(BitbucketServerConfiguration::getBaseUrl)
-                    .map(baseUrl -> bitbucketClientFactoryProvider.getClient(baseUrl,
-                            jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials())));
+                    .map(BitbucketServerConfiguration::getBaseUrl);
+        }
+
+        public BitbucketCredentials getBitbucketCredentials(BitbucketSCMSourceContext bitbucketContext) {
+            return jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials());
+        }
+
+        public BitbucketBranchWatermarkStore getBranchWatermarkStore() {
+            return branchWatermarkStore;
+        }
+
+        public BitbucketClientFactory getClientFactory(String baseUrl, BitbucketCredentials credentials) {
+            return bitbucketClientFactoryProvider.getClient(baseUrl, credentials);
+        }
+
+        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+            return getBaseUrl(bitbucketContext)
+                    .map(baseUrl -> getClientFactory(baseUrl, getBitbucketCredentials(bitbucketContext)));
+        }
+
+        public BitbucketDiscoveryCache getDiscoveryCache() {
+            return discoveryCache;
         }
 
         @Override
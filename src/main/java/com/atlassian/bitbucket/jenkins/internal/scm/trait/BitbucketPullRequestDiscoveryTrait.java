@@ -5,6 +5,7 @@ import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryPro
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPullRequestState;
 import com.atlassian.bitbucket.jenkins.internal.scm.*;
@@ -88,15 +89,15 @@ public class BitbucketPullRequestDiscoveryTrait extends SCMSourceTrait {
             BitbucketSCMSourceContext bitbucketContext = (BitbucketSCMSourceContext) context;
 
             DescriptorImpl descriptor = (DescriptorImpl) getDescriptor();
-            Optional<BitbucketClientFactory> clientFactory =
-                    descriptor.getClientFactory(bitbucketContext);
+            Optional<String> baseUrl = descriptor.getBaseUrl(bitbucketContext);
 
-            if (!clientFactory.isPresent()) {
+            if (!baseUrl.isPresent()) {
                 log.log(Level.WARNING, "Server configuration missing, cannot resolve client for PR discovery");
                 return;
             }
             BitbucketSCMRepository repository = bitbucketContext.getRepository();
-            BitbucketRepositoryClient repositoryClient = clientFactory.get()
+            BitbucketCredentials credentials = descriptor.getBitbucketCredentials(bitbucketContext);
+            BitbucketRepositoryClient repositoryClient = descriptor.getClientFactory(baseUrl.get(), credentials)
                     .getProjectClient(repository.getProjectKey())
                     .getRepositoryClient(repository.getRepositorySlug());
 
@@ -105,8 +106,15 @@ public class BitbucketPullRequestDiscoveryTrait extends SCMSourceTrait {
                         @Override
                         public Stream<? extends SCMHead> discoverHeads() {
                             if (bitbucketContext.getEventHeads().isEmpty()) {
-                                return repositoryClient
-                                        .getPullRequests(BitbucketPullRequestState.OPEN)
+                                BitbucketPullRequestWatermarkStore watermarkStore =
+                                        descriptor.getPullRequestWatermarkStore();
+                                return descriptor.getDiscoveryCache().getOpenPullRequests(baseUrl.get(),
+                                        repository.getProjectKey(), repository.getRepositorySlug(), credentials,
+                                        () -> watermarkStore.isEnabled() ?
+                                                watermarkStore.getOpenPullRequests(baseUrl.get(),
+                                                        repository.getProjectKey(), repository.getRepositorySlug(),
+                                                        repositoryClient, bitbucketContext.getTaskListener()) :
+                                                repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
                                         .map(BitbucketPullRequestSCMHead::new);
                             }
 
@@ -140,8 +148,12 @@ public class BitbucketPullRequestDiscoveryTrait extends SCMSourceTrait {
         @Inject
         private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
         @Inject
+        private BitbucketDiscoveryCache discoveryCache;
+        @Inject
         private BitbucketPluginConfiguration bitbucketPluginConfiguration;
         @Inject
+        private BitbucketPullRequestWatermarkStore pullRequestWatermarkStore;
+        @Inject
         private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
 
         @Override
@@ -149,11 +161,30 @@ public class BitbucketPullRequestDiscoveryTrait extends SCMSourceTrait {
             return GitSCMBuilder.class;
         }
 
-        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+        public Optional<String> getBaseUrl(BitbucketSCMSourceContext bitbucketContext) {
             return bitbucketPluginConfiguration.getServerById(bitbucketContext.getRepository().getServerId())
-                    .map(BitbucketServerConfiguration::getBaseUrl)
-                    .map(baseUrl -> bitbucketClientFactoryProvider.getClient(baseUrl,
-                            jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials())));
+                    .map(BitbucketServerConfiguration::getBaseUrl);
+        }
+
+        public BitbucketCredentials getBitbucketCredentials(BitbucketSCMSourceContext bitbucketContext) {
+            return jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials());
+        }
+
+        public BitbucketClientFactory getClientFactory(String baseUrl, BitbucketCredentials credentials) {
+            return bitbucketClientFactoryProvider.getClient(baseUrl, credentials);
+        }
+
+        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+            return getBaseUrl(bitbucketContext)
+                    .map(baseUrl -> getClientFactory(baseUrl, getBitbucketCredentials(bitbucketContext)));
+        }
+
+        public BitbucketDiscoveryCache getDiscoveryCache() {
+            return discoveryCache;
+        }
+
+        public BitbucketPullRequestWatermarkStore getPullRequestWatermarkStore() {
+            return pullRequestWatermarkStore;
         }
 
         @Override
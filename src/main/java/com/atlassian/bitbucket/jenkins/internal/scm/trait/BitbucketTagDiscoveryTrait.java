@@ -5,6 +5,7 @@ import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryPro
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketTagClient;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.scm.*;
 import hudson.Extension;
@@ -57,16 +58,16 @@ public class BitbucketTagDiscoveryTrait extends SCMSourceTrait {
 
             BitbucketTagDiscoveryTrait.DescriptorImpl
                     descriptor = (BitbucketTagDiscoveryTrait.DescriptorImpl) getDescriptor();
-            Optional<BitbucketClientFactory> clientFactory =
-                    descriptor.getClientFactory(bitbucketContext);
+            Optional<String> baseUrl = descriptor.getBaseUrl(bitbucketContext);
 
-            if (!clientFactory.isPresent()) {
+            if (!baseUrl.isPresent()) {
                 log.log(Level.WARNING, "Server configuration missing, cannot resolve client for Tag discovery");
                 return;
             }
 
             BitbucketSCMRepository repository = bitbucketContext.getRepository();
-            BitbucketTagClient bitbucketTagClient = clientFactory.get()
+            BitbucketCredentials credentials = descriptor.getBitbucketCredentials(bitbucketContext);
+            BitbucketTagClient bitbucketTagClient = descriptor.getClientFactory(baseUrl.get(), credentials)
                     .getProjectClient(repository.getProjectKey())
                     .getRepositoryClient(repository.getRepositorySlug())
                     .getBitbucketTagClient(bitbucketContext.getTaskListener());
@@ -76,7 +77,10 @@ public class BitbucketTagDiscoveryTrait extends SCMSourceTrait {
                         @Override
                         public Stream<? extends SCMHead> discoverHeads() {
                             if (bitbucketContext.getEventHeads().isEmpty()) {
-                                return bitbucketTagClient.getRemoteTags().map(BitbucketTagSCMHead::new);
+                                return descriptor.getDiscoveryCache().getTags(baseUrl.get(),
+                                        repository.getProjectKey(), repository.getRepositorySlug(), credentials,
+                                        bitbucketTagClient::getRemoteTags)
+                                        .map(BitbucketTagSCMHead::new);
                             }
 
                             return bitbucketContext.getEventHeads().stream()
@@ -106,6 +110,8 @@ public class BitbucketTagDiscoveryTrait extends SCMSourceTrait {
         @Inject
         private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
         @Inject
+        private BitbucketDiscoveryCache discoveryCache;
+        @Inject
         private BitbucketPluginConfiguration bitbucketPluginConfiguration;
         @Inject
         private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
@@ -115,11 +121,26 @@ public class BitbucketTagDiscoveryTrait extends SCMSourceTrait {
             return GitSCMBuilder.class;
         }
 
-        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+        public Optional<String> getBaseUrl(BitbucketSCMSourceContext bitbucketContext) {
             return bitbucketPluginConfiguration.getServerById(bitbucketContext.getRepository().getServerId())
-                    .map(BitbucketServerConfiguration::getBaseUrl)
-                    .map(baseUrl -> bitbucketClientFactoryProvider.getClient(baseUrl,
-                            jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials())));
+                    .map(BitbucketServerConfiguration::getBaseUrl);
+        }
+
+        public BitbucketCredentials getBitbucketCredentials(BitbucketSCMSourceContext bitbucketContext) {
+            return jenkinsToBitbucketCredentials.toBitbucketCredentials(bitbucketContext.getCredentials());
+        }
+
+        public BitbucketClientFactory getClientFactory(String baseUrl, BitbucketCredentials credentials) {
+            return bitbucketClientFactoryProvider.getClient(baseUrl, credentials);
+        }
+
+        public Optional<BitbucketClientFactory> getClientFactory(BitbucketSCMSourceContext bitbucketContext) {
+            return getBaseUrl(bitbucketContext)
+                    .map(baseUrl -> getClientFactory(baseUrl, getBitbucketCredentials(bitbucketContext)));
+        }
+
+        public BitbucketDiscoveryCache getDiscoveryCache() {
+            return discoveryCache;
         }
 
         @Override
@@ -67,13 +67,28 @@ public final class BitbucketBuildStatusFactoryImpl implements BitbucketBuildStat
         return bbs;
     }
 
+    /**
+     * Gets the test counts of a run. While the run is building its test results are still in memory, so they are
+     * counted from its {@link TestResultAction}; once it has completed they are counted once and remembered in a
+     * {@link TestResultsSummaryAction}, so later statuses never load the test report.
+     */
     @Nullable
     private static TestResults getTestResults(Run<?, ?> build) {
+        TestResultsSummaryAction summary = build.getAction(TestResultsSummaryAction.class);
+        if (summary != null) {
+            return summary.toTestResults();
+        }
         TestResultAction results = build.getAction(TestResultAction.class);
-        if (results != null) {
-            return new TestResults(results.getTotalCount() - results.getFailCount() - results.getSkipCount(),
-                    results.getFailCount(), results.getSkipCount());
+        if (results == null) {
+            return null;
+        }
+        int failCount = results.getFailCount();
+        int skipCount = results.getSkipCount();
+        summary = new TestResultsSummaryAction(results.getTotalCount() - failCount - skipCount, failCount, skipCount);
+        if (!build.isBuilding()) {
+            // Replaced rather than added, as the statuses of several checkouts may be prepared at the same time
+            build.addOrReplaceAction(summary);
         }
-        return null;
+        return summary.toTestResults();
     }
 }
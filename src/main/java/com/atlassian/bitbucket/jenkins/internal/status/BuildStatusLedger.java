@@ -0,0 +1,192 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hudson.XmlFile;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.BUILD_STATUS_LEDGER_MAX_ENTRIES_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.BUILD_STATUS_LEDGER_PERSISTENT_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+
+/**
+ * Remembers the last build status posted for each commit, build key and ref, so that posting the same status again
+ * can be skipped. This happens when a run checks out the same repository several times, each checkout reporting the
+ * build as in progress, and when a run is resumed after a restart and reports a state it had already reported.
+ * <p>
+ * A status is only skipped if its state and URL match the last status posted, so statuses of a different run, or of
+ * the same run in a new state, are always posted. The least recently posted entries are evicted once the ledger holds
+ * {@code bitbucket.status.ledger.max.entries} entries. If {@code bitbucket.status.ledger.persistent} is set, the
+ * entries are saved periodically by the {@link BuildStatusLedgerSaver}, and loaded again on startup.
+ * <p>
+ * A status is claimed before it is posted, so the same status is also skipped while an earlier claim of it is still
+ * being posted. If that post fails, the claim is {@link #release released}, but the statuses skipped in the meantime
+ * are not remembered and are not posted. Only the failed status is kept for the catch-up, if its failure can be
+ * retried, and posting it again posts the same state and URL the skipped statuses had.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class BuildStatusLedger {
+
+    static final String LEDGER_FILE_NAME = "bitbucket-build-status-ledger.xml";
+    static final long MAX_ENTRIES = parsePositiveLongFromSystemProperty(BUILD_STATUS_LEDGER_MAX_ENTRIES_KEY, 10000);
+
+    private static final Logger LOGGER = Logger.getLogger(BuildStatusLedger.class.getName());
+    private static final XStream2 XSTREAM = new XStream2();
+
+    /**
+     * The state and URL of the last status posted, by server, repository, commit, build key and ref
+     */
+    private final ConcurrentMap<String, String> entries;
+    private final boolean persistent;
+    private final LongAdder posted = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private volatile boolean dirty;
+    private volatile boolean loaded;
+
+    public BuildStatusLedger() {
+        this(MAX_ENTRIES, Boolean.getBoolean(BUILD_STATUS_LEDGER_PERSISTENT_KEY));
+    }
+
+    BuildStatusLedger(long maxEntries, boolean persistent) {
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        entries = cache.asMap();
+        this.persistent = persistent;
+    }
+
+    /**
+     * Claims the posting of a build status, recording it as the last status posted for its commit, build key and
+     * ref. Posting the status should be skipped if the claim fails.
+     *
+     * @param serverId    the id of the server the status is posted to
+     * @param repository  the repository the status is posted to
+     * @param revisionSha the commit the status is posted for
+     * @param buildStatus the status
+     * @return {@code true} if the status should be posted, or {@code false} if the same status was the last one posted
+     */
+    public boolean claim(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                         BitbucketBuildStatus buildStatus) {
+        load();
+        String value = getValue(buildStatus);
+        String previous = entries.put(getKey(serverId, repository, revisionSha, buildStatus), value);
+        if (value.equals(previous)) {
+            suppressed.increment();
+            return false;
+        }
+        posted.increment();
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * @return the number of build statuses claimed for posting
+     */
+    public long getPostedCount() {
+        return posted.sum();
+    }
+
+    /**
+     * @return the number of build statuses that were not posted because the same status had already been posted
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Releases a {@link #claim claimed} build status that could not be posted, so posting it again is not skipped.
+     * The same status skipped while the claim was held is not posted again.
+     *
+     * @param serverId    the id of the server the status was posted to
+     * @param repository  the repository the status was posted to
+     * @param revisionSha the commit the status was posted for
+     * @param buildStatus the status
+     */
+    public void release(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                        BitbucketBuildStatus buildStatus) {
+        if (entries.remove(getKey(serverId, repository, revisionSha, buildStatus), getValue(buildStatus))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the entries to disk if the ledger is persistent and they have changed since they were last written.
+     */
+    public synchronized void saveIfDirty() {
+        if (!persistent || !dirty) {
+            return;
+        }
+        // Cleared first, so a claim made while writing marks the ledger dirty again
+        dirty = false;
+        try {
+            getLedgerFile().write(new HashMap<>(entries));
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.log(Level.WARNING, "Failed to write the build status ledger", e);
+        }
+    }
+
+    /**
+     * @return the number of entries in the ledger
+     */
+    public int size() {
+        load();
+        return entries.size();
+    }
+
+    XmlFile getLedgerFile() {
+        return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), LEDGER_FILE_NAME));
+    }
+
+    private static String getKey(String serverId, BitbucketSCMRepository repository, String revisionSha,
+                                 BitbucketBuildStatus buildStatus) {
+        return String.join("/", serverId, repository.getProjectKey(), repository.getRepositorySlug(), revisionSha,
+                buildStatus.getKey(), String.valueOf(buildStatus.getRef()));
+    }
+
+    private static String getValue(BitbucketBuildStatus buildStatus) {
+        return buildStatus.getState() + " " + buildStatus.getUrl();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            XmlFile ledgerFile = persistent ? getLedgerFile() : null;
+            if (ledgerFile != null && ledgerFile.exists()) {
+                try {
+                    @SuppressWarnings("unchecked")
+                    Map<String, String> stored = (Map<String, String>) ledgerFile.read();
+                    if (stored != null) {
+                        entries.putAll(stored);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to read the build status ledger; statuses posted before the " +
+                                              "restart may be posted again", e);
+                }
+            }
+            loaded = true;
+        }
+    }
+}
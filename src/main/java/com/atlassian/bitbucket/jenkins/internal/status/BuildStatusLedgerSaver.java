@@ -0,0 +1,40 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import javax.inject.Inject;
+
+/**
+ * Periodically writes the {@link BuildStatusLedger} to disk, if it is persistent, rather than on every post, and once
+ * more when Jenkins stops.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class BuildStatusLedgerSaver extends AsyncPeriodicWork {
+
+    @Inject
+    private BuildStatusLedger ledger;
+
+    public BuildStatusLedgerSaver() {
+        super("Bitbucket build status ledger saver");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Terminator
+    public void onStop() {
+        ledger.saveIfDirty();
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        ledger.saveIfDirty();
+    }
+}
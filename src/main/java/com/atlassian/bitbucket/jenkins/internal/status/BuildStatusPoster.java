@@ -1,12 +1,17 @@
 package com.atlassian.bitbucket.jenkins.internal.status;
 
+import com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketBuildStatusClient;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.credentials.GlobalCredentialsProvider;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketCICapabilities;
 import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
 import com.cloudbees.plugins.credentials.Credentials;
 import com.google.common.annotations.VisibleForTesting;
@@ -14,9 +19,24 @@ import hudson.Extension;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
 
+import javax.annotation.CheckForNull;
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,12 +47,20 @@ public class BuildStatusPoster extends RunListener<Run<?, ?>> {
 
     private static final String BUILD_STATUS_DISABLED_MSG = "Build statuses disabled, no build status sent.";
     private static final String BUILD_STATUS_ERROR_MSG = "Failed to post build status, additional information:";
+    private static final String BUILD_STATUS_CATCH_UP_MSG =
+            "The build status will be posted again once Bitbucket Server is available";
     private static final String BUILD_STATUS_FORMAT =
             "Posting build status of %s to %s for commit id [%s] and ref '%s'";
+    private static final String BUILD_STATUS_SKIPPED_FORMAT =
+            "Build status of %s was already posted to %s for commit id [%s] and ref '%s', not posting it again";
     private static final Logger LOGGER = Logger.getLogger(BuildStatusPoster.class.getName());
     private static final String NO_SERVER_MSG =
             "Failed to post build status as the provided Bitbucket Server config does not exist";
     private static final String LEGACY_BUILD_STATUS_PROPERTY = "legacyBuildStatus";
+    private static final int MAX_POSTS_PER_SERVER = 4;
+    private static final int MAX_THREADS = 8;
+    private static final ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS,
+            new NamingThreadFactory(new DaemonThreadFactory(), "BuildStatusPoster"));
 
     @Inject
     private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
@@ -42,6 +70,10 @@ public class BuildStatusPoster extends RunListener<Run<?, ?>> {
     private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
     @Inject
     private BitbucketBuildStatusFactory bitbucketBuildStatusFactory;
+    @Inject
+    private BuildStatusLedger buildStatusLedger;
+    @Inject
+    private FailedPostStore failedPostStore;
 
     public BuildStatusPoster() {
     }
@@ -49,18 +81,31 @@ public class BuildStatusPoster extends RunListener<Run<?, ?>> {
     public BuildStatusPoster(BitbucketClientFactoryProvider bitbucketClientFactoryProvider,
                              BitbucketPluginConfiguration pluginConfiguration,
                              JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials,
-                             BitbucketBuildStatusFactory bitbucketBuildStatusFactory) {
+                             BitbucketBuildStatusFactory bitbucketBuildStatusFactory,
+                             BuildStatusLedger buildStatusLedger,
+                             FailedPostStore failedPostStore) {
         this.bitbucketClientFactoryProvider = bitbucketClientFactoryProvider;
         this.pluginConfiguration = pluginConfiguration;
         this.jenkinsToBitbucketCredentials = jenkinsToBitbucketCredentials;
         this.bitbucketBuildStatusFactory = bitbucketBuildStatusFactory;
+        this.buildStatusLedger = buildStatusLedger;
+        this.failedPostStore = failedPostStore;
     }
 
     @Override
     public void onCompleted(Run<?, ?> r, TaskListener listener) {
-        for (BitbucketRevisionAction action : r.getActions(BitbucketRevisionAction.class)) {
+        List<BitbucketRevisionAction> actions = r.getActions(BitbucketRevisionAction.class);
+        if (actions.size() <= 1) {
+            for (BitbucketRevisionAction action : actions) {
                 postBuildStatus(action, r, listener);
+            }
+            return;
         }
+        if (Boolean.getBoolean(BUILD_STATUS_DISABLED_KEY)) {
+            listener.getLogger().println(BUILD_STATUS_DISABLED_MSG);
+            return;
+        }
+        postBuildStatuses(actions, r, listener);
     }
 
     public void postBuildStatus(BitbucketRevisionAction revisionAction, Run<?, ?> run, TaskListener listener) {
@@ -83,24 +128,131 @@ public class BuildStatusPoster extends RunListener<Run<?, ?>> {
         GlobalCredentialsProvider globalCredentialsProvider = server.getGlobalCredentialsProvider(run.getParent());
         try {
             BitbucketClientFactory bbsClient = getBbsClient(server, globalCredentialsProvider);
+            postBuildStatus(server, bbsClient, null, revisionAction, run, listener);
+        } catch (RuntimeException e) {
+            logFailure(e, listener);
+        }
+    }
+
+    /**
+     * Posts the build status for a single revision.
+     *
+     * @param ciCapabilities the CI capabilities of the server, or {@code null} to look them up
+     */
+    private void postBuildStatus(BitbucketServerConfiguration server, BitbucketClientFactory bbsClient,
+                                 @CheckForNull BitbucketCICapabilities ciCapabilities,
+                                 BitbucketRevisionAction revisionAction, Run<?, ?> run, TaskListener listener) {
+        BitbucketSCMRepository bitbucketSCMRepo = revisionAction.getBitbucketSCMRepo();
+        BitbucketBuildStatus.Builder buildStatusBuilder = null;
+        BitbucketBuildStatus claimed = null;
+        try {
+            buildStatusBuilder = bitbucketBuildStatusFactory.prepareBuildStatus(run, revisionAction);
 
-            BitbucketBuildStatus.Builder buildStatusBuilder = bitbucketBuildStatusFactory.prepareBuildStatus(run, revisionAction);
+            BitbucketBuildStatus buildStatus = buildStatusBuilder.build();
+            if (!buildStatusLedger.claim(server.getId(), bitbucketSCMRepo, revisionAction.getRevisionSha1(),
+                    buildStatus)) {
+                listener.getLogger().println(String.format(BUILD_STATUS_SKIPPED_FORMAT, buildStatus.getState(),
+                        server.getServerName(), revisionAction.getRevisionSha1(), buildStatus.getRef()));
+                return;
+            }
+            claimed = buildStatus;
 
-            BitbucketSCMRepository bitbucketSCMRepo = revisionAction.getBitbucketSCMRepo();
+            BitbucketRepositoryClient repositoryClient = bbsClient.getProjectClient(bitbucketSCMRepo.getProjectKey())
+                    .getRepositoryClient(bitbucketSCMRepo.getRepositorySlug());
+            BitbucketBuildStatusClient buildStatusClient = ciCapabilities == null ?
+                    repositoryClient.getBuildStatusClient(revisionAction.getRevisionSha1()) :
+                    repositoryClient.getBuildStatusClient(revisionAction.getRevisionSha1(), ciCapabilities);
 
-            bbsClient.getProjectClient(bitbucketSCMRepo.getProjectKey())
-                    .getRepositoryClient(bitbucketSCMRepo.getRepositorySlug())
-                    .getBuildStatusClient(revisionAction.getRevisionSha1())
-                    .post(buildStatusBuilder, buildStatus -> 
+            buildStatusClient.post(buildStatusBuilder, postedStatus ->
                             listener.getLogger().println(String.format(BUILD_STATUS_FORMAT,
-                            buildStatus.getState(), server.getServerName(), revisionAction.getRevisionSha1(), buildStatus.getRef())));
-
+                            postedStatus.getState(), server.getServerName(), revisionAction.getRevisionSha1(), postedStatus.getRef())));
+            // Any older status that failed to post must not be posted over this one
+            failedPostStore.resolveBuildStatus(server.getId(), bitbucketSCMRepo, revisionAction.getRevisionSha1(),
+                    buildStatus.getKey());
         } catch (RuntimeException e) {
-            String errorMsg = BUILD_STATUS_ERROR_MSG + ' ' + e.getMessage();
-            LOGGER.info(errorMsg);
-            listener.getLogger().println(errorMsg);
-            LOGGER.log(Level.FINE, "Stacktrace from build status failure", e);
+            if (claimed != null) {
+                // Not posted, so posting it again must not be skipped
+                buildStatusLedger.release(server.getId(), bitbucketSCMRepo, revisionAction.getRevisionSha1(), claimed);
+            }
+            logFailure(e, listener);
+            if (claimed != null && e instanceof BitbucketClientException &&
+                FailedPostStore.isRetryable((BitbucketClientException) e)) {
+                failedPostStore.recordBuildStatus(server.getId(), bitbucketSCMRepo, revisionAction.getRevisionSha1(),
+                        buildStatusBuilder, run, (BitbucketClientException) e);
+                listener.getLogger().println(BUILD_STATUS_CATCH_UP_MSG);
+            }
+        }
+    }
+
+    /**
+     * Posts the build statuses of a run that checked out several revisions. The revisions are grouped by server, so
+     * that each server's client and CI capabilities are looked up once, and each group is posted concurrently with at
+     * most {@link #MAX_POSTS_PER_SERVER} posts in flight. The output of each post is buffered and written to the log
+     * in the order of the revisions, once all of them have been posted.
+     */
+    private void postBuildStatuses(List<BitbucketRevisionAction> actions, Run<?, ?> run, TaskListener listener) {
+        List<ByteArrayOutputStream> buffers = new ArrayList<>(actions.size());
+        List<TaskListener> listeners = new ArrayList<>(actions.size());
+        Map<String, List<Integer>> actionsByServer = new LinkedHashMap<>();
+        for (int i = 0; i < actions.size(); i++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffers.add(buffer);
+            listeners.add(new StreamTaskListener(buffer, StandardCharsets.UTF_8));
+            actionsByServer.computeIfAbsent(String.valueOf(actions.get(i).getBitbucketSCMRepo().getServerId()),
+                    serverId -> new ArrayList<>()).add(i);
         }
+
+        List<CompletableFuture<?>> posts = new ArrayList<>();
+        actionsByServer.forEach((serverId, indexes) -> {
+            Optional<BitbucketServerConfiguration> serverOptional = pluginConfiguration.getServerById(serverId);
+            if (!serverOptional.isPresent()) {
+                indexes.forEach(i -> listeners.get(i).error(NO_SERVER_MSG));
+                return;
+            }
+            BitbucketServerConfiguration server = serverOptional.get();
+            BitbucketClientFactory bbsClient;
+            try {
+                // All of the revisions were checked out by the same job, so they share its credentials
+                bbsClient = getBbsClient(server, server.getGlobalCredentialsProvider(run.getParent()));
+            } catch (RuntimeException e) {
+                indexes.forEach(i -> logFailure(e, listeners.get(i)));
+                return;
+            }
+            CompletableFuture<BitbucketCICapabilities> ciCapabilities = CompletableFuture.supplyAsync(() ->
+                    bbsClient.getCapabilityClient().getCICapabilities(), executor);
+            // Each lane posts its revisions one after the other, so no more posts are in flight than there are lanes
+            CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(indexes.size(), MAX_POSTS_PER_SERVER)];
+            Arrays.fill(lanes, ciCapabilities);
+            for (int i = 0; i < indexes.size(); i++) {
+                int lane = i % lanes.length;
+                BitbucketRevisionAction action = actions.get(indexes.get(i));
+                TaskListener actionListener = listeners.get(indexes.get(i));
+                lanes[lane] = lanes[lane].handleAsync((result, error) -> {
+                    try {
+                        postBuildStatus(server, bbsClient, ciCapabilities.join(), action, run, actionListener);
+                    } catch (CompletionException e) {
+                        // Failing to look up the capabilities fails each post, as it would if posted on its own
+                        logFailure(e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e,
+                                actionListener);
+                    }
+                    return null;
+                }, executor);
+            }
+            posts.addAll(Arrays.asList(lanes));
+        });
+
+        try {
+            CompletableFuture.allOf(posts.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            buffers.forEach(buffer -> listener.getLogger().print(buffer.toString(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static void logFailure(RuntimeException e, TaskListener listener) {
+        String errorMsg = BUILD_STATUS_ERROR_MSG + ' ' + e.getMessage();
+        LOGGER.info(errorMsg);
+        listener.getLogger().println(errorMsg);
+        LOGGER.log(Level.FINE, "Stacktrace from build status failure", e);
     }
 
     private BitbucketClientFactory getBbsClient(BitbucketServerConfiguration server,
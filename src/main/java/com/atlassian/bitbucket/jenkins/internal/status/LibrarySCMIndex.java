@@ -0,0 +1,178 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import com.atlassian.bitbucket.jenkins.internal.provider.GlobalLibrariesProvider;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import com.cloudbees.hudson.plugins.folder.Folder;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.scm.SCM;
+import org.jenkinsci.plugins.workflow.libs.FolderLibraries;
+import org.jenkinsci.plugins.workflow.libs.GlobalLibraries;
+import org.jenkinsci.plugins.workflow.libs.LibraryConfiguration;
+import org.jenkinsci.plugins.workflow.libs.SCMRetriever;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Knows the ids of the {@link BitbucketSCM}s that pipeline libraries are retrieved with, so that the
+ * {@link LocalSCMListener} can tell whether a checkout is of a library with a set lookup per enclosing folder, rather
+ * than walking every library configuration on every checkout.
+ * <p>
+ * The ids of the global libraries, and of the libraries of each folder and multibranch project, are collected the
+ * first time they are needed and forgotten again when that configuration is saved, deleted or moved.
+ *
+ * @since 6.1.0
+ */
+@Singleton
+@ThreadSafe
+public class LibrarySCMIndex {
+
+    private final ConcurrentMap<String, Set<String>> folderLibraryIds = new ConcurrentHashMap<>();
+    private final GlobalLibrariesProvider librariesProvider;
+    @GuardedBy("this")
+    private volatile Set<String> globalLibraryIds;
+
+    @Inject
+    public LibrarySCMIndex(GlobalLibrariesProvider librariesProvider) {
+        this.librariesProvider = requireNonNull(librariesProvider, "librariesProvider");
+    }
+
+    /**
+     * Whether a checkout made by a job is of a library configured globally, or on a folder or multibranch project
+     * enclosing the job.
+     *
+     * @param job the job making the checkout
+     * @param scm the SCM checked out
+     * @return {@code true} if the SCM is a library's SCM
+     */
+    public boolean isLibrary(Job<?, ?> job, SCM scm) {
+        if (!(scm instanceof BitbucketSCM)) {
+            return false;
+        }
+        String id = ((BitbucketSCM) scm).getId();
+        if (id == null) {
+            return false;
+        }
+        ItemGroup<?> parent = job.getParent();
+        while (parent instanceof Folder || parent instanceof WorkflowMultiBranchProject) {
+            AbstractFolder<?> folder = (AbstractFolder<?>) parent;
+            if (folderLibraryIds.computeIfAbsent(folder.getFullName(), name -> getLibraryIds(folder)).contains(id)) {
+                return true;
+            }
+            parent = folder.getParent();
+        }
+        return getGlobalLibraryIds().contains(id);
+    }
+
+    void forgetFolder(String fullName) {
+        folderLibraryIds.remove(fullName);
+    }
+
+    void forgetFolderTree(String fullName) {
+        String prefix = fullName + '/';
+        folderLibraryIds.keySet().removeIf(name -> name.equals(fullName) || name.startsWith(prefix));
+    }
+
+    synchronized void forgetGlobalLibraries() {
+        globalLibraryIds = null;
+    }
+
+    private Set<String> getGlobalLibraryIds() {
+        Set<String> ids = globalLibraryIds;
+        if (ids != null) {
+            return ids;
+        }
+        // Collected while holding the lock, so a save made meanwhile cannot be overwritten with the ids from before it
+        synchronized (this) {
+            if (globalLibraryIds == null) {
+                globalLibraryIds = getLibraryIds(librariesProvider.get().getLibraries());
+            }
+            return globalLibraryIds;
+        }
+    }
+
+    private static Set<String> getLibraryIds(AbstractFolder<?> folder) {
+        FolderLibraries folderLibraries = folder.getProperties().get(FolderLibraries.class);
+        return folderLibraries == null ? Collections.emptySet() : getLibraryIds(folderLibraries.getLibraries());
+    }
+
+    private static Set<String> getLibraryIds(Collection<LibraryConfiguration> libraries) {
+        Set<String> ids = new HashSet<>();
+        for (LibraryConfiguration library : libraries) {
+            if (library.getRetriever() instanceof SCMRetriever) {
+                SCM libraryScm = ((SCMRetriever) library.getRetriever()).getScm();
+                if (libraryScm instanceof BitbucketSCM) {
+                    String id = ((BitbucketSCM) libraryScm).getId();
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return ids.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Forgets the library ids of the global libraries, or of a folder, when they are saved.
+     */
+    @Extension
+    public static class ConfigurationListener extends SaveableListener {
+
+        @Inject
+        private LibrarySCMIndex index;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof GlobalLibraries) {
+                index.forgetGlobalLibraries();
+            } else if (o instanceof AbstractFolder) {
+                index.forgetFolder(((AbstractFolder<?>) o).getFullName());
+            }
+        }
+    }
+
+    /**
+     * Forgets the library ids of folders that are deleted or moved, along with those of the folders within them.
+     */
+    @Extension
+    public static class FolderListener extends ItemListener {
+
+        @Inject
+        private LibrarySCMIndex index;
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof AbstractFolder) {
+                index.forgetFolderTree(item.getFullName());
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            if (item instanceof AbstractFolder) {
+                index.forgetFolderTree(oldFullName);
+                index.forgetFolderTree(newFullName);
+            }
+        }
+    }
+}
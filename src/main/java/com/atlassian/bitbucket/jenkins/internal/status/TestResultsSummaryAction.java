@@ -0,0 +1,40 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import com.atlassian.bitbucket.jenkins.internal.model.TestResults;
+import hudson.model.InvisibleAction;
+
+/**
+ * The number of passed, failed and skipped tests of a completed run, remembered so that posting its build status
+ * again never needs the run's test report. Test reports can be very large, and once they have been released from
+ * memory the JUnit plugin may read and parse the whole report to count the tests again.
+ *
+ * @since 6.1.0
+ */
+public class TestResultsSummaryAction extends InvisibleAction {
+
+    private final int failed;
+    private final int skipped;
+    private final int successful;
+
+    public TestResultsSummaryAction(int successful, int failed, int skipped) {
+        this.successful = successful;
+        this.failed = failed;
+        this.skipped = skipped;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getSuccessful() {
+        return successful;
+    }
+
+    public TestResults toTestResults() {
+        return new TestResults(successful, failed, skipped);
+    }
+}
@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.trigger;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.model.*;
 import com.atlassian.bitbucket.jenkins.internal.scm.*;
@@ -39,8 +40,18 @@ public class BitbucketWebhookConsumer {
 
     private static final Logger LOGGER = Logger.getLogger(BitbucketWebhookConsumer.class.getName());
 
+    @Inject
+    private BitbucketCatalog bitbucketCatalog;
     @Inject
     private BitbucketPluginConfiguration bitbucketPluginConfiguration;
+    @Inject
+    private BitbucketDiscoveryCache discoveryCache;
+    @Inject
+    private BitbucketPullRequestWatermarkStore pullRequestWatermarkStore;
+    @Inject
+    private BitbucketBranchWatermarkStore branchWatermarkStore;
+    @Inject
+    private BitbucketRepositoryMetadataRegistry repositoryMetadataRegistry;
 
     void process(AbstractWebhookEvent e) {
         if (e instanceof MirrorSynchronizedWebhookEvent) {
@@ -59,8 +70,12 @@ public class BitbucketWebhookConsumer {
             webhookEventType = "Mirror Synchronized";
         }
         LOGGER.fine(format("Received %s event from repo: %s/%s", webhookEventType, repository.getProject().getKey(), repository.getSlug()));
+        refreshRepositoryMetadata(event);
+        discoveryCache.invalidate(repository);
         Set<BitbucketRefChange> eligibleUpdatedRefs = eligibleRefs(event);
         if (!eligibleUpdatedRefs.isEmpty()) {
+            // Recorded before the event is fired, so the scans it starts report the changed branches
+            branchWatermarkStore.updateBranches(repository, eligibleUpdatedRefs);
             RefChangedDetails refChangedDetails = new RefChangedDetails(event);
 
             try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
@@ -76,6 +91,9 @@ public class BitbucketWebhookConsumer {
         Set<BitbucketRefChange> deletedRefs = new HashSet<>(event.getChanges());
         deletedRefs.removeAll(eligibleUpdatedRefs);
         if (!deletedRefs.isEmpty()) {
+            branchWatermarkStore.removeBranches(repository, deletedRefs.stream()
+                    .map(BitbucketRefChange::getRefId)
+                    .collect(Collectors.toSet()));
             BitbucketSCMHeadEvent.fireNow(new BitbucketSCMHeadEvent(SCMEvent.Type.REMOVED, event,
                     deletedRefs, event.getRepository().getSlug()));
         }
@@ -83,6 +101,7 @@ public class BitbucketWebhookConsumer {
 
     private void process(PullRequestWebhookEvent event) {
         LOGGER.fine("Received pull request event");
+        discoveryCache.invalidate(event.getPullRequest().getToRef().getRepository());
         if (event instanceof PullRequestOpenedWebhookEvent || event instanceof PullRequestFromRefUpdatedWebhookEvent) {
             RefChangedDetails refChangedDetails = new RefChangedDetails(event);
 
@@ -95,11 +114,23 @@ public class BitbucketWebhookConsumer {
                         event, event.getPullRequest().getToRef().getRepository().getSlug()));
             }
         } else if (event instanceof PullRequestClosedWebhookEvent) {
+            pullRequestWatermarkStore.removePullRequest(event.getPullRequest().getToRef().getRepository(),
+                    event.getPullRequest().getId());
             BitbucketSCMHeadPullRequestEvent.fireNow(new BitbucketSCMHeadPullRequestEvent(SCMEvent.Type.REMOVED, event,
                     event.getPullRequest().getFromRef().getRepository().getSlug()));
         }
     }
 
+    private void refreshRepositoryMetadata(RefsChangedWebhookEvent event) {
+        if (event instanceof MirrorSynchronizedWebhookEvent) {
+            // The repository in a mirror event does not carry the mirror clone URLs
+            repositoryMetadataRegistry.evict(event.getRepository());
+        } else {
+            repositoryMetadataRegistry.refresh(event.getRepository());
+            bitbucketCatalog.update(event.getRepository());
+        }
+    }
+
     private static Set<BitbucketRefChange> eligibleRefs(RefsChangedWebhookEvent event) {
         return event.getChanges()
                 .stream()
@@ -5,6 +5,7 @@ import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketWebhookClient;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
 import com.atlassian.bitbucket.jenkins.internal.credentials.GlobalCredentialsProvider;
 import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
@@ -15,13 +16,22 @@ import com.atlassian.bitbucket.jenkins.internal.trigger.register.BitbucketWebhoo
 import com.atlassian.bitbucket.jenkins.internal.trigger.register.WebhookHandler;
 import com.atlassian.bitbucket.jenkins.internal.trigger.register.WebhookRegisterRequest;
 import com.atlassian.bitbucket.jenkins.internal.trigger.register.WebhookRegistrationFailed;
+import hudson.Extension;
+import hudson.XmlFile;
 import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.WEBHOOK_REGISTRATION_CACHE_DURATION_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -31,10 +41,21 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  * 1. Global admin is used. If failed then,
  * 2. Job credential is used. If failed then,
  * 3. Global credentials is used.
+ * <p>
+ * The webhook registered for each repository, and the events it was registered for, are remembered for
+ * {@code bitbucket.webhook.registration.cache.duration}. Jobs asking for events the webhook was already registered for
+ * are given that webhook without contacting Bitbucket, and jobs asking for other events have them added to the events
+ * registered before, so each repository only needs a new registration when the events wanted for it change. Only one
+ * registration is made for a repository at a time.
  */
 @Singleton
 public class RetryingWebhookHandler {
 
+    private static final long CACHE_DURATION =
+            parsePositiveLongFromSystemProperty(WEBHOOK_REGISTRATION_CACHE_DURATION_KEY, 60 * 60 * 1000L);
+
+    private final ConcurrentMap<String, RegisteredWebhook> registered = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> registrationLocks = new ConcurrentHashMap<>();
     private final InstanceBasedNameGenerator instanceBasedNameGenerator;
     private final JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
     private final JenkinsProvider jenkinsProvider;
@@ -65,24 +86,63 @@ public class RetryingWebhookHandler {
             throw new IllegalArgumentException("Invalid Jenkins base url. Actual - " + jenkinsUrl);
         }
 
-        WebhookRegisterRequest request = WebhookRegisterRequest.Builder
-                .aRequest(repository.getProjectKey(), repository.getRepositorySlug())
-                .withJenkinsBaseUrl(jenkinsUrl)
-                .isMirror(repository.isMirrorConfigured())
-                .shouldTriggerOnRefChange(isRefTrigger)
-                .shouldTriggerOnPullRequest(isPullRequestTrigger)
-                .withName(instanceBasedNameGenerator.getUniqueName())
-                .build();
-        String jobCredentials = repository.getCredentialsId();
-        try {
-            return registerWithRetry(bitbucketBaseUrl, globalCredentialsProvider, jobCredentials, context, request);
-        } catch (Exception ex) {
-            String message =
-                    "Failed to register webhook in bitbucket server with url " + bitbucketBaseUrl;
-            throw new WebhookRegistrationFailed(message, ex);
+        String name = instanceBasedNameGenerator.getUniqueName();
+        String key = String.join("/", bitbucketBaseUrl, jenkinsUrl, name, repository.getProjectKey(),
+                repository.getRepositorySlug(), String.valueOf(repository.isMirrorConfigured()));
+        RegisteredWebhook current = getRegistered(key);
+        if (current != null && current.covers(isPullRequestTrigger, isRefTrigger)) {
+            return current.webhook;
+        }
+        synchronized (registrationLocks.computeIfAbsent(key, k -> new Object())) {
+            // Another job may have registered the events while this one was waiting
+            current = getRegistered(key);
+            if (current != null && current.covers(isPullRequestTrigger, isRefTrigger)) {
+                return current.webhook;
+            }
+            boolean pullRequestTrigger = isPullRequestTrigger || (current != null && current.pullRequestTrigger);
+            boolean refTrigger = isRefTrigger || (current != null && current.refTrigger);
+            WebhookRegisterRequest request = WebhookRegisterRequest.Builder
+                    .aRequest(repository.getProjectKey(), repository.getRepositorySlug())
+                    .withJenkinsBaseUrl(jenkinsUrl)
+                    .isMirror(repository.isMirrorConfigured())
+                    .shouldTriggerOnRefChange(refTrigger)
+                    .shouldTriggerOnPullRequest(pullRequestTrigger)
+                    .withName(name)
+                    .build();
+            String jobCredentials = repository.getCredentialsId();
+            BitbucketWebhook webhook;
+            try {
+                webhook = registerWithRetry(bitbucketBaseUrl, globalCredentialsProvider, jobCredentials, context,
+                        request);
+            } catch (Exception ex) {
+                String message =
+                        "Failed to register webhook in bitbucket server with url " + bitbucketBaseUrl;
+                throw new WebhookRegistrationFailed(message, ex);
+            }
+            if (webhook != null) {
+                registered.put(key, new RegisteredWebhook(webhook, pullRequestTrigger, refTrigger));
+            }
+            return webhook;
         }
     }
 
+    /**
+     * Forgets every webhook registered, so they are registered again when next asked for.
+     */
+    void forgetAll() {
+        registered.clear();
+    }
+
+    @CheckForNull
+    private RegisteredWebhook getRegistered(String key) {
+        RegisteredWebhook current = registered.get(key);
+        if (current != null && System.currentTimeMillis() - current.registeredAt >= CACHE_DURATION) {
+            registered.remove(key, current);
+            return null;
+        }
+        return current;
+    }
+
     private BitbucketWebhook registerUsingCredentials(String bitbucketUrl,
                                                       BitbucketCredentials credentials,
                                                       WebhookRegisterRequest request) {
@@ -129,4 +189,44 @@ public class RetryingWebhookHandler {
 
         return result;
     }
+
+    /**
+     * A webhook registered for a repository, and the events it was registered for.
+     */
+    @Immutable
+    private static final class RegisteredWebhook {
+
+        private final boolean pullRequestTrigger;
+        private final boolean refTrigger;
+        private final long registeredAt = System.currentTimeMillis();
+        private final BitbucketWebhook webhook;
+
+        private RegisteredWebhook(BitbucketWebhook webhook, boolean pullRequestTrigger, boolean refTrigger) {
+            this.webhook = webhook;
+            this.pullRequestTrigger = pullRequestTrigger;
+            this.refTrigger = refTrigger;
+        }
+
+        private boolean covers(boolean isPullRequestTrigger, boolean isRefTrigger) {
+            return (pullRequestTrigger || !isPullRequestTrigger) && (refTrigger || !isRefTrigger);
+        }
+    }
+
+    /**
+     * Forgets the webhooks registered when the server configuration is saved, as servers or their credentials may
+     * have changed.
+     */
+    @Extension
+    public static class ConfigurationListener extends SaveableListener {
+
+        @Inject
+        private RetryingWebhookHandler webhookHandler;
+
+        @Override
+        public void onChange(Saveable o, @CheckForNull XmlFile file) {
+            if (o instanceof BitbucketPluginConfiguration) {
+                webhookHandler.forgetAll();
+            }
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.atlassian.bitbucket.jenkins.internal.trigger;
+
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import hudson.Extension;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import hudson.scm.SCM;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.branch.MultiBranchProject;
+import jenkins.model.Jenkins;
+import jenkins.model.ParameterizedJobMixIn;
+import jenkins.scm.api.SCMSource;
+import jenkins.triggers.SCMTriggerItem;
+
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertiesConstants.WEBHOOK_RECONCILE_INTERVAL_KEY;
+import static com.atlassian.bitbucket.jenkins.internal.util.SystemPropertyUtils.parsePositiveLongFromSystemProperty;
+import static hudson.init.InitMilestone.JOB_LOADED;
+import static java.lang.String.format;
+import static jenkins.triggers.SCMTriggerItem.SCMTriggerItems.asSCMTriggerItem;
+
+/**
+ * Registers the webhooks wanted by every job and multibranch project once Jenkins has loaded them, so that jobs
+ * sharing a repository do not each register its webhook when they first run or scan.
+ * <p>
+ * The events wanted for each repository are gathered from the {@link BitbucketWebhookTriggerImpl triggers} of jobs and
+ * the {@link BitbucketWebhookMultibranchTrigger triggers} of multibranch projects, and the webhook of each repository
+ * is registered once, for all of them, by the {@link RetryingWebhookHandler}. The handler remembers what it registered,
+ * so jobs asking for the same events afterwards do not contact Bitbucket. Registrations are spaced apart by
+ * {@code bitbucket.webhook.reconcile.interval}.
+ *
+ * @since 6.1.0
+ */
+@Extension
+public class WebhookRegistrationReconciler {
+
+    private static final long INTERVAL = parsePositiveLongFromSystemProperty(WEBHOOK_RECONCILE_INTERVAL_KEY, 250L);
+    private static final Logger LOGGER = Logger.getLogger(WebhookRegistrationReconciler.class.getName());
+
+    private final long interval;
+
+    @Inject
+    private BitbucketPluginConfiguration pluginConfiguration;
+    @Inject
+    private RetryingWebhookHandler webhookHandler;
+
+    public WebhookRegistrationReconciler() {
+        interval = INTERVAL;
+    }
+
+    WebhookRegistrationReconciler(BitbucketPluginConfiguration pluginConfiguration,
+                                  RetryingWebhookHandler webhookHandler, long interval) {
+        this.pluginConfiguration = pluginConfiguration;
+        this.webhookHandler = webhookHandler;
+        this.interval = interval;
+    }
+
+    @Initializer(after = JOB_LOADED)
+    public void onJobsLoaded() {
+        new NamingThreadFactory(new DaemonThreadFactory(), "WebhookRegistrationReconciler")
+                .newThread(this::reconcile)
+                .start();
+    }
+
+    /**
+     * Gathers the webhooks wanted by the given items, merging the events wanted for each repository.
+     *
+     * @param items the items
+     * @return the webhook wanted for each repository, in the order the repositories were found
+     */
+    static Collection<Subscription> collect(Collection<? extends Item> items) {
+        Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+        for (Item item : items) {
+            if (item instanceof ParameterizedJobMixIn.ParameterizedJob) {
+                Optional<BitbucketWebhookTriggerImpl> trigger =
+                        ((ParameterizedJobMixIn.ParameterizedJob<?, ?>) item).getTriggers().values().stream()
+                                .filter(BitbucketWebhookTriggerImpl.class::isInstance)
+                                .map(BitbucketWebhookTriggerImpl.class::cast)
+                                .findFirst();
+                SCMTriggerItem triggerItem = asSCMTriggerItem(item);
+                if (trigger.isPresent() && triggerItem != null) {
+                    for (SCM scm : triggerItem.getSCMs()) {
+                        if (scm instanceof BitbucketSCM) {
+                            for (BitbucketSCMRepository repository : ((BitbucketSCM) scm).getRepositories()) {
+                                subscribe(subscriptions, item, repository, trigger.get().isPullRequestTrigger(),
+                                        trigger.get().isRefTrigger());
+                            }
+                        }
+                    }
+                }
+            } else if (item instanceof MultiBranchProject) {
+                MultiBranchProject<?, ?> project = (MultiBranchProject<?, ?>) item;
+                List<BitbucketWebhookMultibranchTrigger> triggers = project.getTriggers().values().stream()
+                        .filter(BitbucketWebhookMultibranchTrigger.class::isInstance)
+                        .map(BitbucketWebhookMultibranchTrigger.class::cast)
+                        .collect(Collectors.toList());
+                if (triggers.isEmpty()) {
+                    continue;
+                }
+                boolean pullRequestTrigger =
+                        triggers.stream().anyMatch(BitbucketWebhookMultibranchTrigger::isPullRequestTrigger);
+                boolean refTrigger = triggers.stream().anyMatch(BitbucketWebhookMultibranchTrigger::isRefTrigger);
+                for (SCMSource source : project.getSCMSources()) {
+                    if (source instanceof BitbucketSCMSource && ((BitbucketSCMSource) source).isValid()) {
+                        subscribe(subscriptions, item, ((BitbucketSCMSource) source).getBitbucketSCMRepository(),
+                                pullRequestTrigger, refTrigger);
+                    }
+                }
+            }
+        }
+        return subscriptions.values();
+    }
+
+    Collection<? extends Item> getAllItems() {
+        return Jenkins.get().getAllItems(Item.class);
+    }
+
+    void reconcile() {
+        Collection<Subscription> subscriptions;
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+            subscriptions = collect(getAllItems());
+        }
+        LOGGER.info(() -> format("Registering webhooks for %d Bitbucket repositories", subscriptions.size()));
+        for (Subscription subscription : subscriptions) {
+            register(subscription);
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void subscribe(Map<String, Subscription> subscriptions, Item item,
+                                  BitbucketSCMRepository repository, boolean pullRequestTrigger, boolean refTrigger) {
+        if (!pullRequestTrigger && !refTrigger) {
+            return;
+        }
+        String key = String.join("/", String.valueOf(repository.getServerId()), repository.getProjectKey(),
+                repository.getRepositorySlug(), String.valueOf(repository.getMirrorName()));
+        subscriptions.computeIfAbsent(key, k -> new Subscription(item, repository))
+                .add(pullRequestTrigger, refTrigger);
+    }
+
+    private void register(Subscription subscription) {
+        BitbucketSCMRepository repository = subscription.repository;
+        Optional<BitbucketServerConfiguration> server = pluginConfiguration.getValidServerById(repository.getServerId());
+        if (!server.isPresent()) {
+            return;
+        }
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+            webhookHandler.register(server.get().getBaseUrl(),
+                    server.get().getGlobalCredentialsProvider(subscription.item), repository, subscription.item,
+                    subscription.pullRequestTrigger, subscription.refTrigger);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, format("Failed to register the webhook for %s/%s; it will be registered when " +
+                                             "a job using it next runs", repository.getProjectKey(),
+                    repository.getRepositorySlug()), e);
+        }
+    }
+
+    /**
+     * The webhook wanted for a repository, and the events wanted for it by all the items using it.
+     */
+    static final class Subscription {
+
+        private final Item item;
+        private final BitbucketSCMRepository repository;
+        private boolean pullRequestTrigger;
+        private boolean refTrigger;
+
+        private Subscription(Item item, BitbucketSCMRepository repository) {
+            this.item = item;
+            this.repository = repository;
+        }
+
+        BitbucketSCMRepository getRepository() {
+            return repository;
+        }
+
+        boolean isPullRequestTrigger() {
+            return pullRequestTrigger;
+        }
+
+        boolean isRefTrigger() {
+            return refTrigger;
+        }
+
+        private void add(boolean pullRequestTrigger, boolean refTrigger) {
+            this.pullRequestTrigger |= pullRequestTrigger;
+            this.refTrigger |= refTrigger;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.atlassian.bitbucket.jenkins.internal.util;
+
+import static org.apache.commons.lang3.StringUtils.removeEnd;
+
+public final class BaseUrlUtils {
+
+    private BaseUrlUtils() {
+        throw new UnsupportedOperationException(
+                BaseUrlUtils.class.getName() + " should not be instantiated");
+    }
+
+    /**
+     * Checks whether a URL belongs to the Bitbucket Server with the given base URL. The URL must either be the base URL
+     * or continue it with a path, so a server at {@code http://example.com/bitbucket} does not claim the URLs of one at
+     * {@code http://example.com/bitbucket2}.
+     *
+     * @param url     the URL to check, such as a repository's self link
+     * @param baseUrl the base URL of the server, with or without a trailing slash
+     * @return {@code true} if the URL is on the server; {@code false} otherwise
+     */
+    public static boolean isOnServer(String url, String baseUrl) {
+        String base = removeEnd(baseUrl, "/");
+        return url.equals(base) || url.startsWith(base + "/");
+    }
+}
@@ -15,12 +15,53 @@ public class SystemPropertiesConstants {
      * Defaults to FALSE.
      */
     public static final String BUILD_STATUS_DISABLED_KEY = "bitbucket.status.disable";
+    /**
+     * Specifies the maximum number of entries kept by the build status ledger, which remembers the last build status
+     * posted for each commit, build key and ref so that posting the same status again is skipped. The least recently
+     * posted entries are evicted first. Set to 0 to disable the ledger.
+     * Defaults to 10,000.
+     *
+     * @since 6.1.0
+     */
+    public static final String BUILD_STATUS_LEDGER_MAX_ENTRIES_KEY = "bitbucket.status.ledger.max.entries";
+    /**
+     * If set to true, the build status ledger is saved to disk every minute and loaded again on startup, so that
+     * runs resumed after a restart do not post the build statuses they had already posted.
+     * Defaults to FALSE.
+     *
+     * @since 6.1.0
+     */
+    public static final String BUILD_STATUS_LEDGER_PERSISTENT_KEY = "bitbucket.status.ledger.persistent";
     /**
      * Specifies the duration of the Bitbucket capabilities cache. This cache is used to determine which features of
      * Bitbucket are available to Jenkins. Jenkins makes a request to Bitbucket whenever the cache expires.
      * Defaults to 1 hour.
      */
     public static final String CAPABILITIES_CACHE_DURATION_KEY = "bitbucket.client.capabilities.cache.duration";
+    /**
+     * Specifies the period, in milliseconds, at which the catalogs of projects and repositories used to fill in the
+     * SCM configuration forms are loaded from Bitbucket again.
+     * Defaults to 15 minutes.
+     *
+     * @since 6.1.0
+     */
+    public static final String CATALOG_SYNC_PERIOD_KEY = "bitbucket.catalog.sync.period";
+    /**
+     * Specifies the maximum number of build statuses and deployment notifications that could not be posted because
+     * Bitbucket was unavailable, which are posted again to each server every minute.
+     * Defaults to 50.
+     *
+     * @since 6.1.0
+     */
+    public static final String CATCH_UP_BATCH_SIZE_KEY = "bitbucket.catch.up.batch.size";
+    /**
+     * Specifies the duration, in milliseconds, after which a build status or deployment notification that could not
+     * be posted because Bitbucket was unavailable is given up on, rather than posted again.
+     * Defaults to 24 hours.
+     *
+     * @since 6.1.0
+     */
+    public static final String CATCH_UP_HORIZON_KEY = "bitbucket.catch.up.horizon";
     /**
      * Http client connection timeout for rest calls.
      * Defaults to 30,000 milliseconds (30 seconds)
@@ -35,6 +76,15 @@ public class SystemPropertiesConstants {
      * @since 4.0.1
      */
     public static final String DEFAULT_HTTP_READ_TIMEOUT = "bitbucket.http.request.timeout";
+    /**
+     * Specifies the duration, in milliseconds, that the branch, tag and pull request listings fetched while scanning a
+     * repository are shared with other multibranch projects scanning the same repository with the same credentials.
+     * Webhooks received for a repository discard its listings immediately. Set to 0 to disable sharing.
+     * Defaults to 30 seconds.
+     *
+     * @since 6.1.0
+     */
+    public static final String DISCOVERY_CACHE_DURATION_KEY = "bitbucket.scm.discovery.cache.duration";
     /**
      * Specifies the time to live (TTL) of an OAuth access token, used when making API requests in Jenkins on
      * behalf of the Bitbucket user, such as starting jobs. When the token expires, the user will have to acquire
@@ -57,6 +107,63 @@ public class SystemPropertiesConstants {
      * Defaults to 5 years and 30 days.
      */
     public static final String DEFAULT_OAUTH_SESSION_TTL_KEY = "bitbucket.oauth.default.session.ttl";
+    /**
+     * Specifies the number of OAuth token changes that are appended to the token journal before they are compacted
+     * into the token store's XML file. A higher value means fewer full rewrites of the file when many tokens are
+     * issued, at the cost of a longer journal to replay on startup.
+     * Defaults to 1000.
+     *
+     * @since 6.1.0
+     */
+    public static final String OAUTH_TOKEN_JOURNAL_COMPACTION_THRESHOLD_KEY =
+            "bitbucket.oauth.token.journal.compaction.threshold";
+    /**
+     * Specifies the interval, in milliseconds, between runs of the task that removes expired OAuth tokens and
+     * sessions from the token store.
+     * Defaults to 1 hour.
+     *
+     * @since 6.1.0
+     */
+    public static final String OAUTH_TOKEN_REAPER_INTERVAL_KEY = "bitbucket.oauth.token.reaper.interval";
+    /**
+     * Specifies the interval, in milliseconds, between full pull request scans when
+     * {@link #PULL_REQUESTS_RETRIEVAL_INCREMENTAL incremental pull request discovery} is enabled. A full scan lists
+     * every open pull request, picking up changes that did not update a pull request, such as new commits on its
+     * target branch.
+     * Defaults to 24 hours.
+     *
+     * @since 6.1.0
+     */
+    public static final String PULL_REQUESTS_RETRIEVAL_FULL_SCAN_INTERVAL =
+            "bitbucket.pull.requests.retrieval.full.scan.interval";
+    /**
+     * If set to true, pull request discovery remembers the open pull requests seen in the previous scan and only
+     * fetches the pull requests updated since, most recently-updated first.
+     * Defaults to FALSE.
+     *
+     * @since 6.1.0
+     */
+    public static final String PULL_REQUESTS_RETRIEVAL_INCREMENTAL = "bitbucket.pull.requests.retrieval.incremental";
+    /**
+     * Specifies the interval, in milliseconds, between full branch scans when
+     * {@link #REMOTE_BRANCHES_RETRIEVAL_INCREMENTAL incremental branch discovery} is enabled. Scans in between only
+     * fetch branches modified since the previous scan; a full scan picks up branches that were deleted or reset to
+     * an older commit without a webhook being received.
+     * Defaults to 24 hours.
+     *
+     * @since 6.1.0
+     */
+    public static final String REMOTE_BRANCHES_RETRIEVAL_FULL_SCAN_INTERVAL =
+            "bitbucket.remote.branches.retrieval.full.scan.interval";
+    /**
+     * If set to true, branch discovery remembers the branches seen in the previous scan and stops paging once it
+     * reaches branches that have not been modified since. {@link #REMOTE_BRANCHES_RETRIEVAL_MAX_PAGES} does not apply
+     * in this mode, so repositories with more branches than the page cap are discovered in full.
+     * Defaults to FALSE.
+     *
+     * @since 6.1.0
+     */
+    public static final String REMOTE_BRANCHES_RETRIEVAL_INCREMENTAL = "bitbucket.remote.branches.retrieval.incremental";
     /**
      * Specifies the maximum number of pages to fetch when
      * {@link BitbucketBranchClient#getRemoteBranches() fetching remote branches}.
@@ -89,10 +196,52 @@ public class SystemPropertiesConstants {
      * @since 4.1.0
      */
     public static final String REMOTE_TAGS_RETRIEVAL_PAGE_SIZE = "bitbucket.remote.tags.retrieve.page.size";
-
+    /**
+     * Specifies the duration, in milliseconds, that resolved repository details (project key, slug, clone URLs and
+     * self link) are shared between SCM instances before they are looked up again. Webhooks received for a
+     * repository refresh its details immediately.
+     * Defaults to 1 hour.
+     *
+     * @since 6.1.0
+     */
+    public static final String REPOSITORY_METADATA_CACHE_DURATION_KEY = "bitbucket.scm.repository.metadata.cache.duration";
     /**
      * Maximum number of attempts to retry when posting a build status and the server responds wth a 429.
      * Defaults 3. Care should be taken when adjusting this as to not overload a server that is already under load.
      */
     public static final String REQUEST_RETRY_MAX_ATTEMPTS = "bitbucket.build.post.retry.request.attempts";
+    /**
+     * Specifies the duration, in milliseconds, that the revision of a branch, tag or pull request resolved by a
+     * multibranch source is reused for, so that revalidating many heads in quick succession does not make a request
+     * per head each time. Scans and webhooks for the source discard the cached revisions.
+     * Defaults to 10 seconds.
+     *
+     * @since 6.1.0
+     */
+    public static final String REVISION_CACHE_DURATION_KEY = "bitbucket.scm.revision.cache.duration";
+    /**
+     * Specifies the duration, in milliseconds, that the validation of a configured Bitbucket Server instance, which
+     * looks up its admin credentials, is reused for before the server is validated again. Saving the server
+     * configuration or the system credentials validates the servers again immediately.
+     * Defaults to 5 minutes.
+     *
+     * @since 6.1.0
+     */
+    public static final String SERVER_VALIDATION_CACHE_DURATION_KEY = "bitbucket.server.validation.cache.duration";
+    /**
+     * Specifies the pause, in milliseconds, between the repositories whose webhooks are registered when Jenkins starts,
+     * so that Bitbucket is not asked to register the webhooks of every repository at once.
+     * Defaults to 250 milliseconds.
+     *
+     * @since 6.1.0
+     */
+    public static final String WEBHOOK_RECONCILE_INTERVAL_KEY = "bitbucket.webhook.reconcile.interval";
+    /**
+     * Specifies the duration, in milliseconds, that the webhook registered for a repository, and the events it was
+     * registered for, are remembered, so that jobs using the same repository do not each register it again.
+     * Defaults to 1 hour.
+     *
+     * @since 6.1.0
+     */
+    public static final String WEBHOOK_REGISTRATION_CACHE_DURATION_KEY = "bitbucket.webhook.registration.cache.duration";
 }
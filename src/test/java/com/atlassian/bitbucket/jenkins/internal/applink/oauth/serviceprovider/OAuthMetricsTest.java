@@ -0,0 +1,62 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Endpoint;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Outcome;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Timer;
+import net.oauth.OAuth;
+import net.oauth.OAuthProblemException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+public class OAuthMetricsTest {
+
+    private final OAuthMetrics metrics = new OAuthMetrics();
+
+    @Test
+    public void testFailuresAreCountedByProblem() {
+        metrics.recordFailure(Endpoint.ACCESS_TOKEN, new OAuthProblemException(OAuth.Problems.TOKEN_REJECTED));
+        metrics.recordFailure(Endpoint.ACCESS_TOKEN, new OAuthProblemException(OAuth.Problems.TOKEN_REJECTED));
+        metrics.recordFailure(Endpoint.ACCESS_TOKEN, new IOException());
+        metrics.recordSuccess(Endpoint.REQUEST_TOKEN);
+
+        List<Outcome> outcomes = metrics.getOutcomes();
+
+        assertThat(outcomes.size(), is(3));
+        assertOutcome(outcomes.get(0), Endpoint.REQUEST_TOKEN, OAuthMetrics.SUCCESS, 1);
+        assertOutcome(outcomes.get(1), Endpoint.ACCESS_TOKEN, "IOException", 1);
+        assertOutcome(outcomes.get(2), Endpoint.ACCESS_TOKEN, OAuth.Problems.TOKEN_REJECTED, 2);
+    }
+
+    @Test
+    public void testTimerRecordsMeanAndMax() {
+        Timer timer = new Timer();
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertThat(timer.getCount(), is(2L));
+        assertThat(timer.getMeanMillis(), closeTo(2, 0.001));
+        assertThat(timer.getMaxMillis(), closeTo(3, 0.001));
+    }
+
+    @Test
+    public void testUnusedTimerIsZero() {
+        Timer timer = new Timer();
+
+        assertThat(timer.getCount(), is(0L));
+        assertThat(timer.getMeanMillis(), is(0.0));
+        assertThat(timer.getMaxMillis(), is(0.0));
+    }
+
+    private static void assertOutcome(Outcome outcome, Endpoint endpoint, String result, long count) {
+        assertThat(outcome.getEndpoint(), is(endpoint));
+        assertThat(outcome.getOutcome(), is(result));
+        assertThat(outcome.getCount(), is(count));
+    }
+}
@@ -0,0 +1,159 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.PersistentServiceProviderConsumerStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.PersistentServiceProviderTokenStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
+import hudson.XmlFile;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.newAccessToken;
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.Consumers.RSA_CONSUMER;
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.USER;
+import static com.spotify.hamcrest.optional.OptionalMatchers.emptyOptional;
+import static com.spotify.hamcrest.optional.OptionalMatchers.optionalWithValue;
+import static java.lang.System.currentTimeMillis;
+import static java.time.Duration.ofDays;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.iterableWithSize;
+
+public class OAuthStoreTransferTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File source;
+    private File target;
+
+    @Before
+    public void setup() throws IOException {
+        source = temporaryFolder.newFolder();
+        target = temporaryFolder.newFolder();
+    }
+
+    @Test
+    public void testExportedStoresAreImported() {
+        Stores from = new Stores(source);
+        from.consumerStore.add(RSA_CONSUMER);
+        from.tokenStore.put(token("token1"));
+        from.tokenStore.put(token("token2"));
+
+        Stores to = new Stores(target);
+        OAuthStoreTransfer.Summary summary = to.transfer.importFrom(export(from));
+
+        assertThat(summary.getConsumers().getImported(), is(1));
+        assertThat(summary.getTokens().getImported(), is(2));
+        assertThat(summary.getTokens().getSkipped(), is(0));
+        assertThat(to.tokenStore.getAccessTokensForUser(USER), iterableWithSize(2));
+        // Imported in one save, rather than journaled
+        assertThat(new File(target, "oauth-tokens.journal").exists(), is(false));
+        Stores restarted = new Stores(target);
+        assertThat(restarted.consumerStore.get(RSA_CONSUMER.getKey()), optionalWithValue(
+                hasProperty("name", is(RSA_CONSUMER.getName()))));
+        assertThat(restarted.tokenStore.get("token2"), optionalWithValue(
+                hasProperty("tokenSecret", is("secret-token2"))));
+    }
+
+    @Test
+    public void testImportReplacesTokenWithSameValue() {
+        Stores from = new Stores(source);
+        from.consumerStore.add(RSA_CONSUMER);
+        from.tokenStore.put(token("token1"));
+        Stores to = new Stores(target);
+        to.consumerStore.add(RSA_CONSUMER);
+        to.tokenStore.put(newAccessToken("token1")
+                .consumer(RSA_CONSUMER)
+                .tokenSecret("old-secret")
+                .authorizedBy("alice")
+                .build());
+
+        to.transfer.importFrom(export(from));
+
+        assertThat(to.tokenStore.get("token1"), optionalWithValue(hasProperty("tokenSecret", is("secret-token1"))));
+        assertThat(to.tokenStore.getAccessTokensForUser("alice"), iterableWithSize(0));
+    }
+
+    @Test
+    public void testTokenOfUnknownConsumerIsSkipped() {
+        Stores from = new Stores(source);
+        // The token is exported without its consumer
+        from.tokenStore.put(token("token1"));
+
+        Stores to = new Stores(target);
+        OAuthStoreTransfer.Summary summary = to.transfer.importFrom(export(from));
+
+        assertThat(summary.getTokens().getImported(), is(0));
+        assertThat(summary.getTokens().getSkipped(), is(1));
+        assertThat(to.tokenStore.get("token1"), emptyOptional());
+    }
+
+    @Test
+    public void testUnexpectedEntryIsSkipped() {
+        String xml = "<bitbucket-oauth><consumers><java.lang.String>consumer</java.lang.String></consumers>" +
+                     "</bitbucket-oauth>";
+
+        Stores to = new Stores(target);
+        OAuthStoreTransfer.Summary summary =
+                to.transfer.importFrom(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(summary.getConsumers().getImported(), is(0));
+        assertThat(summary.getConsumers().getSkipped(), is(1));
+    }
+
+    private static ByteArrayInputStream export(Stores stores) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stores.transfer.exportTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static ServiceProviderToken token(String value) {
+        return newAccessToken(value)
+                .consumer(RSA_CONSUMER)
+                .creationTime(currentTimeMillis())
+                .timeToLive(ofDays(1L).toMillis())
+                .tokenSecret("secret-" + value)
+                .authorizedBy(USER)
+                .build();
+    }
+
+    /**
+     * The stores of a controller whose files are kept in the given directory.
+     */
+    private static final class Stores {
+
+        private final PersistentServiceProviderConsumerStore consumerStore;
+        private final PersistentServiceProviderTokenStore tokenStore;
+        private final OAuthStoreTransfer transfer;
+
+        private Stores(File directory) {
+            consumerStore = new PersistentServiceProviderConsumerStore() {
+                @Override
+                protected XmlFile getConfigFile() {
+                    return new XmlFile(xStream, new File(directory, "oauth-consumers.xml"));
+                }
+            };
+            tokenStore = new PersistentServiceProviderTokenStore(consumerStore) {
+                @Override
+                protected XmlFile getConfigFile() {
+                    return new XmlFile(xStream, new File(directory, "oauth-tokens.xml"));
+                }
+            };
+            transfer = new OAuthStoreTransfer(consumerStore, tokenStore);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthRequestUtils;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.PersistentServiceProviderConsumerStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.PersistentServiceProviderTokenStore;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
+import hudson.XmlFile;
+import hudson.model.User;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.Consumers.RSA_CONSUMER;
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.USER;
+import static java.util.Collections.emptyEnumeration;
+import static net.oauth.OAuth.*;
+import static net.oauth.OAuthMessage.AUTH_SCHEME;
+import static org.apache.http.HttpHeaders.AUTHORIZATION;
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures the throughput of {@link OAuth1Authenticator#authenticate} under many concurrent callers, backed by the
+ * persistent consumer and token stores. Signature validation and the user lookup are stubbed out, so the results
+ * reflect the cost of the store lookups, caches and request parsing that every OAuth-authenticated request goes
+ * through.
+ */
+@JmhBenchmark
+public class OAuth1AuthenticatorBenchmark {
+
+    private static final String TOKEN = "benchmark-token";
+
+    @Benchmark
+    @Threads(16)
+    public void authenticate(AuthenticatorState state, Blackhole blackhole) throws AuthenticationFailedException {
+        blackhole.consume(state.authenticator.authenticate(state.request, state.response));
+    }
+
+    @State(Scope.Benchmark)
+    public static class AuthenticatorState {
+
+        private OAuth1Authenticator authenticator;
+        private HttpServletRequest request;
+        private HttpServletResponse response;
+        private File storeDirectory;
+
+        @Setup
+        public void setup() throws IOException {
+            storeDirectory = Files.createTempDirectory("oauth-benchmark").toFile();
+            // Saving needs a running Jenkins to encrypt the secrets, so the stores are only kept in memory
+            PersistentServiceProviderConsumerStore consumerStore = new PersistentServiceProviderConsumerStore() {
+                @Override
+                protected XmlFile getConfigFile() {
+                    return new XmlFile(xStream, new File(storeDirectory, "oauth-consumers.xml"));
+                }
+
+                @Override
+                public void save() {
+                }
+            };
+            PersistentServiceProviderTokenStore tokenStore = new PersistentServiceProviderTokenStore(consumerStore) {
+                @Override
+                protected XmlFile getConfigFile() {
+                    return new XmlFile(xStream, new File(storeDirectory, "oauth-tokens.xml"));
+                }
+
+                @Override
+                public void save() {
+                }
+
+                @Override
+                protected void saveChange(String tokenValue, ServiceProviderToken token) {
+                }
+            };
+            consumerStore.add(RSA_CONSUMER);
+            tokenStore.put(ServiceProviderToken.newAccessToken(TOKEN)
+                    .tokenSecret("benchmark-secret")
+                    .consumer(RSA_CONSUMER)
+                    .authorizedBy(USER)
+                    .build());
+
+            SecurityModeChecker securityChecker = () -> true;
+            User user = mock(User.class, withSettings().stubOnly());
+            authenticator = new OAuth1Authenticator(consumerStore, tokenStore, (message, accessor) -> {
+            }, Clock.systemUTC(), securityChecker, new OAuthRequestUtils(), new OAuthMetrics()) {
+
+                @Override
+                User getUser(String userName) {
+                    // Looking up the user requires a running Jenkins
+                    return user;
+                }
+            };
+
+            Map<String, String[]> parameters = new HashMap<>();
+            parameters.put(OAUTH_TOKEN, new String[]{TOKEN});
+            parameters.put(OAUTH_CONSUMER_KEY, new String[]{RSA_CONSUMER.getKey()});
+            parameters.put(OAUTH_SIGNATURE_METHOD, new String[]{RSA_SHA1});
+            parameters.put(OAUTH_SIGNATURE, new String[]{"signature"});
+            parameters.put(OAUTH_TIMESTAMP, new String[]{Long.toString(System.currentTimeMillis() / 1000L)});
+            parameters.put(OAUTH_NONCE, new String[]{"nonce"});
+            // Stub-only mocks do not record invocations, so they are safe to share between benchmark threads
+            request = mock(HttpServletRequest.class, withSettings().stubOnly());
+            when(request.getHeader(AUTHORIZATION)).thenReturn(AUTH_SCHEME);
+            when(request.getHeaders(AUTHORIZATION)).thenAnswer(invocation -> emptyEnumeration());
+            when(request.getParameterMap()).thenReturn(parameters);
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getRequestURL()).thenAnswer(invocation -> new StringBuffer("http://localhost/jenkins/job"));
+            response = mock(HttpServletResponse.class, withSettings().stubOnly());
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            FileUtils.deleteDirectory(storeDirectory);
+        }
+    }
+}
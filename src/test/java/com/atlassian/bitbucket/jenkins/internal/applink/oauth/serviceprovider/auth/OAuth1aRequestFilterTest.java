@@ -1,5 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
 
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics.Phase;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthRequestUtils;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.InvalidTokenException;
@@ -12,6 +14,7 @@ import net.oauth.*;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -25,6 +28,7 @@ import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.OAuth1aRequestFilter.OAUTH_REQUEST_AUTHENTICATED_ATTRIBUTE_KEY;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.Consumers.RSA_CONSUMER;
@@ -35,6 +39,12 @@ import static javax.servlet.http.HttpServletResponse.SC_UNAUTHORIZED;
 import static net.oauth.OAuth.*;
 import static net.oauth.OAuthMessage.AUTH_SCHEME;
 import static org.apache.http.HttpHeaders.AUTHORIZATION;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -97,9 +107,12 @@ public class OAuth1aRequestFilterTest {
     @Mock
     private User user;
 
+    private OAuth1Authenticator authenticator;
     private OAuth1aRequestFilter filter;
     private Map<String, String[]> rsaConsumerParameterMap;
+    private OAuthMetrics metrics;
     private ByteArrayOutputStream responseOutputStream;
+    private AtomicInteger userLookups;
 
     @Before
     public void setup() throws IOException {
@@ -120,10 +133,14 @@ public class OAuth1aRequestFilterTest {
         when(consumerStore.get(RSA_CONSUMER.getKey())).thenReturn(Optional.of(RSA_CONSUMER));
         when(securityChecker.isSecurityEnabled()).thenReturn(true);
         when(oAuthRequestUtils.isOAuthAccessAttempt(request)).thenReturn(true);
-        OAuth1Authenticator authenticator = new OAuth1Authenticator(consumerStore, store, validator, clock, securityChecker, oAuthRequestUtils) {
+        userLookups = new AtomicInteger();
+        metrics = new OAuthMetrics();
+        authenticator = new OAuth1Authenticator(consumerStore, store, validator, clock, securityChecker, oAuthRequestUtils,
+                metrics) {
 
             @Override
             User getUser(String userName) throws NoSuchUserException {
+                userLookups.incrementAndGet();
                 if (userName.equals(user.getFullName())) {
                     return user;
                 }
@@ -153,6 +170,42 @@ public class OAuth1aRequestFilterTest {
         filter.doFilter(request, response, chain);
 
         verify(trustedUnderlyingSystemAuthorizerFilter).authorize(argThat(u -> u.equals(user)), argThat(r -> r.equals(request)), isA(HttpServletResponse.class), argThat(c -> c.equals(chain)));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuthMetrics.SUCCESS)),
+                hasProperty("count", is(1L)))));
+        for (Phase phase : Phase.values()) {
+            assertThat(metrics.getTimer(phase).getCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void assertThatAccessorAndUserAreReusedForRepeatedRequests() throws Exception {
+        setupRequestWithParameters(rsaConsumerParameterMap);
+        when(store.get(TOKEN)).thenReturn(Optional.of(ACCESS_TOKEN));
+        when(user.getFullName()).thenReturn(USER);
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        ArgumentCaptor<OAuthAccessor> accessors = ArgumentCaptor.forClass(OAuthAccessor.class);
+        verify(validator, times(2)).validateMessage(any(OAuthMessage.class), accessors.capture());
+        assertThat(accessors.getAllValues().get(1), sameInstance(accessors.getAllValues().get(0)));
+        assertThat(userLookups.get(), is(1));
+        verify(trustedUnderlyingSystemAuthorizerFilter, times(2)).authorize(eq(user), eq(request),
+                isA(HttpServletResponse.class), eq(chain));
+    }
+
+    @Test
+    public void assertThatDeletedUserIsLookedUpAgain() throws Exception {
+        setupRequestWithParameters(rsaConsumerParameterMap);
+        when(store.get(TOKEN)).thenReturn(Optional.of(ACCESS_TOKEN));
+        when(user.getFullName()).thenReturn(USER);
+
+        filter.doFilter(request, response, chain);
+        authenticator.invalidateUser(USER);
+        filter.doFilter(request, response, chain);
+
+        assertThat(userLookups.get(), is(2));
     }
 
     @Test
@@ -192,6 +245,11 @@ public class OAuth1aRequestFilterTest {
 
         verify(response).setStatus(SC_UNAUTHORIZED);
         verify(response).addHeader(eq("WWW-Authenticate"), startsWith(AUTH_SCHEME));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuth.Problems.TOKEN_REJECTED)),
+                hasProperty("count", is(1L)))));
+        assertThat(metrics.getTimer(Phase.TOKEN_LOOKUP).getCount(), is(1L));
+        assertThat(metrics.getTimer(Phase.SIGNATURE_VALIDATION).getCount(), is(0L));
     }
 
     @Test
@@ -0,0 +1,86 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth;
+
+import net.oauth.OAuth;
+import net.oauth.OAuthMessage;
+import net.oauth.OAuthProblemException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import static net.oauth.OAuth.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServiceProviderOAuthValidatorTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(1);
+
+    private Clock clock;
+    private ServiceProviderOAuthValidator validator;
+
+    @Before
+    public void setup() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(NOW);
+        validator = new ServiceProviderOAuthValidator(clock);
+    }
+
+    @Test
+    public void testExpiredNoncesAreDropped() throws Exception {
+        validator.validateNonce(message("nonce", "consumer"), seconds(NOW), NOW);
+        long later = NOW + 2 * ServiceProviderOAuthValidator.MAX_TIMESTAMP_AGE;
+
+        validator.validateNonce(message("other-nonce", "consumer"), seconds(later), later);
+
+        assertThat(validator.getNonceCount(), is(1L));
+    }
+
+    @Test
+    public void testNonceMayBeReusedByAnotherConsumer() throws Exception {
+        validator.validateNonce(message("nonce", "consumer"), seconds(NOW), NOW);
+        validator.validateNonce(message("nonce", "other-consumer"), seconds(NOW), NOW);
+
+        assertThat(validator.getNonceCount(), is(2L));
+        assertThat(validator.getReplayedNonceCount(), is(0L));
+    }
+
+    @Test
+    public void testReplayedNonceIsRefused() throws Exception {
+        validator.validateNonce(message("nonce", "consumer"), seconds(NOW), NOW);
+        try {
+            validator.validateNonce(message("nonce", "consumer"), seconds(NOW), NOW);
+            fail("Expected the replayed nonce to be refused");
+        } catch (OAuthProblemException e) {
+            assertThat(e.getProblem(), is(OAuth.Problems.NONCE_USED));
+        }
+
+        assertThat(validator.getReplayedNonceCount(), is(1L));
+    }
+
+    @Test
+    public void testTimestampOutsideWindowIsRefused() throws Exception {
+        long stale = NOW - 2 * ServiceProviderOAuthValidator.MAX_TIMESTAMP_AGE;
+        try {
+            validator.validateTimestamp(message("nonce", "consumer"), seconds(stale), NOW);
+            fail("Expected the stale timestamp to be refused");
+        } catch (OAuthProblemException e) {
+            assertThat(e.getProblem(), is(OAuth.Problems.TIMESTAMP_REFUSED));
+        }
+
+        assertThat(validator.getRefusedTimestampCount(), is(1L));
+    }
+
+    private static OAuthMessage message(String nonce, String consumerKey) {
+        return new OAuthMessage("GET", "http://localhost/jenkins",
+                newList(OAUTH_NONCE, nonce, OAUTH_CONSUMER_KEY, consumerKey, OAUTH_TOKEN, "token"));
+    }
+
+    private static long seconds(long millis) {
+        return TimeUnit.MILLISECONDS.toSeconds(millis);
+    }
+}
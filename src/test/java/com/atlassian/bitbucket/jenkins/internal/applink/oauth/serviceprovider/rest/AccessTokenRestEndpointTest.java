@@ -1,6 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.rest;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.OAuthConverter;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.exception.InvalidTokenException;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenFactory;
@@ -66,6 +67,7 @@ public class AccessTokenRestEndpointTest {
     private Clock clock;
 
     private AccessTokenRestEndpoint endpoint;
+    private OAuthMetrics metrics;
 
     @Mock
     private HttpServletRequest request;
@@ -79,7 +81,8 @@ public class AccessTokenRestEndpointTest {
         when(response.getOutputStream()).thenReturn(new ByteArrayServletOutputStream(responseStream));
         when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost:8080/jenkins/access-token"));
 
-        endpoint = new AccessTokenRestEndpoint(validator, factory, tokenStore, clock);
+        metrics = new OAuthMetrics();
+        endpoint = new AccessTokenRestEndpoint(validator, factory, tokenStore, clock, metrics);
     }
 
     @Test
@@ -104,6 +107,9 @@ public class AccessTokenRestEndpointTest {
         assertThat(responseStream.toString(), is(equalTo(
                 "oauth_token=1234&oauth_token_secret=5678&oauth_expires_in=" + (DEFAULT_ACCESS_TOKEN_TTL / 1000) +
                 "&oauth_session_handle=abcd&oauth_authorization_expires_in=" + (DEFAULT_SESSION_TTL) / 1000)));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuthMetrics.SUCCESS)),
+                hasProperty("count", is(1L)))));
     }
 
     @Test
@@ -136,6 +142,9 @@ public class AccessTokenRestEndpointTest {
         verify(response).addHeader(eq("WWW-Authenticate"), startsWith("OAuth"));
         verify(response).setContentType(startsWith(OAuth.FORM_ENCODED));
         assertThat(responseStream.toString(), is(equalTo("oauth_problem=token_rejected")));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuth.Problems.TOKEN_REJECTED)),
+                hasProperty("count", is(1L)))));
     }
 
     @Test
@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.rest;
 
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenFactory;
@@ -47,6 +48,7 @@ public class RequestTokenRestEndpointTest {
     @Mock
     private OAuthValidator validator;
     private RequestTokenRestEndpoint servlet;
+    private OAuthMetrics metrics;
 
     @Mock
     private HttpServletRequest request;
@@ -61,8 +63,9 @@ public class RequestTokenRestEndpointTest {
         when(response.getOutputStream()).thenReturn(new ByteArrayServletOutputStream(responseStream));
         when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost:8080/jenkins/request-token"));
 
+        metrics = new OAuthMetrics();
         servlet =
-                new RequestTokenRestEndpoint(validator, consumerStore, factory, tokenStore);
+                new RequestTokenRestEndpoint(validator, consumerStore, factory, tokenStore, metrics);
     }
 
     @Test
@@ -86,6 +89,9 @@ public class RequestTokenRestEndpointTest {
                 containsString("oauth_token_secret=5678"),
                 containsString("oauth_callback_confirmed=true")
         ));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuthMetrics.SUCCESS)),
+                hasProperty("count", is(1L)))));
     }
 
     @Test
@@ -102,6 +108,9 @@ public class RequestTokenRestEndpointTest {
         verify(response).addHeader(eq("WWW-Authenticate"), startsWith("OAuth"));
         verify(response).setContentType(startsWith(OAuth.FORM_ENCODED));
         assertThat(responseStream.toString(), is(equalTo("oauth_problem=consumer_key_unknown")));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is(OAuth.Problems.CONSUMER_KEY_UNKNOWN)),
+                hasProperty("count", is(1L)))));
     }
 
     @Test
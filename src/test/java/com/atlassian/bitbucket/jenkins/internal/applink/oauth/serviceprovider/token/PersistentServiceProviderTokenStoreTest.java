@@ -2,6 +2,7 @@ package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.t
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.Consumer;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
@@ -12,13 +13,23 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.quality.Strictness;
+import org.mockito.stubbing.Answer;
 
+import javax.annotation.Nullable;
 import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.Session.newSession;
 import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.newAccessToken;
@@ -34,6 +45,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class PersistentServiceProviderTokenStoreTest {
@@ -115,13 +127,16 @@ public class PersistentServiceProviderTokenStoreTest {
         doAnswer(invocation -> {
             inMemoryTokenMap.clear();
             inMemoryTokenMap.putAll(persistedTokenMap);
+            tokenStore.rebuildIndexes();
             return null;
         }).when(tokenStore).load();
-        doAnswer(invocation -> {
+        Answer<Void> persist = invocation -> {
             persistedTokenMap.clear();
             persistedTokenMap.putAll(inMemoryTokenMap);
             return null;
-        }).when(tokenStore).save();
+        };
+        doAnswer(persist).when(tokenStore).save();
+        doAnswer(persist).when(tokenStore).saveChange(anyString(), any());
     }
 
     @Test
@@ -131,6 +146,24 @@ public class PersistentServiceProviderTokenStoreTest {
         assertThat(tokenStore.get("some-non-existent-token"), emptyOptional());
     }
 
+    @Test
+    public void testGetDoesNotLockOnceLoaded() throws Exception {
+        PersistentServiceProviderTokenStore store =
+                new PersistentServiceProviderTokenStore(consumerStore, persistedTokenMap);
+        store.load();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // save() holds the store's monitor while writing to disk, which lookups must not wait for
+            synchronized (store) {
+                Future<Optional<ServiceProviderToken>> token =
+                        executor.submit(() -> store.get(ACCESS_TOKEN_1.getToken()));
+                assertThat(token.get(5, TimeUnit.SECONDS), optionalWithValue(accessToken(ACCESS_TOKEN_1)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testGetAccessTokensForUser() {
         assertThat(tokenStore.getAccessTokensForUser("test-user2"),
@@ -139,6 +172,29 @@ public class PersistentServiceProviderTokenStoreTest {
         assertThat(tokenStore.getAccessTokensForUser("some-random-user"), emptyIterable());
     }
 
+    @Test
+    public void testGetAccessTokensForUserAfterTokenReplaced() {
+        ServiceProviderToken reauthorizedToken = newAccessToken(ACCESS_TOKEN_2.getToken())
+                .consumer(RSA_CONSUMER_WITH_2LO)
+                .creationTime(currentTimeMillis())
+                .timeToLive(ofDays(1L).toMillis())
+                .tokenSecret("the-secret-token5")
+                .authorizedBy("test-user5")
+                .build();
+
+        tokenStore.put(reauthorizedToken);
+
+        assertThat(tokenStore.getAccessTokensForUser("test-user3"), emptyIterable());
+        assertThat(tokenStore.getAccessTokensForUser("test-user5"), contains(accessToken(reauthorizedToken)));
+    }
+
+    @Test
+    public void testGetAccessTokensForUserAfterTokenRemoved() {
+        tokenStore.remove(ACCESS_TOKEN_2.getToken());
+
+        assertThat(tokenStore.getAccessTokensForUser("test-user3"), emptyIterable());
+    }
+
     @Test
     public void testPut() {
         ServiceProviderToken accessToken = newAccessToken("access-token")
@@ -180,6 +236,44 @@ public class PersistentServiceProviderTokenStoreTest {
                 hasEntry(is(ACCESS_TOKEN_2.getToken()), accessToken(ACCESS_TOKEN_2))));
     }
 
+    @Test
+    public void testConcurrentPutAndRemoveAreJournaledInOrder() throws Exception {
+        CountDownLatch putJournaling = new CountDownLatch(1);
+        CountDownLatch releasePut = new CountDownLatch(1);
+        List<String> journal = new CopyOnWriteArrayList<>();
+        PersistentServiceProviderTokenStore store =
+                new PersistentServiceProviderTokenStore(consumerStore, new HashMap<>()) {
+                    @Override
+                    protected synchronized void saveChange(String tokenValue, @Nullable ServiceProviderToken token) {
+                        if (token != null) {
+                            putJournaling.countDown();
+                            Uninterruptibles.awaitUninterruptibly(releasePut);
+                        }
+                        journal.add(token == null ? "remove" : "put");
+                    }
+                };
+        store.load();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> put = executor.submit(() -> store.put(ACCESS_TOKEN_1));
+            assertThat(putJournaling.await(5, TimeUnit.SECONDS), is(true));
+            Future<?> remove = executor.submit(() -> store.remove(ACCESS_TOKEN_1.getToken()));
+
+            // The removal must not change the tokens until the put has been journaled
+            assertThrows(TimeoutException.class, () -> remove.get(200, TimeUnit.MILLISECONDS));
+            assertThat(store.get(ACCESS_TOKEN_1.getToken()), optionalWithValue(accessToken(ACCESS_TOKEN_1)));
+            releasePut.countDown();
+            put.get(5, TimeUnit.SECONDS);
+            remove.get(5, TimeUnit.SECONDS);
+
+            assertThat(journal, contains("put", "remove"));
+            assertThat(store.get(ACCESS_TOKEN_1.getToken()), emptyOptional());
+        } finally {
+            releasePut.countDown();
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testRemoveNonExistentToken() {
         String token = "non-existent-token";
@@ -219,6 +313,84 @@ public class PersistentServiceProviderTokenStoreTest {
                 hasEntry(is(ACCESS_TOKEN_2.getToken()), accessToken(ACCESS_TOKEN_2))));
     }
 
+    @Test
+    public void testRemoveExpired() {
+        long now = currentTimeMillis();
+        ServiceProviderToken expiredToken = newRequestToken("expired-token")
+                .consumer(RSA_CONSUMER)
+                .creationTime(now - ofMinutes(5L).toMillis())
+                .timeToLive(ofMinutes(2L).toMillis())
+                .tokenSecret("some-random-secret")
+                .build();
+        ServiceProviderToken tokenWithExpiredSession = newAccessToken("token-with-expired-session")
+                .consumer(RSA_CONSUMER)
+                .creationTime(now)
+                .timeToLive(ofDays(2L).toMillis())
+                .tokenSecret("some-random-secret")
+                .authorizedBy("test-user4")
+                .session(newSession("expired-session")
+                        .creationTime(now - ofMinutes(10L).toMillis())
+                        .lastRenewalTime(now - ofMinutes(5L).toMillis())
+                        .timeToLive(ofMinutes(2L).toMillis())
+                        .build())
+                .build();
+        tokenStore.put(expiredToken);
+        tokenStore.put(tokenWithExpiredSession);
+        clearInvocations(tokenStore);
+
+        assertThat(tokenStore.removeExpired(), is(2));
+
+        verify(tokenStore).save();
+        assertThat(inMemoryTokenMap, aMapWithSize(4));
+        assertThat(tokenStore.removeExpired(), is(0));
+    }
+
+    @Test
+    public void testRemoveExpiredTokensKeepsTokenWithSession() {
+        long now = currentTimeMillis();
+        ServiceProviderToken expiredTokenWithSession = newAccessToken("expired-token-with-session")
+                .consumer(RSA_CONSUMER)
+                .creationTime(now - ofMinutes(5L).toMillis())
+                .timeToLive(ofMinutes(2L).toMillis())
+                .tokenSecret("some-random-secret")
+                .authorizedBy("test-user4")
+                .session(newSession("session")
+                        .creationTime(now - ofMinutes(5L).toMillis())
+                        .lastRenewalTime(now)
+                        .timeToLive(ofHours(1L).toMillis())
+                        .build())
+                .build();
+        tokenStore.put(expiredTokenWithSession);
+
+        assertThat(tokenStore.removeExpiredTokens(), is(0));
+
+        assertThat(tokenStore.get(expiredTokenWithSession.getToken()),
+                optionalWithValue(accessToken(expiredTokenWithSession)));
+    }
+
+    @Test
+    public void testRemoveExpiredTokensKeepsRenewedToken() {
+        long now = currentTimeMillis();
+        ServiceProviderToken expiredToken = newRequestToken("renewed-token")
+                .consumer(RSA_CONSUMER)
+                .creationTime(now - ofMinutes(5L).toMillis())
+                .timeToLive(ofMinutes(2L).toMillis())
+                .tokenSecret("some-random-secret")
+                .build();
+        ServiceProviderToken renewedToken = newRequestToken("renewed-token")
+                .consumer(RSA_CONSUMER)
+                .creationTime(now)
+                .timeToLive(ofMinutes(2L).toMillis())
+                .tokenSecret("some-random-secret")
+                .build();
+        tokenStore.put(expiredToken);
+        tokenStore.put(renewedToken);
+
+        assertThat(tokenStore.removeExpiredTokens(), is(0));
+
+        assertThat(tokenStore.get(renewedToken.getToken()), optionalWithValue(requestToken(renewedToken)));
+    }
+
     @Test
     public void testRemoveExpiredSessions() {
         long now = currentTimeMillis();
@@ -253,6 +425,35 @@ public class PersistentServiceProviderTokenStoreTest {
                 hasEntry(is(ACCESS_TOKEN_2.getToken()), accessToken(ACCESS_TOKEN_2))));
     }
 
+    @Test
+    public void testRemoveExpiredSessionsIndexesKeptTokenAgain() throws InterruptedException {
+        long now = currentTimeMillis();
+        ServiceProviderToken.Session expiredSession = newSession("session")
+                .creationTime(now - ofMinutes(10L).toMillis())
+                .lastRenewalTime(now - ofMinutes(5L).toMillis())
+                .timeToLive(ofMinutes(2L).toMillis())
+                .build();
+        ServiceProviderToken.Session renewedSession = newSession("session")
+                .creationTime(now - ofMinutes(10L).toMillis())
+                .lastRenewalTime(now)
+                .timeToLive(ofMillis(500L).toMillis())
+                .build();
+        UnjournaledTokenStore store = new UnjournaledTokenStore(consumerStore);
+        store.load();
+        store.put(newAccessToken("renewed-token").consumer(RSA_CONSUMER).creationTime(now)
+                .timeToLive(ofDays(1L).toMillis()).tokenSecret("secret").session(expiredSession).build());
+        // Renewed without going through put, so the index still has the expiry of the old session
+        store.replaceWithoutIndexing(newAccessToken("renewed-token").consumer(RSA_CONSUMER).creationTime(now)
+                .timeToLive(ofDays(1L).toMillis()).tokenSecret("secret").session(renewedSession).build());
+
+        assertThat(store.removeExpiredSessions(), is(0));
+        Thread.sleep(ofMillis(700L).toMillis());
+
+        assertThat(store.removeExpiredSessions(), is(1));
+        assertThat(store.get("renewed-token"), emptyOptional());
+    }
+
+    @Test
     public void testRemoveByConsumer() {
         tokenStore.removeByConsumer(RSA_CONSUMER.getKey());
 
@@ -277,6 +478,25 @@ public class PersistentServiceProviderTokenStoreTest {
                 token.getSession());
     }
 
+    private static final class UnjournaledTokenStore extends PersistentServiceProviderTokenStore {
+
+        private UnjournaledTokenStore(ServiceProviderConsumerStore consumerStore) {
+            super(consumerStore, new HashMap<>());
+        }
+
+        @Override
+        public synchronized void save() {
+        }
+
+        @Override
+        protected synchronized void saveChange(String tokenValue, @Nullable ServiceProviderToken token) {
+        }
+
+        private void replaceWithoutIndexing(ServiceProviderToken token) {
+            entityMap.put(token.getToken(), token);
+        }
+    }
+
     private static final class TokenMatcher extends TypeSafeDiagnosingMatcher<ServiceProviderToken> {
 
         private final boolean accessToken;
@@ -0,0 +1,135 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.consumer.ServiceProviderConsumerStore;
+import hudson.XmlFile;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken.newAccessToken;
+import static com.atlassian.bitbucket.jenkins.internal.applink.oauth.util.TestData.Consumers.RSA_CONSUMER;
+import static com.spotify.hamcrest.optional.OptionalMatchers.emptyOptional;
+import static com.spotify.hamcrest.optional.OptionalMatchers.optionalWithValue;
+import static java.lang.System.currentTimeMillis;
+import static java.time.Duration.ofDays;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+public class ServiceProviderTokenJournalTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private ServiceProviderConsumerStore consumerStore;
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        when(consumerStore.get(RSA_CONSUMER.getKey())).thenReturn(Optional.of(RSA_CONSUMER));
+    }
+
+    @Test
+    public void testChangesAreReplayedAfterRestart() {
+        PersistentServiceProviderTokenStore store = newStore();
+        store.put(token("token1"));
+        store.put(token("token2"));
+        store.remove("token1");
+
+        assertThat(configFile().exists(), is(false));
+        assertThat(journalFile().exists(), is(true));
+
+        PersistentServiceProviderTokenStore restarted = newStore();
+        assertThat(restarted.get("token1"), emptyOptional());
+        assertThat(restarted.get("token2"), optionalWithValue(hasProperty("tokenSecret", is("secret-token2"))));
+    }
+
+    @Test
+    public void testIncompleteRecordIsSkipped() throws IOException {
+        PersistentServiceProviderTokenStore store = newStore();
+        store.put(token("token1"));
+        // Simulates a crash part way through appending a record
+        Files.write(journalFile().toPath(), "P PG".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertThat(newStore().get("token1"), optionalWithValue(hasProperty("token", is("token1"))));
+    }
+
+    @Test
+    public void testRemovingExpiredTokensCompactsJournal() {
+        PersistentServiceProviderTokenStore store = newStore();
+        store.put(newAccessToken("expired")
+                .consumer(RSA_CONSUMER)
+                .creationTime(currentTimeMillis() - ofDays(2L).toMillis())
+                .timeToLive(ofDays(1L).toMillis())
+                .tokenSecret("secret-expired")
+                .authorizedBy("test-user")
+                .build());
+        store.put(token("token1"));
+
+        store.removeExpiredTokens();
+
+        assertThat(journalFile().exists(), is(false));
+        PersistentServiceProviderTokenStore restarted = newStore();
+        assertThat(restarted.get("expired"), emptyOptional());
+        assertThat(restarted.get("token1"), optionalWithValue(hasProperty("token", is("token1"))));
+    }
+
+    @Test
+    public void testSaveCompactsJournal() {
+        PersistentServiceProviderTokenStore store = newStore();
+        store.put(token("token1"));
+        store.save();
+
+        assertThat(configFile().exists(), is(true));
+        assertThat(journalFile().exists(), is(false));
+        assertThat(newStore().get("token1"), optionalWithValue(hasProperty("token", is("token1"))));
+    }
+
+    private File configFile() {
+        return new File(directory, "oauth-tokens.xml");
+    }
+
+    private File journalFile() {
+        return new File(directory, "oauth-tokens.journal");
+    }
+
+    private PersistentServiceProviderTokenStore newStore() {
+        return new PersistentServiceProviderTokenStore(consumerStore) {
+            @Override
+            protected XmlFile getConfigFile() {
+                return new XmlFile(xStream, configFile());
+            }
+        };
+    }
+
+    private static ServiceProviderToken token(String value) {
+        return newAccessToken(value)
+                .consumer(RSA_CONSUMER)
+                .creationTime(currentTimeMillis())
+                .timeToLive(ofDays(1L).toMillis())
+                .tokenSecret("secret-" + value)
+                .authorizedBy("test-user")
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token;
+
+import hudson.util.StreamTaskListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+
+public class ServiceProviderTokenReaperTest {
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+
+    @InjectMocks
+    private ServiceProviderTokenReaper reaper;
+    @Mock
+    private ServiceProviderTokenStore tokenStore;
+
+    @Test
+    public void testExecuteRemovesExpiredTokensAndSessions() {
+        when(tokenStore.removeExpired()).thenReturn(3);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        reaper.execute(new StreamTaskListener(log, StandardCharsets.UTF_8));
+
+        verify(tokenStore).removeExpired();
+        verifyNoMoreInteractions(tokenStore);
+        assertThat(new String(log.toByteArray(), StandardCharsets.UTF_8),
+                containsString("Removed 3 expired OAuth tokens and sessions"));
+    }
+}
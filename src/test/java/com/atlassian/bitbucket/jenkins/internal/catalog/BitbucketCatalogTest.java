@@ -0,0 +1,194 @@
+package com.atlassian.bitbucket.jenkins.internal.catalog;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketSearchClient;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.atlassian.bitbucket.jenkins.internal.model.RepositoryState;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BitbucketCatalogTest {
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final BitbucketCredentials CREDENTIALS = () -> "Bearer token";
+    private static final BitbucketProject PROJECT = new BitbucketProject("PROJ", null, "My Project");
+    private static final BitbucketProject OTHER_PROJECT = new BitbucketProject("OTHER", null, "Other");
+
+    private BitbucketCatalog catalog;
+    @Mock
+    private BitbucketClientFactory clientFactory;
+    @Mock
+    private BitbucketClientFactoryProvider clientFactoryProvider;
+    @Mock
+    private BitbucketSearchClient searchClient;
+    @Mock
+    private BitbucketServerConfiguration server;
+
+    @Before
+    public void setup() {
+        when(server.getId()).thenReturn("server-id");
+        when(server.getBaseUrl()).thenReturn(BASE_URL);
+        when(clientFactoryProvider.getClient(eq(BASE_URL), any(BitbucketCredentials.class))).thenReturn(clientFactory);
+        when(clientFactory.getSearchClient("")).thenReturn(searchClient);
+        when(searchClient.streamProjects()).thenAnswer(invocation -> Stream.of(PROJECT, OTHER_PROJECT));
+        when(searchClient.streamRepositories()).thenAnswer(invocation -> Stream.of(
+                repository(PROJECT, "Web App", "web-app"),
+                repository(PROJECT, "api", "api"),
+                repository(OTHER_PROJECT, "web-tools", "web-tools")));
+        // Loads run on the calling thread, so a catalog is loaded by the first lookup
+        catalog = new BitbucketCatalog(clientFactoryProvider, Runnable::run);
+    }
+
+    @Test
+    public void testFindProjectsMatchesWordPrefix() {
+        assertThat(catalog.findProjects(server, CREDENTIALS, "proj"), is(Optional.empty()));
+
+        assertThat(names(catalog.findProjects(server, CREDENTIALS, "proj").get()), contains("My Project"));
+        assertThat(names(catalog.findProjects(server, CREDENTIALS, "MY").get()), contains("My Project"));
+        assertThat(catalog.findProjects(server, CREDENTIALS, "ject").get(), is(empty()));
+    }
+
+    @Test
+    public void testFindRepositoriesOnlyInProject() {
+        catalog.findProjects(server, CREDENTIALS, "");
+
+        List<BitbucketRepository> repositories =
+                catalog.findRepositories(server, CREDENTIALS, "My Project", "web").get();
+
+        assertThat(repositories.stream().map(BitbucketRepository::getName).collect(Collectors.toList()),
+                contains("Web App"));
+        assertThat(catalog.findRepositories(server, CREDENTIALS, "Missing", "web"), is(Optional.empty()));
+    }
+
+    @Test
+    public void testGetRepositoryByNameOrSlug() {
+        catalog.findProjects(server, CREDENTIALS, "");
+
+        assertThat(catalog.getRepository(server, CREDENTIALS, "proj", "web app").get().getSlug(), is("web-app"));
+        assertThat(catalog.getRepository(server, CREDENTIALS, "My Project", "WEB-APP").get().getSlug(),
+                is("web-app"));
+        assertThat(catalog.getRepository(server, CREDENTIALS, "My Project", "web-tools"), is(Optional.empty()));
+    }
+
+    @Test
+    public void testCredentialsAreCataloguedSeparately() {
+        catalog.findProjects(server, CREDENTIALS, "");
+
+        assertThat(catalog.findProjects(server, () -> "Bearer other-token", ""), is(Optional.empty()));
+        assertThat(catalog.size(), is(2));
+        verify(searchClient, times(2)).streamProjects();
+    }
+
+    @Test
+    public void testUpdateRenamesRepository() {
+        catalog.findProjects(server, CREDENTIALS, "");
+
+        catalog.update(repository(PROJECT, "Frontend", "web-app"));
+
+        assertThat(catalog.getRepository(server, CREDENTIALS, "PROJ", "frontend").get().getSlug(), is("web-app"));
+        assertThat(catalog.findRepositories(server, CREDENTIALS, "PROJ", "web").get(), is(empty()));
+    }
+
+    @Test
+    public void testUpdateOnlyAffectsServerOfWebhook() {
+        String otherBaseUrl = "http://other-bitbucket.example.com";
+        BitbucketServerConfiguration otherServer = mock(BitbucketServerConfiguration.class);
+        when(otherServer.getId()).thenReturn("other-server-id");
+        when(otherServer.getBaseUrl()).thenReturn(otherBaseUrl);
+        when(clientFactoryProvider.getClient(eq(otherBaseUrl), any(BitbucketCredentials.class)))
+                .thenReturn(clientFactory);
+        catalog.findProjects(server, CREDENTIALS, "");
+        catalog.findProjects(otherServer, CREDENTIALS, "");
+
+        catalog.update(new BitbucketRepository(1, "Frontend", PROJECT, "web-app", RepositoryState.AVAILABLE,
+                emptyList(), otherBaseUrl + "/projects/PROJ/repos/web-app/browse"));
+
+        assertThat(catalog.getRepository(server, CREDENTIALS, "PROJ", "web-app").get().getName(), is("Web App"));
+        assertThat(catalog.getRepository(otherServer, CREDENTIALS, "PROJ", "web-app").get().getName(),
+                is("Frontend"));
+    }
+
+    @Test
+    public void testUpdateDoesNotAffectServerWithSharedBaseUrlPrefix() {
+        String otherBaseUrl = BASE_URL + "/bitbucket";
+        String longerBaseUrl = BASE_URL + "/bitbucket2";
+        when(server.getBaseUrl()).thenReturn(otherBaseUrl + "/");
+        when(clientFactoryProvider.getClient(eq(otherBaseUrl + "/"), any(BitbucketCredentials.class)))
+                .thenReturn(clientFactory);
+        BitbucketServerConfiguration longerServer = mock(BitbucketServerConfiguration.class);
+        when(longerServer.getId()).thenReturn("longer-server-id");
+        when(longerServer.getBaseUrl()).thenReturn(longerBaseUrl);
+        when(clientFactoryProvider.getClient(eq(longerBaseUrl), any(BitbucketCredentials.class)))
+                .thenReturn(clientFactory);
+        catalog.findProjects(server, CREDENTIALS, "");
+        catalog.findProjects(longerServer, CREDENTIALS, "");
+
+        catalog.update(new BitbucketRepository(1, "Frontend", PROJECT, "web-app", RepositoryState.AVAILABLE,
+                emptyList(), longerBaseUrl + "/projects/PROJ/repos/web-app/browse"));
+
+        assertThat(catalog.getRepository(server, CREDENTIALS, "PROJ", "web-app").get().getName(), is("Web App"));
+        assertThat(catalog.getRepository(longerServer, CREDENTIALS, "PROJ", "web-app").get().getName(),
+                is("Frontend"));
+    }
+
+    @Test
+    public void testUpdateWithRenamedProjectLoadsCatalogAgain() {
+        catalog.findProjects(server, CREDENTIALS, "");
+
+        catalog.update(repository(new BitbucketProject("PROJ", null, "Renamed"), "Web App", "web-app"));
+
+        assertThat(catalog.findProjects(server, CREDENTIALS, ""), is(Optional.empty()));
+        verify(searchClient, times(2)).streamProjects();
+    }
+
+    @Test
+    public void testUnauthorizedCatalogIsDropped() {
+        when(searchClient.streamProjects()).thenThrow(new AuthorizationException("Unauthorized", 401, null));
+
+        assertThat(catalog.findProjects(server, CREDENTIALS, ""), is(Optional.empty()));
+
+        assertThat(catalog.size(), is(0));
+    }
+
+    @Test
+    public void testSynchronizeLoadsCatalogsAgain() {
+        catalog.findProjects(server, CREDENTIALS, "");
+        when(searchClient.streamProjects()).thenAnswer(invocation -> Stream.of(PROJECT));
+        when(searchClient.streamRepositories()).thenAnswer(invocation -> Stream.empty());
+
+        catalog.synchronize();
+
+        assertThat(names(catalog.findProjects(server, CREDENTIALS, "").get()), contains("My Project"));
+        assertThat(catalog.findRepositories(server, CREDENTIALS, "PROJ", "").get(), is(emptyList()));
+    }
+
+    private static List<String> names(List<BitbucketProject> projects) {
+        return projects.stream().map(BitbucketProject::getName).collect(Collectors.toList());
+    }
+
+    private static BitbucketRepository repository(BitbucketProject project, String name, String slug) {
+        return new BitbucketRepository(1, name, project, slug, RepositoryState.AVAILABLE, emptyList(), null);
+    }
+}
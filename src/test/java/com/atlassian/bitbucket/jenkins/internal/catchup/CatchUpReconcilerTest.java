@@ -0,0 +1,249 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketBuildStatusClient;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketDeploymentClient;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BadRequestException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.RateLimitedException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ServerErrorException;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.credentials.GlobalCredentialsProvider;
+import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeploymentEnvironment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.DeploymentState;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import okhttp3.Headers;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore.STORE_FILE_NAME;
+import static com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore.XSTREAM;
+import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.SUCCESSFUL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class CatchUpReconcilerTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final BitbucketDeployment DEPLOYMENT = new BitbucketDeployment(1, "description", "name",
+            new BitbucketDeploymentEnvironment("prod", "Production"), "key", DeploymentState.SUCCESSFUL,
+            "http://url");
+    private static final ServerErrorException ERROR = new ServerErrorException("Bitbucket is down", 503, "");
+    private static final String REVISION_SHA = "67d71c2133aab0e070fb8100e3e71220332c5af1";
+    private static final String RUN_ID = "job#1";
+    private static final String SERVER_ID = "serverId";
+    private static final BitbucketSCMRepository repository =
+            new BitbucketSCMRepository(null, null, "Project", "PROJ", "Repo", "repo", SERVER_ID, "");
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BitbucketBuildStatusClient buildStatusClient;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private BitbucketClientFactory clientFactory;
+    @Mock
+    private BitbucketClientFactoryProvider clientFactoryProvider;
+    private BitbucketDeploymentClient deploymentClient;
+    private File directory;
+    @Mock
+    private JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
+    @Mock
+    private BitbucketPluginConfiguration pluginConfiguration;
+    @Mock
+    private Run<?, ?> run;
+    @Mock
+    private BitbucketServerConfiguration server;
+    private FailedPostStore store;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        store = new TestStore();
+        when(run.getExternalizableId()).thenReturn(RUN_ID);
+        when(pluginConfiguration.getServerById(SERVER_ID)).thenReturn(Optional.of(server));
+        GlobalCredentialsProvider globalCredentialsProvider = mock(GlobalCredentialsProvider.class);
+        when(globalCredentialsProvider.getGlobalAdminCredentials()).thenReturn(Optional.empty());
+        when(server.getGlobalCredentialsProvider(nullable(Item.class))).thenReturn(globalCredentialsProvider);
+        when(clientFactoryProvider.getClient(any(), any())).thenReturn(clientFactory);
+        buildStatusClient = clientFactory.getProjectClient("PROJ").getRepositoryClient("repo")
+                .getBuildStatusClient(REVISION_SHA);
+        deploymentClient = clientFactory.getProjectClient("PROJ").getRepositoryClient("repo")
+                .getDeploymentClient(REVISION_SHA);
+    }
+
+    @Test
+    public void testBatchSizeLimitsPostsPerRun() {
+        recordBuildStatus("key1");
+        recordBuildStatus("key2");
+        CatchUpReconciler reconciler = newReconciler(1, Long.MAX_VALUE);
+
+        reconciler.execute(TaskListener.NULL);
+
+        verify(buildStatusClient).post(any(), any());
+        assertThat(store.size(), is(1));
+
+        reconciler.execute(TaskListener.NULL);
+
+        verify(buildStatusClient, times(2)).post(any(), any());
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void testPendingUpdatesArePosted() {
+        recordBuildStatus("key");
+        store.recordDeployment(repository, REVISION_SHA, DEPLOYMENT, run, ERROR);
+
+        newReconciler(50, Long.MAX_VALUE).execute(TaskListener.NULL);
+
+        verify(buildStatusClient).post(any(BitbucketBuildStatus.Builder.class), any());
+        verify(deploymentClient).post(eq(DEPLOYMENT));
+        assertThat(store.size(), is(0));
+        assertThat(store.getDeliveredCount(), is(2L));
+    }
+
+    @Test
+    public void testRateLimitedServerIsLeftAlone() {
+        doThrow(new RateLimitedException("Too many requests", 429, "", Headers.of("Retry-After", "60")))
+                .when(buildStatusClient).post(any(), any());
+        recordBuildStatus("key1");
+        recordBuildStatus("key2");
+        CatchUpReconciler reconciler = newReconciler(50, Long.MAX_VALUE);
+
+        reconciler.execute(TaskListener.NULL);
+        reconciler.execute(TaskListener.NULL);
+
+        verify(buildStatusClient).post(any(), any());
+        assertThat(store.size(), is(2));
+    }
+
+    @Test
+    public void testUpdateReplacedAfterBatchWasReadIsNotPosted() {
+        recordBuildStatus("key");
+        // Simulates a newer status being recorded for the same key while the batch is being posted
+        CatchUpReconciler reconciler = newReconciler(50, Long.MAX_VALUE, () -> recordBuildStatus("key"));
+
+        reconciler.execute(TaskListener.NULL);
+
+        verify(buildStatusClient, never()).post(any(), any());
+        assertThat(store.size(), is(1));
+        assertThat(store.getPending().get(0).getAttempts(), is(1));
+        assertThat(store.getDeliveredCount(), is(0L));
+    }
+
+    @Test
+    public void testUpdateResolvedAfterBatchWasReadIsNotPosted() {
+        recordBuildStatus("key");
+        // Simulates a newer status being posted for the same key while the batch is being posted
+        CatchUpReconciler reconciler = newReconciler(50, Long.MAX_VALUE,
+                () -> store.resolveBuildStatus(SERVER_ID, repository, REVISION_SHA, "key"));
+
+        reconciler.execute(TaskListener.NULL);
+
+        verify(buildStatusClient, never()).post(any(), any());
+        assertThat(store.size(), is(0));
+        assertThat(store.getDeliveredCount(), is(0L));
+    }
+
+    @Test
+    public void testRejectedUpdateIsAbandoned() {
+        doThrow(new BadRequestException("Bad request", 400, "")).when(deploymentClient).post(any());
+        store.recordDeployment(repository, REVISION_SHA, DEPLOYMENT, run, ERROR);
+        recordBuildStatus("key");
+
+        newReconciler(50, Long.MAX_VALUE).execute(TaskListener.NULL);
+
+        verify(buildStatusClient).post(any(), any());
+        assertThat(store.size(), is(0));
+        assertThat(store.getAbandonedCount(), is(1L));
+    }
+
+    @Test
+    public void testUnavailableServerStopsBatch() {
+        doThrow(ERROR).when(buildStatusClient).post(any(), any());
+        recordBuildStatus("key1");
+        recordBuildStatus("key2");
+
+        newReconciler(50, Long.MAX_VALUE).execute(TaskListener.NULL);
+
+        verify(buildStatusClient).post(any(), any());
+        assertThat(store.size(), is(2));
+        // The update that failed again goes to the back of the queue
+        assertThat(store.getPending().get(1).getAttempts(), is(2));
+    }
+
+    @Test
+    public void testUpdatesOlderThanHorizonAreAbandoned() {
+        recordBuildStatus("key");
+
+        newReconciler(50, 0).execute(TaskListener.NULL);
+
+        verifyNoInteractions(clientFactoryProvider);
+        assertThat(store.size(), is(0));
+        assertThat(store.getAbandonedCount(), is(1L));
+    }
+
+    private CatchUpReconciler newReconciler(int batchSize, long horizon) {
+        return newReconciler(batchSize, horizon, () -> { });
+    }
+
+    private CatchUpReconciler newReconciler(int batchSize, long horizon, Runnable beforePost) {
+        return new CatchUpReconciler(clientFactoryProvider, jenkinsToBitbucketCredentials, pluginConfiguration, store,
+                batchSize, horizon) {
+            @CheckForNull
+            @Override
+            Run<?, ?> getRun(String runId) {
+                // Looked up after the batch is read and before each update is posted
+                beforePost.run();
+                return RUN_ID.equals(runId) ? run : null;
+            }
+        };
+    }
+
+    private void recordBuildStatus(String key) {
+        store.recordBuildStatus(SERVER_ID, repository, REVISION_SHA, new BitbucketBuildStatus.Builder(key, SUCCESSFUL,
+                "url"), run, ERROR);
+    }
+
+    private class TestStore extends FailedPostStore {
+
+        @Override
+        XmlFile getStoreFile() {
+            return new XmlFile(XSTREAM, new File(directory, STORE_FILE_NAME));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.atlassian.bitbucket.jenkins.internal.catchup;
+
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ServerErrorException;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.BuildState;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeploymentEnvironment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.DeploymentState;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.XmlFile;
+import hudson.model.Run;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore.STORE_FILE_NAME;
+import static com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore.XSTREAM;
+import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.INPROGRESS;
+import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.SUCCESSFUL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+public class FailedPostStoreTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final BitbucketClientException ERROR = new ServerErrorException("Bitbucket is down", 503, "");
+    private static final String REVISION_SHA = "67d71c2133aab0e070fb8100e3e71220332c5af1";
+    private static final String SERVER_ID = "serverId";
+    private static final BitbucketSCMRepository repository =
+            new BitbucketSCMRepository(null, null, "Project", "PROJ", "Repo", "repo", SERVER_ID, "");
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    @Mock
+    private Run<?, ?> run;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        when(run.getExternalizableId()).thenReturn("job#1");
+    }
+
+    @Test
+    public void testDeliveredDoesNotRemoveNewerUpdate() {
+        FailedPostStore store = new TestStore();
+        recordBuildStatus(store, "key", INPROGRESS);
+        FailedPost replayed = store.getPending().get(0);
+        recordBuildStatus(store, "key", SUCCESSFUL);
+
+        store.delivered(replayed);
+
+        assertThat(store.size(), is(1));
+        assertThat(store.getDeliveredCount(), is(0L));
+        assertThat(store.getPending().get(0).getDescription(), containsString("SUCCESSFUL"));
+    }
+
+    @Test
+    public void testNewestUpdateReplacesOlder() {
+        FailedPostStore store = new TestStore();
+
+        recordBuildStatus(store, "key", INPROGRESS);
+        recordBuildStatus(store, "key", SUCCESSFUL);
+        recordBuildStatus(store, "key2", SUCCESSFUL);
+        recordDeployment(store, "prod", DeploymentState.IN_PROGRESS);
+        recordDeployment(store, "prod", DeploymentState.SUCCESSFUL);
+
+        List<FailedPost> pending = store.getPending();
+        assertThat(pending.size(), is(3));
+        assertThat(pending.get(0).getDescription(), containsString("SUCCESSFUL"));
+        assertThat(pending.get(2).getDescription(), containsString("SUCCESSFUL"));
+    }
+
+    @Test
+    public void testPendingUpdatesArePersisted() {
+        FailedPostStore store = new TestStore();
+        recordBuildStatus(store, "key", SUCCESSFUL);
+        recordDeployment(store, "prod", DeploymentState.FAILED);
+
+        List<FailedPost> restarted = new TestStore().getPending();
+
+        assertThat(restarted.size(), is(2));
+        assertThat(restarted.get(0) instanceof FailedBuildStatusPost, is(true));
+        assertThat(restarted.get(1) instanceof FailedDeploymentPost, is(true));
+        assertThat(restarted.get(1).getLastError(), is("Bitbucket is down"));
+    }
+
+    @Test
+    public void testResolveRemovesPendingUpdate() {
+        FailedPostStore store = new TestStore();
+        recordBuildStatus(store, "key", INPROGRESS);
+        recordBuildStatus(store, "key2", INPROGRESS);
+        recordDeployment(store, "prod", DeploymentState.IN_PROGRESS);
+
+        store.resolveBuildStatus(SERVER_ID, repository, REVISION_SHA, "key");
+        store.resolveDeployment(repository, REVISION_SHA, "prod");
+
+        assertThat(store.size(), is(1));
+        assertThat(new TestStore().size(), is(1));
+    }
+
+    @Test
+    public void testRetriedMovesUpdateToBack() {
+        FailedPostStore store = new TestStore();
+        recordBuildStatus(store, "key", SUCCESSFUL);
+        recordBuildStatus(store, "key2", SUCCESSFUL);
+        FailedPost first = store.getPending().get(0);
+
+        store.retried(first, "Still down");
+
+        List<FailedPost> pending = store.getPending();
+        assertThat(pending.get(1), is(first));
+        assertThat(first.getAttempts(), is(2));
+        assertThat(first.getLastError(), is("Still down"));
+    }
+
+    private void recordBuildStatus(FailedPostStore store, String key, BuildState state) {
+        store.recordBuildStatus(SERVER_ID, repository, REVISION_SHA, new BitbucketBuildStatus.Builder(key, state,
+                "url"), run, ERROR);
+    }
+
+    private void recordDeployment(FailedPostStore store, String environmentKey, DeploymentState state) {
+        store.recordDeployment(repository, REVISION_SHA, new BitbucketDeployment(1, "description", "name",
+                new BitbucketDeploymentEnvironment(environmentKey, environmentKey), "key", state, "http://url"), run,
+                ERROR);
+    }
+
+    private class TestStore extends FailedPostStore {
+
+        @Override
+        XmlFile getStoreFile() {
+            return new XmlFile(XSTREAM, new File(directory, STORE_FILE_NAME));
+        }
+    }
+}
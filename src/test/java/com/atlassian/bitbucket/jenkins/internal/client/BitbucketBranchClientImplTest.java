@@ -4,6 +4,7 @@ import com.atlassian.bitbucket.jenkins.internal.fixture.FakeRemoteHttpServer;
 import com.atlassian.bitbucket.jenkins.internal.http.HttpRequestExecutorImpl;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketPage;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRefType;
 import hudson.model.TaskListener;
 import org.hamcrest.MatcherAssert;
 import org.junit.Before;
@@ -19,6 +20,8 @@ import java.util.stream.Collectors;
 import static com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials.ANONYMOUS_CREDENTIALS;
 import static com.atlassian.bitbucket.jenkins.internal.util.TestUtils.*;
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toSet;
 import static okhttp3.HttpUrl.parse;
 import static org.hamcrest.core.Is.is;
@@ -113,4 +116,35 @@ public class BitbucketBranchClientImplTest {
         assertTrue(nextPage.getValues().isEmpty());
         assertTrue(nextPage.isLastPage());
     }
+
+    @Test
+    public void testNextPageFetchingStopsAtUnmodifiedBranch() {
+        BitbucketBranchClientImpl.NextPageFetcherImpl fetcher =
+                new BitbucketBranchClientImpl.NextPageFetcherImpl(parse(BITBUCKET_BASE_URL), bitbucketRequestExecutor,
+                        Integer.MAX_VALUE, branch -> "refs/heads/master".equals(branch.getId()), taskListener);
+        BitbucketPage<BitbucketDefaultBranch> page = new BitbucketPage<>();
+        page.setNextPageStart(2);
+        page.setValues(singletonList(new BitbucketDefaultBranch("refs/heads/master", "master",
+                BitbucketRefType.BRANCH, "abc", "abc", true)));
+
+        // No response is mapped for the next page, so this would fail if a request was made
+        BitbucketPage<BitbucketDefaultBranch> nextPage = fetcher.next(page);
+
+        assertTrue(nextPage.getValues().isEmpty());
+        assertTrue(nextPage.isLastPage());
+    }
+
+    @Test
+    public void testGetRemoteBranchesModifiedSince() {
+        String response = readFileToString("/branches.json");
+        String url = format(BRANCHES_URL, BITBUCKET_BASE_URL, PROJECT_KEY, REPO_SLUG);
+        fakeRemoteHttpServer.mapUrlToResult(url, response);
+
+        BitbucketBranchClient branchClient = client.getBranchClient(taskListener);
+        List<BitbucketDefaultBranch> branchList = branchClient.getRemoteBranchesModifiedSince(
+                emptyMap()).collect(Collectors.toList());
+
+        assertEquals(branchList.size(), 1);
+        assertEquals(branchList.get(0).getDisplayId(), "master");
+    }
 }
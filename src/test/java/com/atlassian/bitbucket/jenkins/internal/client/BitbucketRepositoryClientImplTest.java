@@ -31,6 +31,7 @@ import static com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCred
 import static com.atlassian.bitbucket.jenkins.internal.util.TestUtils.*;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static okhttp3.HttpUrl.parse;
@@ -135,6 +136,36 @@ public class BitbucketRepositoryClientImplTest {
         assertThat(next.isLastPage(), is(true));
     }
 
+    @Test
+    public void testFetchingPullRequestsUpdatedSince() {
+        String response = readFileToString("/open-pull-requests.json");
+        String pullRequestsUrl = "%s/rest/api/1.0/projects/%s/repos/%s/pull-requests?withAttributes=false&withProperties=false&state=ALL&order=NEWEST";
+        String url = format(pullRequestsUrl, BITBUCKET_BASE_URL, PROJECT_KEY, REPO_SLUG);
+        fakeRemoteHttpServer.mapUrlToResult(url, response);
+
+        List<BitbucketPullRequest> pullRequests = client.getPullRequestsUpdatedSince(0).collect(toList());
+
+        assertThat(pullRequests.stream().map(BitbucketPullRequest::getId).collect(toSet()), hasItems(new Long(96), new Long(97)));
+    }
+
+    @Test
+    public void testNextPageFetchingStopsAtPullRequestUpdatedBefore() {
+        BitbucketRepositoryClientImpl.NextPageFetcherImpl fetcher = new BitbucketRepositoryClientImpl.NextPageFetcherImpl(
+                parse(BITBUCKET_BASE_URL), bitbucketRequestExecutor, pullRequest -> pullRequest.getUpdatedDate() < 10);
+        BitbucketPage<BitbucketPullRequest> page = new BitbucketPage<>();
+        page.setNextPageStart(2);
+        BitbucketPullRequestRef ref = new BitbucketPullRequestRef("refs/heads/master", "master",
+                mock(BitbucketRepository.class), "abc");
+        page.setValues(singletonList(new BitbucketPullRequest(1, BitbucketPullRequestState.OPEN,
+                ref, ref, 5, "title", null)));
+
+        // No response is mapped for the next page, so this would fail if a request was made
+        BitbucketPage<BitbucketPullRequest> next = fetcher.next(page);
+
+        assertTrue(next.getValues().isEmpty());
+        assertThat(next.isLastPage(), is(true));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLastPageDoesNotHaveNext() {
         BitbucketRepositoryClientImpl.NextPageFetcherImpl fetcher = new BitbucketRepositoryClientImpl.NextPageFetcherImpl(parse(BITBUCKET_BASE_URL), bitbucketRequestExecutor);
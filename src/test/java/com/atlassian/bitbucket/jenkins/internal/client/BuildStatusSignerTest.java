@@ -0,0 +1,107 @@
+package com.atlassian.bitbucket.jenkins.internal.client;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.BuildState;
+import com.atlassian.bitbucket.jenkins.internal.provider.InstanceKeyPairProvider;
+import com.atlassian.bitbucket.jenkins.internal.util.TestUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.annotation.Nullable;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BuildStatusSignerTest {
+
+    private static KeyPair keyPair;
+
+    @Mock
+    private InstanceKeyPairProvider keyPairProvider;
+    private BuildStatusSigner signer;
+
+    @BeforeClass
+    public static void init() {
+        keyPair = TestUtils.createTestKeyPair();
+    }
+
+    @Before
+    public void setup() {
+        when(keyPairProvider.getPrivate()).thenReturn((RSAPrivateKey) keyPair.getPrivate());
+        signer = new BuildStatusSigner(keyPairProvider);
+    }
+
+    @Test
+    public void testGetAlgorithm() {
+        assertThat(signer.getAlgorithm(), equalTo("SHA256withRSA"));
+    }
+
+    @Test
+    public void testKeyIsLookedUpOnce() throws GeneralSecurityException {
+        signer.sign(createBuildStatus("refs/heads/master"));
+        signer.sign(createBuildStatus(null));
+        signer.getAlgorithm();
+
+        verify(keyPairProvider, times(1)).getPrivate();
+    }
+
+    @Test
+    public void testSignaturesAreValidWhenSignatureIsReused() throws GeneralSecurityException {
+        BitbucketBuildStatus first = createBuildStatus("refs/heads/master");
+        BitbucketBuildStatus second = createBuildStatus(null);
+
+        assertThat(verify(first, signer.sign(first)), is(true));
+        assertThat(verify(second, signer.sign(second)), is(true));
+        assertThat(verify(first, signer.sign(first)), is(true));
+    }
+
+    @Test
+    public void testSignOnSeveralThreads() throws Exception {
+        BitbucketBuildStatus buildStatus = createBuildStatus("refs/heads/master");
+        CompletableFuture<String> otherThread = CompletableFuture.supplyAsync(() -> {
+            try {
+                return signer.sign(buildStatus);
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertThat(verify(buildStatus, signer.sign(buildStatus)), is(true));
+        assertThat(verify(buildStatus, otherThread.get()), is(true));
+    }
+
+    private static BitbucketBuildStatus createBuildStatus(@Nullable String ref) {
+        return new BitbucketBuildStatus.Builder("REPO-42", BuildState.FAILED, "http://example.com/builds/repo-42")
+                .setRef(ref)
+                .build();
+    }
+
+    private static boolean verify(BitbucketBuildStatus buildStatus, String signature)
+            throws GeneralSecurityException {
+        Signature verifySignature = Signature.getInstance("SHA256withRSA");
+        verifySignature.initVerify(keyPair.getPublic());
+        verifySignature.update(buildStatus.getKey().getBytes(UTF_8));
+        if (buildStatus.getRef() != null) {
+            verifySignature.update(buildStatus.getRef().getBytes(UTF_8));
+        }
+        verifySignature.update(buildStatus.getState().getBytes(UTF_8));
+        verifySignature.update(buildStatus.getUrl().getBytes(UTF_8));
+        return verifySignature.verify(Base64.getDecoder().decode(signature));
+    }
+}
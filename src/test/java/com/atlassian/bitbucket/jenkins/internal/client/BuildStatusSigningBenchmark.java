@@ -0,0 +1,90 @@
+package com.atlassian.bitbucket.jenkins.internal.client;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.BuildState;
+import com.atlassian.bitbucket.jenkins.internal.model.TestResults;
+import com.atlassian.bitbucket.jenkins.internal.provider.InstanceKeyPairProvider;
+import com.atlassian.bitbucket.jenkins.internal.util.TestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares preparing a build status for posting with a {@link BuildStatusSigner} and serializing it straight to bytes,
+ * against looking up the key, creating a {@link Signature} and serializing the status to a {@code String} for every
+ * post, as was done before. The instance key is held in memory, so the results do not include the cost of looking up
+ * the instance identity.
+ */
+@JmhBenchmark
+public class BuildStatusSigningBenchmark {
+
+    @Benchmark
+    @Threads(8)
+    public void prepareWithSigner(SigningState state, Blackhole blackhole) throws Exception {
+        blackhole.consume(state.signer.sign(state.buildStatus));
+        blackhole.consume(state.signer.getAlgorithm());
+        blackhole.consume(state.objectMapper.writeValueAsBytes(state.buildStatus));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void preparePerPost(SigningState state, Blackhole blackhole) throws Exception {
+        RSAPrivateKey key = state.keyPairProvider.getPrivate();
+        String algorithm = "SHA256with" + key.getAlgorithm();
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initSign(key);
+        signature.update(state.buildStatus.getKey().getBytes(UTF_8));
+        signature.update(state.buildStatus.getRef().getBytes(UTF_8));
+        signature.update(state.buildStatus.getState().getBytes(UTF_8));
+        signature.update(state.buildStatus.getUrl().getBytes(UTF_8));
+        blackhole.consume(Base64.getEncoder().encodeToString(signature.sign()));
+        blackhole.consume(algorithm);
+        // The request body encodes the String again
+        blackhole.consume(state.objectMapper.writeValueAsString(state.buildStatus).getBytes(UTF_8));
+    }
+
+    @State(Scope.Benchmark)
+    public static class SigningState {
+
+        private BitbucketBuildStatus buildStatus;
+        private InstanceKeyPairProvider keyPairProvider;
+        private ObjectMapper objectMapper;
+        private BuildStatusSigner signer;
+
+        @Setup
+        public void setup() throws GeneralSecurityException {
+            KeyPair keyPair = TestUtils.createTestKeyPair();
+            keyPairProvider = new InstanceKeyPairProvider() {
+                @Override
+                public RSAPrivateKey getPrivate() {
+                    return (RSAPrivateKey) keyPair.getPrivate();
+                }
+
+                @Override
+                public RSAPublicKey getPublic() {
+                    return (RSAPublicKey) keyPair.getPublic();
+                }
+            };
+            buildStatus = new BitbucketBuildStatus.Builder("REPO-42", BuildState.SUCCESSFUL,
+                    "http://localhost:8080/jenkins/job/repo/42/")
+                    .setDescription("Build #42 succeeded")
+                    .setTestResults(new TestResults(420, 2, 12))
+                    .setName("repo master #42")
+                    .setDuration(123456L)
+                    .setRef("refs/heads/master")
+                    .build();
+            objectMapper = new ObjectMapper();
+            signer = new BuildStatusSigner(keyPairProvider);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.atlassian.bitbucket.jenkins.internal.config;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketNamedLink;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketProject;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRepository;
+import com.atlassian.bitbucket.jenkins.internal.model.RepositoryState;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketRepositoryMetadata;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Items;
+import jenkins.branch.BranchBuildStrategy;
+import jenkins.branch.BranchProperty;
+import jenkins.branch.BranchPropertyStrategy;
+import jenkins.branch.BranchSource;
+import jenkins.branch.DefaultBranchPropertyStrategy;
+import jenkins.scm.api.SCMSource;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jenkinsci.plugins.workflow.cps.CpsScmFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.ArgumentCaptor;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.atlassian.bitbucket.jenkins.internal.config.BaseUrlMigration.STATE_FILE_NAME;
+import static com.atlassian.bitbucket.jenkins.internal.config.BaseUrlMigration.XSTREAM;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BaseUrlMigrationTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final String SERVER_ID = "server-id";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private ExecutorService executor;
+    private BitbucketJobIndex jobIndex;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        executor = Executors.newFixedThreadPool(2);
+        jobIndex = mock(BitbucketJobIndex.class);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFailureIsRecorded() throws InterruptedException {
+        TestMigration migration = new TestMigration();
+        migration.failing.add("job-2");
+        when(jobIndex.getItemNames(singleton(SERVER_ID))).thenReturn(itemNames(3));
+
+        migration.start(singleton(SERVER_ID));
+        migration.awaitCompletion(30, TimeUnit.SECONDS);
+
+        assertThat(migration.getMigratedCount(), is(2));
+        assertThat(migration.getFailures().stream().map(BaseUrlMigration.Failure::getItemName)
+                .collect(Collectors.toList()), contains("job-2"));
+        assertThat(migration.getFailures().get(0).getMessage(), is("Failed to save"));
+    }
+
+    @Test
+    public void testMigrateMultibranchProjectKeepsStrategies() throws IOException {
+        String newBaseUrl = "http://new-bitbucket.example.com";
+        BitbucketPluginConfiguration pluginConfiguration =
+                requireNonNull(jenkins.jenkins.getDescriptorByType(BitbucketPluginConfiguration.class));
+        pluginConfiguration.setServerList(singletonList(new BitbucketServerConfiguration("admin", newBaseUrl,
+                SERVER_ID)));
+        resolveRepository(newBaseUrl, "repo");
+        BranchSource bitbucketSource = new BranchSource(new BitbucketSCMSource("bitbucket", "credentials", null,
+                emptyList(), "PROJ", "repo", SERVER_ID, null));
+        BranchPropertyStrategy strategy = new DefaultBranchPropertyStrategy(new BranchProperty[0]);
+        List<BranchBuildStrategy> buildStrategies = singletonList(mock(BranchBuildStrategy.class));
+        bitbucketSource.setStrategy(strategy);
+        bitbucketSource.setBuildStrategies(buildStrategies);
+        BranchSource otherSource = new BranchSource(mock(SCMSource.class));
+        WorkflowMultiBranchProject multibranchProject = mock(WorkflowMultiBranchProject.class);
+        when(multibranchProject.getSources()).thenReturn(Arrays.asList(bitbucketSource, otherSource));
+
+        try {
+            new BaseUrlMigration(jobIndex, executor).migrate(multibranchProject, singleton(SERVER_ID));
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<BranchSource>> sources = ArgumentCaptor.forClass(List.class);
+            verify(multibranchProject).setSourcesList(sources.capture());
+            assertThat(sources.getValue(), hasSize(2));
+            BranchSource migrated = sources.getValue().get(0);
+            assertThat(migrated, is(not(sameInstance(bitbucketSource))));
+            assertThat(((BitbucketSCMSource) migrated.getSource()).getRemote(), is(newBaseUrl + "/scm/proj/repo.git"));
+            assertThat(migrated.getStrategy(), is(sameInstance(strategy)));
+            assertThat(migrated.getBuildStrategies(), is(buildStrategies));
+            assertThat(sources.getValue().get(1), is(sameInstance(otherSource)));
+        } finally {
+            pluginConfiguration.setServerList(emptyList());
+        }
+    }
+
+    @Test
+    public void testMigratePipelineJobSavesIt() throws IOException {
+        String oldBaseUrl = "http://old-bitbucket.example.com";
+        String newBaseUrl = "http://new-bitbucket.example.com";
+        BitbucketPluginConfiguration pluginConfiguration =
+                requireNonNull(jenkins.jenkins.getDescriptorByType(BitbucketPluginConfiguration.class));
+        pluginConfiguration.setServerList(singletonList(new BitbucketServerConfiguration("admin", oldBaseUrl,
+                SERVER_ID)));
+        resolveRepository(oldBaseUrl, "pipeline");
+        resolveRepository(newBaseUrl, "pipeline");
+
+        try {
+            WorkflowJob workflowJob = jenkins.createProject(WorkflowJob.class);
+            workflowJob.setDefinition(new CpsScmFlowDefinition(new BitbucketSCM(null, emptyList(), null, null,
+                    emptyList(), null, "PROJ", "pipeline", SERVER_ID, null, workflowJob), "Jenkinsfile"));
+            workflowJob.save();
+            pluginConfiguration.setServerList(singletonList(new BitbucketServerConfiguration("admin", newBaseUrl,
+                    SERVER_ID)));
+
+            new BaseUrlMigration(jobIndex, executor).migrate(workflowJob, singleton(SERVER_ID));
+
+            // Read back from disk, as the job would be after a restart
+            WorkflowJob reloaded = (WorkflowJob) Items.getConfigFile(workflowJob).read();
+            BitbucketSCM scm = (BitbucketSCM) ((CpsScmFlowDefinition) reloaded.getDefinition()).getScm();
+            assertThat(scm.getAndInitializeGitScmIfNull(workflowJob).getUserRemoteConfigs().get(0).getUrl(),
+                    is(newBaseUrl + "/scm/proj/pipeline.git"));
+        } finally {
+            pluginConfiguration.setServerList(emptyList());
+        }
+    }
+
+    @Test
+    public void testMigratesEveryBatch() throws InterruptedException {
+        TestMigration migration = new TestMigration();
+        int itemCount = BaseUrlMigration.BATCH_SIZE * 2 + 5;
+        when(jobIndex.getItemNames(singleton(SERVER_ID))).thenReturn(itemNames(itemCount));
+
+        migration.start(singleton(SERVER_ID));
+        migration.awaitCompletion(30, TimeUnit.SECONDS);
+
+        assertThat(migration.isRunning(), is(false));
+        assertThat(migration.migrated.keySet(), is(itemNames(itemCount)));
+        assertThat(migration.getTotalCount(), is(itemCount));
+        assertThat(migration.getMigratedCount(), is(itemCount));
+        assertThat(migration.getRemainingCount(), is(0));
+        assertThat(new TestMigration().getRemainingCount(), is(0));
+    }
+
+    @Test
+    public void testResumesUnfinishedMigration() throws IOException, InterruptedException {
+        FileUtils.writeStringToFile(new File(directory, STATE_FILE_NAME),
+                "<base-url-migration>" +
+                "<failures/>" +
+                "<remaining class=\"linked-hash-set\"><string>job-1</string></remaining>" +
+                "<serverIds class=\"linked-hash-set\"><string>" + SERVER_ID + "</string></serverIds>" +
+                "<migrated>4</migrated>" +
+                "<total>5</total>" +
+                "</base-url-migration>", StandardCharsets.UTF_8);
+        TestMigration migration = new TestMigration();
+
+        migration.onJobsLoaded();
+        migration.awaitCompletion(30, TimeUnit.SECONDS);
+
+        assertThat(migration.migrated.keySet(), contains("job-1"));
+        assertThat(migration.migrated.get("job-1"), contains(SERVER_ID));
+        assertThat(migration.getMigratedCount(), is(5));
+        assertThat(migration.getRemainingCount(), is(0));
+    }
+
+    /**
+     * Caches the repository's details for a base URL, so they are not looked up in Bitbucket.
+     */
+    private static void resolveRepository(String baseUrl, String slug) {
+        BitbucketProject project = new BitbucketProject("PROJ", null, "Project");
+        BitbucketRepository repository = new BitbucketRepository(1, slug, project, slug, RepositoryState.AVAILABLE,
+                singletonList(new BitbucketNamedLink("http", baseUrl + "/scm/proj/" + slug + ".git")),
+                baseUrl + "/projects/PROJ/repos/" + slug + "/browse");
+        ((BitbucketSCMSource.DescriptorImpl) jenkins.jenkins.getDescriptorOrDie(BitbucketSCMSource.class))
+                .getRepositoryMetadataRegistry()
+                .resolve(baseUrl, "PROJ", slug, null, () -> BitbucketRepositoryMetadata.of(repository));
+    }
+
+    private static Set<String> itemNames(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "job-" + i).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private class TestMigration extends BaseUrlMigration {
+
+        private final Set<String> failing = ConcurrentHashMap.newKeySet();
+        private final Map<String, Collection<String>> migrated = new ConcurrentHashMap<>();
+
+        private TestMigration() {
+            super(jobIndex, executor);
+        }
+
+        @CheckForNull
+        @Override
+        Item getItem(String fullName) {
+            Item item = mock(Item.class);
+            when(item.getFullName()).thenReturn(fullName);
+            return item;
+        }
+
+        @Override
+        XmlFile getStateFile() {
+            return new XmlFile(XSTREAM, new File(directory, STATE_FILE_NAME));
+        }
+
+        @Override
+        void migrate(Item item, Set<String> serverIds) throws IOException {
+            if (failing.contains(item.getFullName())) {
+                throw new IOException("Failed to save");
+            }
+            migrated.put(item.getFullName(), serverIds);
+        }
+    }
+}
@@ -25,6 +25,9 @@ import org.mockito.stubbing.Answer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -34,6 +37,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -96,6 +100,8 @@ public class BitbucketPluginConfigurationTest {
         }).when(request).bindJSON(pluginConfiguration, formData);
 
         assertTrue(pluginConfiguration.configure(request, formData));
+        // The jobs are updated in the background
+        jenkins.getInstance().getInjector().getInstance(BaseUrlMigration.class).awaitCompletion(30, TimeUnit.SECONDS);
 
         SCM newScm = jenkins.getInstance().getAllItems(FreeStyleProject.class).get(0).getScm();
         assertThat(newScm, not(equalTo(bitbucketSCMInitial)));
@@ -130,6 +136,72 @@ public class BitbucketPluginConfigurationTest {
         verify(request).bindJSON(pluginConfiguration, formData);
     }
 
+    @Test
+    public void testGetServerById() {
+        pluginConfiguration.setServerList(Arrays.asList(validServerConfiguration, invalidServerConfigurationOne));
+
+        assertThat(pluginConfiguration.getServerById("1"), equalTo(Optional.of(invalidServerConfigurationOne)));
+        assertThat(pluginConfiguration.getServerById("3"), equalTo(Optional.empty()));
+        assertThat(pluginConfiguration.getServerById(null), equalTo(Optional.empty()));
+    }
+
+    @Test
+    public void testGetValidServerById() {
+        pluginConfiguration.setServerList(Arrays.asList(validServerConfiguration, invalidServerConfigurationOne));
+
+        assertThat(pluginConfiguration.getValidServerById("0"), equalTo(Optional.of(validServerConfiguration)));
+        assertThat(pluginConfiguration.getValidServerById("1"), equalTo(Optional.empty()));
+    }
+
+    @Test
+    public void testValidationIsRememberedUntilInvalidated() {
+        pluginConfiguration.setServerList(singletonList(validServerConfiguration));
+
+        pluginConfiguration.getValidServerList();
+        pluginConfiguration.getValidServerById("0");
+        pluginConfiguration.hasAnyInvalidConfiguration();
+        verify(validServerConfiguration).validate();
+
+        pluginConfiguration.invalidate();
+        pluginConfiguration.getValidServerList();
+        verify(validServerConfiguration, times(2)).validate();
+    }
+
+    @Test
+    public void testValidationIsRepeatedOnceExpired() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        BitbucketPluginConfiguration configuration = new BitbucketPluginConfiguration() {
+            @Override
+            long currentTimeMillis() {
+                return now.get();
+            }
+        };
+        configuration.setServerList(singletonList(validServerConfiguration));
+
+        assertThat(configuration.getValidServerById("0"), equalTo(Optional.of(validServerConfiguration)));
+        // The admin credentials were removed from a store that does not notify the configuration
+        when(validServerConfiguration.validate()).thenReturn(FormValidation.error(ERROR_MESSAGE));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(4));
+
+        assertThat(configuration.getValidServerById("0"), equalTo(Optional.of(validServerConfiguration)));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+
+        assertThat(configuration.getValidServerById("0"), equalTo(Optional.empty()));
+        verify(validServerConfiguration, times(2)).validate();
+    }
+
+    @Test
+    public void testSetServerListValidatesAgain() {
+        pluginConfiguration.setServerList(singletonList(validServerConfiguration));
+        assertFalse(pluginConfiguration.hasAnyInvalidConfiguration());
+
+        pluginConfiguration.setServerList(Arrays.asList(validServerConfiguration, invalidServerConfigurationOne));
+
+        assertTrue(pluginConfiguration.hasAnyInvalidConfiguration());
+        assertThat(pluginConfiguration.getServerById("1"), equalTo(Optional.of(invalidServerConfigurationOne)));
+    }
+
     @Test
     public void testGetValidServerListAllValid() {
         pluginConfiguration.setServerList(singletonList(validServerConfiguration));
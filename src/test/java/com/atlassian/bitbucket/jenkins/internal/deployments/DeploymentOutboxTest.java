@@ -0,0 +1,201 @@
+package com.atlassian.bitbucket.jenkins.internal.deployments;
+
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeployment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.BitbucketDeploymentEnvironment;
+import com.atlassian.bitbucket.jenkins.internal.model.deployment.DeploymentState;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static com.atlassian.bitbucket.jenkins.internal.deployments.DeploymentOutbox.OUTBOX_FILE_NAME;
+import static com.atlassian.bitbucket.jenkins.internal.deployments.DeploymentOutbox.XSTREAM;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class DeploymentOutboxTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final String REVISION_SHA = "revisionSha";
+    private static final String RUN_ID = "job#1";
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private DeploymentPoster deploymentPoster;
+    private File directory;
+    private final BitbucketSCMRepository repository =
+            new BitbucketSCMRepository(null, null, "Project", "PROJ", "Repo", "repo", "serverId", null);
+    @Mock
+    private Run<?, ?> run;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        when(run.getExternalizableId()).thenReturn(RUN_ID);
+    }
+
+    @Test
+    public void testAddDoesNotPostUntilScheduled() {
+        QueuedExecutor executor = new QueuedExecutor();
+        DeploymentOutbox outbox = newOutbox(executor);
+
+        outbox.add(repository, REVISION_SHA, deployment("prod", DeploymentState.IN_PROGRESS), run);
+
+        verifyNoInteractions(deploymentPoster);
+        assertThat(outbox.getPendingCount(), is(1));
+
+        executor.runAll();
+
+        verify(deploymentPoster).postDeployment(eq(repository), eq(REVISION_SHA),
+                eq(deployment("prod", DeploymentState.IN_PROGRESS)), eq(run), any(TaskListener.class));
+        assertThat(outbox.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testFailedPostIsRemoved() {
+        doThrow(new RuntimeException("Bitbucket is down")).when(deploymentPoster)
+                .postDeployment(any(), any(), any(), any(), any());
+        DeploymentOutbox outbox = newOutbox(Runnable::run);
+
+        outbox.add(repository, REVISION_SHA, deployment("prod", DeploymentState.IN_PROGRESS), run);
+
+        assertThat(outbox.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testNotificationsForEnvironmentAreSentInOrder() {
+        QueuedExecutor executor = new QueuedExecutor();
+        DeploymentOutbox outbox = newOutbox(executor);
+
+        outbox.add(repository, REVISION_SHA, deployment("prod", DeploymentState.IN_PROGRESS), run);
+        outbox.add(repository, REVISION_SHA, deployment("prod", DeploymentState.SUCCESSFUL), run);
+        outbox.add(repository, REVISION_SHA, deployment("staging", DeploymentState.IN_PROGRESS), run);
+
+        // Only the first notification for each environment can be sent straight away
+        assertThat(executor.tasks.size(), is(2));
+
+        executor.runAll();
+
+        ArgumentCaptor<BitbucketDeployment> captor = ArgumentCaptor.forClass(BitbucketDeployment.class);
+        verify(deploymentPoster, times(3)).postDeployment(eq(repository), eq(REVISION_SHA), captor.capture(),
+                eq(run), any(TaskListener.class));
+        List<BitbucketDeployment> prod = captor.getAllValues().stream()
+                .filter(deployment -> "prod".equals(deployment.getEnvironment().getKey()))
+                .collect(Collectors.toList());
+        assertThat(prod.size(), is(2));
+        assertThat(prod.get(0).getState(), is(DeploymentState.IN_PROGRESS));
+        assertThat(prod.get(1).getState(), is(DeploymentState.SUCCESSFUL));
+    }
+
+    @Test
+    public void testNotificationOfDeletedRunIsDiscarded() {
+        DeploymentOutbox outbox = new TestOutbox(Runnable::run) {
+            @Override
+            Run<?, ?> getRun(String runId) {
+                return null;
+            }
+        };
+
+        outbox.add(repository, REVISION_SHA, deployment("prod", DeploymentState.IN_PROGRESS), run);
+
+        verifyNoInteractions(deploymentPoster);
+        assertThat(outbox.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testPendingNotificationsAreSentAfterRestart() {
+        DeploymentOutbox stopped = newOutbox(new QueuedExecutor());
+        stopped.add(repository, REVISION_SHA, deployment("prod", DeploymentState.IN_PROGRESS), run);
+        stopped.add(repository, REVISION_SHA, deployment("prod", DeploymentState.FAILED), run);
+
+        DeploymentOutbox restarted = newOutbox(Runnable::run);
+        restarted.onJobsLoaded();
+
+        InOrder inOrder = inOrder(deploymentPoster);
+        inOrder.verify(deploymentPoster).postDeployment(eq(repository), eq(REVISION_SHA),
+                eq(deployment("prod", DeploymentState.IN_PROGRESS)), eq(run), any(TaskListener.class));
+        inOrder.verify(deploymentPoster).postDeployment(eq(repository), eq(REVISION_SHA),
+                eq(deployment("prod", DeploymentState.FAILED)), eq(run), any(TaskListener.class));
+        assertThat(restarted.getPendingCount(), is(0));
+        assertThat(newOutbox(new QueuedExecutor()).getPendingCount(), is(0));
+    }
+
+    private static BitbucketDeployment deployment(String environmentKey, DeploymentState state) {
+        return new BitbucketDeployment(1, "description", "name",
+                new BitbucketDeploymentEnvironment(environmentKey, environmentKey), "key", state, "http://url");
+    }
+
+    private DeploymentOutbox newOutbox(Executor executor) {
+        return new TestOutbox(executor);
+    }
+
+    /**
+     * An executor that only runs its tasks when asked to.
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private class TestOutbox extends DeploymentOutbox {
+
+        private TestOutbox(Executor executor) {
+            super(deploymentPoster, executor);
+        }
+
+        @CheckForNull
+        @Override
+        Run<?, ?> getRun(String runId) {
+            return RUN_ID.equals(runId) ? run : null;
+        }
+
+        @Override
+        XmlFile getOutboxFile() {
+            return new XmlFile(XSTREAM, new File(directory, OUTBOX_FILE_NAME));
+        }
+    }
+}
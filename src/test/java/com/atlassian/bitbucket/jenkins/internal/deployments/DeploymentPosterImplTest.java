@@ -1,10 +1,13 @@
 package com.atlassian.bitbucket.jenkins.internal.deployments;
 
+import com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketDeploymentClient;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ConnectionFailureException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ServerErrorException;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketTokenCredentials;
@@ -64,6 +67,8 @@ public class DeploymentPosterImplTest {
     private BitbucketCredentials bitbucketCredentials;
     @Mock
     private BitbucketDeploymentFactory bitbucketDeploymentFactory;
+    @Mock
+    private FailedPostStore failedPostStore;
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private BitbucketClientFactory clientFactory;
     @Mock
@@ -197,6 +202,7 @@ public class DeploymentPosterImplTest {
                 .post(DEPLOYMENT);
         verify(printStream).println(format("Sent notification of '%s' deployment to '%s' on commit '%s'",
                 DEPLOYMENT.getState().name(), SERVER_NAME, REVISION_SHA));
+        verify(failedPostStore).resolveDeployment(repository, REVISION_SHA, ENVIRONMENT.getKey());
     }
 
     @Test
@@ -227,6 +233,31 @@ public class DeploymentPosterImplTest {
                 server.getServerName(), "A Bitbucket error"));
     }
 
+    @Test
+    public void testPostDeploymentServerErrorIsRecorded() {
+        BitbucketDeploymentClient deploymentClient = clientFactory.getProjectClient(PROJECT_KEY)
+                .getRepositoryClient(REPO_SLUG)
+                .getDeploymentClient(REVISION_SHA);
+        ServerErrorException error = new ServerErrorException("Bitbucket is down", 503, "");
+        doThrow(error).when(deploymentClient).post(DEPLOYMENT);
+        poster.postDeployment(repository, REVISION_SHA, DEPLOYMENT, run, taskListener);
+
+        verify(failedPostStore).recordDeployment(repository, REVISION_SHA, DEPLOYMENT, run, error);
+        verify(printStream).println(
+                "The deployment notification will be sent again once Bitbucket Server is available");
+    }
+
+    @Test
+    public void testPostDeploymentConnectionFailureIsRecorded() {
+        ConnectionFailureException error = new ConnectionFailureException(new IOException("Connection refused"));
+        when(clientFactory.getCapabilityClient().getDeploymentCapabilities()).thenThrow(error);
+
+        poster.postDeployment(repository, REVISION_SHA, DEPLOYMENT, run, taskListener);
+
+        verify(failedPostStore).recordDeployment(repository, REVISION_SHA, DEPLOYMENT, run, error);
+        verify(clientFactory, never()).getProjectClient(any());
+    }
+
     @Test
     public void testPostDeploymentWithDeploymentsNotSupported() {
         when(clientFactory.getCapabilityClient().getDeploymentCapabilities())
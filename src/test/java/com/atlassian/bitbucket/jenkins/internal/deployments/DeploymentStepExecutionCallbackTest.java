@@ -14,6 +14,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.PrintStream;
+
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -29,7 +31,7 @@ public class DeploymentStepExecutionCallbackTest {
     @Mock
     private BitbucketDeploymentFactory deploymentFactory;
     @Mock
-    private DeploymentPoster deploymentPoster;
+    private DeploymentOutbox deploymentOutbox;
     @Mock
     private TaskListener taskListener;
     @Mock
@@ -46,7 +48,7 @@ public class DeploymentStepExecutionCallbackTest {
             DeploymentStepImpl.DescriptorImpl getStepDescriptor() {
                 DeploymentStepImpl.DescriptorImpl descriptor = mock(DeploymentStepImpl.DescriptorImpl.class);
                 when(descriptor.getBitbucketDeploymentFactory()).thenReturn(deploymentFactory);
-                when(descriptor.getDeploymentPoster()).thenReturn(deploymentPoster);
+                when(descriptor.getDeploymentOutbox()).thenReturn(deploymentOutbox);
                 return descriptor;
             }
         };
@@ -65,7 +67,7 @@ public class DeploymentStepExecutionCallbackTest {
 
         verify(context).get(TaskListener.class);
         verifyNoInteractions(deploymentFactory);
-        verifyNoInteractions(deploymentPoster);
+        verifyNoInteractions(deploymentOutbox);
     }
 
     @Test
@@ -77,7 +79,7 @@ public class DeploymentStepExecutionCallbackTest {
         verify(context).get(TaskListener.class);
         verify(context).get(Run.class);
         verifyNoInteractions(deploymentFactory);
-        verifyNoInteractions(deploymentPoster);
+        verifyNoInteractions(deploymentOutbox);
     }
 
     @Test
@@ -90,7 +92,7 @@ public class DeploymentStepExecutionCallbackTest {
         verify(context).get(Run.class);
         verify(run).getAction(BitbucketRevisionAction.class);
         verifyNoInteractions(deploymentFactory);
-        verifyNoInteractions(deploymentPoster);
+        verifyNoInteractions(deploymentOutbox);
     }
 
     @Test
@@ -102,7 +104,7 @@ public class DeploymentStepExecutionCallbackTest {
         callback.onSuccess(context, result);
 
         verifyNoInteractions(deploymentFactory);
-        verifyNoInteractions(deploymentPoster);
+        verifyNoInteractions(deploymentOutbox);
         verify(context).onSuccess(result);
     }
 
@@ -132,9 +134,11 @@ public class DeploymentStepExecutionCallbackTest {
     private void testCallback(Runnable callbackMethod, DeploymentState state) {
         BitbucketDeployment deployment = mock(BitbucketDeployment.class);
         when(deploymentFactory.createDeployment(run, environment, state)).thenReturn(deployment);
+        when(taskListener.getLogger()).thenReturn(mock(PrintStream.class));
 
         callbackMethod.run();
 
-        verify(deploymentPoster).postDeployment(repo, REVISION_SHA, deployment, run, taskListener);
+        verify(deploymentOutbox).add(repo, REVISION_SHA, deployment, run);
+        verify(taskListener, never()).error(anyString());
     }
 }
\ No newline at end of file
@@ -13,6 +13,8 @@ import org.mockito.Answers;
 import java.util.HashSet;
 
 import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +43,10 @@ public class TestBitbucketClientFactoryHandler {
         return clientFactoryProvider;
     }
 
+    public BitbucketCapabilitiesClient getCapabilitiesClient() {
+        return capabilitiesClient;
+    }
+
     public BitbucketCICapabilities getCICapabilities() {
         return ciCapabilities;
     }
@@ -56,6 +62,11 @@ public class TestBitbucketClientFactoryHandler {
                 .getRepositoryClient(scmRepo.getRepositorySlug())
                 .getBuildStatusClient(revision))
                 .thenReturn(buildStatusClient);
+        when(clientFactory
+                .getProjectClient(scmRepo.getProjectKey())
+                .getRepositoryClient(scmRepo.getRepositorySlug())
+                .getBuildStatusClient(eq(revision), any(BitbucketCICapabilities.class)))
+                .thenReturn(buildStatusClient);
         return this;
     }
 
@@ -1,6 +1,7 @@
 package com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.servlet;
 
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.Randomizer;
+import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.OAuthMetrics;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.auth.SecurityModeChecker;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderToken;
 import com.atlassian.bitbucket.jenkins.internal.applink.oauth.serviceprovider.token.ServiceProviderTokenStore;
@@ -41,6 +42,11 @@ import static com.atlassian.bitbucket.jenkins.internal.jenkins.oauth.servlet.Aut
 import static java.lang.String.format;
 import static net.oauth.OAuth.OAUTH_CALLBACK;
 import static net.oauth.OAuth.OAUTH_TOKEN;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -67,6 +73,7 @@ public class AuthorizeConfirmationConfigTest {
     @Mock
     private JenkinsAuthWrapper jenkinsAuthWrapper;
     private Authentication authentication = new UsernamePasswordAuthenticationToken("test", "test", null);
+    private OAuthMetrics metrics = new OAuthMetrics();
     private TextStringBuilder stringBuilder = new TextStringBuilder();
 
     @Before
@@ -192,11 +199,14 @@ public class AuthorizeConfirmationConfigTest {
 
         verify(response).sendRedirect(HttpStatus.SC_MOVED_TEMPORARILY,
                 format("?oauth_token=1234&oauth_verifier=denied", TOKEN_VALUE, VERIFIER));
+        assertThat(metrics.getOutcomes(), contains(allOf(
+                hasProperty("outcome", is("denied")),
+                hasProperty("count", is(1L)))));
     }
 
     private AuthorizeConfirmationConfigDescriptor createDescriptor() {
         return new AuthorizeConfirmationConfigDescriptor(jenkinsAuthWrapper, serviceProviderTokenStore, randomizer,
-                securityChecker, clock);
+                securityChecker, clock, metrics);
     }
 
     private Map<String, String[]> mapOf(String k1, String[] v1) {
@@ -0,0 +1,95 @@
+package com.atlassian.bitbucket.jenkins.internal.link;
+
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import hudson.model.Action;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class BitbucketExternalLinkCacheTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private final AtomicInteger created = new AtomicInteger();
+    private BitbucketExternalLinkCache linkCache;
+
+    @Before
+    public void setup() {
+        linkCache = requireNonNull(jenkins.jenkins.getInjector(), "injector")
+                .getInstance(BitbucketExternalLinkCache.class);
+        linkCache.forgetAll();
+    }
+
+    @Test
+    public void testDeletingJobForgetsItsLinks() throws Exception {
+        FreeStyleProject job = jenkins.createFreeStyleProject();
+        getLinks(job);
+
+        job.delete();
+
+        assertThat(linkCache.size(), is(0L));
+    }
+
+    @Test
+    public void testLinksAreCachedUntilJobChanges() throws Exception {
+        FreeStyleProject job = jenkins.createFreeStyleProject();
+
+        getLinks(job);
+        getLinks(job);
+
+        assertThat(created.get(), is(1));
+    }
+
+    @Test
+    public void testRenamingJobForgetsItsLinks() throws Exception {
+        FreeStyleProject job = jenkins.createFreeStyleProject();
+        getLinks(job);
+
+        job.renameTo(job.getName() + "-renamed");
+        getLinks(job);
+
+        assertThat(created.get(), is(2));
+    }
+
+    @Test
+    public void testSavingJobForgetsItsLinks() throws Exception {
+        FreeStyleProject job = jenkins.createFreeStyleProject();
+        getLinks(job);
+
+        job.setDescription("changed");
+        getLinks(job);
+
+        assertThat(created.get(), is(2));
+    }
+
+    @Test
+    public void testSavingServerConfigurationForgetsAllLinks() throws Exception {
+        FreeStyleProject job = jenkins.createFreeStyleProject();
+        FreeStyleProject otherJob = jenkins.createFreeStyleProject();
+        getLinks(job);
+        getLinks(otherJob);
+
+        requireNonNull(jenkins.jenkins.getDescriptorByType(BitbucketPluginConfiguration.class)).save();
+
+        assertThat(linkCache.size(), is(0L));
+    }
+
+    private void getLinks(Item item) {
+        linkCache.getLinks(item, () -> {
+            created.incrementAndGet();
+            return Collections.singletonList(mock(Action.class));
+        });
+    }
+}
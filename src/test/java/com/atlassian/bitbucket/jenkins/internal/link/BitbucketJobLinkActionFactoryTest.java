@@ -38,6 +38,7 @@ public class BitbucketJobLinkActionFactoryTest {
 
     private BitbucketJobLinkActionFactory actionFactory;
     private BitbucketExternalLinkUtils externalLinkUtils;
+    private BitbucketExternalLinkCache linkCache;
     @Rule
     public JenkinsRule jenkins = new JenkinsRule();
     @Mock
@@ -87,6 +88,7 @@ public class BitbucketJobLinkActionFactoryTest {
         doReturn(mockSCMSource).when(sourceProvider).findSource(multibranchJobFromSource);
 
         externalLinkUtils = new BitbucketExternalLinkUtils(pluginConfiguration);
+        linkCache = new BitbucketExternalLinkCache();
         actionFactory = getActionFactory();
     }
 
@@ -117,6 +119,18 @@ public class BitbucketJobLinkActionFactoryTest {
         assertThat(externalLink.getUrlName(), equalTo(BASE_URL + "/projects/PROJ/repos/repo"));
     }
 
+    @Test
+    public void testCreateIsCachedUntilJobIsForgotten() {
+        actionFactory.createFor(workflowJob);
+        workflowJob.setDefinition(new CpsScmFlowDefinition(mock(SCM.class), "Jenkinsfile"));
+
+        assertThat(actionFactory.createFor(workflowJob).size(), equalTo(1));
+
+        linkCache.forget(workflowJob);
+
+        assertThat(actionFactory.createFor(workflowJob).size(), equalTo(0));
+    }
+
     @Test
     public void testCreateMultibranchSource() {
         Collection<? extends Action> actions = actionFactory.createFor(multibranchJobFromSource);
@@ -206,7 +220,7 @@ public class BitbucketJobLinkActionFactoryTest {
     }
 
     private BitbucketJobLinkActionFactory getActionFactory() {
-        return new BitbucketJobLinkActionFactory(externalLinkUtils, headProvider, sourceProvider) {
+        return new BitbucketJobLinkActionFactory(externalLinkUtils, headProvider, sourceProvider, linkCache) {
 
             @Override
             Collection<? extends SCM> getWorkflowSCMs(WorkflowJob job) {
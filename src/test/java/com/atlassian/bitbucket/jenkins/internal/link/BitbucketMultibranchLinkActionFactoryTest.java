@@ -31,6 +31,7 @@ public class BitbucketMultibranchLinkActionFactoryTest {
     @Rule
     public JenkinsRule jenkins = new JenkinsRule();
     private BitbucketMultibranchLinkActionFactory actionFactory;
+    private BitbucketExternalLinkCache linkCache;
 
     private static final String SERVER_ID = "Test-Server-ID";
     private static final String BASE_URL = "http://localhost:8080/bitbucket";
@@ -61,7 +62,8 @@ public class BitbucketMultibranchLinkActionFactoryTest {
         doReturn(FormValidation.ok()).when(configuration).validate();
 
         externalLinkUtils = new BitbucketExternalLinkUtils(pluginConfiguration);
-        actionFactory = new BitbucketMultibranchLinkActionFactory(externalLinkUtils);
+        linkCache = new BitbucketExternalLinkCache();
+        actionFactory = new BitbucketMultibranchLinkActionFactory(externalLinkUtils, linkCache);
     }
 
     @Test
@@ -73,6 +75,20 @@ public class BitbucketMultibranchLinkActionFactoryTest {
         assertThat(externalLink.getUrlName(), equalTo(BASE_URL + "/projects/PROJ/repos/repo"));
     }
 
+    @Test
+    public void testCreateIsCachedUntilForgotten() {
+        actionFactory.createFor(multibranchProject);
+        Collection<? extends Action> cachedActions = actionFactory.createFor(multibranchProject);
+
+        assertThat(cachedActions.size(), equalTo(1));
+        verify(pluginConfiguration).getServerById(SERVER_ID);
+
+        doReturn(Optional.empty()).when(pluginConfiguration).getServerById(SERVER_ID);
+        linkCache.forgetAll();
+
+        assertThat(actionFactory.createFor(multibranchProject).size(), equalTo(0));
+    }
+
     @Test
     public void testCreateNotBitbucketSCM() {
         doReturn(Collections.singletonList(mock(SCMSource.class))).when(multibranchProject).getSCMSources();
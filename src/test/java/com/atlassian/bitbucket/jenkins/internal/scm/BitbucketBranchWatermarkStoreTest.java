@@ -0,0 +1,179 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketBranchClient;
+import com.atlassian.bitbucket.jenkins.internal.model.*;
+import hudson.model.TaskListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.PrintStream;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BitbucketBranchWatermarkStoreTest {
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final Map<String, String> LATEST_COMMITS =
+            Map.of("refs/heads/feature", "2", "refs/heads/master", "1");
+    private static final String PROJECT_KEY = "PROJ";
+    private static final String REPO_SLUG = "repo";
+
+    @Mock
+    private BitbucketBranchClient branchClient;
+    @Mock
+    private Clock clock;
+    @Mock
+    private TaskListener listener;
+    private BitbucketBranchWatermarkStore store;
+
+    @Before
+    public void setup() {
+        when(listener.getLogger()).thenReturn(mock(PrintStream.class));
+        store = new BitbucketBranchWatermarkStore(clock);
+    }
+
+    @Test
+    public void testFirstScanIsFull() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+
+        List<String> branches = scan();
+
+        assertThat(branches, contains("refs/heads/feature", "refs/heads/master"));
+    }
+
+    @Test
+    public void testFullScanAfterInterval() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")))
+                .thenReturn(Stream.of(branch("master", "1")));
+        scan();
+        when(clock.millis()).thenReturn(BitbucketBranchWatermarkStore.FULL_SCAN_INTERVAL);
+
+        List<String> branches = scan();
+
+        assertThat(branches, contains("refs/heads/master"));
+        verify(branchClient, times(2)).getRemoteBranchesModifiedSince(emptyMap());
+    }
+
+    @Test
+    public void testIncrementalScanMergesModifiedBranchesFirst() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+        when(branchClient.getRemoteBranchesModifiedSince(LATEST_COMMITS))
+                .thenReturn(Stream.of(branch("master", "3"), branch("feature", "2")));
+
+        List<String> branches = scan();
+
+        assertThat(branches, contains("refs/heads/master", "refs/heads/feature"));
+        assertThat(store.getSnapshot(BASE_URL, PROJECT_KEY, REPO_SLUG),
+                hasEntry("refs/heads/master", branch("master", "3")));
+    }
+
+    @Test
+    public void testIncrementalScanKeepsUnmodifiedBranches() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+        when(branchClient.getRemoteBranchesModifiedSince(LATEST_COMMITS))
+                .thenReturn(Stream.of(branch("new", "4"), branch("feature", "2")));
+
+        List<String> branches = scan();
+
+        assertThat(branches, contains("refs/heads/new", "refs/heads/feature", "refs/heads/master"));
+    }
+
+    @Test
+    public void testRemoveBranches() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+        BitbucketRepository repository = new BitbucketRepository(1, REPO_SLUG,
+                new BitbucketProject(PROJECT_KEY.toLowerCase(), null, PROJECT_KEY), REPO_SLUG,
+                RepositoryState.AVAILABLE, emptyList(), BASE_URL + "/projects/PROJ/repos/repo/browse");
+
+        store.removeBranches(repository, singleton("refs/heads/feature"));
+
+        assertThat(store.getSnapshot(BASE_URL, PROJECT_KEY, REPO_SLUG).keySet(), contains("refs/heads/master"));
+    }
+
+    @Test
+    public void testRemoveBranchesFromOtherServer() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+        BitbucketRepository repository = new BitbucketRepository(1, REPO_SLUG,
+                new BitbucketProject(PROJECT_KEY, null, PROJECT_KEY), REPO_SLUG, RepositoryState.AVAILABLE,
+                emptyList(), "http://other.example.com/projects/PROJ/repos/repo/browse");
+
+        store.removeBranches(repository, singleton("refs/heads/feature"));
+
+        assertThat(store.getSnapshot(BASE_URL, PROJECT_KEY, REPO_SLUG).keySet(),
+                contains("refs/heads/feature", "refs/heads/master"));
+    }
+
+    @Test
+    public void testUpdateBranchesRecordsBranchCreatedFromOlderCommit() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+        store.updateBranches(repository(), singleton(refChange("old-fix", "0", BitbucketRefChangeType.ADD)));
+        // The new branch sorts below the unchanged feature branch, so the incremental listing stops before it
+        when(branchClient.getRemoteBranchesModifiedSince(Map.of("refs/heads/old-fix", "0", "refs/heads/feature", "2",
+                "refs/heads/master", "1"))).thenReturn(Stream.of(branch("feature", "2")));
+
+        List<String> branches = scan();
+
+        assertThat(branches, contains("refs/heads/feature", "refs/heads/old-fix", "refs/heads/master"));
+    }
+
+    @Test
+    public void testUpdateBranchesRecordsUpdatedBranch() {
+        when(branchClient.getRemoteBranchesModifiedSince(emptyMap()))
+                .thenReturn(Stream.of(branch("feature", "2"), branch("master", "1")));
+        scan();
+
+        store.updateBranches(repository(), List.of(refChange("master", "3", BitbucketRefChangeType.UPDATE),
+                new BitbucketRefChange(new BitbucketRef("refs/tags/v1", "v1", BitbucketRefType.TAG), "refs/tags/v1",
+                        "0", "3", BitbucketRefChangeType.ADD)));
+
+        Map<String, BitbucketDefaultBranch> snapshot = store.getSnapshot(BASE_URL, PROJECT_KEY, REPO_SLUG);
+        assertThat(snapshot.keySet(), contains("refs/heads/master", "refs/heads/feature"));
+        assertThat(snapshot, hasEntry("refs/heads/master", branch("master", "3")));
+    }
+
+    private List<String> scan() {
+        return store.getBranches(BASE_URL, PROJECT_KEY, REPO_SLUG, branchClient, listener)
+                .map(BitbucketDefaultBranch::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static BitbucketRefChange refChange(String name, String toHash, BitbucketRefChangeType type) {
+        return new BitbucketRefChange(new BitbucketRef("refs/heads/" + name, name, BitbucketRefType.BRANCH),
+                "refs/heads/" + name, "0000", toHash, type);
+    }
+
+    private static BitbucketRepository repository() {
+        return new BitbucketRepository(1, REPO_SLUG, new BitbucketProject(PROJECT_KEY, null, PROJECT_KEY), REPO_SLUG,
+                RepositoryState.AVAILABLE, emptyList(), BASE_URL + "/projects/PROJ/repos/repo/browse");
+    }
+
+    private static BitbucketDefaultBranch branch(String name, String latestCommit) {
+        return new BitbucketDefaultBranch("refs/heads/" + name, name, BitbucketRefType.BRANCH, latestCommit,
+                latestCommit, "master".equals(name));
+    }
+}
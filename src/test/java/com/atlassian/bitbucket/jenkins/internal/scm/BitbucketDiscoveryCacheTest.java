@@ -0,0 +1,132 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.*;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BitbucketDiscoveryCacheTest {
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final BitbucketCredentials CREDENTIALS = () -> "Bearer token";
+    private static final String PROJECT_KEY = "PROJ";
+    private static final String REPO_SLUG = "repo";
+
+    private final BitbucketDiscoveryCache cache = new BitbucketDiscoveryCache();
+
+    @Test
+    public void testDifferentCredentialsDoNotShareListings() {
+        CountingListing<BitbucketDefaultBranch> listing = new CountingListing<>(branch("master"));
+
+        listBranches(CREDENTIALS, listing);
+        listBranches(() -> "Bearer other-token", listing);
+
+        assertThat(listing.count.get(), is(2));
+    }
+
+    @Test
+    public void testDifferentListingsAreCachedSeparately() {
+        CountingListing<BitbucketDefaultBranch> branches = new CountingListing<>(branch("master"));
+        CountingListing<BitbucketTag> tags = new CountingListing<>(new BitbucketTag("refs/tags/v1", "v1", "abc"));
+
+        listBranches(CREDENTIALS, branches);
+        List<String> tagNames = cache.getTags(BASE_URL, PROJECT_KEY, REPO_SLUG, CREDENTIALS, tags)
+                .map(BitbucketTag::getDisplayId)
+                .collect(Collectors.toList());
+
+        assertThat(tagNames, contains("v1"));
+        assertThat(branches.count.get(), is(1));
+        assertThat(tags.count.get(), is(1));
+    }
+
+    @Test
+    public void testFailedListingIsNotCached() {
+        BitbucketClientException failure = new BitbucketClientException("Bitbucket is down", 503, null);
+        try {
+            cache.getBranches(BASE_URL, PROJECT_KEY, REPO_SLUG, CREDENTIALS, () -> {
+                throw failure;
+            });
+            fail("Expected the listing to fail");
+        } catch (BitbucketClientException e) {
+            assertEquals(failure, e);
+        }
+
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testInvalidateDropsListingsOfRepository() {
+        CountingListing<BitbucketDefaultBranch> listing = new CountingListing<>(branch("master"));
+        listBranches(CREDENTIALS, listing);
+
+        cache.invalidate(repository(PROJECT_KEY, REPO_SLUG));
+
+        assertThat(cache.size(), is(0L));
+        assertThat(listBranches(CREDENTIALS, listing), contains("master"));
+        assertThat(listing.count.get(), is(2));
+    }
+
+    @Test
+    public void testInvalidateKeepsListingsOfOtherRepositories() {
+        listBranches(CREDENTIALS, new CountingListing<>(branch("master")));
+
+        cache.invalidate(repository(PROJECT_KEY, "other-repo"));
+
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void testSameCredentialsShareListing() {
+        CountingListing<BitbucketDefaultBranch> listing = new CountingListing<>(branch("master"), branch("feature"));
+
+        assertThat(listBranches(CREDENTIALS, listing), contains("master", "feature"));
+        assertThat(listBranches(() -> "Bearer token", listing), contains("master", "feature"));
+        assertThat(listing.count.get(), is(1));
+    }
+
+    private List<String> listBranches(BitbucketCredentials credentials,
+                                      Supplier<Stream<BitbucketDefaultBranch>> listing) {
+        return cache.getBranches(BASE_URL, PROJECT_KEY, REPO_SLUG, credentials, listing)
+                .map(BitbucketDefaultBranch::getDisplayId)
+                .collect(Collectors.toList());
+    }
+
+    private static BitbucketDefaultBranch branch(String name) {
+        return new BitbucketDefaultBranch("refs/heads/" + name, name, BitbucketRefType.BRANCH, "abc", "abc", false);
+    }
+
+    private static BitbucketRepository repository(String projectKey, String slug) {
+        return new BitbucketRepository(1, slug, new BitbucketProject(projectKey, null, projectKey), slug,
+                RepositoryState.AVAILABLE, emptyList(), BASE_URL + "/projects/" + projectKey + "/repos/" + slug);
+    }
+
+    private static final class CountingListing<T> implements Supplier<Stream<T>> {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final T[] values;
+
+        @SafeVarargs
+        private CountingListing(T... values) {
+            this.values = values;
+        }
+
+        @Override
+        public Stream<T> get() {
+            count.incrementAndGet();
+            return Stream.of(values);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.model.*;
+import hudson.model.TaskListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.PrintStream;
+import java.time.Clock;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BitbucketPullRequestWatermarkStoreTest {
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final String PROJECT_KEY = "PROJ";
+    private static final String REPO_SLUG = "repo";
+
+    @Mock
+    private Clock clock;
+    @Mock
+    private TaskListener listener;
+    @Mock
+    private BitbucketRepositoryClient repositoryClient;
+    private BitbucketPullRequestWatermarkStore store;
+
+    @Before
+    public void setup() {
+        when(listener.getLogger()).thenReturn(mock(PrintStream.class));
+        store = new BitbucketPullRequestWatermarkStore(clock);
+    }
+
+    @Test
+    public void testFirstScanIsFull() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 10)));
+
+        assertThat(scan(), contains(2L, 1L));
+        verify(repositoryClient, never()).getPullRequestsUpdatedSince(anyLong());
+    }
+
+    @Test
+    public void testFullScanAfterInterval() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(1, BitbucketPullRequestState.OPEN, 10)))
+                .thenReturn(Stream.of(pullRequest(3, BitbucketPullRequestState.OPEN, 30)));
+        scan();
+        when(clock.millis()).thenReturn(BitbucketPullRequestWatermarkStore.FULL_SCAN_INTERVAL);
+
+        assertThat(scan(), contains(3L));
+        verify(repositoryClient, never()).getPullRequestsUpdatedSince(anyLong());
+    }
+
+    @Test
+    public void testIncrementalScanDropsClosedPullRequests() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 10)));
+        scan();
+        when(repositoryClient.getPullRequestsUpdatedSince(20))
+                .thenReturn(Stream.of(pullRequest(1, BitbucketPullRequestState.MERGED, 30),
+                        pullRequest(2, BitbucketPullRequestState.OPEN, 20)));
+
+        assertThat(scan(), contains(2L));
+    }
+
+    @Test
+    public void testIncrementalScanMergesUpdatedPullRequestsFirst() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 10)));
+        scan();
+        when(repositoryClient.getPullRequestsUpdatedSince(20))
+                .thenReturn(Stream.of(pullRequest(3, BitbucketPullRequestState.OPEN, 40),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 30),
+                        pullRequest(2, BitbucketPullRequestState.OPEN, 20)));
+        when(repositoryClient.getPullRequestsUpdatedSince(40)).thenReturn(Stream.empty());
+
+        assertThat(scan(), contains(3L, 1L, 2L));
+        assertThat(scan(), contains(3L, 1L, 2L));
+    }
+
+    @Test
+    public void testIncrementalScanStopsAtPullRequestsUpdatedBeforeLastScan() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 10)));
+        scan();
+        when(repositoryClient.getPullRequestsUpdatedSince(20))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.MERGED, 15)));
+
+        assertThat(scan(), contains(2L, 1L));
+    }
+
+    @Test
+    public void testRemovePullRequest() {
+        when(repositoryClient.getPullRequests(BitbucketPullRequestState.OPEN))
+                .thenReturn(Stream.of(pullRequest(2, BitbucketPullRequestState.OPEN, 20),
+                        pullRequest(1, BitbucketPullRequestState.OPEN, 10)));
+        scan();
+
+        store.removePullRequest(repository(), 2);
+
+        assertThat(store.getSnapshot(BASE_URL, PROJECT_KEY, REPO_SLUG).keySet(), contains(1L));
+    }
+
+    private List<Long> scan() {
+        return store.getOpenPullRequests(BASE_URL, PROJECT_KEY, REPO_SLUG, repositoryClient, listener)
+                .map(BitbucketPullRequest::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static BitbucketPullRequest pullRequest(long id, BitbucketPullRequestState state, long updatedDate) {
+        BitbucketPullRequestRef fromRef =
+                new BitbucketPullRequestRef("refs/heads/feature-" + id, "feature-" + id, repository(), "from");
+        BitbucketPullRequestRef toRef = new BitbucketPullRequestRef("refs/heads/master", "master", repository(), "to");
+        return new BitbucketPullRequest(id, state, fromRef, toRef, updatedDate, "Pull request " + id, null);
+    }
+
+    private static BitbucketRepository repository() {
+        return new BitbucketRepository(1, REPO_SLUG, new BitbucketProject(PROJECT_KEY, null, PROJECT_KEY), REPO_SLUG,
+                RepositoryState.AVAILABLE, emptyList(), BASE_URL + "/projects/PROJ/repos/repo/browse");
+    }
+}
@@ -0,0 +1,183 @@
+package com.atlassian.bitbucket.jenkins.internal.scm;
+
+import com.atlassian.bitbucket.jenkins.internal.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BitbucketRepositoryMetadataRegistryTest {
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final String MIRROR_NAME = "mirror1";
+    private static final String PROJECT_KEY = "PROJ";
+    private static final String PROJECT_NAME = "Project";
+    private static final String REPO_NAME = "Repository";
+    private static final String REPO_SLUG = "repository";
+
+    private AtomicInteger loads;
+    private BitbucketRepositoryMetadataRegistry registry;
+
+    @Before
+    public void setup() {
+        loads = new AtomicInteger();
+        registry = new BitbucketRepositoryMetadataRegistry();
+    }
+
+    @Test
+    public void testCloneUrlFallsBackToUpstreamWhenMirrorHasNone() {
+        BitbucketMirroredRepository mirroringDetails = new BitbucketMirroredRepository(true, emptyMap(), MIRROR_NAME,
+                1, BitbucketMirroredRepositoryStatus.AVAILABLE);
+        BitbucketRepositoryMetadata metadata = BitbucketRepositoryMetadata.of(
+                new EnrichedBitbucketMirroredRepository(repository(1, "http://upstream"), mirroringDetails));
+
+        assertThat(metadata.getCloneUrl(CloneProtocol.HTTP), equalTo("http://upstream"));
+        assertThat(metadata.getCloneUrl(CloneProtocol.SSH), equalTo(""));
+        assertThat(metadata.getMirrorName(), equalTo(MIRROR_NAME));
+    }
+
+    @Test
+    public void testEvictRemovesUpstreamAndMirrorEntries() {
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, MIRROR_NAME, mirrorLoader());
+
+        registry.evict(repository(1, "http://upstream"));
+
+        assertThat(registry.size(), equalTo(0L));
+    }
+
+    @Test
+    public void testRefreshReplacesUpstreamEntryAndEvictsMirrorEntry() {
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, MIRROR_NAME, mirrorLoader());
+
+        registry.refresh(repository(1, "http://renamed"));
+
+        assertThat(registry.size(), equalTo(1L));
+        BitbucketRepositoryMetadata metadata =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://reloaded")));
+        assertThat(metadata.getCloneUrl(CloneProtocol.HTTP), equalTo("http://renamed"));
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    public void testRefreshOnlyAffectsServerOfWebhook() {
+        String otherBaseUrl = "http://other.example.com";
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+        registry.resolve(otherBaseUrl, PROJECT_NAME, REPO_NAME, "",
+                loader(repository(1, "http://other-upstream", otherBaseUrl)));
+
+        registry.refresh(repository(1, "http://renamed"));
+        registry.evict(repository(1, "http://renamed", "http://third.example.com"));
+
+        assertThat(registry.size(), equalTo(2L));
+        BitbucketRepositoryMetadata other =
+                registry.resolve(otherBaseUrl, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://reloaded")));
+        assertThat(other.getCloneUrl(CloneProtocol.HTTP), equalTo("http://other-upstream"));
+        BitbucketRepositoryMetadata refreshed =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://reloaded")));
+        assertThat(refreshed.getCloneUrl(CloneProtocol.HTTP), equalTo("http://renamed"));
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    public void testRefreshDoesNotAffectServerWithSharedBaseUrlPrefix() {
+        String baseUrl = BASE_URL + "/bitbucket";
+        String longerBaseUrl = BASE_URL + "/bitbucket2";
+        registry.resolve(baseUrl, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream", baseUrl)));
+        registry.resolve(longerBaseUrl, PROJECT_NAME, REPO_NAME, "",
+                loader(repository(1, "http://longer-upstream", longerBaseUrl)));
+
+        registry.refresh(repository(1, "http://renamed", longerBaseUrl));
+
+        BitbucketRepositoryMetadata unchanged = registry.resolve(baseUrl, PROJECT_NAME, REPO_NAME, "",
+                loader(repository(1, "http://reloaded", baseUrl)));
+        assertThat(unchanged.getCloneUrl(CloneProtocol.HTTP), equalTo("http://upstream"));
+        BitbucketRepositoryMetadata refreshed = registry.resolve(longerBaseUrl, PROJECT_NAME, REPO_NAME, "",
+                loader(repository(1, "http://reloaded", longerBaseUrl)));
+        assertThat(refreshed.getCloneUrl(CloneProtocol.HTTP), equalTo("http://renamed"));
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    public void testRefreshWithoutCloneLinksEvicts() {
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+
+        registry.refresh(new BitbucketRepository(1, REPO_NAME, new BitbucketProject(PROJECT_KEY, null, PROJECT_NAME),
+                REPO_SLUG, RepositoryState.AVAILABLE, emptyList(), ""));
+
+        assertThat(registry.size(), equalTo(0L));
+    }
+
+    @Test
+    public void testResolveIsSharedForSameKey() {
+        BitbucketRepositoryMetadata first =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+        BitbucketRepositoryMetadata second =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, null, loader(repository(1, "http://other")));
+
+        assertThat(second, equalTo(first));
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    public void testResolveSeparatesMirrorsAndServers() {
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+        BitbucketRepositoryMetadata mirror =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, MIRROR_NAME, mirrorLoader());
+        registry.resolve("http://other.example.com", PROJECT_NAME, REPO_NAME, "",
+                loader(repository(1, "http://upstream")));
+
+        assertTrue(mirror.isMirror());
+        assertThat(mirror.getCloneUrl(CloneProtocol.HTTP), equalTo("http://mirror"));
+        assertThat(loads.get(), equalTo(3));
+    }
+
+    @Test
+    public void testUnresolvedRepositoryIsNotCached() {
+        BitbucketRepositoryMetadata metadata =
+                registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(-1, "")));
+        registry.resolve(BASE_URL, PROJECT_NAME, REPO_NAME, "", loader(repository(1, "http://upstream")));
+
+        assertFalse(metadata.isResolved());
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    private Callable<BitbucketRepositoryMetadata> loader(BitbucketRepository repository) {
+        return () -> {
+            loads.incrementAndGet();
+            return BitbucketRepositoryMetadata.of(repository);
+        };
+    }
+
+    private Callable<BitbucketRepositoryMetadata> mirrorLoader() {
+        BitbucketMirroredRepository mirroringDetails = new BitbucketMirroredRepository(true,
+                singletonMap("clone", singletonList(new BitbucketNamedLink("http", "http://mirror"))), MIRROR_NAME,
+                1, BitbucketMirroredRepositoryStatus.AVAILABLE);
+        return () -> {
+            loads.incrementAndGet();
+            return BitbucketRepositoryMetadata.of(
+                    new EnrichedBitbucketMirroredRepository(repository(1, "http://upstream"), mirroringDetails));
+        };
+    }
+
+    private static BitbucketRepository repository(int id, String cloneUrl) {
+        return repository(id, cloneUrl, BASE_URL);
+    }
+
+    private static BitbucketRepository repository(int id, String cloneUrl, String baseUrl) {
+        return new BitbucketRepository(id, REPO_NAME, new BitbucketProject(PROJECT_KEY, null, PROJECT_NAME),
+                REPO_SLUG, RepositoryState.AVAILABLE, singletonList(new BitbucketNamedLink("http", cloneUrl)),
+                baseUrl + "/projects/PROJ/repos/repository/browse");
+    }
+}
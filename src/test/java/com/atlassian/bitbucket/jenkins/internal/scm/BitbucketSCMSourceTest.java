@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.scm;
 
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketBranchClient;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketCommitClient;
 import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.NotFoundException;
@@ -30,7 +31,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Stream;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -565,6 +568,108 @@ public class BitbucketSCMSourceTest {
         verify(formFill).doAutoCompleteRepositoryName(context, "serverId", "creds", "project", "query");
     }
 
+    @Test
+    public void testRetrieveRevisionsResolvesBranchesFromOneListing() throws InterruptedException {
+        BitbucketSCMSource bitbucketSCMsource = new SCMSourceBuilder(CREDENTIAL_ID)
+                .serverId(SERVER_ID)
+                .projectName(PROJECT_NAME)
+                .repositorySlug(REPOSITORY_NAME)
+                .build();
+
+        TaskListener taskListener = mock(TaskListener.class);
+        MultiBranchProject<?, ?> owner = mock(MultiBranchProject.class);
+        bitbucketSCMsource.setOwner(owner);
+        BitbucketBranchSCMHead branch1 = new BitbucketBranchSCMHead("branch1");
+        BitbucketBranchSCMHead branch2 = new BitbucketBranchSCMHead("branch2");
+        BitbucketBranchSCMHead deleted = new BitbucketBranchSCMHead("deleted");
+
+        BitbucketSCMSource.DescriptorImpl descriptor = setupDescriptor(bitbucketSCMsource, SERVER_ID, BASE_URL, owner);
+        BitbucketScmHelper helper = descriptor.getBitbucketScmHelper(BASE_URL, null);
+        BitbucketRepositoryClient repositoryClient = mock(BitbucketRepositoryClient.class);
+        BitbucketBranchClient branchClient = mock(BitbucketBranchClient.class);
+        BitbucketCommitClient commitClient = mock(BitbucketCommitClient.class);
+        when(helper.getRepositoryClient(PROJECT_NAME, REPOSITORY_NAME)).thenReturn(repositoryClient);
+        when(helper.getCommitClient(PROJECT_NAME, REPOSITORY_NAME)).thenReturn(commitClient);
+        when(repositoryClient.getBranchClient(taskListener)).thenReturn(branchClient);
+        when(branchClient.getRemoteBranches()).thenReturn(Stream.of(
+                new BitbucketDefaultBranch("refs/heads/branch2", "branch2", BitbucketRefType.BRANCH, "b2", "b2", false),
+                new BitbucketDefaultBranch("refs/heads/branch1", "branch1", BitbucketRefType.BRANCH, "b1", "b1", true)));
+        when(commitClient.getCommit("refs/heads/deleted"))
+                .thenThrow(new NotFoundException("The requested resource does not exist", null));
+
+        Map<SCMHead, SCMRevision> revisions =
+                bitbucketSCMsource.retrieveRevisions(asList(branch1, branch2, deleted), taskListener);
+
+        assertEquals(2, revisions.size());
+        assertEquals("b1", ((BitbucketSCMRevision) revisions.get(branch1)).getHash());
+        assertEquals("b2", ((BitbucketSCMRevision) revisions.get(branch2)).getHash());
+        verify(commitClient).getCommit("refs/heads/deleted");
+        verifyNoMoreInteractions(commitClient);
+    }
+
+    @Test
+    public void testRetrieveIncludedHeadsResolvesRevisionsInBulk() throws IOException, InterruptedException {
+        BitbucketSCMSource bitbucketSCMsource = new SCMSourceBuilder(CREDENTIAL_ID)
+                .serverId(SERVER_ID)
+                .projectName(PROJECT_NAME)
+                .repositorySlug(REPOSITORY_NAME)
+                .build();
+
+        TaskListener taskListener = mock(TaskListener.class);
+        MultiBranchProject<?, ?> owner = mock(MultiBranchProject.class);
+        bitbucketSCMsource.setOwner(owner);
+        BitbucketBranchSCMHead branch1 = new BitbucketBranchSCMHead("branch1");
+        BitbucketBranchSCMHead branch2 = new BitbucketBranchSCMHead("branch2");
+        SCMHeadObserver observer = mock(SCMHeadObserver.class);
+        when(observer.getIncludes()).thenReturn(new HashSet<>(asList(branch1, branch2)));
+
+        BitbucketSCMSource.DescriptorImpl descriptor = setupDescriptor(bitbucketSCMsource, SERVER_ID, BASE_URL, owner);
+        BitbucketScmHelper helper = descriptor.getBitbucketScmHelper(BASE_URL, null);
+        BitbucketRepositoryClient repositoryClient = mock(BitbucketRepositoryClient.class);
+        BitbucketBranchClient branchClient = mock(BitbucketBranchClient.class);
+        BitbucketCommitClient commitClient = mock(BitbucketCommitClient.class);
+        when(helper.getRepositoryClient(PROJECT_NAME, REPOSITORY_NAME)).thenReturn(repositoryClient);
+        when(helper.getCommitClient(PROJECT_NAME, REPOSITORY_NAME)).thenReturn(commitClient);
+        when(repositoryClient.getBranchClient(taskListener)).thenReturn(branchClient);
+        when(branchClient.getRemoteBranches()).thenReturn(Stream.of(
+                new BitbucketDefaultBranch("refs/heads/branch2", "branch2", BitbucketRefType.BRANCH, "b2", "b2", false),
+                new BitbucketDefaultBranch("refs/heads/branch1", "branch1", BitbucketRefType.BRANCH, "b1", "b1", true)));
+
+        bitbucketSCMsource.retrieve(null, observer, null, taskListener);
+        SCMRevision revision = bitbucketSCMsource.retrieve(branch1, taskListener);
+
+        assertEquals("b1", ((BitbucketSCMRevision) revision).getHash());
+        verify(branchClient).getRemoteBranches();
+        verifyNoInteractions(commitClient);
+    }
+
+    @Test
+    public void testRetrieveReusesRecentlyResolvedRevision() throws IOException, InterruptedException {
+        BitbucketSCMSource bitbucketSCMsource = new SCMSourceBuilder(CREDENTIAL_ID)
+                .serverId(SERVER_ID)
+                .projectName(PROJECT_NAME)
+                .repositorySlug(REPOSITORY_NAME)
+                .build();
+
+        TaskListener taskListener = mock(TaskListener.class);
+        MultiBranchProject<?, ?> owner = mock(MultiBranchProject.class);
+        bitbucketSCMsource.setOwner(owner);
+        BitbucketBranchSCMHead head = new BitbucketBranchSCMHead("branch1");
+
+        BitbucketSCMSource.DescriptorImpl descriptor = setupDescriptor(bitbucketSCMsource, SERVER_ID, BASE_URL, owner);
+        BitbucketScmHelper helper = descriptor.getBitbucketScmHelper(BASE_URL, null);
+        BitbucketCommitClient commitClient = mock(BitbucketCommitClient.class);
+        when(helper.getCommitClient(PROJECT_NAME, REPOSITORY_NAME)).thenReturn(commitClient);
+        when(commitClient.getCommit("refs/heads/branch1"))
+                .thenReturn(new BitbucketCommit("a1b2c3d4e5f6", "a1b2c3", 1L, "message"));
+
+        SCMRevision first = bitbucketSCMsource.retrieve(head, taskListener);
+        SCMRevision second = bitbucketSCMsource.retrieve(head, taskListener);
+
+        assertEquals(first, second);
+        verify(commitClient, times(1)).getCommit("refs/heads/branch1");
+    }
+
     @Test
     public void testRetrieveUnknownHeadType() throws IOException, InterruptedException {
         BitbucketSCMSource bitbucketSCMsource = new SCMSourceBuilder(CREDENTIAL_ID)
@@ -677,6 +782,8 @@ public class BitbucketSCMSourceTest {
                                 nullable(Credentials.class)))
                                 .thenReturn(scmHelper);
                         when(descriptor.getRetryingWebhookHandler()).thenReturn(mock(RetryingWebhookHandler.class));
+                        when(descriptor.getRepositoryMetadataRegistry())
+                                .thenReturn(new BitbucketRepositoryMetadataRegistry());
                         when(scmHelper.getRepository(nullable(String.class), nullable(String.class))).thenReturn(repository);
                         when(scmHelper.getDefaultBranch(nullable(String.class), nullable(String.class)))
                                 .thenReturn(Optional.of(DEFAULT_BRANCH));
@@ -197,6 +197,7 @@ public class BitbucketSCMTest {
                 nullable(String.class),
                 nullable(BitbucketTokenCredentials.class)))
                 .thenReturn(mock(BitbucketScmHelper.class));
+        when(descriptor.getRepositoryMetadataRegistry()).thenReturn(new BitbucketRepositoryMetadataRegistry());
         return descriptor;
     }
 
@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.scm;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.client.*;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.AuthorizationException;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
@@ -72,6 +73,8 @@ public class BitbucketScmFormFillDelegateTest {
             .put("myProject", Arrays.asList("test-match", "test-match2"))
             .build();
     @Mock
+    private BitbucketCatalog bitbucketCatalog;
+    @Mock
     private BitbucketClientFactory bitbucketClientFactory;
     @Mock
     private BitbucketClientFactoryProvider clientFactoryProvider;
@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.scm;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.client.*;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
@@ -52,6 +53,8 @@ public class BitbucketScmFormValidationDelegateTest {
     @InjectMocks
     BitbucketScmFormValidationDelegate delegate;
     @Mock
+    private BitbucketCatalog bitbucketCatalog;
+    @Mock
     private BitbucketClientFactory bitbucketClientFactory;
     @Mock
     private BitbucketClientFactoryProvider clientFactoryProvider;
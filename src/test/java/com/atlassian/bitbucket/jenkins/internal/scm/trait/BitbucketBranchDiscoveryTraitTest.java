@@ -8,6 +8,8 @@ import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCr
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketDefaultBranch;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketRefType;
 import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketBranchSCMHead;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketBranchWatermarkStore;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketDiscoveryCache;
 import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMHeadDiscoveryHandler;
 import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
 import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSourceContext;
@@ -24,6 +26,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
@@ -46,11 +49,15 @@ public class BitbucketBranchDiscoveryTraitTest {
     @Mock
     private BitbucketBranchClient bitbucketBranchClient;
     @Mock
+    private BitbucketBranchWatermarkStore bitbucketBranchWatermarkStore;
+    @Mock
     private BitbucketClientFactory bitbucketClientFactory;
     @Mock
     private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     @Mock
     private BitbucketCredentials bitbucketCredentials;
+    @Spy
+    private BitbucketDiscoveryCache discoveryCache = new BitbucketDiscoveryCache();
     @Mock
     private BitbucketPluginConfiguration bitbucketPluginConfiguration;
     @Mock
@@ -152,6 +159,49 @@ public class BitbucketBranchDiscoveryTraitTest {
         assertThat(heads, Matchers.contains(new BitbucketBranchSCMHead(branch)));
     }
 
+    @Test
+    public void testDecorateContextSharesListingBetweenScans() {
+        BitbucketDefaultBranch branch =
+                new BitbucketDefaultBranch("1", "master", BitbucketRefType.BRANCH, "1", "2", false);
+        doReturn(Collections.singleton(branch).stream()).when(bitbucketBranchClient).getRemoteBranches();
+
+        underTest.decorateContext(testContext);
+        underTest.decorateContext(testContext);
+
+        ArgumentCaptor<BitbucketSCMHeadDiscoveryHandler> handlerCaptor =
+                ArgumentCaptor.forClass(BitbucketSCMHeadDiscoveryHandler.class);
+        verify(testContext, times(2)).withDiscoveryHandler(handlerCaptor.capture());
+
+        for (BitbucketSCMHeadDiscoveryHandler handler : handlerCaptor.getAllValues()) {
+            List<SCMHead> heads = handler.discoverHeads().collect(Collectors.toList());
+            assertThat(heads, Matchers.contains(new BitbucketBranchSCMHead(branch)));
+        }
+        // Verify that the second scan reuses the listing of the first
+        verify(bitbucketBranchClient).getRemoteBranches();
+    }
+
+    @Test
+    public void testDecorateContextWithIncrementalDiscovery() {
+        BitbucketDefaultBranch branch =
+                new BitbucketDefaultBranch("1", "master", BitbucketRefType.BRANCH, "1", "2", false);
+        doReturn(true).when(bitbucketBranchWatermarkStore).isEnabled();
+        doReturn(Collections.singleton(branch).stream()).when(bitbucketBranchWatermarkStore)
+                .getBranches(TEST_URL, TEST_PROJECT_KEY, TEST_REPOSITORY_SLUG, bitbucketBranchClient, taskListener);
+
+        underTest.decorateContext(testContext);
+
+        ArgumentCaptor<BitbucketSCMHeadDiscoveryHandler> handlerCaptor =
+                ArgumentCaptor.forClass(BitbucketSCMHeadDiscoveryHandler.class);
+        verify(testContext).withDiscoveryHandler(handlerCaptor.capture());
+
+        BitbucketSCMHeadDiscoveryHandler handler = handlerCaptor.getValue();
+        List<SCMHead> heads = handler.discoverHeads().collect(Collectors.toList());
+
+        // Verify that branches come from the watermark store rather than a capped fetch
+        verify(bitbucketBranchClient, never()).getRemoteBranches();
+        assertThat(heads, Matchers.contains(new BitbucketBranchSCMHead(branch)));
+    }
+
     private void initContext(Set<SCMHead> eventHeads) {
         testContext = spy(new BitbucketSCMSourceContext(scmSourceCriteria,
                 scmHeadObserver,
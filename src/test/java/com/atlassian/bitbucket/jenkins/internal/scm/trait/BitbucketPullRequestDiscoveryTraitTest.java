@@ -26,6 +26,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Collections;
@@ -54,11 +55,15 @@ public class BitbucketPullRequestDiscoveryTraitTest {
     private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     @Mock
     private BitbucketCredentials bitbucketCredentials;
+    @Spy
+    private BitbucketDiscoveryCache discoveryCache = new BitbucketDiscoveryCache();
     @Mock
     private BitbucketPluginConfiguration bitbucketPluginConfiguration;
     @Mock
     private BitbucketProjectClient bitbucketProjectClient;
     @Mock
+    private BitbucketPullRequestWatermarkStore bitbucketPullRequestWatermarkStore;
+    @Mock
     private BitbucketRepositoryClient bitbucketRepositoryClient;
     @Mock
     private BitbucketSCMRepository bitbucketSCMRepository;
@@ -197,6 +202,27 @@ public class BitbucketPullRequestDiscoveryTraitTest {
         ));
     }
 
+    @Test
+    public void testDecorateContextWithIncrementalDiscovery() {
+        BitbucketPullRequest pullRequest = mockPullRequest(1, false);
+        doReturn(true).when(bitbucketPullRequestWatermarkStore).isEnabled();
+        doReturn(Stream.of(pullRequest)).when(bitbucketPullRequestWatermarkStore).getOpenPullRequests(TEST_URL,
+                TEST_PROJECT_KEY, TEST_REPOSITORY_SLUG, bitbucketRepositoryClient, taskListener);
+
+        underTest.decorateContext(testContext);
+
+        ArgumentCaptor<BitbucketSCMHeadDiscoveryHandler> handlerCaptor =
+                ArgumentCaptor.forClass(BitbucketSCMHeadDiscoveryHandler.class);
+        verify(testContext).withDiscoveryHandler(handlerCaptor.capture());
+
+        BitbucketSCMHeadDiscoveryHandler handler = handlerCaptor.getValue();
+        List<SCMHead> heads = handler.discoverHeads().collect(Collectors.toList());
+
+        // Verify that open pull requests come from the watermark store rather than a full listing
+        verify(bitbucketRepositoryClient, never()).getPullRequests(BitbucketPullRequestState.OPEN);
+        assertThat(heads, Matchers.contains(new BitbucketPullRequestSCMHead(pullRequest)));
+    }
+
     private void initContext(Set<SCMHead> eventHeads) {
         testContext = spy(new BitbucketSCMSourceContext(scmSourceCriteria,
                 scmHeadObserver,
@@ -21,6 +21,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
@@ -49,6 +50,8 @@ public class BitbucketTagDiscoveryTraitTest {
     private BitbucketClientFactoryProvider bitbucketClientFactoryProvider;
     @Mock
     private BitbucketCredentials bitbucketCredentials;
+    @Spy
+    private BitbucketDiscoveryCache discoveryCache = new BitbucketDiscoveryCache();
     @Mock
     private BitbucketPluginConfiguration bitbucketPluginConfiguration;
     @Mock
@@ -241,6 +241,49 @@ public class BitbucketBuildStatusFactoryImplTest {
         assertThat(result.getTestResults().getSuccessful(), equalTo(passCount));
     }
 
+    @Test
+    public void testCompletedRunRemembersTestResultsSummary() {
+        TestResultAction testResultAction = mock(TestResultAction.class);
+        when(freeStyleRun.isBuilding()).thenReturn(false);
+        when(freeStyleRun.getResult()).thenReturn(Result.UNSTABLE);
+        when(freeStyleRun.getAction(TestResultAction.class)).thenReturn(testResultAction);
+        when(testResultAction.getFailCount()).thenReturn(1);
+        when(testResultAction.getSkipCount()).thenReturn(2);
+        when(testResultAction.getTotalCount()).thenReturn(6);
+
+        createBitbucketBuildStatus(freeStyleRun, true);
+
+        verify(freeStyleRun).addOrReplaceAction(argThat((TestResultsSummaryAction summary) ->
+                summary.getSuccessful() == 3 && summary.getFailed() == 1 && summary.getSkipped() == 2));
+    }
+
+    @Test
+    public void testInProgressRunDoesNotRememberTestResultsSummary() {
+        TestResultAction testResultAction = mock(TestResultAction.class);
+        when(workflowRun.isBuilding()).thenReturn(true);
+        when(workflowRun.getAction(TestResultAction.class)).thenReturn(testResultAction);
+        when(testResultAction.getTotalCount()).thenReturn(1);
+
+        BitbucketBuildStatus result = createBitbucketBuildStatus(workflowRun, true);
+
+        assertThat(result.getTestResults().getSuccessful(), equalTo(1));
+        verify(workflowRun, never()).addOrReplaceAction(any());
+    }
+
+    @Test
+    public void testTestResultsSummaryIsUsedWithoutTestReport() {
+        when(freeStyleRun.isBuilding()).thenReturn(false);
+        when(freeStyleRun.getResult()).thenReturn(Result.SUCCESS);
+        when(freeStyleRun.getAction(TestResultsSummaryAction.class)).thenReturn(new TestResultsSummaryAction(3, 1, 2));
+
+        BitbucketBuildStatus result = createBitbucketBuildStatus(freeStyleRun, true);
+
+        assertThat(result.getTestResults().getSuccessful(), equalTo(3));
+        assertThat(result.getTestResults().getFailed(), equalTo(1));
+        assertThat(result.getTestResults().getIgnored(), equalTo(2));
+        verify(freeStyleRun, never()).getAction(TestResultAction.class);
+    }
+
     private BitbucketBuildStatus createBitbucketBuildStatus(Run<?, ?> run) {
         return createBitbucketBuildStatus(run, false);
     }
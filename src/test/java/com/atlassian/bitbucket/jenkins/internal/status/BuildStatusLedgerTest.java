@@ -0,0 +1,132 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
+import com.atlassian.bitbucket.jenkins.internal.model.BuildState;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import hudson.XmlFile;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.INPROGRESS;
+import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.SUCCESSFUL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BuildStatusLedgerTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final String REVISION_SHA = "67d71c2133aab0e070fb8100e3e71220332c5af1";
+    private static final String SERVER_ID = "serverId";
+    private static final BitbucketSCMRepository repository =
+            new BitbucketSCMRepository(null, null, "Project", "PROJ", "Repo", "repo", SERVER_ID, "");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+    }
+
+    @Test
+    public void testClaimSameStatusIsSuppressed() {
+        BuildStatusLedger ledger = new BuildStatusLedger(10, false);
+
+        assertThat(claim(ledger, "key", INPROGRESS, "url"), is(true));
+        assertThat(claim(ledger, "key", INPROGRESS, "url"), is(false));
+
+        assertThat(ledger.getPostedCount(), is(1L));
+        assertThat(ledger.getSuppressedCount(), is(1L));
+    }
+
+    @Test
+    public void testClaimNewStateOrRunIsPosted() {
+        BuildStatusLedger ledger = new BuildStatusLedger(10, false);
+
+        assertThat(claim(ledger, "key", INPROGRESS, "url"), is(true));
+        assertThat(claim(ledger, "key", SUCCESSFUL, "url"), is(true));
+        // A later run of the same job posting the same state
+        assertThat(claim(ledger, "key", SUCCESSFUL, "url2"), is(true));
+        assertThat(claim(ledger, "key2", SUCCESSFUL, "url2"), is(true));
+
+        assertThat(ledger.getSuppressedCount(), is(0L));
+    }
+
+    @Test
+    public void testEntriesAreBounded() {
+        BuildStatusLedger ledger = new BuildStatusLedger(2, false);
+
+        claim(ledger, "key1", SUCCESSFUL, "url");
+        claim(ledger, "key2", SUCCESSFUL, "url");
+        claim(ledger, "key3", SUCCESSFUL, "url");
+
+        assertThat(ledger.size(), is(2));
+    }
+
+    @Test
+    public void testEntriesArePersisted() {
+        BuildStatusLedger ledger = new TestLedger();
+        claim(ledger, "key", SUCCESSFUL, "url");
+        ledger.saveIfDirty();
+
+        BuildStatusLedger restarted = new TestLedger();
+
+        assertThat(claim(restarted, "key", SUCCESSFUL, "url"), is(false));
+    }
+
+    @Test
+    public void testReleasedStatusIsPostedAgain() {
+        BuildStatusLedger ledger = new BuildStatusLedger(10, false);
+        BitbucketBuildStatus buildStatus = new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "url").build();
+        ledger.claim(SERVER_ID, repository, REVISION_SHA, buildStatus);
+
+        ledger.release(SERVER_ID, repository, REVISION_SHA, buildStatus);
+
+        assertThat(claim(ledger, "key", SUCCESSFUL, "url"), is(true));
+    }
+
+    @Test
+    public void testStatusSuppressedDuringFailedPostIsNotPostedOnRelease() {
+        BuildStatusLedger ledger = new BuildStatusLedger(10, false);
+        BitbucketBuildStatus buildStatus = new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "url").build();
+        ledger.claim(SERVER_ID, repository, REVISION_SHA, buildStatus);
+        // Skipped while the first claim is being posted
+        assertThat(claim(ledger, "key", SUCCESSFUL, "url"), is(false));
+
+        ledger.release(SERVER_ID, repository, REVISION_SHA, buildStatus);
+
+        // The skipped status is not remembered, so nothing is posted until the status is claimed again
+        assertThat(ledger.getPostedCount(), is(1L));
+        assertThat(ledger.getSuppressedCount(), is(1L));
+        assertThat(ledger.size(), is(0));
+        assertThat(claim(ledger, "key", SUCCESSFUL, "url"), is(true));
+    }
+
+    private static boolean claim(BuildStatusLedger ledger, String key, BuildState state, String url) {
+        return ledger.claim(SERVER_ID, repository, REVISION_SHA, new BitbucketBuildStatus.Builder(key, state, url)
+                .build());
+    }
+
+    private class TestLedger extends BuildStatusLedger {
+
+        private TestLedger() {
+            super(10, true);
+        }
+
+        @Override
+        XmlFile getLedgerFile() {
+            return new XmlFile(new File(directory, LEDGER_FILE_NAME));
+        }
+    }
+}
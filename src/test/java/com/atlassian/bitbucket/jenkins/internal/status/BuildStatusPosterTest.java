@@ -1,6 +1,8 @@
 package com.atlassian.bitbucket.jenkins.internal.status;
 
+import com.atlassian.bitbucket.jenkins.internal.catchup.FailedPostStore;
 import com.atlassian.bitbucket.jenkins.internal.client.exception.BitbucketClientException;
+import com.atlassian.bitbucket.jenkins.internal.client.exception.ServerErrorException;
 import com.atlassian.bitbucket.jenkins.internal.fixture.mocks.BitbucketJenkinsSetup;
 import com.atlassian.bitbucket.jenkins.internal.fixture.mocks.TestBitbucketClientFactoryHandler;
 import com.atlassian.bitbucket.jenkins.internal.model.BitbucketBuildStatus;
@@ -11,6 +13,7 @@ import hudson.model.TaskListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner.Silent;
 
@@ -22,6 +25,7 @@ import java.util.Optional;
 import static com.atlassian.bitbucket.jenkins.internal.fixture.mocks.BitbucketJenkinsSetup.SERVER_ID;
 import static com.atlassian.bitbucket.jenkins.internal.model.BuildState.SUCCESSFUL;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.*;
 
 @RunWith(Silent.class)
@@ -46,6 +50,8 @@ public class BuildStatusPosterTest {
     private AbstractProject project;
     @Mock
     private BitbucketBuildStatusFactory buildStatusFactory;
+    @Mock
+    private FailedPostStore failedPostStore;
 
     private BitbucketBuildStatus.Builder buildStatus = new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "aUrl");
     private TestBitbucketClientFactoryHandler clientFactoryMock;
@@ -64,7 +70,9 @@ public class BuildStatusPosterTest {
                 clientFactoryMock.getBitbucketClientFactoryProvider(),
                 jenkinsSetupMock.getPluginConfiguration(),
                 jenkinsSetupMock.getJenkinsToBitbucketConverter(),
-                buildStatusFactory));
+                buildStatusFactory,
+                new BuildStatusLedger(),
+                failedPostStore));
         when(buildStatusPoster.useLegacyBuildStatus()).thenReturn(false);
 
         when(run.getProject()).thenReturn(project);
@@ -81,6 +89,31 @@ public class BuildStatusPosterTest {
         verify(clientFactoryMock.getBuildStatusClient()).post(any(), any());
     }
 
+    @Test
+    public void testBitbucketUnavailableRecordsFailedPost() {
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Collections.singletonList(action));
+        ServerErrorException error = new ServerErrorException("Bitbucket is down", 503, "");
+        doThrow(error).when(clientFactoryMock.getBuildStatusClient())
+                .post(any(BitbucketBuildStatus.Builder.class), any());
+
+        buildStatusPoster.onCompleted(run, listener);
+
+        verify(failedPostStore).recordBuildStatus(SERVER_ID, scmRepository, REVISION_SHA1, buildStatus, run, error);
+        verify(failedPostStore, never()).resolveBuildStatus(any(), any(), any(), any());
+        verify(logger).println("The build status will be posted again once Bitbucket Server is available");
+    }
+
+    @Test
+    public void testBitbucketRejectionDoesNotRecordFailedPost() {
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Collections.singletonList(action));
+        doThrow(new BitbucketClientException("Bad request", 400, "")).when(clientFactoryMock.getBuildStatusClient())
+                .post(any(BitbucketBuildStatus.Builder.class), any());
+
+        buildStatusPoster.onCompleted(run, listener);
+
+        verifyNoInteractions(failedPostStore);
+    }
+
     @Test
     public void testNoBuildAction() {
         when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Collections.emptyList());
@@ -120,6 +153,7 @@ public class BuildStatusPosterTest {
 
         verify(clientFactoryMock.getBuildStatusClient()).post(eq(buildStatus), any());
         verify(buildStatusFactory).prepareBuildStatus(run, action);
+        verify(failedPostStore).resolveBuildStatus(SERVER_ID, scmRepository, REVISION_SHA1, "key");
     }
 
     @Test
@@ -148,10 +182,72 @@ public class BuildStatusPosterTest {
     @Test
     public void testSuccessfulPostMultipleActions() {
         when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Arrays.asList(action, action));
+        when(buildStatusFactory.prepareBuildStatus(run, action)).thenReturn(buildStatus,
+                new BitbucketBuildStatus.Builder("key2", SUCCESSFUL, "aUrl"));
 
         buildStatusPoster.onCompleted(run, listener);
 
-        verify(clientFactoryMock.getBuildStatusClient(), times(2)).post(eq(buildStatus), any());
+        verify(clientFactoryMock.getBuildStatusClient(), times(2)).post(any(), any());
         verify(buildStatusFactory, times(2)).prepareBuildStatus(run, action);
     }
+
+    @Test
+    public void testSamePostIsSkipped() {
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Collections.singletonList(action));
+        when(buildStatusFactory.prepareBuildStatus(run, action)).thenReturn(
+                new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "aUrl"),
+                new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "aUrl"));
+
+        buildStatusPoster.onCompleted(run, listener);
+        buildStatusPoster.onCompleted(run, listener);
+
+        verify(clientFactoryMock.getBuildStatusClient()).post(any(), any());
+        verify(logger).println(contains("was already posted"));
+    }
+
+    @Test
+    public void testFailedPostIsNotSkipped() {
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Collections.singletonList(action));
+        when(buildStatusFactory.prepareBuildStatus(run, action)).thenReturn(
+                new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "aUrl"),
+                new BitbucketBuildStatus.Builder("key", SUCCESSFUL, "aUrl"));
+        doThrow(BitbucketClientException.class).doNothing()
+                .when(clientFactoryMock.getBuildStatusClient()).post(any(BitbucketBuildStatus.Builder.class), any());
+
+        buildStatusPoster.onCompleted(run, listener);
+        buildStatusPoster.onCompleted(run, listener);
+
+        verify(clientFactoryMock.getBuildStatusClient(), times(2)).post(any(), any());
+    }
+
+    @Test
+    public void testMultipleActionsLookUpCapabilitiesOnce() {
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Arrays.asList(action, action, action));
+        when(buildStatusFactory.prepareBuildStatus(run, action)).thenReturn(buildStatus,
+                new BitbucketBuildStatus.Builder("key2", SUCCESSFUL, "aUrl"),
+                new BitbucketBuildStatus.Builder("key3", SUCCESSFUL, "aUrl"));
+
+        buildStatusPoster.onCompleted(run, listener);
+
+        verify(clientFactoryMock.getBuildStatusClient(), times(3)).post(any(), any());
+        verify(clientFactoryMock.getCapabilitiesClient()).getCICapabilities();
+        verify(clientFactoryMock.getBitbucketClientFactoryProvider()).getClient(any(), any());
+    }
+
+    @Test
+    public void testMultipleActionsLogInOrder() {
+        BitbucketSCMRepository otherRepository =
+                new BitbucketSCMRepository(null, null, PROJECT_NAME, PROJECT_NAME, REPO_SLUG, REPO_SLUG, "other", "");
+        BitbucketRevisionAction otherAction = new BitbucketRevisionAction(otherRepository, "master", REVISION_SHA1);
+        when(run.getActions(BitbucketRevisionAction.class)).thenReturn(Arrays.asList(action, otherAction));
+        when(jenkinsSetupMock.getPluginConfiguration().getServerById("other")).thenReturn(Optional.empty());
+        doThrow(new RuntimeException("Bitbucket is down")).when(clientFactoryMock.getBuildStatusClient())
+                .post(any(BitbucketBuildStatus.Builder.class), any());
+
+        buildStatusPoster.onCompleted(run, listener);
+
+        InOrder inOrder = inOrder(logger);
+        inOrder.verify(logger).print(contains("Bitbucket is down"));
+        inOrder.verify(logger).print(contains("config does not exist"));
+    }
 }
@@ -0,0 +1,117 @@
+package com.atlassian.bitbucket.jenkins.internal.status;
+
+import com.atlassian.bitbucket.jenkins.internal.provider.GlobalLibrariesProvider;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.util.SerializationFriendlySCM;
+import com.cloudbees.hudson.plugins.folder.Folder;
+import hudson.model.FreeStyleProject;
+import hudson.scm.SCM;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.libs.FolderLibraries;
+import org.jenkinsci.plugins.workflow.libs.GlobalLibraries;
+import org.jenkinsci.plugins.workflow.libs.LibraryConfiguration;
+import org.jenkinsci.plugins.workflow.libs.SCMRetriever;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LibrarySCMIndexTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public final MockitoRule mockito = MockitoJUnit.rule();
+
+    @Mock
+    private GlobalLibraries globalLibraries;
+    private LibrarySCMIndex index;
+    @Mock
+    private GlobalLibrariesProvider librariesProvider;
+
+    @Before
+    public void setup() {
+        when(librariesProvider.get()).thenReturn(globalLibraries);
+        when(globalLibraries.getLibraries()).thenReturn(emptyList());
+        index = new LibrarySCMIndex(librariesProvider);
+    }
+
+    @Test
+    public void testFolderLibraryIsForgottenWhenFolderChanges() throws Exception {
+        Folder folder = new Folder(jenkins.getInstance().getItemGroup(), "Folder");
+        WorkflowJob job = new WorkflowJob(folder, "Job");
+        BitbucketSCM scm = bitbucketSCM("LibraryID");
+
+        assertThat(index.isLibrary(job, scm), is(false));
+
+        folder.addProperty(new FolderLibraries(singletonList(library(scm))));
+        // Still the ids collected before the change, until the folder is forgotten
+        assertThat(index.isLibrary(job, scm), is(false));
+
+        index.forgetFolder(folder.getFullName());
+
+        assertThat(index.isLibrary(job, scm), is(true));
+    }
+
+    @Test
+    public void testFolderTreeIsForgotten() throws Exception {
+        Folder parentFolder = new Folder(jenkins.getInstance().getItemGroup(), "ParentFolder");
+        Folder folder = new Folder(parentFolder, "Folder");
+        WorkflowJob job = new WorkflowJob(folder, "Job");
+        BitbucketSCM scm = bitbucketSCM("LibraryID");
+        index.isLibrary(job, scm);
+        folder.addProperty(new FolderLibraries(singletonList(library(scm))));
+
+        index.forgetFolderTree(parentFolder.getFullName());
+
+        assertThat(index.isLibrary(job, scm), is(true));
+    }
+
+    @Test
+    public void testGlobalLibrariesAreCollectedOnceUntilForgotten() {
+        BitbucketSCM scm = bitbucketSCM("LibraryID");
+        FreeStyleProject project = mock(FreeStyleProject.class);
+
+        assertThat(index.isLibrary(project, scm), is(false));
+        assertThat(index.isLibrary(project, scm), is(false));
+        verify(globalLibraries, times(1)).getLibraries();
+
+        when(globalLibraries.getLibraries()).thenReturn(singletonList(library(scm)));
+        index.forgetGlobalLibraries();
+
+        assertThat(index.isLibrary(project, scm), is(true));
+    }
+
+    @Test
+    public void testNonBitbucketSCMIsNotLibrary() {
+        FreeStyleProject project = mock(FreeStyleProject.class);
+
+        assertThat(index.isLibrary(project, mock(SCM.class)), is(false));
+        verify(globalLibraries, times(0)).getLibraries();
+    }
+
+    private static BitbucketSCM bitbucketSCM(String id) {
+        BitbucketSCM scm = mock(BitbucketSCM.class);
+        when(scm.getId()).thenReturn(id);
+        return scm;
+    }
+
+    private static LibraryConfiguration library(BitbucketSCM scm) {
+        return new LibraryConfiguration("library", new SCMRetriever(new SerializationFriendlySCM(scm)));
+    }
+}
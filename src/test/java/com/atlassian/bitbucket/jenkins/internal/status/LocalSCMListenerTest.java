@@ -96,7 +96,8 @@ public class LocalSCMListenerTest extends HudsonTestCase {
         when(bitbucketSCM.getBitbucketSCMRepository()).thenReturn(scmRepository);
         when(repositoryHelper.getRepository(any(), eq(bitbucketSCM))).thenReturn(scmRepository);
         when(repositoryHelper.getRepository(any(), eq(gitSCM))).thenReturn(scmRepository);
-        listener = spy(new LocalSCMListener(buildStatusPoster, librariesProvider, repositoryHelper));
+        listener = spy(new LocalSCMListener(buildStatusPoster, new LibrarySCMIndex(librariesProvider),
+                repositoryHelper));
         when(librariesProvider.get()).thenReturn(globalLibraries);
     }
 
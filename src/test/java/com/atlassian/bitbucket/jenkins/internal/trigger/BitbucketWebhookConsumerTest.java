@@ -1,5 +1,6 @@
 package com.atlassian.bitbucket.jenkins.internal.trigger;
 
+import com.atlassian.bitbucket.jenkins.internal.catalog.BitbucketCatalog;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
 import com.atlassian.bitbucket.jenkins.internal.model.*;
@@ -74,7 +75,15 @@ public class BitbucketWebhookConsumerTest {
     @Mock
     private BitbucketSCM bitbucketSCM;
     @Mock
+    private BitbucketBranchWatermarkStore branchWatermarkStore;
+    @Mock
+    private BitbucketCatalog bitbucketCatalog;
+    @Mock
+    private BitbucketDiscoveryCache discoveryCache;
+    @Mock
     private BitbucketWebhookTriggerImpl bitbucketTrigger;
+    @Mock
+    private BitbucketRepositoryMetadataRegistry repositoryMetadataRegistry;
     @InjectMocks
     private BitbucketWebhookConsumer consumer;
     private FreeStyleProject freeStyleProject;
@@ -88,6 +97,8 @@ public class BitbucketWebhookConsumerTest {
     private FreeStyleProject nullProject;
     @Mock
     private BitbucketPullRequest pullRequest;
+    @Mock
+    private BitbucketPullRequestWatermarkStore pullRequestWatermarkStore;
     private PullRequestClosedWebhookEvent pullRequestClosedEvent;
     private PullRequestOpenedWebhookEvent pullRequestOpenedEvent;
     private RefsChangedWebhookEvent refsChangedEvent;
@@ -314,6 +325,8 @@ public class BitbucketWebhookConsumerTest {
 
         verify(workflowTrigger, never())
                 .trigger(BitbucketWebhookTriggerRequest.builder().actor(BITBUCKET_USER).build());
+        verify(pullRequestWatermarkStore).removePullRequest(bitbucketRepository, pullRequest.getId());
+        verify(discoveryCache).invalidate(bitbucketRepository);
 
         SCMHeadEvent<? extends AbstractWebhookEvent> event = events.poll(EVENT_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
         assertNotNull(event);
@@ -402,6 +415,8 @@ public class BitbucketWebhookConsumerTest {
 
         verify(bitbucketTrigger, never()).trigger(any());
         verify(workflowTrigger, never()).trigger(any());
+        verify(branchWatermarkStore).removeBranches(bitbucketRepository, singleton("refs/heads/master"));
+        verify(discoveryCache).invalidate(bitbucketRepository);
 
         SCMHeadEvent<? extends AbstractWebhookEvent> event = events.poll(EVENT_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
         assertNotNull(event);
@@ -461,6 +476,7 @@ public class BitbucketWebhookConsumerTest {
 
         verify(bitbucketTrigger, never()).trigger(any());
         verify(workflowTrigger, never()).trigger(any());
+        verify(repositoryMetadataRegistry).evict(repository);
 
         SCMHeadEvent<? extends AbstractWebhookEvent> event = events.poll(EVENT_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
         assertNotNull(event);
@@ -480,6 +496,7 @@ public class BitbucketWebhookConsumerTest {
 
         verify(bitbucketTrigger, never()).trigger(any());
         verify(workflowTrigger, never()).trigger(any());
+        verify(repositoryMetadataRegistry).refresh(repository);
 
         SCMHeadEvent<? extends AbstractWebhookEvent> event = events.poll(EVENT_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
         assertNotNull(event);
@@ -565,6 +582,8 @@ public class BitbucketWebhookConsumerTest {
                 .trigger(BitbucketWebhookTriggerRequest.builder().actor(BITBUCKET_USER).build());
         verify(nullBitbucketTrigger, never()).
                 trigger(any());
+        verify(branchWatermarkStore).updateBranches(refsChangedEvent.getRepository(),
+                new HashSet<>(refsChangedEvent.getChanges()));
 
         SCMHeadEvent<? extends AbstractWebhookEvent> event = events.poll(EVENT_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
         assertNotNull(event);
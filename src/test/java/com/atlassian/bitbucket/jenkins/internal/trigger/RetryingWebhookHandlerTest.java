@@ -24,6 +24,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Optional;
 
+import static com.atlassian.bitbucket.jenkins.internal.trigger.events.BitbucketWebhookEvent.PULL_REQUEST_OPENED;
+import static com.atlassian.bitbucket.jenkins.internal.trigger.events.BitbucketWebhookEvent.REPO_REF_CHANGE;
 import static com.atlassian.bitbucket.jenkins.internal.util.TestUtils.*;
 import static java.util.Collections.emptySet;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -113,6 +115,46 @@ public class RetryingWebhookHandlerTest {
         verify(bitbucketWebhookClient).registerWebhook(argThat((BitbucketWebhookRequest request) -> request.getName().equals(WEBHOOK_NAME)));
     }
 
+    @Test
+    public void testRegisteringCoveredEventsAgainDoesNotContactBitbucket() {
+        BitbucketWebhook t = new BitbucketWebhook(1, WEBHOOK_NAME, emptySet(), "", true);
+        when(bitbucketWebhookClient.registerWebhook(any(BitbucketWebhookRequest.class))).thenReturn(t);
+
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, true, true);
+        BitbucketWebhook r =
+                retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, false, true);
+
+        assertThat(r, is(t));
+        verify(bitbucketWebhookClient).registerWebhook(any(BitbucketWebhookRequest.class));
+    }
+
+    @Test
+    public void testRegisteringOtherEventsMergesWithRegisteredEvents() {
+        BitbucketWebhook t = new BitbucketWebhook(1, WEBHOOK_NAME, emptySet(), "", true);
+        when(bitbucketWebhookClient.registerWebhook(any(BitbucketWebhookRequest.class))).thenReturn(t);
+
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, false, true);
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, true, false);
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, true, true);
+
+        verify(bitbucketWebhookClient).registerWebhook(argThat((BitbucketWebhookRequest request) ->
+                request.getEvents().contains(REPO_REF_CHANGE.getEventId()) &&
+                request.getEvents().contains(PULL_REQUEST_OPENED.getEventId())));
+        verify(bitbucketWebhookClient, times(2)).registerWebhook(any(BitbucketWebhookRequest.class));
+    }
+
+    @Test
+    public void testForgetAllRegistersAgain() {
+        BitbucketWebhook t = new BitbucketWebhook(1, WEBHOOK_NAME, emptySet(), "", true);
+        when(bitbucketWebhookClient.registerWebhook(any(BitbucketWebhookRequest.class))).thenReturn(t);
+
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, false, true);
+        retryingWebhookHandler.forgetAll();
+        retryingWebhookHandler.register(BITBUCKET_BASE_URL, globalCredentialsProvider, createSCMRepository(), context, false, true);
+
+        verify(bitbucketWebhookClient, times(2)).registerWebhook(any(BitbucketWebhookRequest.class));
+    }
+
     private BitbucketSCMRepository createSCMRepository() {
         return new BitbucketSCMRepository(JOB_CREDENTIALS, "", PROJECT, PROJECT, REPO, REPO, SERVER_ID, "");
     }
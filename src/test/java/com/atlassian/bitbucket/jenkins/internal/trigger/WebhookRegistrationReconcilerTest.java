@@ -0,0 +1,213 @@
+package com.atlassian.bitbucket.jenkins.internal.trigger;
+
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketCapabilitiesClient;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactory;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketClientFactoryProvider;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketProjectClient;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketRepositoryClient;
+import com.atlassian.bitbucket.jenkins.internal.client.BitbucketWebhookClient;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketPluginConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketServerConfiguration;
+import com.atlassian.bitbucket.jenkins.internal.config.BitbucketTokenCredentials;
+import com.atlassian.bitbucket.jenkins.internal.credentials.BitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.credentials.GlobalCredentialsProvider;
+import com.atlassian.bitbucket.jenkins.internal.credentials.JenkinsToBitbucketCredentials;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketWebhook;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketWebhookRequest;
+import com.atlassian.bitbucket.jenkins.internal.model.BitbucketWebhookSupportedEvents;
+import com.atlassian.bitbucket.jenkins.internal.provider.JenkinsProvider;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCM;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMRepository;
+import com.atlassian.bitbucket.jenkins.internal.scm.BitbucketSCMSource;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.triggers.Trigger;
+import hudson.triggers.TriggerDescriptor;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.atlassian.bitbucket.jenkins.internal.trigger.events.BitbucketWebhookEvent.PULL_REQUEST_OPENED;
+import static com.atlassian.bitbucket.jenkins.internal.trigger.events.BitbucketWebhookEvent.REPO_REF_CHANGE;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WebhookRegistrationReconcilerTest {
+
+    @ClassRule
+    public static final JenkinsRule jenkins = new JenkinsRule();
+
+    private static final String BASE_URL = "http://bitbucket.example.com";
+    private static final String PROJECT = "PROJ";
+    private static final String SERVER_ID = "server-id";
+
+    @Mock
+    private BitbucketClientFactory clientFactory;
+    @Mock
+    private BitbucketClientFactoryProvider clientFactoryProvider;
+    private List<Item> items;
+    @Mock
+    private BitbucketWebhookClient otherWebhookClient;
+    @Mock
+    private BitbucketPluginConfiguration pluginConfiguration;
+    @Mock
+    private BitbucketProjectClient projectClient;
+    @Mock
+    private BitbucketWebhookClient webhookClient;
+
+    @Before
+    public void setup() {
+        // Two jobs want different events for the same repository, and a multibranch project uses another one
+        FreeStyleProject freeStyleProject = mock(FreeStyleProject.class);
+        doReturn(singletonMap(mock(TriggerDescriptor.class), trigger(false, true)))
+                .when(freeStyleProject).getTriggers();
+        doReturn(singletonList(scm(repository("repo")))).when(freeStyleProject).getSCMs();
+        WorkflowJob workflowJob = mock(WorkflowJob.class);
+        doReturn(singletonMap(mock(TriggerDescriptor.class), trigger(true, false))).when(workflowJob).getTriggers();
+        doReturn(singletonList(scm(repository("repo")))).when(workflowJob).getSCMs();
+        // A job without a Bitbucket trigger does not want a webhook
+        FreeStyleProject untriggeredProject = mock(FreeStyleProject.class);
+        doReturn(singletonMap(mock(TriggerDescriptor.class), mock(Trigger.class)))
+                .when(untriggeredProject).getTriggers();
+        WorkflowMultiBranchProject multibranchProject = mock(WorkflowMultiBranchProject.class);
+        BitbucketWebhookMultibranchTrigger multibranchTrigger = mock(BitbucketWebhookMultibranchTrigger.class);
+        when(multibranchTrigger.isRefTrigger()).thenReturn(true);
+        doReturn(singletonMap(mock(TriggerDescriptor.class), multibranchTrigger))
+                .when(multibranchProject).getTriggers();
+        BitbucketSCMSource source = mock(BitbucketSCMSource.class);
+        when(source.isValid()).thenReturn(true);
+        when(source.getBitbucketSCMRepository()).thenReturn(repository("other"));
+        doReturn(singletonList(source)).when(multibranchProject).getSCMSources();
+        items = Arrays.asList(freeStyleProject, workflowJob, untriggeredProject, multibranchProject);
+    }
+
+    @Test
+    public void testCollectMergesEventsForRepository() {
+        Collection<WebhookRegistrationReconciler.Subscription> subscriptions =
+                WebhookRegistrationReconciler.collect(items);
+
+        assertThat(subscriptions.stream().map(subscription -> subscription.getRepository().getRepositorySlug())
+                .collect(Collectors.toList()), contains("repo", "other"));
+        WebhookRegistrationReconciler.Subscription subscription = subscriptions.iterator().next();
+        assertThat(subscription.isPullRequestTrigger(), is(true));
+        assertThat(subscription.isRefTrigger(), is(true));
+        WebhookRegistrationReconciler.Subscription otherSubscription = subscriptions.stream()
+                .skip(1)
+                .findFirst()
+                .get();
+        assertThat(otherSubscription.isPullRequestTrigger(), is(false));
+        assertThat(otherSubscription.isRefTrigger(), is(true));
+    }
+
+    @Test
+    public void testReconcileRegistersEachRepositoryOnce() {
+        WebhookRegistrationReconciler reconciler = newReconciler();
+
+        reconciler.reconcile();
+
+        verify(webhookClient).registerWebhook(argThat((BitbucketWebhookRequest request) ->
+                request.getEvents().contains(REPO_REF_CHANGE.getEventId()) &&
+                request.getEvents().contains(PULL_REQUEST_OPENED.getEventId())));
+        verify(otherWebhookClient).registerWebhook(argThat((BitbucketWebhookRequest request) ->
+                request.getEvents().contains(REPO_REF_CHANGE.getEventId()) &&
+                !request.getEvents().contains(PULL_REQUEST_OPENED.getEventId())));
+    }
+
+    @Test
+    public void testReconcileWithUnchangedEventsDoesNotRegisterAgain() {
+        WebhookRegistrationReconciler reconciler = newReconciler();
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        verify(webhookClient).registerWebhook(any(BitbucketWebhookRequest.class));
+        verify(otherWebhookClient).registerWebhook(any(BitbucketWebhookRequest.class));
+    }
+
+    private WebhookRegistrationReconciler newReconciler() {
+        BitbucketServerConfiguration server = mock(BitbucketServerConfiguration.class);
+        when(server.getBaseUrl()).thenReturn(BASE_URL);
+        BitbucketTokenCredentials adminCredentials = mock(BitbucketTokenCredentials.class);
+        GlobalCredentialsProvider globalCredentialsProvider = () -> Optional.of(adminCredentials);
+        when(server.getGlobalCredentialsProvider(any(Item.class))).thenReturn(globalCredentialsProvider);
+        when(pluginConfiguration.getValidServerById(SERVER_ID)).thenReturn(Optional.of(server));
+
+        JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials = mock(JenkinsToBitbucketCredentials.class);
+        when(jenkinsToBitbucketCredentials.toBitbucketCredentials(adminCredentials))
+                .thenReturn(mock(BitbucketCredentials.class));
+        JenkinsProvider jenkinsProvider = mock(JenkinsProvider.class);
+        Jenkins jenkinsInstance = mock(Jenkins.class);
+        when(jenkinsProvider.get()).thenReturn(jenkinsInstance);
+        when(jenkinsInstance.getRootUrl()).thenReturn("http://jenkins.example.com/");
+        InstanceBasedNameGenerator nameGenerator = mock(InstanceBasedNameGenerator.class);
+        when(nameGenerator.getUniqueName()).thenReturn("webhook");
+
+        when(clientFactoryProvider.getClient(any(String.class), any(BitbucketCredentials.class)))
+                .thenReturn(clientFactory);
+        BitbucketCapabilitiesClient capabilitiesClient = mock(BitbucketCapabilitiesClient.class);
+        when(capabilitiesClient.getWebhookSupportedEvents())
+                .thenReturn(new BitbucketWebhookSupportedEvents(emptySet()));
+        when(clientFactory.getCapabilityClient()).thenReturn(capabilitiesClient);
+        when(clientFactory.getProjectClient(PROJECT)).thenReturn(projectClient);
+        stubWebhookClient("repo", webhookClient);
+        stubWebhookClient("other", otherWebhookClient);
+
+        RetryingWebhookHandler webhookHandler = new RetryingWebhookHandler(jenkinsProvider, clientFactoryProvider,
+                nameGenerator, jenkinsToBitbucketCredentials);
+        return new WebhookRegistrationReconciler(pluginConfiguration, webhookHandler, 0) {
+            @Override
+            Collection<? extends Item> getAllItems() {
+                return items;
+            }
+        };
+    }
+
+    private static BitbucketSCMRepository repository(String slug) {
+        return new BitbucketSCMRepository("credentials", "", PROJECT, PROJECT, slug, slug, SERVER_ID, "");
+    }
+
+    private static BitbucketSCM scm(BitbucketSCMRepository repository) {
+        BitbucketSCM scm = mock(BitbucketSCM.class);
+        when(scm.getRepositories()).thenReturn(singletonList(repository));
+        return scm;
+    }
+
+    private static BitbucketWebhookTriggerImpl trigger(boolean pullRequestTrigger, boolean refTrigger) {
+        BitbucketWebhookTriggerImpl trigger = mock(BitbucketWebhookTriggerImpl.class);
+        when(trigger.isPullRequestTrigger()).thenReturn(pullRequestTrigger);
+        when(trigger.isRefTrigger()).thenReturn(refTrigger);
+        return trigger;
+    }
+
+    private void stubWebhookClient(String slug, BitbucketWebhookClient client) {
+        BitbucketRepositoryClient repositoryClient = mock(BitbucketRepositoryClient.class);
+        when(projectClient.getRepositoryClient(slug)).thenReturn(repositoryClient);
+        when(repositoryClient.getWebhookClient()).thenReturn(client);
+        when(client.registerWebhook(any(BitbucketWebhookRequest.class)))
+                .thenReturn(new BitbucketWebhook(1, "webhook", emptySet(), "", true));
+    }
+}
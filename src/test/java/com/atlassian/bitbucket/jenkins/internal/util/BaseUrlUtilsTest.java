@@ -0,0 +1,30 @@
+package com.atlassian.bitbucket.jenkins.internal.util;
+
+import org.junit.Test;
+
+import static com.atlassian.bitbucket.jenkins.internal.util.BaseUrlUtils.isOnServer;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BaseUrlUtilsTest {
+
+    private static final String BASE_URL = "http://example.com/bitbucket";
+
+    @Test
+    public void testBaseUrlIsOnServer() {
+        assertTrue(isOnServer(BASE_URL, BASE_URL));
+        assertTrue(isOnServer(BASE_URL, BASE_URL + "/"));
+    }
+
+    @Test
+    public void testUrlOfOtherServerWithSharedPrefixIsNotOnServer() {
+        assertFalse(isOnServer("http://example.com/bitbucket2/projects/PROJ/repos/repo/browse", BASE_URL));
+        assertFalse(isOnServer("http://example.com/bitbucket2/projects/PROJ/repos/repo/browse", BASE_URL + "/"));
+    }
+
+    @Test
+    public void testUrlUnderBaseUrlIsOnServer() {
+        assertTrue(isOnServer(BASE_URL + "/projects/PROJ/repos/repo/browse", BASE_URL));
+        assertTrue(isOnServer(BASE_URL + "/projects/PROJ/repos/repo/browse", BASE_URL + "/"));
+    }
+}
@@ -13,7 +13,6 @@ import com.atlassian.bitbucket.jenkins.internal.scm.filesystem.BitbucketSCMFileS
 import hudson.model.Item;
 import hudson.plugins.git.BranchSpec;
 import hudson.scm.SCM;
-import hudson.util.FormValidation;
 import it.com.atlassian.bitbucket.jenkins.internal.fixture.BitbucketJenkinsRule;
 import it.com.atlassian.bitbucket.jenkins.internal.fixture.JenkinsProjectHandler;
 import jenkins.scm.api.SCMFileSystem;
@@ -46,7 +45,6 @@ public class BitbucketSCMFileSystemIT {
     BitbucketSCMFileSystem.BuilderImpl builder;
     @Mock
     BitbucketClientFactoryProvider clientFactoryProvider;
-    BitbucketServerConfiguration invalidConfiguration;
     @Mock
     JenkinsToBitbucketCredentials jenkinsToBitbucketCredentials;
     @Mock
@@ -61,10 +59,7 @@ public class BitbucketSCMFileSystemIT {
 
     @Before
     public void setUp() {
-        invalidConfiguration = mock(BitbucketServerConfiguration.class);
         validConfiguration = mock(BitbucketServerConfiguration.class);
-        doReturn(FormValidation.ok()).when(validConfiguration).validate();
-        doReturn(FormValidation.error("")).when(invalidConfiguration).validate();
 
         BitbucketClientFactory clientFactory = mock(BitbucketClientFactory.class);
         BitbucketProjectClient projectClient = mock(BitbucketProjectClient.class);
@@ -81,7 +76,7 @@ public class BitbucketSCMFileSystemIT {
         WorkflowJob pipelineProject =
                 projectHandler.createPipelineJobWithBitbucketScm("testBuildPipelineSCM", "project_1", "rep_1", "refs/heads/master");
         BitbucketSCM scm = (BitbucketSCM) ((CpsScmFlowDefinition) pipelineProject.getDefinition()).getScm();
-        doReturn(Optional.of(validConfiguration)).when(pluginConfiguration).getServerById(eq(scm.getServerId()));
+        doReturn(Optional.of(validConfiguration)).when(pluginConfiguration).getValidServerById(eq(scm.getServerId()));
 
         SCMFileSystem fileSystem = builder.build(pipelineProject, scm, null);
         assertThat(fileSystem, Matchers.notNullValue());
@@ -95,7 +90,7 @@ public class BitbucketSCMFileSystemIT {
     public void testBuildPipelineSCMInvalidServerConfiguration() {
         BitbucketSCM scm = mock(BitbucketSCM.class);
         doReturn("INVALID-CONFIG-ID").when(scm).getServerId();
-        doReturn(Optional.of(invalidConfiguration)).when(pluginConfiguration).getServerById("INVALID-CONFIG-ID");
+        doReturn(Optional.empty()).when(pluginConfiguration).getValidServerById("INVALID-CONFIG-ID");
 
         assertThat(builder.build(mock(Item.class), scm, null), Matchers.nullValue());
     }
@@ -116,7 +111,7 @@ public class BitbucketSCMFileSystemIT {
         SCMRevision revision = new BitbucketSCMRevision(head, "");
 
         String serverConfigID = ((BitbucketSCMSource) multiBranchProject.getSCMSources().get(0)).getServerId();
-        doReturn(Optional.of(validConfiguration)).when(pluginConfiguration).getServerById(eq(serverConfigID));
+        doReturn(Optional.of(validConfiguration)).when(pluginConfiguration).getValidServerById(eq(serverConfigID));
 
         SCMFileSystem fileSystem = builder.build(multiBranchProject.getSCMSources().get(0), head, revision);
         assertThat(fileSystem, Matchers.notNullValue());
@@ -142,7 +137,7 @@ public class BitbucketSCMFileSystemIT {
                 projectHandler.createMultibranchJob("testBuildSCMSourceInvalidServerConfiguration", "PROJECT_1", "rep_1");
         BitbucketSCMSource scmSource = (BitbucketSCMSource) multiBranchProject.getSCMSources().get(0);
 
-        doReturn(Optional.of(invalidConfiguration)).when(pluginConfiguration).getServerById(scmSource.getServerId());
+        doReturn(Optional.empty()).when(pluginConfiguration).getValidServerById(scmSource.getServerId());
 
         assertThat(builder.build(scmSource, mock(BitbucketBranchSCMHead.class), mock(BitbucketSCMRevision.class)), Matchers.nullValue());
     }
@@ -153,7 +148,7 @@ public class BitbucketSCMFileSystemIT {
                 projectHandler.createMultibranchJob("testBuildSCMSourceNoServerConfiguration", "PROJECT_1", "rep_1");
         BitbucketSCMSource scmSource = (BitbucketSCMSource) multiBranchProject.getSCMSources().get(0);
 
-        doReturn(Optional.empty()).when(pluginConfiguration).getServerById(scmSource.getServerId());
+        doReturn(Optional.empty()).when(pluginConfiguration).getValidServerById(scmSource.getServerId());
 
         assertThat(builder.build(scmSource, mock(BitbucketBranchSCMHead.class), mock(BitbucketSCMRevision.class)), Matchers.nullValue());
     }